@@ -0,0 +1,106 @@
+package com.thefallersgames.crown.benchmark;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thefallersgames.crown.managers.CrownManager;
+import com.thefallersgames.crown.testutil.FakeServer;
+import com.thefallersgames.crown.testutil.TestCrownPlugin;
+
+/**
+ * Benchmarks for recognising, reading and handing out crowns.
+ * <p>
+ * The state is per thread because the crown registry only accepts writes from
+ * the thread that created it; JMH runs the setup on the benchmark thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CrownManagerBenchmark {
+    /** More distinct crowns than the classifier remembers, a power of two */
+    private static final int DISTINCT_CROWNS = 4096;
+
+    private TestCrownPlugin plugin;
+    private CrownManager crownManager;
+    private Player player;
+    private ItemStack crown;
+    private ItemStack otherMaterial;
+    private ItemStack sameMaterial;
+    private ItemStack[] distinctCrowns;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        FakeServer server = FakeServer.get();
+        server.reset();
+        plugin = TestCrownPlugin.create().enable();
+        crownManager = plugin.getCrownManager();
+        player = server.addPlayer("Benchmark").asPlayer();
+
+        crown = crownManager.createCrown(player);
+        otherMaterial = new ItemStack(Material.DIRT, 16);
+        sameMaterial = new ItemStack(crown.getType());
+        distinctCrowns = new ItemStack[DISTINCT_CROWNS];
+        for (int i = 0; i < distinctCrowns.length; i++) {
+            distinctCrowns[i] = crown.clone();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        plugin.deleteDataFolder();
+    }
+
+    @Benchmark
+    public boolean isCrownItemOtherMaterial() {
+        return crownManager.isCrownItem(otherMaterial);
+    }
+
+    @Benchmark
+    public boolean isCrownItemSameMaterial() {
+        return crownManager.isCrownItem(sameMaterial);
+    }
+
+    @Benchmark
+    public boolean isCrownItemRepeated() {
+        return crownManager.isCrownItem(crown);
+    }
+
+    @Benchmark
+    public boolean isCrownItemDistinct() {
+        return crownManager.isCrownItem(distinctCrowns[next++ & (DISTINCT_CROWNS - 1)]);
+    }
+
+    @Benchmark
+    public UUID getCrownOwner() {
+        return crownManager.getCrownOwner(crown);
+    }
+
+    @Benchmark
+    public ItemStack createCrown() {
+        return crownManager.createCrown(player);
+    }
+
+    @Benchmark
+    public void giveCrown() {
+        crownManager.giveCrown(player);
+    }
+}
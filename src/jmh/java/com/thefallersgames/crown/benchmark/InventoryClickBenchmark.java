@@ -0,0 +1,120 @@
+package com.thefallersgames.crown.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Material;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.event.inventory.InventoryType.SlotType;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thefallersgames.crown.listeners.CrownInventoryListener;
+import com.thefallersgames.crown.managers.CrownManager;
+import com.thefallersgames.crown.testutil.FakeInventory;
+import com.thefallersgames.crown.testutil.FakeInventoryView;
+import com.thefallersgames.crown.testutil.FakePlayer;
+import com.thefallersgames.crown.testutil.FakeScheduler;
+import com.thefallersgames.crown.testutil.FakeServer;
+import com.thefallersgames.crown.testutil.TestCrownPlugin;
+
+/**
+ * Benchmarks for deciding what to do with an inventory click, with a chest open.
+ * <p>
+ * Clicks that involve a crown rescan the player's inventory on the next tick,
+ * so those benchmarks run that tick as part of the click.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InventoryClickBenchmark {
+    private static final int CROWN_SLOT = 9;
+    private static final int PLAIN_SLOT = 10;
+    private static final int CHEST_SIZE = 27;
+
+    private TestCrownPlugin plugin;
+    private FakeScheduler scheduler;
+    private CrownInventoryListener listener;
+    private InventoryClickEvent plainItemClick;
+    private InventoryClickEvent ownCrownClick;
+    private InventoryClickEvent crownIntoChestClick;
+
+    @Setup
+    public void setUp() {
+        FakeServer server = FakeServer.get();
+        server.reset();
+        plugin = TestCrownPlugin.create().enable();
+        scheduler = server.getFakeScheduler();
+        CrownManager crownManager = plugin.getCrownManager();
+        listener = new CrownInventoryListener(plugin, crownManager, plugin.getConfigManager());
+
+        // A player with their crown and a stack of dirt in their inventory, looking into a chest
+        FakePlayer holder = server.addPlayer("Holder");
+        holder.getFakeInventory().setItem(CROWN_SLOT, crownManager.createCrown(holder.asPlayer()));
+        holder.getFakeInventory().setItem(PLAIN_SLOT, new ItemStack(Material.DIRT, 16));
+        crownManager.registerPlayerAsCrownOwner(holder.getUniqueId());
+        crownManager.getSlotIndex().reconcile(holder.asPlayer());
+        FakeInventoryView holderView = new FakeInventoryView(
+                FakeInventory.container(InventoryType.CHEST, CHEST_SIZE), holder);
+        plainItemClick = click(holderView, holderView.rawSlotOfPlayerSlot(PLAIN_SLOT), InventoryAction.PICKUP_ALL);
+        ownCrownClick = click(holderView, holderView.rawSlotOfPlayerSlot(CROWN_SLOT), InventoryAction.PICKUP_ALL);
+
+        // A player with their crown on the cursor, clicking into the chest
+        FakePlayer carrier = server.addPlayer("Carrier");
+        carrier.setItemOnCursor(crownManager.createCrown(carrier.asPlayer()));
+        crownManager.registerPlayerAsCrownOwner(carrier.getUniqueId());
+        FakeInventoryView carrierView = new FakeInventoryView(
+                FakeInventory.container(InventoryType.CHEST, CHEST_SIZE), carrier);
+        crownIntoChestClick = click(carrierView, 0, InventoryAction.PLACE_ALL);
+
+        scheduler.tick();
+    }
+
+    @TearDown
+    public void tearDown() {
+        plugin.deleteDataFolder();
+    }
+
+    @Benchmark
+    public boolean plainItem() {
+        listener.onInventoryClick(plainItemClick);
+        return plainItemClick.isCancelled();
+    }
+
+    @Benchmark
+    public boolean ownCrown() {
+        return clickAndTick(ownCrownClick);
+    }
+
+    @Benchmark
+    public boolean crownIntoChest() {
+        return clickAndTick(crownIntoChestClick);
+    }
+
+    private boolean clickAndTick(InventoryClickEvent event) {
+        event.setCancelled(false);
+        listener.onInventoryClick(event);
+        scheduler.tick();
+        return event.isCancelled();
+    }
+
+    private static InventoryClickEvent click(InventoryView view, int rawSlot, InventoryAction action) {
+        return new InventoryClickEvent(view, SlotType.CONTAINER, rawSlot, ClickType.LEFT, action);
+    }
+}
@@ -0,0 +1,55 @@
+package com.thefallersgames.crown.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thefallersgames.crown.managers.ConfigManager;
+import com.thefallersgames.crown.testutil.FakeServer;
+import com.thefallersgames.crown.testutil.TestCrownPlugin;
+
+/**
+ * Benchmarks for looking up configured messages
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageBenchmark {
+    private TestCrownPlugin plugin;
+    private ConfigManager configManager;
+
+    @Setup
+    public void setUp() {
+        FakeServer.get().reset();
+        plugin = TestCrownPlugin.create().enable();
+        configManager = plugin.getConfigManager();
+    }
+
+    @TearDown
+    public void tearDown() {
+        plugin.deleteDataFolder();
+    }
+
+    @Benchmark
+    public String getMessage() {
+        return configManager.getMessage("crown_given");
+    }
+
+    @Benchmark
+    public String getMessageMissing() {
+        return configManager.getMessage("no_such_message");
+    }
+}
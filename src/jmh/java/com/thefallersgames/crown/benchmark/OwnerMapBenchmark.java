@@ -0,0 +1,62 @@
+package com.thefallersgames.crown.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thefallersgames.crown.managers.CrownOwnerMap;
+
+/**
+ * Compares the heap cost of the compact owner map with a HashMap. Both maps are
+ * sized up front so they never resize, which makes {@code gc.alloc.rate.norm}
+ * the footprint of a filled map, including the UUIDs created as loading from disk does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OwnerMapBenchmark {
+    @Param({"10000", "100000"})
+    public int entries;
+
+    @Param({"hashmap", "compact"})
+    public String map;
+
+    private long[] bits;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        bits = new long[2 * entries];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = random.nextLong();
+        }
+    }
+
+    @Benchmark
+    public Map<UUID, UUID> fill() {
+        Map<UUID, UUID> owners = map.equals("compact")
+                ? new CrownOwnerMap(entries)
+                : new HashMap<>((int) (entries / 0.75f) + 1);
+        for (int i = 0; i < entries; i++) {
+            owners.put(new UUID(bits[2 * i], bits[2 * i + 1]), new UUID(bits[2 * i], bits[2 * i + 1]));
+        }
+        return owners;
+    }
+}
@@ -0,0 +1,91 @@
+package com.thefallersgames.crown.benchmark;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thefallersgames.crown.managers.CrownOwnerMap;
+import com.thefallersgames.crown.storage.CrownStore;
+import com.thefallersgames.crown.testutil.FakeServer;
+import com.thefallersgames.crown.testutil.TestCrownPlugin;
+
+/**
+ * Benchmarks for the full saves and loads the data manager runs, per backend
+ * and data size. The stores are created by the data manager but called
+ * directly, without the flusher thread, so only the store itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StoreBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int entries;
+
+    @Param({"binary", "yaml", "journal"})
+    public String backend;
+
+    private TestCrownPlugin plugin;
+    private CrownStore store;
+    private Map<UUID, UUID> crownOwners;
+    private Map<UUID, Boolean> pendingRespawns;
+
+    @Setup
+    public void setUp() throws IOException {
+        FakeServer.get().reset();
+        plugin = TestCrownPlugin.create().enable();
+        store = plugin.enableData().createStore(backend);
+
+        Random random = new Random(42);
+        crownOwners = new CrownOwnerMap();
+        pendingRespawns = new HashMap<>();
+        UUID previous = null;
+        for (int i = 0; i < entries; i++) {
+            UUID player = new UUID(random.nextLong(), random.nextLong());
+            // Most players hold their own crown, some hold the crown of another player
+            crownOwners.put(player, previous != null && i % 10 == 0 ? previous : player);
+            if (i % 20 == 0) {
+                pendingRespawns.put(player, Boolean.TRUE);
+            }
+            previous = player;
+        }
+        store.save(crownOwners, pendingRespawns);
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.close();
+        plugin.deleteDataFolder();
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        store.save(crownOwners, pendingRespawns);
+    }
+
+    @Benchmark
+    public int load() throws IOException {
+        Map<UUID, UUID> owners = new CrownOwnerMap();
+        Map<UUID, Boolean> respawns = new HashMap<>();
+        store.load(owners, respawns);
+        return owners.size() + respawns.size();
+    }
+}
@@ -1,13 +1,33 @@
 package com.thefallersgames.crown;
 
+import java.io.File;
+import java.io.IOException;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
 
+import com.thefallersgames.crown.audit.AuditLog;
 import com.thefallersgames.crown.commands.CrownCommand;
 import com.thefallersgames.crown.listeners.CrownEventListener;
+import com.thefallersgames.crown.listeners.CrownInventoryListener;
 import com.thefallersgames.crown.managers.CrownManager;
+import com.thefallersgames.crown.managers.CrownPresence;
+import com.thefallersgames.crown.managers.CrownWorkQueue;
 import com.thefallersgames.crown.managers.ConfigManager;
+import com.thefallersgames.crown.managers.CrownSettings;
 import com.thefallersgames.crown.managers.DataManager;
+import com.thefallersgames.crown.managers.OfflineCrownManager;
 import com.thefallersgames.crown.managers.ParticleManager;
+import com.thefallersgames.crown.managers.RespawnQueue;
+import com.thefallersgames.crown.managers.TickMonitor;
+import com.thefallersgames.crown.metrics.CrownMetrics;
+import com.thefallersgames.crown.metrics.MetricsExporter;
+import com.thefallersgames.crown.sync.CrownSync;
+import com.thefallersgames.crown.sync.FileTransport;
+import com.thefallersgames.crown.sync.LoopbackTransport;
+import com.thefallersgames.crown.sync.SyncTransport;
 
 public class CrownPlugin extends JavaPlugin {
     
@@ -15,6 +35,33 @@ public class CrownPlugin extends JavaPlugin {
     private CrownManager crownManager;
     private DataManager dataManager;
     private ParticleManager particleManager;
+    private TickMonitor tickMonitor;
+    private CrownPresence crownPresence;
+    private CrownWorkQueue workQueue;
+    private OfflineCrownManager offlineCrownManager;
+    private RespawnQueue respawnQueue;
+    private CrownSync crownSync;
+    private AuditLog auditLog;
+    private final CrownMetrics metrics = new CrownMetrics();
+    private MetricsExporter metricsExporter;
+    
+    /**
+     * Creates the plugin, called by the server when it loads the plugin jar
+     */
+    public CrownPlugin() {
+        super();
+    }
+    
+    /**
+     * Creates the plugin outside of a server, for tests and benchmarks
+     * @param loader The plugin loader
+     * @param description The plugin description
+     * @param dataFolder The folder for the configuration and data files
+     * @param file The plugin jar
+     */
+    protected CrownPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+        super(loader, description, dataFolder, file);
+    }
     
     @Override
     public void onEnable() {
@@ -22,42 +69,117 @@ public class CrownPlugin extends JavaPlugin {
         saveDefaultConfig();
         configManager = new ConfigManager(this);
         
+        // Initialize metrics, which are recorded from here on and optionally written to a file
+        metricsExporter = new MetricsExporter(this, configManager, metrics);
+        metricsExporter.refresh();
+        
         // Initialize data manager
         dataManager = new DataManager(this);
         
+        // Initialize the audit log, which writes crowns changing hands in the background
+        if (configManager.getSettings().isAuditEnabled()) {
+            auditLog = new AuditLog(this, configManager);
+            auditLog.start();
+        }
+        
         // Initialize crown manager
         crownManager = new CrownManager(this, configManager);
         
+        // Initialize crown presence tracking, which registers the inventory listener while crowns are in play
+        crownPresence = new CrownPresence(this, crownManager, configManager,
+                new CrownInventoryListener(this, crownManager, configManager));
+        
+        // Initialize the queue that spreads bulk crown commands over several ticks
+        workQueue = new CrownWorkQueue(this, crownManager, configManager);
+        
+        // Initialize the queue that gives crowns back to respawned owners
+        respawnQueue = new RespawnQueue(this, crownManager, configManager);
+        
+        // Initialize offline crown operations and the cache of known player names
+        offlineCrownManager = new OfflineCrownManager(this, crownManager, configManager);
+        
+        // Initialize tick health monitor, which throttles cosmetic work under load
+        tickMonitor = new TickMonitor(this, configManager);
+        tickMonitor.start();
+        
         // Initialize particle manager
         particleManager = new ParticleManager(this, configManager);
         
         // Load saved data
         loadData();
         
+        // Start publishing ownership snapshots and background persistence
+        crownManager.start();
+        dataManager.start(crownManager);
+        offlineCrownManager.start();
+        
+        // Start syncing ownership changes with other servers, if enabled
+        startSync();
+        
         // Register commands
         getCommand("crown").setExecutor(new CrownCommand(this, crownManager, configManager));
         
         // Register event listeners
         getServer().getPluginManager().registerEvents(new CrownEventListener(this, crownManager, configManager), this);
         
+        // Players that are already online (e.g. after a reload) never fire a join event
+        for (Player player : getServer().getOnlinePlayers()) {
+            crownManager.getSlotIndex().reconcile(player);
+            offlineCrownManager.handleJoin(player);
+            if (!player.isDead()) {
+                respawnQueue.add(player);
+            }
+        }
+        crownPresence.start();
+        
+        // Start crown auras, if enabled, now that the slot index is filled
+        particleManager.refresh();
+        
         getLogger().info("Crown plugin has been enabled!");
     }
     
     @Override
     public void onDisable() {
+        if (particleManager != null) {
+            particleManager.shutdown();
+        }
+        if (tickMonitor != null) {
+            tickMonitor.stop();
+        }
+        if (metricsExporter != null) {
+            metricsExporter.stop();
+        }
+        if (crownPresence != null) {
+            crownPresence.stop();
+        }
+        if (workQueue != null) {
+            workQueue.stop();
+        }
+        if (respawnQueue != null) {
+            respawnQueue.stop();
+        }
+        if (crownSync != null) {
+            crownSync.stop();
+        }
+        
         // Save data before shutdown
         saveData();
+        if (offlineCrownManager != null) {
+            offlineCrownManager.shutdown();
+        }
+        if (auditLog != null) {
+            auditLog.shutdown();
+        }
         
         getLogger().info("Crown plugin has been disabled!");
     }
     
     /**
-     * Save crown ownership data to disk
+     * Flush pending crown ownership data to disk
      */
     private void saveData() {
         if (crownManager != null && dataManager != null) {
-            dataManager.saveCrownOwners(crownManager.getCrownOwners());
-            dataManager.savePendingRespawns(crownManager.getPendingCrownRespawn());
+            dataManager.shutdown(crownManager);
             getLogger().info("Crown data saved successfully");
         }
     }
@@ -67,12 +189,52 @@ public class CrownPlugin extends JavaPlugin {
      */
     private void loadData() {
         if (crownManager != null && dataManager != null) {
-            crownManager.setCrownOwners(dataManager.loadCrownOwners());
-            crownManager.setPendingCrownRespawn(dataManager.loadPendingRespawns());
+            crownManager.getLeaderboard().load(dataManager.loadReignTimes());
+            crownManager.setCrownData(dataManager.loadCrownOwners(), dataManager.loadPendingRespawns());
+            offlineCrownManager.load();
             getLogger().info("Crown data loaded successfully");
         }
     }
     
+    /**
+     * Start syncing crown ownership with other servers, if enabled
+     */
+    private void startSync() {
+        CrownSettings settings = configManager.getSettings();
+        if (!settings.isSyncEnabled()) {
+            return;
+        }
+        
+        String serverId = settings.getSyncServerId().isEmpty()
+                ? "server-" + getServer().getPort()
+                : settings.getSyncServerId();
+        SyncTransport transport;
+        switch (settings.getSyncTransport()) {
+            case "file":
+                File directory = new File(settings.getSyncDirectory());
+                if (!directory.isAbsolute()) {
+                    directory = new File(getDataFolder(), settings.getSyncDirectory());
+                }
+                transport = new FileTransport(directory, serverId, settings.getSyncPollInterval(), getLogger());
+                break;
+            case "loopback":
+                transport = new LoopbackTransport("crown");
+                break;
+            default:
+                getLogger().warning("Unknown sync transport in config: " + settings.getSyncTransport() + ", crown sync is disabled");
+                return;
+        }
+        
+        CrownSync sync = new CrownSync(this, crownManager, transport, serverId);
+        try {
+            sync.start();
+            crownSync = sync;
+            getLogger().info("Syncing crowns as " + serverId + " over " + transport.getName());
+        } catch (IOException e) {
+            getLogger().warning("Could not start crown sync: " + e.getMessage());
+        }
+    }
+    
     /**
      * Gets the crown manager
      * @return The crown manager
@@ -104,4 +266,76 @@ public class CrownPlugin extends JavaPlugin {
     public ParticleManager getParticleManager() {
         return particleManager;
     }
+    
+    /**
+     * Gets the tick health monitor
+     * @return The tick monitor
+     */
+    public TickMonitor getTickMonitor() {
+        return tickMonitor;
+    }
+    
+    /**
+     * Gets the tracker of crowns in play
+     * @return The crown presence
+     */
+    public CrownPresence getCrownPresence() {
+        return crownPresence;
+    }
+    
+    /**
+     * Gets the queue of bulk crown operations
+     * @return The work queue
+     */
+    public CrownWorkQueue getWorkQueue() {
+        return workQueue;
+    }
+    
+    /**
+     * Gets the manager of crown operations for offline players
+     * @return The offline crown manager
+     */
+    public OfflineCrownManager getOfflineCrownManager() {
+        return offlineCrownManager;
+    }
+    
+    /**
+     * Gets the queue of owners waiting to get their crown back after respawning
+     * @return The respawn queue
+     */
+    public RespawnQueue getRespawnQueue() {
+        return respawnQueue;
+    }
+    
+    /**
+     * Gets the sync of crown ownership with other servers
+     * @return The crown sync, or null if sync is disabled
+     */
+    public CrownSync getCrownSync() {
+        return crownSync;
+    }
+    
+    /**
+     * Gets the log of crowns changing hands
+     * @return The audit log, or null if it is disabled
+     */
+    public AuditLog getAuditLog() {
+        return auditLog;
+    }
+    
+    /**
+     * Gets the plugin metrics
+     * @return The metrics
+     */
+    public CrownMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Gets the writer of the metrics file
+     * @return The metrics exporter
+     */
+    public MetricsExporter getMetricsExporter() {
+        return metricsExporter;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,393 @@
+package com.thefallersgames.crown.audit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.thefallersgames.crown.storage.AtomicFile;
+
+/**
+ * The audit log on disk: numbered files of fixed-size records, plus an index
+ * of the latest records of each player.
+ * <p>
+ * Records are appended to {@code audit-<n>.log}. Once it reaches the size
+ * limit it is compressed to {@code audit-<n>.log.gz} and {@code audit-<n+1>.log}
+ * is started; the oldest compressed files are deleted beyond the file limit.
+ * Every file starts with the magic {@code "CRWA"} and a format version byte.
+ * <p>
+ * The index maps each player to the file and record number of their latest
+ * records, so a history lookup reads just those records: straight from the
+ * current file, or by skipping through a compressed file up to them. It is
+ * rebuilt from the files on {@link #open()}.
+ * <p>
+ * Not thread-safe; used from the audit writer thread only.
+ */
+public class AuditFiles {
+    private static final int MAGIC = 0x43525741; // "CRWA"
+    private static final byte FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 5;
+    private static final Pattern FILE_NAME = Pattern.compile("audit-(\\d+)\\.log(\\.gz)?");
+    
+    private final File directory;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final int historySize;
+    private final Logger logger;
+    private final Map<UUID, long[]> index = new HashMap<>();
+    private final ByteBuffer buffer = ByteBuffer.allocate(AuditRecord.SIZE * 128);
+    private FileChannel current;
+    private int currentNumber;
+    private long currentRecords;
+    
+    /**
+     * Creates a new AuditFiles
+     * @param directory The folder of the audit files
+     * @param maxFileBytes The size at which the current file is compressed and a new one started
+     * @param maxFiles The number of compressed files to keep
+     * @param historySize The number of latest records indexed per player
+     * @param logger Logger for unreadable files
+     */
+    public AuditFiles(File directory, long maxFileBytes, int maxFiles, int historySize, Logger logger) {
+        this.directory = directory;
+        this.maxFileBytes = Math.max(HEADER_SIZE + AuditRecord.SIZE, maxFileBytes);
+        this.maxFiles = maxFiles;
+        this.historySize = historySize;
+        this.logger = logger;
+    }
+    
+    /**
+     * Opens the current file and builds the index from all files. Files left
+     * uncompressed by a crash are compressed, and a partly written last record is cut off.
+     * @throws IOException If the folder or the current file cannot be opened
+     */
+    public void open() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create audit directory " + directory);
+        }
+        
+        // Each number maps to whether only its uncompressed file exists
+        TreeMap<Integer, Boolean> files = new TreeMap<>();
+        String[] names = directory.list();
+        for (String name : names != null ? names : new String[0]) {
+            Matcher matcher = FILE_NAME.matcher(name);
+            if (matcher.matches()) {
+                files.merge(Integer.parseInt(matcher.group(1)), matcher.group(2) == null, Boolean::logicalAnd);
+            }
+        }
+        for (Map.Entry<Integer, Boolean> entry : files.entrySet()) {
+            int number = entry.getKey();
+            if (!entry.getValue() && file(number, false).exists()) {
+                // Compressed before a crash, but not yet deleted
+                Files.delete(file(number, false).toPath());
+            }
+        }
+        
+        int last = files.isEmpty() ? 0 : files.lastKey();
+        currentNumber = files.isEmpty() || !files.lastEntry().getValue() ? last + 1 : last;
+        for (Map.Entry<Integer, Boolean> entry : files.entrySet()) {
+            int number = entry.getKey();
+            if (number == currentNumber) {
+                continue;
+            }
+            if (entry.getValue()) {
+                compress(number);
+            }
+            scan(number);
+        }
+        openCurrent();
+        deleteOldFiles();
+    }
+    
+    /**
+     * Appends records to the current file and the index, starting a new file when it is full
+     * @param records The records, oldest first
+     * @throws IOException If writing fails
+     */
+    public void append(List<AuditRecord> records) throws IOException {
+        for (AuditRecord record : records) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            record.encode(buffer);
+            addToIndex(record, position(currentNumber, currentRecords));
+            currentRecords++;
+            
+            if (HEADER_SIZE + currentRecords * AuditRecord.SIZE >= maxFileBytes) {
+                flush();
+                rotate();
+            }
+        }
+        flush();
+    }
+    
+    /**
+     * Reads the latest records of a player, as far as their files still exist
+     * @param player The player UUID
+     * @return The records, oldest first
+     * @throws IOException If reading fails
+     */
+    public List<AuditRecord> history(UUID player) throws IOException {
+        long[] positions = index.get(player);
+        List<AuditRecord> records = new ArrayList<>();
+        if (positions == null) {
+            return records;
+        }
+        
+        // Positions are in order, so each file is read once, front to back
+        int from = 0;
+        while (from < positions.length && positions[from] != -1L) {
+            int number = (int) (positions[from] >>> 32);
+            int to = from;
+            while (to < positions.length && positions[to] != -1L && (int) (positions[to] >>> 32) == number) {
+                to++;
+            }
+            read(number, Arrays.copyOfRange(positions, from, to), records);
+            from = to;
+        }
+        return records;
+    }
+    
+    /**
+     * Closes the current file
+     * @throws IOException If closing fails
+     */
+    public void close() throws IOException {
+        if (current != null) {
+            flush();
+            current.force(false);
+            current.close();
+            current = null;
+        }
+    }
+    
+    /**
+     * Gets the number of players in the index
+     * @return The number of players
+     */
+    public int getIndexedPlayers() {
+        return index.size();
+    }
+    
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            current.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    private void rotate() throws IOException {
+        current.force(false);
+        current.close();
+        compress(currentNumber);
+        currentNumber++;
+        openCurrent();
+        deleteOldFiles();
+    }
+    
+    private void openCurrent() throws IOException {
+        File file = file(currentNumber, false);
+        current = new RandomAccessFile(file, "rw").getChannel();
+        if (current.size() < HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).put(FORMAT_VERSION).flip();
+            current.truncate(0L);
+            current.write(header, 0L);
+        } else if (!scan(currentNumber)) {
+            // Unreadable, keep it for inspection and start over
+            current.close();
+            currentNumber++;
+            openCurrent();
+            return;
+        }
+        
+        currentRecords = (current.size() - HEADER_SIZE) / AuditRecord.SIZE;
+        long end = HEADER_SIZE + currentRecords * AuditRecord.SIZE;
+        // Cuts off a record that was partly written before a crash
+        current.truncate(end);
+        current.position(end);
+    }
+    
+    /**
+     * Adds all records of a file to the index
+     * @return false if the file is not an audit file
+     */
+    private boolean scan(int number) throws IOException {
+        try (DataInputStream in = new DataInputStream(openStream(number))) {
+            if (!readHeader(in, number)) {
+                return false;
+            }
+            byte[] bytes = new byte[AuditRecord.SIZE];
+            ByteBuffer record = ByteBuffer.wrap(bytes);
+            for (long i = 0; ; i++) {
+                try {
+                    in.readFully(bytes);
+                } catch (EOFException e) {
+                    return true;
+                }
+                record.clear();
+                AuditRecord decoded = AuditRecord.decode(record);
+                if (decoded != null) {
+                    addToIndex(decoded, position(number, i));
+                }
+            }
+        }
+    }
+    
+    private void read(int number, long[] positions, List<AuditRecord> into) throws IOException {
+        if (number == currentNumber) {
+            ByteBuffer record = ByteBuffer.allocate(AuditRecord.SIZE);
+            for (long position : positions) {
+                record.clear();
+                current.read(record, HEADER_SIZE + (position & 0xFFFFFFFFL) * AuditRecord.SIZE);
+                record.flip();
+                addDecoded(record, into);
+            }
+            return;
+        }
+        if (!file(number, true).exists()) {
+            // Deleted as one of the oldest files
+            return;
+        }
+        
+        try (DataInputStream in = new DataInputStream(openStream(number))) {
+            if (!readHeader(in, number)) {
+                return;
+            }
+            byte[] bytes = new byte[AuditRecord.SIZE];
+            long next = 0L;
+            for (long position : positions) {
+                long target = position & 0xFFFFFFFFL;
+                skipFully(in, (target - next) * AuditRecord.SIZE);
+                in.readFully(bytes);
+                next = target + 1;
+                addDecoded(ByteBuffer.wrap(bytes), into);
+            }
+        } catch (EOFException e) {
+            logger.warning("Audit file " + file(number, true).getName() + " is truncated");
+        }
+    }
+    
+    private void compress(int number) throws IOException {
+        File raw = file(number, false);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) Math.min(raw.length() / 4 + 64, Integer.MAX_VALUE));
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            Files.copy(raw.toPath(), out);
+        }
+        AtomicFile.write(file(number, true), bytes.toByteArray());
+        Files.delete(raw.toPath());
+    }
+    
+    private void deleteOldFiles() {
+        TreeSet<Integer> compressed = new TreeSet<>();
+        String[] names = directory.list();
+        for (String name : names != null ? names : new String[0]) {
+            Matcher matcher = FILE_NAME.matcher(name);
+            if (matcher.matches() && matcher.group(2) != null) {
+                compressed.add(Integer.parseInt(matcher.group(1)));
+            }
+        }
+        while (compressed.size() > maxFiles) {
+            File oldest = file(compressed.pollFirst(), true);
+            if (!oldest.delete()) {
+                logger.warning("Could not delete old audit file " + oldest.getName());
+            }
+        }
+    }
+    
+    private void addToIndex(AuditRecord record, long position) {
+        addToIndex(record.getPlayer(), position);
+        if (record.getOther() != null && !record.getOther().equals(record.getPlayer())) {
+            addToIndex(record.getOther(), position);
+        }
+    }
+    
+    private void addToIndex(UUID player, long position) {
+        long[] positions = index.get(player);
+        if (positions == null) {
+            positions = new long[historySize];
+            Arrays.fill(positions, -1L);
+            index.put(player, positions);
+        }
+        
+        // Oldest first, the oldest one makes room once full
+        int free = 0;
+        while (free < positions.length && positions[free] != -1L) {
+            free++;
+        }
+        if (free == positions.length) {
+            System.arraycopy(positions, 1, positions, 0, positions.length - 1);
+            free--;
+        }
+        positions[free] = position;
+    }
+    
+    private InputStream openStream(int number) throws IOException {
+        File compressed = file(number, true);
+        if (compressed.exists()) {
+            return new GZIPInputStream(new FileInputStream(compressed), 8192);
+        }
+        return new FileInputStream(file(number, false));
+    }
+    
+    private boolean readHeader(DataInputStream in, int number) throws IOException {
+        try {
+            if (in.readInt() == MAGIC && in.readByte() == FORMAT_VERSION) {
+                return true;
+            }
+        } catch (EOFException e) {
+            // Too short to be an audit file
+        }
+        logger.warning("Skipping audit file " + number + ", it is not a readable audit file");
+        return false;
+    }
+    
+    private File file(int number, boolean compressed) {
+        return new File(directory, "audit-" + number + ".log" + (compressed ? ".gz" : ""));
+    }
+    
+    private static long position(int number, long record) {
+        return ((long) number << 32) | record;
+    }
+    
+    private static void addDecoded(ByteBuffer record, List<AuditRecord> into) {
+        AuditRecord decoded = AuditRecord.decode(record);
+        if (decoded != null) {
+            into.add(decoded);
+        }
+    }
+    
+    private static void skipFully(InputStream in, long bytes) throws IOException {
+        while (bytes > 0) {
+            long skipped = in.skip(bytes);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException();
+                }
+                skipped = 1;
+            }
+            bytes -= skipped;
+        }
+    }
+}
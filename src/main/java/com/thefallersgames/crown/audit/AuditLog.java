@@ -0,0 +1,172 @@
+package com.thefallersgames.crown.audit;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.thefallersgames.crown.CrownPlugin;
+import com.thefallersgames.crown.managers.ConfigManager;
+import com.thefallersgames.crown.managers.CrownSettings;
+
+/**
+ * Records who gained and lost crowns, and when.
+ * <p>
+ * The main thread only copies each record into an {@link AuditRing}; a
+ * background thread takes them from there about once a second and appends
+ * them to the {@link AuditFiles}. History lookups run on the same thread,
+ * after the records added so far were written, and hand their result back to
+ * the main thread.
+ */
+public class AuditLog {
+    private static final int BUFFER_CAPACITY = 8192;
+    private static final long WRITE_INTERVAL_MILLIS = 1000L;
+    private static final Runnable STOP = () -> { };
+    
+    private final CrownPlugin plugin;
+    private final AuditRing ring = new AuditRing(BUFFER_CAPACITY);
+    private final AuditFiles files;
+    private final BlockingQueue<Runnable> lookups = new LinkedBlockingQueue<>();
+    private final List<AuditRecord> batch = new ArrayList<>();
+    private Thread thread;
+    private boolean opened;
+    private boolean writeFailureWarned;
+    private boolean droppedWarned;
+    
+    /**
+     * Creates a new AuditLog
+     * @param plugin The plugin instance
+     * @param configManager The configuration manager, for the file size and count limits
+     */
+    public AuditLog(CrownPlugin plugin, ConfigManager configManager) {
+        this.plugin = plugin;
+        CrownSettings settings = configManager.getSettings();
+        this.files = new AuditFiles(new File(plugin.getDataFolder(), "audit"), settings.getAuditMaxFileBytes(),
+                settings.getAuditMaxFiles(), settings.getAuditHistorySize(), plugin.getLogger());
+    }
+    
+    /**
+     * Starts the background writer
+     */
+    public void start() {
+        if (thread == null) {
+            thread = new Thread(this::run, "Crown-AuditWriter");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+    
+    /**
+     * Writes the remaining records and stops the background writer
+     */
+    public void shutdown() {
+        if (thread == null) {
+            return;
+        }
+        lookups.add(STOP);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+    
+    /**
+     * Records a crown changing hands. Must be called on the main thread.
+     * @param action The action
+     * @param player The player who gained or lost the crown
+     * @param other The other player involved, or null
+     */
+    public void record(AuditRecord.Action action, UUID player, UUID other) {
+        if (!ring.offer(System.currentTimeMillis(), action, player, other) && !droppedWarned) {
+            droppedWarned = true;
+            plugin.getLogger().warning("The audit log cannot keep up, records are being dropped");
+        }
+    }
+    
+    /**
+     * Looks up the latest records of a player. Must be called on the main thread.
+     * @param player The player UUID
+     * @param callback Receives the records, oldest first, on the main thread
+     */
+    public void history(UUID player, Consumer<List<AuditRecord>> callback) {
+        lookups.add(() -> {
+            List<AuditRecord> records;
+            try {
+                records = opened ? files.history(player) : Collections.<AuditRecord>emptyList();
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not read the audit log: " + e.getMessage());
+                records = Collections.emptyList();
+            }
+            List<AuditRecord> result = records;
+            plugin.getServer().getScheduler().runTask(plugin, () -> callback.accept(result));
+        });
+    }
+    
+    /**
+     * Gets the number of records dropped because the writer could not keep up
+     * @return The number of dropped records
+     */
+    public long getDropped() {
+        return ring.getDropped();
+    }
+    
+    private void run() {
+        try {
+            files.open();
+            opened = true;
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not open the audit log, crown changes are not recorded: " + e.getMessage());
+        }
+        
+        while (true) {
+            Runnable lookup;
+            try {
+                lookup = lookups.poll(WRITE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                lookup = STOP;
+            }
+            
+            write();
+            if (lookup == STOP) {
+                break;
+            }
+            if (lookup != null) {
+                lookup.run();
+            }
+        }
+        
+        if (opened) {
+            try {
+                files.close();
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not close the audit log: " + e.getMessage());
+            }
+        }
+    }
+    
+    private void write() {
+        if (ring.drain(batch) == 0) {
+            return;
+        }
+        if (opened) {
+            try {
+                files.append(batch);
+                writeFailureWarned = false;
+            } catch (IOException e) {
+                if (!writeFailureWarned) {
+                    writeFailureWarned = true;
+                    plugin.getLogger().warning("Could not write the audit log: " + e.getMessage());
+                }
+            }
+        }
+        batch.clear();
+    }
+}
@@ -0,0 +1,157 @@
+package com.thefallersgames.crown.audit;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * A single entry of the crown audit log: a player gaining or losing a crown.
+ * <p>
+ * Records have a fixed size of {@link #SIZE} bytes in the audit files:
+ * <pre>
+ * long   time in milliseconds since the epoch
+ * byte   action code
+ * 16-byte player UUID
+ * 16-byte other player UUID, all zero if there is none
+ * </pre>
+ */
+public final class AuditRecord {
+    /**
+     * The size of an encoded record in bytes
+     */
+    public static final int SIZE = 8 + 1 + 16 + 16;
+    
+    /**
+     * The way a crown changed hands
+     */
+    public enum Action {
+        GIVE(1, "was given the crown", null),
+        REMOVE(2, "had the crown removed", null),
+        TRANSFER(3, "took the crown", "from"),
+        LOSS(4, "lost the crown on death", "to"),
+        PICKUP(5, "picked up the crown", "of"),
+        DROP(6, "dropped the crown", null),
+        REMOTE_GIVE(7, "was given the crown on another server", null),
+        REMOTE_REMOVE(8, "had the crown removed on another server", null);
+        
+        private final byte code;
+        private final String text;
+        private final String otherText;
+        
+        Action(int code, String text, String otherText) {
+            this.code = (byte) code;
+            this.text = text;
+            this.otherText = otherText;
+        }
+        
+        /**
+         * Gets the code used for this action in the audit files
+         * @return The action code
+         */
+        public byte getCode() {
+            return code;
+        }
+        
+        /**
+         * Describes the action in a sentence
+         * @param player The name of the player
+         * @param other The name of the other player, or null if there is none
+         * @return The description
+         */
+        public String describe(String player, String other) {
+            return player + " " + text + (otherText != null && other != null ? " " + otherText + " " + other : "");
+        }
+        
+        /**
+         * Looks up an action by its code
+         * @param code The action code
+         * @return The action, or null if the code is unknown
+         */
+        public static Action fromCode(byte code) {
+            for (Action action : values()) {
+                if (action.code == code) {
+                    return action;
+                }
+            }
+            return null;
+        }
+    }
+    
+    private final long time;
+    private final Action action;
+    private final UUID player;
+    private final UUID other;
+    
+    /**
+     * Creates a new AuditRecord
+     * @param time The time in milliseconds since the epoch
+     * @param action The action
+     * @param player The player who gained or lost the crown
+     * @param other The other player involved, or null
+     */
+    public AuditRecord(long time, Action action, UUID player, UUID other) {
+        this.time = time;
+        this.action = action;
+        this.player = player;
+        this.other = other;
+    }
+    
+    /**
+     * Gets the time of the action
+     * @return The time in milliseconds since the epoch
+     */
+    public long getTime() {
+        return time;
+    }
+    
+    /**
+     * Gets the action
+     * @return The action
+     */
+    public Action getAction() {
+        return action;
+    }
+    
+    /**
+     * Gets the player who gained or lost the crown
+     * @return The player UUID
+     */
+    public UUID getPlayer() {
+        return player;
+    }
+    
+    /**
+     * Gets the other player involved, e.g. the previous owner of a transferred crown
+     * @return The other player UUID, or null if there is none
+     */
+    public UUID getOther() {
+        return other;
+    }
+    
+    /**
+     * Writes this record at the current position of a buffer
+     * @param buffer The buffer, with at least {@link #SIZE} bytes remaining
+     */
+    public void encode(ByteBuffer buffer) {
+        buffer.putLong(time);
+        buffer.put(action.getCode());
+        buffer.putLong(player.getMostSignificantBits());
+        buffer.putLong(player.getLeastSignificantBits());
+        buffer.putLong(other != null ? other.getMostSignificantBits() : 0L);
+        buffer.putLong(other != null ? other.getLeastSignificantBits() : 0L);
+    }
+    
+    /**
+     * Reads a record at the current position of a buffer
+     * @param buffer The buffer, with at least {@link #SIZE} bytes remaining
+     * @return The record, or null if its action is unknown
+     */
+    public static AuditRecord decode(ByteBuffer buffer) {
+        long time = buffer.getLong();
+        Action action = Action.fromCode(buffer.get());
+        UUID player = new UUID(buffer.getLong(), buffer.getLong());
+        long otherMost = buffer.getLong();
+        long otherLeast = buffer.getLong();
+        UUID other = otherMost == 0L && otherLeast == 0L ? null : new UUID(otherMost, otherLeast);
+        return action != null ? new AuditRecord(time, action, player, other) : null;
+    }
+}
@@ -0,0 +1,110 @@
+package com.thefallersgames.crown.audit;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed-size buffer of audit records between the main thread and the audit writer.
+ * <p>
+ * All slots are allocated up front as primitive arrays, so adding a record
+ * copies a few numbers and allocates nothing. One thread adds records and one
+ * other thread takes them; neither ever waits for the other. When the audit
+ * writer falls behind and the buffer is full, new records are dropped and counted.
+ */
+public class AuditRing {
+    private final int mask;
+    private final long[] times;
+    private final byte[] actions;
+    private final long[] players;
+    private final long[] others;
+    // Next slot to take, only advanced by the reader
+    private final AtomicLong head = new AtomicLong();
+    // Next slot to fill, only advanced by the adding thread
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    
+    /**
+     * Creates a new AuditRing
+     * @param capacity The number of records the buffer holds, rounded up to a power of two
+     */
+    public AuditRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = size - 1;
+        this.times = new long[size];
+        this.actions = new byte[size];
+        this.players = new long[size * 2];
+        this.others = new long[size * 2];
+    }
+    
+    /**
+     * Adds a record. Must only be called from one thread.
+     * @param time The time in milliseconds since the epoch
+     * @param action The action
+     * @param player The player who gained or lost the crown
+     * @param other The other player involved, or null
+     * @return false if the buffer was full and the record was dropped
+     */
+    public boolean offer(long time, AuditRecord.Action action, UUID player, UUID other) {
+        long position = tail.get();
+        if (position - head.get() > mask) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        
+        int slot = (int) position & mask;
+        times[slot] = time;
+        actions[slot] = action.getCode();
+        players[slot * 2] = player.getMostSignificantBits();
+        players[slot * 2 + 1] = player.getLeastSignificantBits();
+        others[slot * 2] = other != null ? other.getMostSignificantBits() : 0L;
+        others[slot * 2 + 1] = other != null ? other.getLeastSignificantBits() : 0L;
+        // Publishes the slot to the reader
+        tail.lazySet(position + 1);
+        return true;
+    }
+    
+    /**
+     * Takes all records added so far. Must only be called from one thread.
+     * @param into The list to add the records to, oldest first
+     * @return The number of records taken
+     */
+    public int drain(List<AuditRecord> into) {
+        long start = head.get();
+        long end = tail.get();
+        for (long position = start; position < end; position++) {
+            int slot = (int) position & mask;
+            UUID other = others[slot * 2] == 0L && others[slot * 2 + 1] == 0L
+                    ? null : new UUID(others[slot * 2], others[slot * 2 + 1]);
+            into.add(new AuditRecord(times[slot], AuditRecord.Action.fromCode(actions[slot]),
+                    new UUID(players[slot * 2], players[slot * 2 + 1]), other));
+        }
+        // Hands the slots back to the adding thread
+        head.lazySet(end);
+        return (int) (end - start);
+    }
+    
+    /**
+     * Gets the number of records waiting to be taken
+     * @return The number of records
+     */
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+    
+    /**
+     * Gets the number of slots
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+    
+    /**
+     * Gets the number of records dropped because the buffer was full
+     * @return The number of dropped records
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+}
@@ -1,21 +1,50 @@
 package com.thefallersgames.crown.commands;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
+import org.bukkit.World;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
 import com.thefallersgames.crown.CrownPlugin;
+import com.thefallersgames.crown.audit.AuditLog;
+import com.thefallersgames.crown.audit.AuditRecord;
 import com.thefallersgames.crown.managers.ConfigManager;
 import com.thefallersgames.crown.managers.CrownManager;
+import com.thefallersgames.crown.managers.CrownWorkQueue;
+import com.thefallersgames.crown.managers.DataManager;
+import com.thefallersgames.crown.managers.OfflineCrownManager;
+import com.thefallersgames.crown.managers.ReignLeaderboard;
+import com.thefallersgames.crown.metrics.CrownMetrics;
+import com.thefallersgames.crown.metrics.LatencyHistogram;
+import com.thefallersgames.crown.storage.CrownStore;
+import com.thefallersgames.crown.sync.CrownSync;
 
 /**
  * Handles crown-related commands
  */
 public class CrownCommand implements CommandExecutor {
     
+    private static final DateTimeFormatter HISTORY_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss", Locale.ROOT).withZone(ZoneId.systemDefault());
+    
     private CrownPlugin plugin;
     private CrownManager crownManager;
     private ConfigManager configManager;
@@ -31,7 +60,7 @@ public class CrownCommand implements CommandExecutor {
         this.crownManager = crownManager;
         this.configManager = configManager;
     }
-
+    
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
         if (!(sender instanceof Player) && args.length < 1) {
@@ -64,8 +93,18 @@ public class CrownCommand implements CommandExecutor {
             handleRemoveCommand(sender, args);
         } else if (subCommand.equals("reload")) {
             handleReloadCommand(sender);
+        } else if (subCommand.equals("migrate")) {
+            handleMigrateCommand(sender, args);
+        } else if (subCommand.equals("stats")) {
+            handleStatsCommand(sender);
+        } else if (subCommand.equals("queue")) {
+            handleQueueCommand(sender, args);
+        } else if (subCommand.equals("history")) {
+            handleHistoryCommand(sender, args);
+        } else if (subCommand.equals("top")) {
+            handleTopCommand(sender, args);
         } else {
-            sender.sendMessage(ChatColor.RED + "Unknown subcommand! Available: give, remove, reload");
+            sender.sendMessage(ChatColor.RED + "Unknown subcommand! Available: give, remove, reload, migrate, stats, queue, history, top");
         }
         
         return true;
@@ -78,13 +117,18 @@ public class CrownCommand implements CommandExecutor {
      */
     private void handleGiveCommand(CommandSender sender, String[] args) {
         if (args.length < 2) {
-            sender.sendMessage(ChatColor.RED + "Usage: /crown give <player>");
+            sender.sendMessage(ChatColor.RED + "Usage: /crown give <player|@a|world:<name>|perm:<node>|group:<name>|file:<name>>");
+            return;
+        }
+        
+        if (isSelector(args[1])) {
+            handleBulkCommand(sender, CrownWorkQueue.Operation.GIVE, args[1]);
             return;
         }
         
         Player target = Bukkit.getPlayer(args[1]);
         if (target == null) {
-            sender.sendMessage(configManager.getMessage("player_not_found"));
+            handleOfflineCommand(sender, args[1], true);
             return;
         }
         
@@ -99,13 +143,18 @@ public class CrownCommand implements CommandExecutor {
      */
     private void handleRemoveCommand(CommandSender sender, String[] args) {
         if (args.length < 2) {
-            sender.sendMessage(ChatColor.RED + "Usage: /crown remove <player>");
+            sender.sendMessage(ChatColor.RED + "Usage: /crown remove <player|@a|world:<name>|perm:<node>|group:<name>|file:<name>>");
+            return;
+        }
+        
+        if (isSelector(args[1])) {
+            handleBulkCommand(sender, CrownWorkQueue.Operation.REMOVE, args[1]);
             return;
         }
         
         Player target = Bukkit.getPlayer(args[1]);
         if (target == null) {
-            sender.sendMessage(configManager.getMessage("player_not_found"));
+            handleOfflineCommand(sender, args[1], false);
             return;
         }
         
@@ -113,12 +162,412 @@ public class CrownCommand implements CommandExecutor {
         sender.sendMessage(ChatColor.GOLD + "Removed the crown from " + target.getName());
     }
     
+    /**
+     * Handles give and remove for a player that is not online, applying the operation when they join
+     * @param sender The command sender
+     * @param name The name of the player
+     * @param give true to give a crown, false to remove it
+     */
+    private void handleOfflineCommand(CommandSender sender, String name, boolean give) {
+        OfflineCrownManager offlineCrownManager = plugin.getOfflineCrownManager();
+        offlineCrownManager.resolve(name, playerUUID -> {
+            if (playerUUID == null) {
+                sender.sendMessage(configManager.getMessage("player_not_found"));
+                return;
+            }
+            
+            String knownName = offlineCrownManager.getNameCache().getName(playerUUID);
+            String displayName = knownName != null ? knownName : name;
+            
+            // An unknown name takes a few ticks to resolve, the player may have joined since
+            Player target = Bukkit.getPlayer(playerUUID);
+            if (target != null) {
+                if (give) {
+                    crownManager.giveCrown(target);
+                    sender.sendMessage(ChatColor.GOLD + "Gave a crown to " + target.getName());
+                } else {
+                    crownManager.removeCrown(target);
+                    sender.sendMessage(ChatColor.GOLD + "Removed the crown from " + target.getName());
+                }
+                return;
+            }
+            
+            offlineCrownManager.queue(playerUUID, give);
+            sender.sendMessage(ChatColor.GOLD + displayName + " is offline, their crown will be "
+                    + (give ? "given" : "removed") + " when they join");
+        });
+    }
+    
+    /**
+     * Handles the history command, listing the latest crown changes of a player from the audit log
+     * @param sender The command sender
+     * @param args The command arguments
+     */
+    private void handleHistoryCommand(CommandSender sender, String[] args) {
+        if (args.length < 2) {
+            sender.sendMessage(ChatColor.RED + "Usage: /crown history <player>");
+            return;
+        }
+        
+        AuditLog auditLog = plugin.getAuditLog();
+        if (auditLog == null) {
+            sender.sendMessage(ChatColor.RED + "The audit log is disabled, set audit.enabled to true to record crown changes");
+            return;
+        }
+        
+        plugin.getOfflineCrownManager().resolve(args[1], playerUUID -> {
+            if (playerUUID == null) {
+                sender.sendMessage(configManager.getMessage("player_not_found"));
+                return;
+            }
+            
+            auditLog.history(playerUUID, records -> {
+                String name = getPlayerName(playerUUID);
+                if (records.isEmpty()) {
+                    sender.sendMessage(ChatColor.GOLD + "No crown history for " + name);
+                    return;
+                }
+                sender.sendMessage(ChatColor.GOLD + "Crown history of " + name + ":");
+                for (AuditRecord record : records) {
+                    String other = record.getOther() != null ? getPlayerName(record.getOther()) : null;
+                    sender.sendMessage(ChatColor.YELLOW + "  " + HISTORY_TIME_FORMAT.format(Instant.ofEpochMilli(record.getTime()))
+                            + " " + ChatColor.WHITE + record.getAction().describe(getPlayerName(record.getPlayer()), other));
+                }
+            });
+        });
+    }
+    
+    /**
+     * Handles the top command, listing the players who held a crown the longest
+     * @param sender The command sender
+     * @param args The command arguments
+     */
+    private void handleTopCommand(CommandSender sender, String[] args) {
+        int count = 10;
+        if (args.length >= 2) {
+            try {
+                count = Math.max(1, Math.min(100, Integer.parseInt(args[1])));
+            } catch (NumberFormatException e) {
+                sender.sendMessage(ChatColor.RED + "Usage: /crown top [count]");
+                return;
+            }
+        }
+        
+        List<ReignLeaderboard.Entry> top = crownManager.getLeaderboard().getTop(count, System.currentTimeMillis());
+        if (top.isEmpty()) {
+            sender.sendMessage(ChatColor.GOLD + "Nobody has held a crown yet");
+            return;
+        }
+        sender.sendMessage(ChatColor.GOLD + "Longest reigns:");
+        int rank = 1;
+        for (ReignLeaderboard.Entry entry : top) {
+            sender.sendMessage(ChatColor.YELLOW + "  " + rank++ + ". " + ChatColor.WHITE + getPlayerName(entry.getPlayer())
+                    + ": " + formatDuration(entry.getMillis() * 1_000_000L)
+                    + (entry.isReigning() ? ChatColor.GREEN + " (reigning)" : ""));
+        }
+    }
+    
+    /**
+     * Gets the last known name of a player
+     * @param playerUUID The player UUID
+     * @return The name, or the UUID if the player never joined while the plugin was running
+     */
+    private String getPlayerName(UUID playerUUID) {
+        String name = plugin.getOfflineCrownManager().getNameCache().getName(playerUUID);
+        return name != null ? name : playerUUID.toString();
+    }
+    
+    /**
+     * Checks if a command argument selects several players rather than naming one
+     * @param argument The argument
+     * @return true for @a and the prefixed selectors, which player names cannot contain
+     */
+    private static boolean isSelector(String argument) {
+        return argument.startsWith("@") || argument.indexOf(':') >= 0;
+    }
+    
+    /**
+     * Handles give and remove for a selector, queueing the operation on the work queue
+     * @param sender The command sender
+     * @param operation The operation to run on every selected player
+     * @param selector The selector argument
+     */
+    private void handleBulkCommand(CommandSender sender, CrownWorkQueue.Operation operation, String selector) {
+        int colon = selector.indexOf(':');
+        String type = colon < 0 ? selector.toLowerCase(Locale.ROOT) : selector.substring(0, colon).toLowerCase(Locale.ROOT);
+        String value = colon < 0 ? "" : selector.substring(colon + 1);
+        
+        Collection<? extends Player> players;
+        if (type.equals("@a")) {
+            players = Bukkit.getOnlinePlayers();
+        } else if (type.equals("world")) {
+            World world = Bukkit.getWorld(value);
+            if (world == null) {
+                sender.sendMessage(ChatColor.RED + "Unknown world: " + value);
+                return;
+            }
+            players = world.getPlayers();
+        } else if (type.equals("perm") || type.equals("group")) {
+            // Permission plugins grant group.<name> to the members of a group
+            String permission = type.equals("group") ? "group." + value : value;
+            List<Player> members = new ArrayList<>();
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                if (player.hasPermission(permission)) {
+                    members.add(player);
+                }
+            }
+            players = members;
+        } else if (type.equals("file")) {
+            handleFileSelector(sender, operation, value);
+            return;
+        } else {
+            sender.sendMessage(ChatColor.RED + "Unknown selector! Available: @a, world:<name>, perm:<node>, group:<name>, file:<name>");
+            return;
+        }
+        
+        List<UUID> targets = new ArrayList<>(players.size());
+        for (Player player : players) {
+            targets.add(player.getUniqueId());
+        }
+        submitBulk(sender, operation, targets, 0);
+    }
+    
+    /**
+     * Reads player names or UUIDs, one per line, from a file in the plugin folder
+     * off the main thread and queues the operation for them
+     * @param sender The command sender
+     * @param operation The operation to run on every listed player
+     * @param name The file name, relative to the plugin folder
+     */
+    private void handleFileSelector(CommandSender sender, CrownWorkQueue.Operation operation, String name) {
+        File file;
+        try {
+            File folder = plugin.getDataFolder().getCanonicalFile();
+            file = new File(folder, name).getCanonicalFile();
+            if (!file.toPath().startsWith(folder.toPath())) {
+                sender.sendMessage(ChatColor.RED + "Player lists must be inside the plugin folder");
+                return;
+            }
+        } catch (IOException e) {
+            sender.sendMessage(ChatColor.RED + "Could not read " + name + ": " + e.getMessage());
+            return;
+        }
+        
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            List<String> lines;
+            try {
+                lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                Bukkit.getScheduler().runTask(plugin, () ->
+                        sender.sendMessage(ChatColor.RED + "Could not read " + name + ": " + e.getMessage()));
+                return;
+            }
+            
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                // Names can only be resolved for online players, UUIDs are taken as they are
+                Set<UUID> targets = new LinkedHashSet<>();
+                int unresolved = 0;
+                for (String line : lines) {
+                    String entry = line.trim();
+                    if (entry.isEmpty() || entry.startsWith("#")) {
+                        continue;
+                    }
+                    if (entry.length() == 36 && entry.charAt(8) == '-') {
+                        try {
+                            targets.add(UUID.fromString(entry));
+                            continue;
+                        } catch (IllegalArgumentException e) {
+                            // Not a UUID after all, try it as a name
+                        }
+                    }
+                    Player player = Bukkit.getPlayerExact(entry);
+                    if (player != null) {
+                        targets.add(player.getUniqueId());
+                    } else {
+                        unresolved++;
+                    }
+                }
+                submitBulk(sender, operation, new ArrayList<>(targets), unresolved);
+            });
+        });
+    }
+    
+    /**
+     * Queues a bulk operation and tells the sender
+     */
+    private void submitBulk(CommandSender sender, CrownWorkQueue.Operation operation, List<UUID> targets, int unresolved) {
+        if (targets.isEmpty()) {
+            sender.sendMessage(configManager.getMessage("player_not_found"));
+            return;
+        }
+        
+        CrownWorkQueue workQueue = plugin.getWorkQueue();
+        int queued = workQueue.getJobs().size();
+        workQueue.submit(sender, operation, targets, unresolved);
+        sender.sendMessage(ChatColor.GOLD + "Queued " + operation.name().toLowerCase(Locale.ROOT) + " for "
+                + targets.size() + " players" + (queued > 0 ? " after " + queued + " other jobs" : "")
+                + ". Use /crown queue to follow it.");
+    }
+    
+    /**
+     * Handles the queue command, which lists or cancels bulk operations
+     * @param sender The command sender
+     * @param args The command arguments
+     */
+    private void handleQueueCommand(CommandSender sender, String[] args) {
+        CrownWorkQueue workQueue = plugin.getWorkQueue();
+        if (args.length >= 2 && args[1].equalsIgnoreCase("cancel")) {
+            int cancelled = workQueue.cancelAll();
+            sender.sendMessage(ChatColor.GOLD + "Cancelled " + cancelled + " bulk operations");
+            return;
+        }
+        
+        List<CrownWorkQueue.Job> jobs = workQueue.getJobs();
+        if (jobs.isEmpty()) {
+            sender.sendMessage(ChatColor.GOLD + "No bulk operations are running");
+            return;
+        }
+        sender.sendMessage(ChatColor.GOLD + "Bulk operations:");
+        for (CrownWorkQueue.Job job : jobs) {
+            sender.sendMessage(ChatColor.YELLOW + "  " + job.getOperation().name().toLowerCase(Locale.ROOT) + ": "
+                    + ChatColor.WHITE + job.getProgress() + "/" + job.getSize()
+                    + (job.getSkipped() > 0 ? ", " + job.getSkipped() + " not online" : ""));
+        }
+    }
+    
     /**
      * Handles the reload command
      * @param sender The command sender
      */
     private void handleReloadCommand(CommandSender sender) {
         configManager.reloadConfig();
+        plugin.getParticleManager().refresh();
+        plugin.getMetricsExporter().refresh();
         sender.sendMessage(configManager.getMessage("config_reloaded"));
     }
+    
+    /**
+     * Handles the migrate command
+     * @param sender The command sender
+     * @param args The command arguments
+     */
+    private void handleMigrateCommand(CommandSender sender, String[] args) {
+        if (args.length < 2) {
+            sender.sendMessage(ChatColor.RED + "Usage: /crown migrate <binary|yaml|sqlite>");
+            return;
+        }
+        
+        DataManager dataManager = plugin.getDataManager();
+        String backend = args[1].toLowerCase();
+        CrownStore target = backend.equals("journal") ? null : dataManager.createStore(backend);
+        if (target == null) {
+            sender.sendMessage(ChatColor.RED + "Unknown storage backend! Available: binary, yaml, sqlite");
+            return;
+        }
+        if (target.getName().equals(dataManager.getStore().getName())) {
+            target.close();
+            sender.sendMessage(ChatColor.RED + "Crown data is already stored in " + target.getName());
+            return;
+        }
+        
+        sender.sendMessage(ChatColor.GOLD + "Migrating crown data to " + target.getName() + "...");
+        // Completes on the main thread, once the new store is in use or the old one is active again
+        dataManager.switchStore(crownManager, target).whenComplete((count, error) -> {
+            if (error != null) {
+                sender.sendMessage(ChatColor.RED + "Migration failed, crown data stays in "
+                        + dataManager.getStore().getName() + ": " + error.getMessage());
+            } else {
+                configManager.setStorageBackend(backend);
+                sender.sendMessage(ChatColor.GOLD + "Migrated " + count + " crown owners to " + target.getName()
+                        + ", which is now used and saved as storage.backend.");
+            }
+        });
+    }
+    
+    /**
+     * Handles the stats command
+     * @param sender The command sender
+     */
+    private void handleStatsCommand(CommandSender sender) {
+        CrownMetrics metrics = plugin.getMetrics();
+        if (!metrics.isEnabled()) {
+            sender.sendMessage(ChatColor.RED + "Metrics are disabled, set metrics.enabled to true to collect them");
+            return;
+        }
+        
+        long uptime = metrics.getUptimeNanos();
+        double ticks = Math.max(1.0, uptime / 50_000_000.0);
+        double mainThreadMicros = metrics.getMainThreadNanos() / 1000.0 / ticks;
+        sender.sendMessage(ChatColor.GOLD + "Crown stats over the last " + formatDuration(uptime) + ": "
+                + ChatColor.WHITE + format(mainThreadMicros) + " \u00b5s per tick on the main thread ("
+                + format(mainThreadMicros / 500.0) + "% of the tick budget)");
+        
+        sender.sendMessage(ChatColor.GOLD + "Event handlers:");
+        for (CrownMetrics.Handler handler : CrownMetrics.Handler.values()) {
+            sendLatency(sender, handler.getLabel(), metrics.getHandlerTimes(handler), null);
+        }
+        sender.sendMessage(ChatColor.GOLD + "Crown operations:");
+        for (CrownMetrics.Operation operation : CrownMetrics.Operation.values()) {
+            sendLatency(sender, operation.getLabel(), metrics.getOperationTimes(operation), null);
+        }
+        sender.sendMessage(ChatColor.GOLD + "Particles: " + ChatColor.WHITE + metrics.getParticleEffects()
+                + " effects, " + metrics.getParticlePackets() + " packets");
+        sendLatency(sender, "engine tick", metrics.getParticleTickTimes(), null);
+        sender.sendMessage(ChatColor.GOLD + "Storage:");
+        for (CrownMetrics.StorageOperation operation : CrownMetrics.StorageOperation.values()) {
+            long errors = metrics.getStorageErrors(operation);
+            sendLatency(sender, operation.getLabel(), metrics.getStorageTimes(operation),
+                    errors > 0 ? ChatColor.RED + ", " + errors + " failed" : null);
+        }
+        
+        CrownSync crownSync = plugin.getCrownSync();
+        if (crownSync != null) {
+            sender.sendMessage(ChatColor.GOLD + "Sync (" + crownSync.getServerId() + " over " + crownSync.getTransportName() + "): "
+                    + ChatColor.WHITE + crownSync.getBatchesSent() + " batches sent (" + crownSync.getBytesSent() + " bytes), "
+                    + crownSync.getBatchesReceived() + " received (" + crownSync.getBytesReceived() + " bytes), "
+                    + crownSync.getChangesApplied() + " changes applied");
+        }
+    }
+    
+    /**
+     * Sends one line with the count, average, 99th percentile and total time of a histogram,
+     * or nothing if it has no samples yet
+     */
+    private void sendLatency(CommandSender sender, String name, LatencyHistogram histogram, String extra) {
+        long[] counts = histogram.getBucketCounts();
+        long count = 0L;
+        for (long bucketCount : counts) {
+            count += bucketCount;
+        }
+        if (count == 0L) {
+            return;
+        }
+        
+        long sum = histogram.getSumNanos();
+        long p99 = LatencyHistogram.getPercentileBound(counts, 0.99);
+        String p99Text = p99 == Long.MAX_VALUE ? "> " + formatNanos(LatencyHistogram.getBoundsNanos()[counts.length - 2])
+                : "<= " + formatNanos(p99);
+        sender.sendMessage(ChatColor.YELLOW + "  " + name + ": " + ChatColor.WHITE + count + " calls, avg "
+                + formatNanos(sum / count) + ", p99 " + p99Text + ", total " + formatNanos(sum)
+                + (extra != null ? extra : ""));
+    }
+    
+    private static String formatNanos(long nanos) {
+        if (nanos < 1_000_000L) {
+            return format(nanos / 1000.0) + " \u00b5s";
+        }
+        if (nanos < 1_000_000_000L) {
+            return format(nanos / 1_000_000.0) + " ms";
+        }
+        return format(nanos / 1_000_000_000.0) + " s";
+    }
+    
+    private static String formatDuration(long nanos) {
+        long minutes = nanos / 60_000_000_000L;
+        return minutes < 60 ? minutes + " min" : (minutes / 60) + " h " + (minutes % 60) + " min";
+    }
+    
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,367 @@
+package com.thefallersgames.crown.listeners;
+
+import java.util.UUID;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.entity.ItemDespawnEvent;
+import org.bukkit.event.entity.ItemSpawnEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.event.inventory.InventoryPickupItemEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.event.inventory.InventoryType.SlotType;
+import org.bukkit.event.player.PlayerDropItemEvent;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import com.thefallersgames.crown.CrownPlugin;
+import com.thefallersgames.crown.audit.AuditRecord;
+import com.thefallersgames.crown.managers.ConfigManager;
+import com.thefallersgames.crown.managers.CrownManager;
+import com.thefallersgames.crown.managers.CrownPresence;
+import com.thefallersgames.crown.metrics.CrownMetrics;
+
+/**
+ * Keeps crowns out of containers and other players' hands. These events fire
+ * constantly, so the {@link CrownPresence} only registers this listener while
+ * a crown is in play; it also tells the presence about crowns dropped on the ground.
+ */
+public class CrownInventoryListener implements Listener {
+    
+    private CrownPlugin plugin;
+    private CrownManager crownManager;
+    private ConfigManager configManager;
+    private CrownMetrics metrics;
+    
+    /**
+     * Creates a new CrownInventoryListener
+     * @param plugin The plugin instance
+     * @param crownManager The crown manager
+     * @param configManager The configuration manager
+     */
+    public CrownInventoryListener(CrownPlugin plugin, CrownManager crownManager, ConfigManager configManager) {
+        this.plugin = plugin;
+        this.crownManager = crownManager;
+        this.configManager = configManager;
+        this.metrics = plugin.getMetrics();
+    }
+    
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onInventoryClick(InventoryClickEvent event) {
+        long start = metrics.start();
+        try {
+            // Get the clicked inventory and item
+            Inventory clickedInventory = event.getClickedInventory();
+            ItemStack currentItem = event.getCurrentItem();
+            ItemStack cursorItem = event.getCursor();
+            
+            // Check if a crown is involved in this click
+            boolean currentIsCrown = currentItem != null && crownManager.isCrownItem(currentItem);
+            boolean cursorIsCrown = cursorItem != null && crownManager.isCrownItem(cursorItem);
+            
+            if (!currentIsCrown && !cursorIsCrown) {
+                return; // No crown involved, do nothing
+            }
+            
+            Player player = (Player) event.getWhoClicked();
+            UUID playerUUID = player.getUniqueId();
+            
+            // The crown may end up in another slot once the click is applied
+            crownManager.getSlotIndex().reconcileLater(player);
+            
+            // If dropping is allowed in config, check if the player is trying to pick up a crown
+            if (configManager.isDroppingAllowed() && currentIsCrown && !cursorIsCrown) {
+                // Check if player already has a crown (other than the one being clicked)
+                if (crownManager.isPlayerCrownOwner(playerUUID) && hasOtherCrown(player, clickedInventory, event.getSlot())) {
+                    event.setCancelled(true);
+                    player.sendMessage(ChatColor.RED + "You already have a crown!");
+                    return;
+                }
+                
+                // For picked up crowns, update the owner
+                UUID previousOwner = crownManager.getCrownOwner(currentItem);
+                crownManager.updateCrownOwner(currentItem, player);
+                
+                // Register the player as a crown owner
+                crownManager.registerPlayerAsCrownOwner(playerUUID);
+                // Moving their own crown around is not a change of hands
+                if (!playerUUID.equals(previousOwner)) {
+                    audit(AuditRecord.Action.PICKUP, playerUUID, previousOwner);
+                }
+                return;
+            }
+            
+            // Case 1: Prevent other players from picking up crown items if dropping is not allowed
+            if (currentIsCrown) {
+                UUID ownerUUID = crownManager.getCrownOwner(currentItem);
+                if (ownerUUID != null && !ownerUUID.equals(playerUUID)) {
+                    event.setCancelled(true);
+                    player.sendMessage(ChatColor.RED + "This crown doesn't belong to you!");
+                    
+                    // If they somehow got it in their inventory, schedule removal
+                    if (event.getSlotType() != SlotType.ARMOR) {
+                        Bukkit.getScheduler().runTaskLater(plugin, () -> {
+                            player.getInventory().remove(currentItem);
+                            crownManager.getSlotIndex().reconcile(player);
+                        }, 1L);
+                    }
+                    return;
+                }
+            }
+            
+            // Case 2: Prevent putting crown in containers
+            if (cursorIsCrown && clickedInventory != null && clickedInventory.getType() != InventoryType.PLAYER) {
+                // Player is trying to put a crown in a container
+                event.setCancelled(true);
+                player.sendMessage(ChatColor.RED + "The crown cannot be stored in containers!");
+                return;
+            }
+        } finally {
+            metrics.recordHandler(CrownMetrics.Handler.INVENTORY_CLICK, start);
+        }
+    }
+    
+    /**
+     * Checks if a player has a crown other than the one in the clicked slot
+     * @param player The player to check
+     * @param clickedInventory The inventory that was clicked
+     * @param clickedSlot The clicked slot in that inventory
+     * @return true if the player has a crown other than the clicked one
+     */
+    private boolean hasOtherCrown(Player player, Inventory clickedInventory, int clickedSlot) {
+        // The clicked crown only occupies one of the player's slots if it is in their own inventory
+        int excludedSlot = clickedInventory == player.getInventory() ? clickedSlot : -1;
+        return crownManager.getSlotIndex().hasCrownOutside(player.getUniqueId(), excludedSlot);
+    }
+    
+    /**
+     * Handle crown pickup event
+     */
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onEntityPickupItem(EntityPickupItemEvent event) {
+        long start = metrics.start();
+        try {
+            if (!(event.getEntity() instanceof Player)) {
+                return;  // Only care about players picking up items
+            }
+            
+            Player player = (Player) event.getEntity();
+            ItemStack item = event.getItem().getItemStack();
+            
+            // Check if the picked up item is a crown
+            if (crownManager.isCrownItem(item)) {
+                UUID playerUUID = player.getUniqueId();
+                crownManager.getSlotIndex().reconcileLater(player);
+                
+                // Check if player already has a crown
+                if (crownManager.isPlayerCrownOwner(playerUUID) && playerHasCrown(player)) {
+                    // Player already has a crown, prevent pickup
+                    event.setCancelled(true);
+                    player.sendMessage(ChatColor.RED + "You already have a crown!");
+                    return;
+                }
+                
+                if (configManager.isDroppingAllowed()) {
+                    // Update the crown's owner to this player
+                    UUID previousOwner = crownManager.getCrownOwner(item);
+                    crownManager.updateCrownOwner(item, player);
+                    
+                    // Register the player as a crown owner
+                    crownManager.registerPlayerAsCrownOwner(player.getUniqueId());
+                    if (!playerUUID.equals(previousOwner)) {
+                        audit(AuditRecord.Action.PICKUP, playerUUID, previousOwner);
+                    }
+                    
+                    // Notify the player
+                    Bukkit.getScheduler().runTaskLater(plugin, () -> {
+                        player.sendMessage(configManager.getMessage("crown_given"));
+                    }, 1L);
+                } else {
+                    // If dropping is not allowed, check if this player is the owner
+                    UUID ownerUUID = crownManager.getCrownOwner(item);
+                    
+                    if (ownerUUID != null && !ownerUUID.equals(playerUUID)) {
+                        // Cancel the pickup
+                        event.setCancelled(true);
+                        
+                        // Notify the player
+                        player.sendMessage(ChatColor.RED + "This crown doesn't belong to you!");
+                    }
+                }
+                
+                // The crown is off the ground now
+                if (!event.isCancelled()) {
+                    plugin.getCrownPresence().removeDroppedCrown(event.getItem());
+                }
+            }
+        } finally {
+            metrics.recordHandler(CrownMetrics.Handler.PICKUP_ITEM, start);
+        }
+    }
+    
+    /**
+     * Checks if a player has a crown in their inventory
+     * @param player The player to check
+     * @return true if the player has a crown
+     */
+    private boolean playerHasCrown(Player player) {
+        return crownManager.getSlotIndex().hasCrown(player.getUniqueId());
+    }
+    
+    /**
+     * Prevent dragging crown items into containers
+     */
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onInventoryDrag(InventoryDragEvent event) {
+        long start = metrics.start();
+        try {
+            ItemStack draggedItem = event.getOldCursor();
+            
+            if (crownManager.isCrownItem(draggedItem)) {
+                crownManager.getSlotIndex().reconcileLater((Player) event.getWhoClicked());
+                
+                // Check if any of the slots are in a non-player inventory
+                boolean nonPlayerSlot = event.getRawSlots().stream()
+                    .anyMatch(slot -> slot < event.getView().getTopInventory().getSize());
+                
+                if (nonPlayerSlot) {
+                    event.setCancelled(true);
+                    Player player = (Player) event.getWhoClicked();
+                    player.sendMessage(ChatColor.RED + "The crown cannot be stored in containers!");
+                }
+            }
+        } finally {
+            metrics.recordHandler(CrownMetrics.Handler.INVENTORY_DRAG, start);
+        }
+    }
+    
+    /**
+     * Prevent moving crown items between inventories
+     */
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onInventoryMoveItem(InventoryMoveItemEvent event) {
+        long start = metrics.start();
+        try {
+            if (crownManager.isCrownItem(event.getItem())) {
+                // Cancel any automated movement of crown items
+                event.setCancelled(true);
+            }
+        } finally {
+            metrics.recordHandler(CrownMetrics.Handler.INVENTORY_MOVE_ITEM, start);
+        }
+    }
+    
+    /**
+     * Prevents players from dropping crown items if configured
+     */
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onPlayerDropItem(PlayerDropItemEvent event) {
+        long start = metrics.start();
+        try {
+            ItemStack droppedItem = event.getItemDrop().getItemStack();
+            
+            if (crownManager.isCrownItem(droppedItem)) {
+                // Check if dropping is allowed in config
+                if (!configManager.isDroppingAllowed()) {
+                    // Cancel the drop event
+                    event.setCancelled(true);
+                    
+                    // Notify the player
+                    Player player = event.getPlayer();
+                    player.sendMessage(ChatColor.RED + "The crown cannot be dropped!");
+                } else {
+                    // If dropping is allowed, remove the player from crown owners
+                    Player player = event.getPlayer();
+                    crownManager.removePlayerFromCrownOwners(player.getUniqueId());
+                    audit(AuditRecord.Action.DROP, player.getUniqueId(), null);
+                    crownManager.getSlotIndex().reconcileLater(player);
+                }
+            }
+        } finally {
+            metrics.recordHandler(CrownMetrics.Handler.DROP_ITEM, start);
+        }
+    }
+    
+    /**
+     * A crown held on the cursor goes back into the inventory or is dropped when the inventory closes
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onInventoryClose(InventoryCloseEvent event) {
+        long start = metrics.start();
+        try {
+            Player player = (Player) event.getPlayer();
+            if (crownManager.getSlotIndex().hasCrownOnCursor(player.getUniqueId())) {
+                crownManager.getSlotIndex().reconcileLater(player);
+            }
+        } finally {
+            metrics.recordHandler(CrownMetrics.Handler.INVENTORY_CLOSE, start);
+        }
+    }
+    
+    /**
+     * Keeps the listener registered once a hopper picked up a dropped crown,
+     * so moving it on stays blocked
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryPickupItem(InventoryPickupItemEvent event) {
+        long start = metrics.start();
+        try {
+            if (crownManager.isCrownItem(event.getItem().getItemStack())) {
+                plugin.getCrownPresence().removeDroppedCrown(event.getItem());
+                plugin.getCrownPresence().markCrownInContainer();
+            }
+        } finally {
+            metrics.recordHandler(CrownMetrics.Handler.HOPPER_PICKUP_ITEM, start);
+        }
+    }
+    
+    /**
+     * Remembers crowns that were dropped on the ground
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemSpawn(ItemSpawnEvent event) {
+        long start = metrics.start();
+        try {
+            Item item = event.getEntity();
+            if (crownManager.isCrownItem(item.getItemStack())) {
+                plugin.getCrownPresence().addDroppedCrown(item);
+            }
+        } finally {
+            metrics.recordHandler(CrownMetrics.Handler.ITEM_SPAWN, start);
+        }
+    }
+    
+    /**
+     * Forgets crowns that despawned
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemDespawn(ItemDespawnEvent event) {
+        long start = metrics.start();
+        try {
+            plugin.getCrownPresence().removeDroppedCrown(event.getEntity());
+        } finally {
+            metrics.recordHandler(CrownMetrics.Handler.ITEM_DESPAWN, start);
+        }
+    }
+    
+    /**
+     * Adds a record to the audit log, if it is enabled
+     * @param action The way the crown changed hands
+     * @param playerUUID The player who gained or lost the crown
+     * @param otherUUID The other player involved, or null
+     */
+    private void audit(AuditRecord.Action action, UUID playerUUID, UUID otherUUID) {
+        if (plugin.getAuditLog() != null) {
+            plugin.getAuditLog().record(action, playerUUID, otherUUID);
+        }
+    }
+} 
\ No newline at end of file
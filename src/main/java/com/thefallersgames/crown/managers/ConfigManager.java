@@ -1,19 +1,32 @@
 package com.thefallersgames.crown.managers;
 
-import org.bukkit.ChatColor;
-import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.FileConfiguration;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.Material;
 import org.bukkit.enchantments.Enchantment;
 import org.bukkit.inventory.ItemStack;
 
 import com.thefallersgames.crown.CrownPlugin;
+import com.thefallersgames.crown.storage.AtomicFile;
 
 /**
- * Handles plugin configuration settings
+ * Handles plugin configuration settings.
+ * <p>
+ * The configuration is compiled into an immutable {@link CrownSettings} snapshot
+ * on load and on every reload; the getters below read from the current snapshot.
  */
 public class ConfigManager {
+    /** Remembers the crown material of the last start or reload */
+    private static final String MATERIAL_FILE_NAME = "crown-material.txt";
+    
     private CrownPlugin plugin;
-    private FileConfiguration config;
+    private volatile CrownSettings settings;
     
     /**
      * Creates a new ConfigManager
@@ -21,15 +34,63 @@ public class ConfigManager {
      */
     public ConfigManager(CrownPlugin plugin) {
         this.plugin = plugin;
-        this.config = plugin.getConfig();
+        this.settings = CrownSettings.compile(plugin.getConfig(), plugin.getLogger());
+        keepPreviousCrownMaterial();
     }
     
     /**
-     * Reloads the configuration
+     * Reloads the configuration and atomically replaces the compiled settings
      */
     public void reloadConfig() {
         plugin.reloadConfig();
-        config = plugin.getConfig();
+        settings = CrownSettings.compile(plugin.getConfig(), plugin.getLogger());
+        keepPreviousCrownMaterial();
+    }
+    
+    /**
+     * Adds the crown material of the last start or reload to crown.legacy_materials
+     * when it was changed, so crowns made before the change are still recognized
+     */
+    private void keepPreviousCrownMaterial() {
+        Material current = settings.getCrownMaterial();
+        File file = new File(plugin.getDataFolder(), MATERIAL_FILE_NAME);
+        Material previous = null;
+        if (file.exists()) {
+            try {
+                String name = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim();
+                previous = Material.matchMaterial(name);
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not read " + file.getName() + ": " + e.getMessage());
+            }
+        }
+        
+        if (previous != null && !settings.getCrownMaterials().contains(previous)) {
+            List<String> legacy = new ArrayList<>(plugin.getConfig().getStringList("crown.legacy_materials"));
+            legacy.add(previous.name());
+            plugin.getConfig().set("crown.legacy_materials", legacy);
+            plugin.saveConfig();
+            settings = CrownSettings.compile(plugin.getConfig(), plugin.getLogger());
+            plugin.getLogger().info("Crown material changed from " + previous.name() + " to " + current.name()
+                    + ", added " + previous.name() + " to crown.legacy_materials");
+        }
+        
+        if (previous != current) {
+            try {
+                file.getAbsoluteFile().getParentFile().mkdirs();
+                AtomicFile.write(file, current.name().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not write " + file.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Gets the current compiled settings. Hot paths should fetch this once and
+     * read all values from it, so they see a consistent configuration.
+     * @return The immutable settings snapshot
+     */
+    public CrownSettings getSettings() {
+        return settings;
     }
     
     /**
@@ -37,7 +98,7 @@ public class ConfigManager {
      * @return The material name as a string
      */
     public String getCrownMaterial() {
-        return config.getString("crown.material", "GOLDEN_HELMET");
+        return settings.getCrownMaterial().name();
     }
     
     /**
@@ -45,22 +106,15 @@ public class ConfigManager {
      * @return The formatted display name
      */
     public String getCrownName() {
-        return ChatColor.translateAlternateColorCodes('&', config.getString("crown.name", "&6The Crown"));
+        return settings.getCrownName();
     }
     
     /**
      * Gets the lore for the crown
-     * @return List of formatted lore strings
+     * @return Unmodifiable list of formatted lore strings
      */
     public java.util.List<String> getCrownLore() {
-        java.util.List<String> loreConfig = config.getStringList("crown.lore");
-        java.util.List<String> formattedLore = new java.util.ArrayList<>();
-        
-        for (String line : loreConfig) {
-            formattedLore.add(ChatColor.translateAlternateColorCodes('&', line));
-        }
-        
-        return formattedLore;
+        return settings.getCrownLore();
     }
     
     /**
@@ -68,7 +122,7 @@ public class ConfigManager {
      * @return The health bonus amount
      */
     public double getHealthBonus() {
-        return config.getDouble("crown.health_bonus", 4.0);
+        return settings.getHealthBonus();
     }
     
     /**
@@ -76,7 +130,7 @@ public class ConfigManager {
      * @return The armor bonus amount
      */
     public double getArmorBonus() {
-        return config.getDouble("crown.armor", 3.0);
+        return settings.getArmorBonus();
     }
     
     /**
@@ -84,7 +138,7 @@ public class ConfigManager {
      * @return true if binding curse is enabled
      */
     public boolean hasBindingCurse() {
-        return config.getBoolean("crown.binding_curse", true);
+        return settings.hasBindingCurse();
     }
     
     /**
@@ -92,7 +146,7 @@ public class ConfigManager {
      * @return true if vanishing curse is enabled
      */
     public boolean hasVanishingCurse() {
-        return config.getBoolean("crown.vanishing_curse", false);
+        return settings.hasVanishingCurse();
     }
     
     /**
@@ -100,7 +154,7 @@ public class ConfigManager {
      * @return true if auto-equip on give is enabled
      */
     public boolean isAutoEquipOnGiveEnabled() {
-        return config.getBoolean("behavior.auto_equip_on_give", true);
+        return settings.isAutoEquipOnGiveEnabled();
     }
     
     /**
@@ -108,7 +162,7 @@ public class ConfigManager {
      * @return true if crown transfer on kill is enabled
      */
     public boolean isCrownTransferOnKillEnabled() {
-        return config.getBoolean("behavior.transfer_on_kill", true);
+        return settings.isCrownTransferOnKillEnabled();
     }
     
     /**
@@ -116,7 +170,7 @@ public class ConfigManager {
      * @return true if transfer to killer should be prioritized
      */
     public boolean isPrioritizeTransferEnabled() {
-        return config.getBoolean("behavior.prioritize_transfer", true);
+        return settings.isPrioritizeTransferEnabled();
     }
     
     /**
@@ -124,7 +178,7 @@ public class ConfigManager {
      * @return true if dropping the crown is allowed
      */
     public boolean isDroppingAllowed() {
-        return config.getBoolean("behavior.allow_dropping", false);
+        return settings.isDroppingAllowed();
     }
     
     /**
@@ -132,7 +186,7 @@ public class ConfigManager {
      * @return true if crown should be removed from player data on death
      */
     public boolean shouldRemoveCrownOnDeath() {
-        return config.getBoolean("behavior.remove_crown_on_death", true);
+        return settings.shouldRemoveCrownOnDeath();
     }
     
     /**
@@ -140,31 +194,9 @@ public class ConfigManager {
      * @param crown The crown item to enchant
      */
     public void applyEnchantments(ItemStack crown) {
-        // Apply curses if configured
-        if (hasBindingCurse()) {
-            crown.addUnsafeEnchantment(Enchantment.BINDING_CURSE, 1);
-        }
-        
-        if (hasVanishingCurse()) {
-            crown.addUnsafeEnchantment(Enchantment.VANISHING_CURSE, 1);
-        }
-        
-        // Apply custom enchantments from config
-        ConfigurationSection enchantmentsSection = config.getConfigurationSection("crown.enchantments");
-        if (enchantmentsSection != null) {
-            for (String enchName : enchantmentsSection.getKeys(false)) {
-                try {
-                    Enchantment enchantment = Enchantment.getByName(enchName);
-                    if (enchantment != null) {
-                        int level = enchantmentsSection.getInt(enchName, 1);
-                        crown.addUnsafeEnchantment(enchantment, level);
-                    } else {
-                        plugin.getLogger().warning("Unknown enchantment in config: " + enchName);
-                    }
-                } catch (Exception e) {
-                    plugin.getLogger().warning("Error applying enchantment " + enchName + ": " + e.getMessage());
-                }
-            }
+        // Curses and configured enchantments were resolved when the config was loaded
+        for (Map.Entry<Enchantment, Integer> entry : settings.getEnchantments().entrySet()) {
+            crown.addUnsafeEnchantment(entry.getKey(), entry.getValue());
         }
     }
     
@@ -174,9 +206,77 @@ public class ConfigManager {
      * @return The formatted message with color codes
      */
     public String getMessage(String key) {
-        String prefix = ChatColor.translateAlternateColorCodes('&', config.getString("messages.prefix", "&6[Crown] &r"));
-        String message = ChatColor.translateAlternateColorCodes('&', config.getString("messages." + key, ""));
-        return prefix + message;
+        return settings.getMessage(key);
+    }
+    
+    // Storage configuration methods
+    
+    /**
+     * Gets the backend used to store crown data
+     * @return "binary", "yaml" or "sqlite"
+     */
+    public String getStorageBackend() {
+        return settings.getStorageBackend();
+    }
+    
+    /**
+     * Saves a new storage backend to the configuration file, turning the journal off
+     * so the next start uses exactly this backend
+     * @param backend "binary", "yaml" or "sqlite"
+     */
+    public void setStorageBackend(String backend) {
+        plugin.getConfig().set("storage.backend", backend);
+        plugin.getConfig().set("storage.journal.enabled", false);
+        plugin.saveConfig();
+        settings = CrownSettings.compile(plugin.getConfig(), plugin.getLogger());
+    }
+    
+    /**
+     * Gets the number of rows written per statement batch by the SQLite backend
+     * @return The batch size
+     */
+    public int getSqlBatchSize() {
+        return settings.getSqlBatchSize();
+    }
+    
+    /**
+     * Gets the interval between autosaves of crown data
+     * @return The autosave interval in seconds
+     */
+    public int getAutosaveInterval() {
+        return settings.getAutosaveInterval();
+    }
+    
+    /**
+     * Gets the maximum number of snapshots waiting to be written to disk
+     * @return The save queue capacity
+     */
+    public int getSaveQueueCapacity() {
+        return settings.getSaveQueueCapacity();
+    }
+    
+    /**
+     * Checks if crown data is persisted through the append-only journal
+     * @return true if journal mode is enabled
+     */
+    public boolean isJournalEnabled() {
+        return settings.isJournalEnabled();
+    }
+    
+    /**
+     * Gets the number of journal records after which the journal is compacted into a snapshot
+     * @return The compaction threshold
+     */
+    public int getJournalCompactAfter() {
+        return settings.getJournalCompactAfter();
+    }
+    
+    /**
+     * Checks if journal appends are forced to disk before being acknowledged
+     * @return true if journal appends are synced
+     */
+    public boolean isJournalSyncEnabled() {
+        return settings.isJournalSyncEnabled();
     }
     
     // Particle effect configuration methods
@@ -186,7 +286,7 @@ public class ConfigManager {
      * @return true if particle effects are enabled
      */
     public boolean areParticlesEnabled() {
-        return config.getBoolean("particles.enabled", true);
+        return settings.areParticlesEnabled();
     }
     
     /**
@@ -194,7 +294,7 @@ public class ConfigManager {
      * @return The particle type as a string
      */
     public String getParticleType() {
-        return config.getString("particles.type", "FLAME");
+        return settings.getParticleType().name();
     }
     
     /**
@@ -202,7 +302,7 @@ public class ConfigManager {
      * @return The particle count
      */
     public int getParticleCount() {
-        return config.getInt("particles.count", 30);
+        return settings.getParticleCount();
     }
     
     /**
@@ -210,7 +310,15 @@ public class ConfigManager {
      * @return The duration in ticks
      */
     public int getParticleDuration() {
-        return config.getInt("particles.duration", 60);
+        return settings.getParticleDuration();
+    }
+    
+    /**
+     * Gets the maximum number of particle effects that may run at the same time
+     * @return The effect cap
+     */
+    public int getParticleMaxEffects() {
+        return settings.getParticleMaxEffects();
     }
     
     /**
@@ -218,7 +326,7 @@ public class ConfigManager {
      * @return The X offset
      */
     public double getParticleOffsetX() {
-        return config.getDouble("particles.offset.x", 0.3);
+        return settings.getParticleOffsetX();
     }
     
     /**
@@ -226,7 +334,7 @@ public class ConfigManager {
      * @return The Y offset
      */
     public double getParticleOffsetY() {
-        return config.getDouble("particles.offset.y", 1.8);
+        return settings.getParticleOffsetY();
     }
     
     /**
@@ -234,7 +342,7 @@ public class ConfigManager {
      * @return The Z offset
      */
     public double getParticleOffsetZ() {
-        return config.getDouble("particles.offset.z", 0.3);
+        return settings.getParticleOffsetZ();
     }
     
     /**
@@ -242,7 +350,7 @@ public class ConfigManager {
      * @return The particle speed
      */
     public double getParticleSpeed() {
-        return config.getDouble("particles.speed", 0.2);
+        return settings.getParticleSpeed();
     }
     
     /**
@@ -250,7 +358,7 @@ public class ConfigManager {
      * @return The red value (0-255)
      */
     public int getParticleColorRed() {
-        return config.getInt("particles.color.red", 255);
+        return settings.getParticleColor().getRed();
     }
     
     /**
@@ -258,7 +366,7 @@ public class ConfigManager {
      * @return The green value (0-255)
      */
     public int getParticleColorGreen() {
-        return config.getInt("particles.color.green", 215);
+        return settings.getParticleColor().getGreen();
     }
     
     /**
@@ -266,6 +374,6 @@ public class ConfigManager {
      * @return The blue value (0-255)
      */
     public int getParticleColorBlue() {
-        return config.getInt("particles.color.blue", 0);
+        return settings.getParticleColor().getBlue();
     }
 } 
\ No newline at end of file
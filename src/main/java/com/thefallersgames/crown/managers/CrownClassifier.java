@@ -0,0 +1,114 @@
+package com.thefallersgames.crown.managers;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataType;
+
+/**
+ * Decides whether an item is a crown, cheapest check first.
+ * <p>
+ * Almost every item passed in is not a crown, so the first tier rejects items
+ * whose material can never be a crown by reading one array slot. Items that
+ * passed the full check recently are remembered by identity in a small cache,
+ * because the same stack is usually checked several times during one event.
+ * Stacks are mutable, so a cached entry only counts while the stack still has
+ * the material it had when it was checked.
+ * Only the remaining items pay for {@link ItemStack#getItemMeta()}, which copies
+ * the meta, and the persistent data lookup.
+ * <p>
+ * Not thread-safe beyond benign races; intended for the main thread.
+ */
+public class CrownClassifier {
+    private static final int CACHE_SIZE = 64;
+    
+    private final NamespacedKey crownKey;
+    private final ItemStack[] recentCrowns = new ItemStack[CACHE_SIZE];
+    private final Material[] recentMaterials = new Material[CACHE_SIZE];
+    private boolean[] crownMaterials = new boolean[Material.values().length];
+    
+    /**
+     * Creates a new CrownClassifier
+     * @param crownKey The persistent data key that marks an item as a crown
+     */
+    public CrownClassifier(NamespacedKey crownKey) {
+        this.crownKey = crownKey;
+    }
+    
+    /**
+     * Sets the materials a crown can be made of and forgets all cached crowns
+     * @param materials The crown materials
+     */
+    public void setMaterials(Collection<Material> materials) {
+        boolean[] lookup = new boolean[Material.values().length];
+        for (Material material : materials) {
+            lookup[material.ordinal()] = true;
+        }
+        crownMaterials = lookup;
+        clearCache();
+    }
+    
+    /**
+     * Forgets all cached crowns
+     */
+    public void clearCache() {
+        Arrays.fill(recentCrowns, null);
+        Arrays.fill(recentMaterials, null);
+    }
+    
+    /**
+     * Checks if an item is a crown
+     * @param item The item to check
+     * @return true if the item is a crown, false otherwise
+     */
+    public boolean isCrown(ItemStack item) {
+        if (item == null) {
+            return false;
+        }
+        
+        // Tier 1: most items can be rejected by their material alone
+        Material type = item.getType();
+        if (!crownMaterials[type.ordinal()]) {
+            return false;
+        }
+        
+        // Tier 2: the same stack is often checked several times per event
+        int slot = slotOf(item);
+        if (recentCrowns[slot] == item && recentMaterials[slot] == type) {
+            return true;
+        }
+        
+        // Tier 3: read the persistent data
+        if (!item.hasItemMeta()) {
+            return false;
+        }
+        ItemMeta meta = item.getItemMeta();
+        if (!meta.getPersistentDataContainer().has(crownKey, PersistentDataType.STRING)) {
+            return false;
+        }
+        
+        recentCrowns[slot] = item;
+        recentMaterials[slot] = type;
+        return true;
+    }
+    
+    /**
+     * Remembers an item that is known to be a crown
+     * @param item The crown item
+     */
+    public void remember(ItemStack item) {
+        if (item != null) {
+            int slot = slotOf(item);
+            recentCrowns[slot] = item;
+            recentMaterials[slot] = item.getType();
+        }
+    }
+    
+    private static int slotOf(ItemStack item) {
+        return System.identityHashCode(item) & (CACHE_SIZE - 1);
+    }
+}
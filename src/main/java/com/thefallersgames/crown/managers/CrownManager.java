@@ -1,13 +1,15 @@
 package com.thefallersgames.crown.managers;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import org.bukkit.ChatColor;
-import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
 import org.bukkit.attribute.Attribute;
 import org.bukkit.attribute.AttributeModifier;
@@ -16,22 +18,34 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.EquipmentSlot;
 import org.bukkit.inventory.ItemFlag;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.persistence.PersistentDataType;
 
 import com.thefallersgames.crown.CrownPlugin;
+import com.thefallersgames.crown.audit.AuditRecord;
+import com.thefallersgames.crown.metrics.CrownMetrics;
+import com.thefallersgames.crown.storage.CrownMutation;
 
 /**
  * Manages crown items and crown ownership
  */
 public class CrownManager {
+    // Fixed modifier IDs so every crown carries identical attributes
+    private static final UUID HEALTH_MODIFIER_ID = UUID.nameUUIDFromBytes("crown.health".getBytes(StandardCharsets.UTF_8));
+    private static final UUID ARMOR_MODIFIER_ID = UUID.nameUUIDFromBytes("crown.armor".getBytes(StandardCharsets.UTF_8));
+    
     private CrownPlugin plugin;
     private ConfigManager configManager;
     private NamespacedKey crownKey;
     private NamespacedKey ownerKey;
-    private Map<UUID, UUID> crownOwners; // Player UUID -> Crown Owner UUID
-    private Map<UUID, Boolean> pendingCrownRespawn; // Player UUID -> Should receive crown on respawn
+    private CrownRegistry registry;
+    private CrownTemplate template;
+    private CrownClassifier classifier;
+    private CrownSettings classifierSettings;
+    private CrownSlotIndex slotIndex;
+    private ReignLeaderboard leaderboard;
     
     /**
      * Creates a new CrownManager
@@ -43,8 +57,10 @@ public class CrownManager {
         this.configManager = configManager;
         this.crownKey = new NamespacedKey(plugin, "crown_item");
         this.ownerKey = new NamespacedKey(plugin, "crown_owner");
-        this.crownOwners = new HashMap<>();
-        this.pendingCrownRespawn = new HashMap<>();
+        this.classifier = new CrownClassifier(crownKey);
+        this.slotIndex = new CrownSlotIndex(plugin, this::isCrownItem);
+        this.registry = new CrownRegistry();
+        this.leaderboard = new ReignLeaderboard();
     }
     
     /**
@@ -53,30 +69,68 @@ public class CrownManager {
      * @return The created crown item
      */
     public ItemStack createCrown(Player player) {
-        Material crownMaterial = Material.valueOf(configManager.getCrownMaterial());
-        ItemStack crown = new ItemStack(crownMaterial, 1);
+        // Everything except the owner is shared, so start from a copy of the template
+        CrownTemplate template = getTemplate();
+        ItemStack crown = template.item.clone();
+        ItemMeta meta = crown.getItemMeta();
+        
+        meta.getPersistentDataContainer().set(ownerKey, PersistentDataType.STRING, player.getUniqueId().toString());
+        
+        // Add owner info
+        List<String> lore = new ArrayList<>(template.lore.size() + 1);
+        lore.addAll(template.lore);
+        lore.add(ChatColor.YELLOW + "Owner: " + ChatColor.WHITE + player.getName());
+        meta.setLore(lore);
+        
+        crown.setItemMeta(meta);
+        
+        return crown;
+    }
+    
+    /**
+     * Gets the crown template for the current configuration, rebuilding it
+     * when the configuration was reloaded
+     * @return The template for the current settings
+     */
+    private CrownTemplate getTemplate() {
+        CrownSettings settings = configManager.getSettings();
+        CrownTemplate template = this.template;
+        if (template == null || template.settings != settings) {
+            template = buildTemplate(settings);
+            this.template = template;
+        }
+        return template;
+    }
+    
+    /**
+     * Builds a crown without an owner from the given settings
+     * @param settings The settings to build the crown from
+     * @return The template crown and its lore without the owner line
+     */
+    private CrownTemplate buildTemplate(CrownSettings settings) {
+        ItemStack crown = new ItemStack(settings.getCrownMaterial(), 1);
         ItemMeta meta = crown.getItemMeta();
         
         // Set name and lore
-        meta.setDisplayName(configManager.getCrownName());
+        meta.setDisplayName(settings.getCrownName());
         
         // Get base lore from config
-        List<String> lore = new ArrayList<>(configManager.getCrownLore());
+        List<String> lore = new ArrayList<>(settings.getCrownLore());
         
         // Set attributes
-        double healthBonus = configManager.getHealthBonus();
+        double healthBonus = settings.getHealthBonus();
         AttributeModifier healthModifier = new AttributeModifier(
-                UUID.randomUUID(), 
-                "crown.health", 
-                healthBonus, 
-                AttributeModifier.Operation.ADD_NUMBER, 
+                HEALTH_MODIFIER_ID,
+                "crown.health",
+                healthBonus,
+                AttributeModifier.Operation.ADD_NUMBER,
                 EquipmentSlot.HEAD
         );
         meta.addAttributeModifier(Attribute.GENERIC_MAX_HEALTH, healthModifier);
         
-        double armorBonus = configManager.getArmorBonus();
+        double armorBonus = settings.getArmorBonus();
         AttributeModifier armorModifier = new AttributeModifier(
-                UUID.randomUUID(),
+                ARMOR_MODIFIER_ID,
                 "crown.armor",
                 armorBonus,
                 AttributeModifier.Operation.ADD_NUMBER,
@@ -88,20 +142,17 @@ public class CrownManager {
         meta.setUnbreakable(true);
         meta.addItemFlags(ItemFlag.HIDE_UNBREAKABLE);
         
-        // Add custom tag to identify this as a crown item
-        PersistentDataContainer container = meta.getPersistentDataContainer();
-        container.set(crownKey, PersistentDataType.STRING, "crown");
-        container.set(ownerKey, PersistentDataType.STRING, player.getUniqueId().toString());
-        
-        // Set the updated lore before we add enchantments
-        meta.setLore(lore);
-        crown.setItemMeta(meta);
+        // Hide enchantments and attributes as requested
+        meta.addItemFlags(ItemFlag.HIDE_ENCHANTS);
+        meta.addItemFlags(ItemFlag.HIDE_ATTRIBUTES);
         
-        // Apply custom enchantments from config
-        configManager.applyEnchantments(crown);
+        // Add custom tag to identify this as a crown item
+        meta.getPersistentDataContainer().set(crownKey, PersistentDataType.STRING, "crown");
         
-        // Update meta after enchantments applied
-        meta = crown.getItemMeta();
+        // Add enchantments through the meta so a single setItemMeta is enough
+        for (Map.Entry<Enchantment, Integer> entry : settings.getEnchantments().entrySet()) {
+            meta.addEnchant(entry.getKey(), entry.getValue(), true);
+        }
         
         // Add stats and enchantments to lore
         lore.add("");
@@ -115,7 +166,7 @@ public class CrownManager {
         lore.add(ChatColor.WHITE + "• " + armorBonus + " Armor");
         
         // Add enchantments section if there are any
-        Map<Enchantment, Integer> enchants = crown.getEnchantments();
+        Map<Enchantment, Integer> enchants = meta.getEnchants();
         if (!enchants.isEmpty()) {
             lore.add("");
             lore.add(ChatColor.AQUA + "" + ChatColor.BOLD + "Enchantments:");
@@ -137,19 +188,13 @@ public class CrownManager {
             }
         }
         
-        // Add owner info
+        // Leave a gap for the owner line
         lore.add("");
-        lore.add(ChatColor.YELLOW + "Owner: " + ChatColor.WHITE + player.getName());
         
         meta.setLore(lore);
-        
-        // Hide enchantments and attributes as requested
-        meta.addItemFlags(ItemFlag.HIDE_ENCHANTS);
-        meta.addItemFlags(ItemFlag.HIDE_ATTRIBUTES);
-        
         crown.setItemMeta(meta);
         
-        return crown;
+        return new CrownTemplate(settings, crown, Collections.unmodifiableList(lore));
     }
     
     /**
@@ -191,38 +236,54 @@ public class CrownManager {
      * @param player The player to give the crown to
      */
     public void giveCrown(Player player) {
-        UUID playerUUID = player.getUniqueId();
-        
-        // Remove any existing crown they might have
-        removeCrown(player);
-        
-        // Remove any crowns from other players in their inventory
-        removeOtherCrownsFromInventory(player);
-        
-        // Create and give the new crown
-        ItemStack crown = createCrown(player);
-        
-        // Store the player as a crown owner
-        crownOwners.put(playerUUID, playerUUID);
-        
-        // Check if auto-equip is enabled
-        boolean autoEquip = configManager.isAutoEquipOnGiveEnabled();
-        
-        // Give the crown to the player
-        if (autoEquip) {
-            // Handle any existing helmet
-            handleExistingHelmet(player);
+        long start = plugin.getMetrics().start();
+        try {
+            UUID playerUUID = player.getUniqueId();
+            if (!registry.isOwner(playerUUID)) {
+                audit(AuditRecord.Action.GIVE, playerUUID, null);
+            }
+            
+            // Remove any existing crown items, ownership is only recorded below if it changes
+            clearCrownSlots(player);
+            
+            // Remove any crowns from other players in their inventory
+            removeOtherCrownsFromInventory(player);
             
-            // Force equip the crown
-            player.getInventory().setHelmet(crown);
-            player.sendMessage(configManager.getMessage("crown_given"));
-        } else {
-            player.getInventory().addItem(crown);
-            player.sendMessage(configManager.getMessage("crown_given"));
+            // Create and give the new crown
+            ItemStack crown = createCrown(player);
+            
+            // Store the player as a crown owner
+            if (registry.setOwner(playerUUID, playerUUID)) {
+                record(CrownMutation.setOwner(playerUUID, playerUUID));
+            }
+            // The crown is back, so nothing waits for a respawn any more
+            if (registry.removeRespawn(playerUUID)) {
+                record(CrownMutation.removeRespawn(playerUUID));
+            }
+            
+            // Check if auto-equip is enabled
+            boolean autoEquip = configManager.isAutoEquipOnGiveEnabled();
+            
+            // Give the crown to the player
+            if (autoEquip) {
+                // Handle any existing helmet
+                handleExistingHelmet(player);
+                
+                // Force equip the crown
+                player.getInventory().setHelmet(crown);
+                slotIndex.setSlot(playerUUID, CrownSlotIndex.HELMET_SLOT, true);
+                player.sendMessage(configManager.getMessage("crown_given"));
+            } else {
+                player.getInventory().addItem(crown);
+                slotIndex.reconcile(player);
+                player.sendMessage(configManager.getMessage("crown_given"));
+            }
+            
+            // Play particle effect for becoming leader
+            playLeaderParticleEffect(player);
+        } finally {
+            plugin.getMetrics().recordOperation(CrownMetrics.Operation.GIVE, start);
         }
-        
-        // Play particle effect for becoming leader
-        playLeaderParticleEffect(player);
     }
     
     /**
@@ -231,36 +292,53 @@ public class CrownManager {
      * @param isTransfer Whether this is a transfer event (e.g., from kill)
      */
     public void giveCrown(Player player, boolean isTransfer) {
-        UUID playerUUID = player.getUniqueId();
-        
-        // Remove any existing crown they might have
-        removeCrown(player);
-        
-        // Remove any crowns from other players in their inventory
-        removeOtherCrownsFromInventory(player);
-        
-        // Create and give the new crown
-        ItemStack crown = createCrown(player);
-        
-        // Store the player as a crown owner
-        crownOwners.put(playerUUID, playerUUID);
-        
-        // Check if auto-equip is enabled (always use the auto_equip_on_give setting)
-        boolean autoEquip = configManager.isAutoEquipOnGiveEnabled();
-        
-        // Give the crown to the player
-        if (autoEquip) {
-            // Handle any existing helmet
-            handleExistingHelmet(player);
+        long start = plugin.getMetrics().start();
+        try {
+            UUID playerUUID = player.getUniqueId();
+            // Transfers are recorded by the caller, which knows the previous owner
+            if (!isTransfer && !registry.isOwner(playerUUID)) {
+                audit(AuditRecord.Action.GIVE, playerUUID, null);
+            }
+            
+            // Remove any existing crown items, ownership is only recorded below if it changes
+            clearCrownSlots(player);
+            
+            // Remove any crowns from other players in their inventory
+            removeOtherCrownsFromInventory(player);
+            
+            // Create and give the new crown
+            ItemStack crown = createCrown(player);
+            
+            // Store the player as a crown owner
+            if (registry.setOwner(playerUUID, playerUUID)) {
+                record(CrownMutation.setOwner(playerUUID, playerUUID));
+            }
+            // The crown is back, so nothing waits for a respawn any more
+            if (registry.removeRespawn(playerUUID)) {
+                record(CrownMutation.removeRespawn(playerUUID));
+            }
+            
+            // Check if auto-equip is enabled (always use the auto_equip_on_give setting)
+            boolean autoEquip = configManager.isAutoEquipOnGiveEnabled();
+            
+            // Give the crown to the player
+            if (autoEquip) {
+                // Handle any existing helmet
+                handleExistingHelmet(player);
+                
+                // Force equip the crown
+                player.getInventory().setHelmet(crown);
+                slotIndex.setSlot(playerUUID, CrownSlotIndex.HELMET_SLOT, true);
+            } else {
+                player.getInventory().addItem(crown);
+                slotIndex.reconcile(player);
+            }
             
-            // Force equip the crown
-            player.getInventory().setHelmet(crown);
-        } else {
-            player.getInventory().addItem(crown);
+            // Play particle effect for becoming leader (even on transfer)
+            playLeaderParticleEffect(player);
+        } finally {
+            plugin.getMetrics().recordOperation(isTransfer ? CrownMetrics.Operation.TRANSFER : CrownMetrics.Operation.GIVE, start);
         }
-        
-        // Play particle effect for becoming leader (even on transfer)
-        playLeaderParticleEffect(player);
     }
     
     /**
@@ -287,25 +365,53 @@ public class CrownManager {
      * @param player The player to remove the crown from
      */
     public void removeCrown(Player player) {
+        long start = plugin.getMetrics().start();
+        if (registry.isOwner(player.getUniqueId())) {
+            audit(AuditRecord.Action.REMOVE, player.getUniqueId(), null);
+        }
+        removeCrownItems(player);
+        plugin.getMetrics().recordOperation(CrownMetrics.Operation.REMOVE, start);
+    }
+    
+    /**
+     * Removes the crown items and ownership of a player, without counting it as a remove operation
+     * @param player The player to remove the crown from
+     */
+    private void removeCrownItems(Player player) {
         UUID playerUUID = player.getUniqueId();
+        clearCrownSlots(player);
         
-        // Check if player is wearing a crown
-        ItemStack helmet = player.getInventory().getHelmet();
-        if (isCrownItem(helmet)) {
-            player.getInventory().setHelmet(null);
-            player.sendMessage(configManager.getMessage("crown_removed"));
+        // Remove from crown owners list
+        if (registry.removeOwner(playerUUID)) {
+            record(CrownMutation.removeOwner(playerUUID));
         }
+        if (registry.removeRespawn(playerUUID)) {
+            record(CrownMutation.removeRespawn(playerUUID));
+        }
+    }
+    
+    /**
+     * Removes the crown items from a player's inventory, leaving ownership untouched
+     * @param player The player to remove the crown items from
+     */
+    private void clearCrownSlots(Player player) {
+        UUID playerUUID = player.getUniqueId();
         
-        // Remove all crown items from player inventory
-        for (ItemStack item : player.getInventory().getContents()) {
-            if (isCrownItem(item)) {
-                player.getInventory().remove(item);
+        // Only the slots known to hold a crown need to be looked at
+        PlayerInventory inventory = player.getInventory();
+        long slots = slotIndex.getSlots(playerUUID);
+        for (long bits = slots; bits != 0L; bits &= bits - 1) {
+            int slot = Long.numberOfTrailingZeros(bits);
+            if (isCrownItem(inventory.getItem(slot))) {
+                inventory.setItem(slot, null);
+                
+                // Check if player was wearing a crown
+                if (slot == CrownSlotIndex.HELMET_SLOT) {
+                    player.sendMessage(configManager.getMessage("crown_removed"));
+                }
             }
         }
-        
-        // Remove from crown owners list
-        crownOwners.remove(playerUUID);
-        pendingCrownRespawn.remove(playerUUID);
+        slotIndex.clear(playerUUID);
     }
     
     /**
@@ -314,13 +420,13 @@ public class CrownManager {
      * @return true if the item is a crown, false otherwise
      */
     public boolean isCrownItem(ItemStack item) {
-        if (item == null || !item.hasItemMeta()) {
-            return false;
+        CrownSettings settings = configManager.getSettings();
+        if (classifierSettings != settings) {
+            // The crown materials may have changed with a reload
+            classifier.setMaterials(settings.getCrownMaterials());
+            classifierSettings = settings;
         }
-        
-        ItemMeta meta = item.getItemMeta();
-        PersistentDataContainer container = meta.getPersistentDataContainer();
-        return container.has(crownKey, PersistentDataType.STRING);
+        return classifier.isCrown(item);
     }
     
     /**
@@ -365,7 +471,9 @@ public class CrownManager {
      * @param playerUUID The UUID of the player to register
      */
     public void registerPlayerAsCrownOwner(UUID playerUUID) {
-        crownOwners.put(playerUUID, playerUUID);
+        if (registry.setOwner(playerUUID, playerUUID)) {
+            record(CrownMutation.setOwner(playerUUID, playerUUID));
+        }
     }
     
     /**
@@ -373,7 +481,9 @@ public class CrownManager {
      * @param playerUUID The UUID of the player to remove
      */
     public void removePlayerFromCrownOwners(UUID playerUUID) {
-        crownOwners.remove(playerUUID);
+        if (registry.removeOwner(playerUUID)) {
+            record(CrownMutation.removeOwner(playerUUID));
+        }
     }
     
     /**
@@ -382,7 +492,16 @@ public class CrownManager {
      * @return true if the player is a crown owner
      */
     public boolean isPlayerCrownOwner(UUID playerUUID) {
-        return crownOwners.containsKey(playerUUID);
+        return registry.isOwner(playerUUID);
+    }
+    
+    /**
+     * Gets every player holding a crown owned by the given player
+     * @param ownerUUID The crown owner's UUID
+     * @return Unmodifiable set of holder UUIDs
+     */
+    public Set<UUID> getCrownHolders(UUID ownerUUID) {
+        return registry.getHolders(ownerUUID);
     }
     
     /**
@@ -390,7 +509,9 @@ public class CrownManager {
      * @param playerUUID The player's UUID
      */
     public void markForRespawn(UUID playerUUID) {
-        pendingCrownRespawn.put(playerUUID, true);
+        registry.setRespawn(playerUUID, true);
+        record(CrownMutation.setRespawn(playerUUID, true));
+        markCrownPresent();
     }
     
     /**
@@ -399,48 +520,130 @@ public class CrownManager {
      * @return true if the player should receive a crown
      */
     public boolean shouldReceiveCrownOnRespawn(UUID playerUUID) {
-        return pendingCrownRespawn.containsKey(playerUUID) && pendingCrownRespawn.get(playerUUID);
+        return registry.shouldRespawn(playerUUID);
     }
     
     /**
-     * Sets the crown respawn flag for a player
+     * Sets the crown respawn flag for a player. Clearing the flag removes the entry.
      * @param playerUUID The player's UUID
      * @param value The flag value
      */
     public void setCrownRespawnFlag(UUID playerUUID, boolean value) {
-        pendingCrownRespawn.put(playerUUID, value);
+        if (value) {
+            registry.setRespawn(playerUUID, true);
+            record(CrownMutation.setRespawn(playerUUID, true));
+            markCrownPresent();
+        } else if (registry.removeRespawn(playerUUID)) {
+            record(CrownMutation.removeRespawn(playerUUID));
+        }
     }
     
     /**
-     * Gets the map of crown owners
-     * @return Map of player UUIDs to crown owner UUIDs
+     * Applies an ownership change made on another server. The change is stored
+     * but not sent on, and a player losing the crown here also loses the crown items.
+     * @param mutation The change
      */
-    public Map<UUID, UUID> getCrownOwners() {
-        return crownOwners;
+    public void applyRemoteChange(CrownMutation mutation) {
+        UUID playerUUID = mutation.getPlayer();
+        switch (mutation.getType()) {
+            case SET_OWNER:
+                if (!registry.isOwner(playerUUID)) {
+                    audit(AuditRecord.Action.REMOTE_GIVE, playerUUID, null);
+                }
+                if (!registry.setOwner(playerUUID, mutation.getOwner())) {
+                    return;
+                }
+                break;
+            case REMOVE_OWNER:
+                if (!registry.removeOwner(playerUUID)) {
+                    return;
+                }
+                audit(AuditRecord.Action.REMOTE_REMOVE, playerUUID, null);
+                Player player = plugin.getServer().getPlayer(playerUUID);
+                if (player != null) {
+                    clearCrownSlots(player);
+                }
+                break;
+            case SET_RESPAWN:
+                if (mutation.getRespawn()) {
+                    registry.setRespawn(playerUUID, true);
+                    markCrownPresent();
+                } else {
+                    registry.removeRespawn(playerUUID);
+                }
+                break;
+            case REMOVE_RESPAWN:
+            default:
+                registry.removeRespawn(playerUUID);
+                break;
+        }
+        
+        updateReign(mutation);
+        if (plugin.getDataManager() != null) {
+            plugin.getDataManager().record(mutation);
+        }
     }
     
     /**
-     * Sets the map of crown owners
-     * @param crownOwners Map of player UUIDs to crown owner UUIDs
+     * Gets the index of crown slots of online players
+     * @return The crown slot index
+     */
+    public CrownSlotIndex getSlotIndex() {
+        return slotIndex;
+    }
+    
+    /**
+     * Gets the leaderboard of the total time players held a crown. Main thread only.
+     * @return The reign leaderboard
+     */
+    public ReignLeaderboard getLeaderboard() {
+        return leaderboard;
+    }
+    
+    /**
+     * Gets the ownership registry. Other threads should only use its snapshots.
+     * @return The crown registry
+     */
+    public CrownRegistry getRegistry() {
+        return registry;
+    }
+    
+    /**
+     * Starts publishing ownership snapshots for readers on other threads, once per tick
      */
-    public void setCrownOwners(Map<UUID, UUID> crownOwners) {
-        this.crownOwners = crownOwners;
+    public void start() {
+        plugin.getServer().getScheduler().runTaskTimer(plugin, registry::publish, 1L, 1L);
     }
     
     /**
-     * Gets the map of pending crown respawns
+     * Gets the map of crown owners. This is a read-only live view for the main thread;
+     * other threads should use {@link CrownRegistry#getSnapshot()}.
+     * @return Map of player UUIDs to crown owner UUIDs
+     */
+    public Map<UUID, UUID> getCrownOwners() {
+        return registry.getOwnersView();
+    }
+    
+    /**
+     * Gets the map of pending crown respawns. This is a read-only live view for the main thread;
+     * other threads should use {@link CrownRegistry#getSnapshot()}.
      * @return Map of player UUIDs to respawn flags
      */
     public Map<UUID, Boolean> getPendingCrownRespawn() {
-        return pendingCrownRespawn;
+        return registry.getRespawnsView();
     }
     
     /**
-     * Sets the map of pending crown respawns
+     * Replaces all crown ownership data, e.g. after loading it from disk
+     * @param crownOwners Map of player UUIDs to crown owner UUIDs
      * @param pendingCrownRespawn Map of player UUIDs to respawn flags
      */
-    public void setPendingCrownRespawn(Map<UUID, Boolean> pendingCrownRespawn) {
-        this.pendingCrownRespawn = pendingCrownRespawn;
+    public void setCrownData(Map<UUID, UUID> crownOwners, Map<UUID, Boolean> pendingCrownRespawn) {
+        // Older data may still hold cleared flags, which mean the same as no entry
+        Map<UUID, Boolean> respawns = new HashMap<>(pendingCrownRespawn);
+        respawns.values().removeIf(flag -> !flag);
+        registry.replaceAll(crownOwners, respawns);
+        leaderboard.restartReigns(crownOwners.keySet(), System.currentTimeMillis());
     }
     
     /**
@@ -449,18 +652,66 @@ public class CrownManager {
      */
     private void removeOtherCrownsFromInventory(Player player) {
         UUID playerUUID = player.getUniqueId();
-        
-        for (ItemStack item : player.getInventory().getContents()) {
-            if (isCrownItem(item)) {
-                UUID ownerUUID = getCrownOwner(item);
-                // Remove crowns that belong to other players
-                if (ownerUUID != null && !ownerUUID.equals(playerUUID)) {
-                    player.getInventory().remove(item);
-                }
+        PlayerInventory inventory = player.getInventory();
+        
+        for (long bits = slotIndex.getSlots(playerUUID); bits != 0L; bits &= bits - 1) {
+            int slot = Long.numberOfTrailingZeros(bits);
+            UUID ownerUUID = getCrownOwner(inventory.getItem(slot));
+            // Remove crowns that belong to other players
+            if (ownerUUID != null && !ownerUUID.equals(playerUUID)) {
+                inventory.setItem(slot, null);
+                slotIndex.setSlot(playerUUID, slot, false);
             }
         }
     }
     
+    /**
+     * Notifies the data manager and the other servers that crown ownership data has changed
+     * @param mutation The change that was made
+     */
+    private void record(CrownMutation mutation) {
+        updateReign(mutation);
+        if (plugin.getDataManager() != null) {
+            plugin.getDataManager().record(mutation);
+        }
+        if (plugin.getCrownSync() != null) {
+            plugin.getCrownSync().record(mutation);
+        }
+    }
+    
+    /**
+     * Starts or ends the reign of a player whose ownership changed
+     * @param mutation The change that was made
+     */
+    private void updateReign(CrownMutation mutation) {
+        if (mutation.getType() == CrownMutation.Type.SET_OWNER) {
+            leaderboard.startReign(mutation.getPlayer(), System.currentTimeMillis());
+        } else if (mutation.getType() == CrownMutation.Type.REMOVE_OWNER) {
+            leaderboard.endReign(mutation.getPlayer(), System.currentTimeMillis());
+        }
+    }
+    
+    /**
+     * Adds a record to the audit log, if it is enabled
+     * @param action The way the crown changed hands
+     * @param playerUUID The player who gained or lost the crown
+     * @param otherUUID The other player involved, or null
+     */
+    private void audit(AuditRecord.Action action, UUID playerUUID, UUID otherUUID) {
+        if (plugin.getAuditLog() != null) {
+            plugin.getAuditLog().record(action, playerUUID, otherUUID);
+        }
+    }
+    
+    /**
+     * Keeps the inventory listener registered, a crown is waiting for a respawn
+     */
+    private void markCrownPresent() {
+        if (plugin.getCrownPresence() != null) {
+            plugin.getCrownPresence().markPresent();
+        }
+    }
+    
     /**
      * Plays the leader particle effect for a player
      * @param player The player who became leader
@@ -470,4 +721,19 @@ public class CrownManager {
             plugin.getParticleManager().playLeaderParticleEffect(player);
         }
     }
+    
+    /**
+     * A fully built crown without an owner, tied to the settings it was built from
+     */
+    private static final class CrownTemplate {
+        private final CrownSettings settings;
+        private final ItemStack item;
+        private final List<String> lore;
+        
+        private CrownTemplate(CrownSettings settings, ItemStack item, List<String> lore) {
+            this.settings = settings;
+            this.item = item;
+            this.lore = lore;
+        }
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,336 @@
+package com.thefallersgames.crown.managers;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Compact map of crown holders to crown owners.
+ * <p>
+ * Nearly every holder owns the crown they wear, so holders are stored as raw
+ * UUID bits in one open-addressing {@code long[]} table, two longs per slot,
+ * without any per-entry objects. Only holders wearing someone else's crown get
+ * an entry in a side map, which also feeds a reverse index from owner to holders.
+ * The table uses linear probing with backward-shift deletion, so it never
+ * accumulates tombstones. The all-zero slot marks a free slot, so the nil UUID
+ * is tracked by a flag instead.
+ * <p>
+ * Iterating creates the UUID objects on the fly, which is fine for saving but
+ * should be avoided on hot paths; use {@link #get(Object)} and
+ * {@link #containsKey(Object)} there. Not thread-safe.
+ */
+public class CrownOwnerMap extends AbstractMap<UUID, UUID> {
+    private static final int MIN_CAPACITY = 16;
+    
+    private long[] slots; // Holder most/least significant bits, all zero = free
+    private int occupied;
+    private boolean nilHolder;
+    private final Map<UUID, UUID> foreignOwners; // Holder -> owner, only where they differ
+    private final Map<UUID, Set<UUID>> holdersByOwner; // Reverse index of foreignOwners
+    private Set<Map.Entry<UUID, UUID>> entrySet;
+    
+    /**
+     * Creates an empty CrownOwnerMap
+     */
+    public CrownOwnerMap() {
+        this(MIN_CAPACITY);
+    }
+    
+    /**
+     * Creates an empty CrownOwnerMap sized for the given number of holders
+     * @param expectedSize The number of holders to make room for
+     */
+    public CrownOwnerMap(int expectedSize) {
+        this.slots = new long[2 * capacityFor(expectedSize)];
+        this.foreignOwners = new HashMap<>();
+        this.holdersByOwner = new HashMap<>();
+    }
+    
+    private CrownOwnerMap(CrownOwnerMap source) {
+        this.slots = source.slots.clone();
+        this.occupied = source.occupied;
+        this.nilHolder = source.nilHolder;
+        this.foreignOwners = new HashMap<>(source.foreignOwners);
+        this.holdersByOwner = new HashMap<>();
+        for (Map.Entry<UUID, Set<UUID>> entry : source.holdersByOwner.entrySet()) {
+            holdersByOwner.put(entry.getKey(), new LinkedHashSet<>(entry.getValue()));
+        }
+    }
+    
+    /**
+     * Creates an independent copy. Copying the table is a single array clone.
+     * @return A copy of this map
+     */
+    public CrownOwnerMap copy() {
+        return new CrownOwnerMap(this);
+    }
+    
+    @Override
+    public int size() {
+        return occupied + (nilHolder ? 1 : 0);
+    }
+    
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof UUID)) {
+            return false;
+        }
+        UUID holder = (UUID) key;
+        return isNil(holder) ? nilHolder : find(holder.getMostSignificantBits(), holder.getLeastSignificantBits()) >= 0;
+    }
+    
+    @Override
+    public UUID get(Object key) {
+        if (!containsKey(key)) {
+            return null;
+        }
+        UUID owner = foreignOwners.get(key);
+        return owner != null ? owner : (UUID) key;
+    }
+    
+    @Override
+    public UUID put(UUID holder, UUID owner) {
+        Objects.requireNonNull(holder, "holder");
+        Objects.requireNonNull(owner, "owner");
+        UUID previous = get(holder);
+        
+        if (previous == null) {
+            if (isNil(holder)) {
+                nilHolder = true;
+            } else {
+                insert(holder.getMostSignificantBits(), holder.getLeastSignificantBits());
+            }
+        } else if (!previous.equals(holder)) {
+            unlinkForeign(holder, previous);
+        }
+        
+        if (!owner.equals(holder)) {
+            foreignOwners.put(holder, owner);
+            holdersByOwner.computeIfAbsent(owner, k -> new LinkedHashSet<>()).add(holder);
+        }
+        return previous;
+    }
+    
+    @Override
+    public UUID remove(Object key) {
+        UUID previous = get(key);
+        if (previous == null) {
+            return null;
+        }
+        
+        UUID holder = (UUID) key;
+        if (isNil(holder)) {
+            nilHolder = false;
+        } else {
+            delete(find(holder.getMostSignificantBits(), holder.getLeastSignificantBits()));
+        }
+        if (!previous.equals(holder)) {
+            unlinkForeign(holder, previous);
+        }
+        return previous;
+    }
+    
+    @Override
+    public void clear() {
+        if (occupied > 0) {
+            Arrays.fill(slots, 0L);
+        }
+        occupied = 0;
+        nilHolder = false;
+        foreignOwners.clear();
+        holdersByOwner.clear();
+    }
+    
+    /**
+     * Gets every player holding a crown owned by the given player, including
+     * the owner if they hold their own crown
+     * @param owner The crown owner UUID
+     * @return Unmodifiable set of holder UUIDs, empty if there are none
+     */
+    public Set<UUID> getHolders(UUID owner) {
+        Set<UUID> others = holdersByOwner.get(owner);
+        boolean holdsOwn = containsKey(owner) && !foreignOwners.containsKey(owner);
+        if (others == null) {
+            return holdsOwn ? Collections.singleton(owner) : Collections.<UUID>emptySet();
+        }
+        if (!holdsOwn) {
+            return Collections.unmodifiableSet(others);
+        }
+        Set<UUID> holders = new LinkedHashSet<>(others.size() + 1);
+        holders.add(owner);
+        holders.addAll(others);
+        return Collections.unmodifiableSet(holders);
+    }
+    
+    @Override
+    public void forEach(BiConsumer<? super UUID, ? super UUID> action) {
+        if (nilHolder) {
+            UUID nil = new UUID(0L, 0L);
+            action.accept(nil, ownerOf(nil));
+        }
+        for (int i = 0; i < slots.length; i += 2) {
+            if (slots[i] != 0L || slots[i + 1] != 0L) {
+                UUID holder = new UUID(slots[i], slots[i + 1]);
+                action.accept(holder, ownerOf(holder));
+            }
+        }
+    }
+    
+    @Override
+    public Set<Map.Entry<UUID, UUID>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Map.Entry<UUID, UUID>>() {
+                @Override
+                public Iterator<Map.Entry<UUID, UUID>> iterator() {
+                    return new EntryIterator();
+                }
+                
+                @Override
+                public int size() {
+                    return CrownOwnerMap.this.size();
+                }
+            };
+        }
+        return entrySet;
+    }
+    
+    private UUID ownerOf(UUID holder) {
+        UUID owner = foreignOwners.get(holder);
+        return owner != null ? owner : holder;
+    }
+    
+    private void unlinkForeign(UUID holder, UUID owner) {
+        foreignOwners.remove(holder);
+        Set<UUID> holders = holdersByOwner.get(owner);
+        if (holders != null && holders.remove(holder) && holders.isEmpty()) {
+            holdersByOwner.remove(owner);
+        }
+    }
+    
+    private int find(long most, long least) {
+        int mask = (slots.length >> 1) - 1;
+        for (int slot = indexOf(most, least, mask); ; slot = (slot + 1) & mask) {
+            long slotMost = slots[2 * slot];
+            long slotLeast = slots[2 * slot + 1];
+            if (slotMost == most && slotLeast == least) {
+                return slot;
+            }
+            if (slotMost == 0L && slotLeast == 0L) {
+                return -1;
+            }
+        }
+    }
+    
+    private void insert(long most, long least) {
+        // Double at 3/4 load so probe sequences stay short
+        if ((occupied + 1) * 4L > (slots.length >> 1) * 3L) {
+            grow();
+        }
+        int mask = (slots.length >> 1) - 1;
+        int slot = indexOf(most, least, mask);
+        while (slots[2 * slot] != 0L || slots[2 * slot + 1] != 0L) {
+            slot = (slot + 1) & mask;
+        }
+        slots[2 * slot] = most;
+        slots[2 * slot + 1] = least;
+        occupied++;
+    }
+    
+    private void delete(int slot) {
+        int mask = (slots.length >> 1) - 1;
+        int free = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            long most = slots[2 * next];
+            long least = slots[2 * next + 1];
+            if (most == 0L && least == 0L) {
+                break;
+            }
+            // Shift the entry back unless its home slot lies cyclically in (free, next]
+            int home = indexOf(most, least, mask);
+            boolean stays = free <= next ? free < home && home <= next : free < home || home <= next;
+            if (!stays) {
+                slots[2 * free] = most;
+                slots[2 * free + 1] = least;
+                free = next;
+            }
+        }
+        slots[2 * free] = 0L;
+        slots[2 * free + 1] = 0L;
+        occupied--;
+    }
+    
+    private void grow() {
+        long[] old = slots;
+        slots = new long[2 * old.length];
+        occupied = 0;
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i] != 0L || old[i + 1] != 0L) {
+                insert(old[i], old[i + 1]);
+            }
+        }
+    }
+    
+    private static int indexOf(long most, long least, int mask) {
+        // Version 4 UUIDs are random, but mix anyway in case of handcrafted ones
+        long hash = (most ^ least) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+    
+    private static boolean isNil(UUID uuid) {
+        return uuid.getMostSignificantBits() == 0L && uuid.getLeastSignificantBits() == 0L;
+    }
+    
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3L < expectedSize * 4L) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+    
+    private class EntryIterator implements Iterator<Map.Entry<UUID, UUID>> {
+        private boolean nilPending = nilHolder;
+        private int next = advance(0);
+        
+        private int advance(int from) {
+            for (int i = from; i < slots.length; i += 2) {
+                if (slots[i] != 0L || slots[i + 1] != 0L) {
+                    return i;
+                }
+            }
+            return slots.length;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return nilPending || next < slots.length;
+        }
+        
+        @Override
+        public Map.Entry<UUID, UUID> next() {
+            UUID holder;
+            if (nilPending) {
+                nilPending = false;
+                holder = new UUID(0L, 0L);
+            } else if (next < slots.length) {
+                holder = new UUID(slots[next], slots[next + 1]);
+                next = advance(next + 2);
+            } else {
+                throw new NoSuchElementException();
+            }
+            return new AbstractMap.SimpleImmutableEntry<>(holder, ownerOf(holder));
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.thefallersgames.crown.managers;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.entity.Item;
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.thefallersgames.crown.CrownPlugin;
+
+/**
+ * Tracks whether any crown is in play and keeps the inventory listener
+ * registered only while one is.
+ * <p>
+ * A crown is in play while an online player has one in their inventory or on
+ * their cursor, while a rescan of the {@link CrownSlotIndex} is pending, while
+ * a dropped crown lies in a loaded chunk, while an online player waits to get
+ * their crown back on respawn, or once a hopper picked up a crown. Respawn flags
+ * of offline players are kept until they join again and do not count. Every path that brings a crown into play calls
+ * {@link #markPresent()}, which registers the listener right away, before the
+ * crown can be clicked. Unregistering is lazy: a check once per second drops
+ * the listener once no crown has been in play for a few seconds, so a crown
+ * changing hands does not rebuild the server's handler lists every time.
+ */
+public class CrownPresence {
+    /** Ticks between two checks */
+    private static final long CHECK_INTERVAL = 20L;
+    /** Checks in a row without a crown before the listener is unregistered */
+    private static final int IDLE_CHECKS = 5;
+    
+    private final CrownPlugin plugin;
+    private final CrownManager crownManager;
+    private final ConfigManager configManager;
+    private final Listener listener;
+    private final Map<UUID, Item> droppedCrowns = new HashMap<>();
+    private BukkitTask task;
+    private boolean crownInContainer;
+    private boolean listening;
+    private int idleChecks;
+    
+    /**
+     * Creates a new CrownPresence
+     * @param plugin The plugin instance
+     * @param crownManager The crown manager
+     * @param configManager The configuration manager
+     * @param listener The listener to register while a crown is in play
+     */
+    public CrownPresence(CrownPlugin plugin, CrownManager crownManager, ConfigManager configManager,
+            Listener listener) {
+        this.plugin = plugin;
+        this.crownManager = crownManager;
+        this.configManager = configManager;
+        this.listener = listener;
+    }
+    
+    /**
+     * Starts the periodic check and registers the listener if a crown is in play
+     * or gating is turned off
+     */
+    public void start() {
+        if (task == null) {
+            task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::check, CHECK_INTERVAL, CHECK_INTERVAL);
+        }
+        check();
+    }
+    
+    /**
+     * Stops the periodic check and unregisters the listener
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        if (listening) {
+            HandlerList.unregisterAll(listener);
+            listening = false;
+        }
+    }
+    
+    /**
+     * Notes that a crown came into play, registering the listener if it is not registered yet
+     */
+    public void markPresent() {
+        idleChecks = 0;
+        if (!listening) {
+            plugin.getServer().getPluginManager().registerEvents(listener, plugin);
+            listening = true;
+        }
+    }
+    
+    /**
+     * Remembers a crown lying on the ground
+     * @param item The dropped crown
+     */
+    public void addDroppedCrown(Item item) {
+        droppedCrowns.put(item.getUniqueId(), item);
+        markPresent();
+    }
+    
+    /**
+     * Forgets a crown that no longer lies on the ground
+     * @param item The crown entity that despawned or was picked up
+     */
+    public void removeDroppedCrown(Item item) {
+        droppedCrowns.remove(item.getUniqueId());
+    }
+    
+    /**
+     * Notes that a hopper picked up a crown. Crowns in block inventories cannot
+     * be tracked cheaply, so the listener stays registered until the server stops.
+     */
+    public void markCrownInContainer() {
+        crownInContainer = true;
+        markPresent();
+    }
+    
+    /**
+     * Gets the number of dropped crowns in loaded chunks
+     * @return The number of crown entities known
+     */
+    public int getDroppedCrownCount() {
+        return droppedCrowns.size();
+    }
+    
+    /**
+     * Checks if any crown is in play
+     * @return true if an online player holds a crown, a crown lies on the ground,
+     *         an online player waits for their crown on respawn or a hopper took a crown
+     */
+    public boolean isCrownInPlay() {
+        return !crownManager.getSlotIndex().isEmpty()
+                || !droppedCrowns.isEmpty()
+                || crownInContainer
+                || isOnlinePlayerWaitingForRespawn();
+    }
+    
+    /**
+     * Checks the online players only, since the registry keeps the flags of
+     * players who logged out dead until they join again
+     */
+    private boolean isOnlinePlayerWaitingForRespawn() {
+        if (crownManager.getRegistry().getPendingRespawnCount() == 0) {
+            return false;
+        }
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            if (crownManager.shouldReceiveCrownOnRespawn(player.getUniqueId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Checks if the inventory listener is currently registered
+     * @return true if the listener receives events
+     */
+    public boolean isListening() {
+        return listening;
+    }
+    
+    /**
+     * Forgets crowns that were picked up, destroyed or unloaded, and registers
+     * or unregisters the listener
+     */
+    private void check() {
+        Iterator<Item> iterator = droppedCrowns.values().iterator();
+        while (iterator.hasNext()) {
+            // Unloaded crowns come back through the entities load event
+            if (!iterator.next().isValid()) {
+                iterator.remove();
+            }
+        }
+        
+        if (!configManager.getSettings().isListenerGating() || isCrownInPlay()) {
+            markPresent();
+        } else if (listening && ++idleChecks >= IDLE_CHECKS) {
+            HandlerList.unregisterAll(listener);
+            listening = false;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.thefallersgames.crown.managers;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Holds crown ownership and pending respawns.
+ * <p>
+ * The registry has a single writer, the thread that created it (the server
+ * main thread), which mutates plain maps without locking. Readers on other
+ * threads never touch those maps; they read an immutable {@link Snapshot}
+ * through a volatile field. Snapshots are published by {@link #publish()}, which
+ * the owning manager calls once per tick, so bursts of changes in one tick cost
+ * a single copy, and ownership is kept in a {@link CrownOwnerMap} so that copy is
+ * mostly one array clone. Every mutation bumps a version counter so pollers can skip
+ * work when nothing changed.
+ */
+public class CrownRegistry {
+    private final Thread writer;
+    private final CrownOwnerMap crownOwners = new CrownOwnerMap(); // Player UUID -> Crown Owner UUID
+    private final Map<UUID, Boolean> pendingRespawns = new HashMap<>(); // Player UUID -> Should receive crown on respawn
+    private final Map<UUID, UUID> ownersView = Collections.unmodifiableMap(crownOwners);
+    private final Map<UUID, Boolean> respawnsView = Collections.unmodifiableMap(pendingRespawns);
+    private int respawnCount;
+    
+    private volatile long version;
+    private volatile Snapshot snapshot = new Snapshot(new CrownOwnerMap(),
+            Collections.<UUID, Boolean>emptyMap(), 0L);
+    
+    /**
+     * Creates a new CrownRegistry owned by the calling thread
+     */
+    public CrownRegistry() {
+        this.writer = Thread.currentThread();
+    }
+    
+    /**
+     * Sets the crown owner of a player
+     * @param player The player UUID
+     * @param owner The crown owner UUID
+     * @return true if the owner changed, false if the player already had this owner
+     */
+    public boolean setOwner(UUID player, UUID owner) {
+        checkWriter();
+        if (owner.equals(crownOwners.get(player))) {
+            return false;
+        }
+        crownOwners.put(player, owner);
+        version++;
+        return true;
+    }
+    
+    /**
+     * Removes the crown owner entry of a player
+     * @param player The player UUID
+     * @return true if the player had an entry
+     */
+    public boolean removeOwner(UUID player) {
+        checkWriter();
+        if (crownOwners.remove(player) == null) {
+            return false;
+        }
+        version++;
+        return true;
+    }
+    
+    /**
+     * Gets the crown owner entry of a player. Writer thread only.
+     * @param player The player UUID
+     * @return The crown owner UUID, or null if there is none
+     */
+    public UUID getOwner(UUID player) {
+        return crownOwners.get(player);
+    }
+    
+    /**
+     * Checks if a player has a crown owner entry. Writer thread only.
+     * @param player The player UUID
+     * @return true if the player is a crown owner
+     */
+    public boolean isOwner(UUID player) {
+        return crownOwners.containsKey(player);
+    }
+    
+    /**
+     * Gets every player holding a crown owned by the given player. Writer thread only.
+     * @param owner The crown owner UUID
+     * @return Unmodifiable set of holder UUIDs
+     */
+    public Set<UUID> getHolders(UUID owner) {
+        return crownOwners.getHolders(owner);
+    }
+    
+    /**
+     * Sets the respawn flag of a player
+     * @param player The player UUID
+     * @param value The flag value
+     */
+    public void setRespawn(UUID player, boolean value) {
+        checkWriter();
+        Boolean previous = pendingRespawns.put(player, value);
+        respawnCount += (value ? 1 : 0) - (Boolean.TRUE.equals(previous) ? 1 : 0);
+        version++;
+    }
+    
+    /**
+     * Removes the respawn flag of a player
+     * @param player The player UUID
+     * @return true if the player had a flag
+     */
+    public boolean removeRespawn(UUID player) {
+        checkWriter();
+        Boolean previous = pendingRespawns.remove(player);
+        if (previous == null) {
+            return false;
+        }
+        if (previous) {
+            respawnCount--;
+        }
+        version++;
+        return true;
+    }
+    
+    /**
+     * Checks if a player should receive a crown on respawn. Writer thread only.
+     * @param player The player UUID
+     * @return true if the respawn flag is set
+     */
+    public boolean shouldRespawn(UUID player) {
+        Boolean value = pendingRespawns.get(player);
+        return value != null && value;
+    }
+    
+    /**
+     * Gets the number of players waiting to get their crown back on respawn. Writer thread only.
+     * @return The number of set respawn flags
+     */
+    public int getPendingRespawnCount() {
+        return respawnCount;
+    }
+    
+    /**
+     * Replaces all data, e.g. after loading it from disk, and publishes it immediately
+     * @param owners Map of player UUIDs to crown owner UUIDs
+     * @param respawns Map of player UUIDs to respawn flags
+     */
+    public void replaceAll(Map<UUID, UUID> owners, Map<UUID, Boolean> respawns) {
+        checkWriter();
+        crownOwners.clear();
+        crownOwners.putAll(owners);
+        pendingRespawns.clear();
+        pendingRespawns.putAll(respawns);
+        respawnCount = 0;
+        for (Boolean value : pendingRespawns.values()) {
+            if (Boolean.TRUE.equals(value)) {
+                respawnCount++;
+            }
+        }
+        version++;
+        publish();
+    }
+    
+    /**
+     * Gets a read-only live view of the crown owners. Writer thread only.
+     * @return Unmodifiable map of player UUIDs to crown owner UUIDs
+     */
+    public Map<UUID, UUID> getOwnersView() {
+        return ownersView;
+    }
+    
+    /**
+     * Gets a read-only live view of the pending respawns. Writer thread only.
+     * @return Unmodifiable map of player UUIDs to respawn flags
+     */
+    public Map<UUID, Boolean> getRespawnsView() {
+        return respawnsView;
+    }
+    
+    /**
+     * Gets the change version, which increases with every mutation. Safe from any thread.
+     * @return The current version
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    /**
+     * Gets the last published snapshot. Safe from any thread and never blocks;
+     * the snapshot may lag the live state by up to one publish interval.
+     * @return The latest immutable snapshot
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+    
+    /**
+     * Publishes a new snapshot if anything changed since the last one. Writer thread only.
+     * @return The current snapshot
+     */
+    public Snapshot publish() {
+        checkWriter();
+        Snapshot current = snapshot;
+        long currentVersion = version;
+        if (current.version == currentVersion) {
+            return current;
+        }
+        
+        current = new Snapshot(
+                crownOwners.copy(),
+                Collections.unmodifiableMap(new HashMap<>(pendingRespawns)),
+                currentVersion);
+        snapshot = current;
+        return current;
+    }
+    
+    private void checkWriter() {
+        if (Thread.currentThread() != writer) {
+            throw new IllegalStateException("Crown ownership may only be changed from " + writer.getName());
+        }
+    }
+    
+    /**
+     * Immutable view of the registry at one version
+     */
+    public static final class Snapshot {
+        private final CrownOwnerMap owners;
+        private final Map<UUID, UUID> crownOwners;
+        private final Map<UUID, Boolean> pendingRespawns;
+        private final long version;
+        
+        private Snapshot(CrownOwnerMap owners, Map<UUID, Boolean> pendingRespawns, long version) {
+            this.owners = owners;
+            this.crownOwners = Collections.unmodifiableMap(owners);
+            this.pendingRespawns = pendingRespawns;
+            this.version = version;
+        }
+        
+        /**
+         * Gets the crown owners
+         * @return Unmodifiable map of player UUIDs to crown owner UUIDs
+         */
+        public Map<UUID, UUID> getCrownOwners() {
+            return crownOwners;
+        }
+        
+        /**
+         * Gets the pending respawns
+         * @return Unmodifiable map of player UUIDs to respawn flags
+         */
+        public Map<UUID, Boolean> getPendingRespawns() {
+            return pendingRespawns;
+        }
+        
+        /**
+         * Gets the registry version this snapshot was taken at
+         * @return The version
+         */
+        public long getVersion() {
+            return version;
+        }
+        
+        /**
+         * Gets the crown owner of a player
+         * @param player The player UUID
+         * @return The crown owner UUID, or null if there is none
+         */
+        public UUID getOwner(UUID player) {
+            return crownOwners.get(player);
+        }
+        
+        /**
+         * Checks if a player is a crown owner
+         * @param player The player UUID
+         * @return true if the player is a crown owner
+         */
+        public boolean isOwner(UUID player) {
+            return crownOwners.containsKey(player);
+        }
+        
+        /**
+         * Gets every player holding a crown owned by the given player
+         * @param owner The crown owner UUID
+         * @return Unmodifiable set of holder UUIDs
+         */
+        public Set<UUID> getHolders(UUID owner) {
+            return owners.getHolders(owner);
+        }
+    }
+}
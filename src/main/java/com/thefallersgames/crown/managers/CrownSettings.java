@@ -0,0 +1,840 @@
+package com.thefallersgames.crown.managers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.bukkit.ChatColor;
+import org.bukkit.Color;
+import org.bukkit.Material;
+import org.bukkit.Particle;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.enchantments.Enchantment;
+
+/**
+ * Immutable snapshot of the plugin configuration.
+ * <p>
+ * All values are parsed, validated and colored once when the configuration is
+ * loaded, so hot paths only read final fields. {@link ConfigManager} replaces
+ * the whole snapshot on reload, and callers that read several values should
+ * fetch the snapshot once so they see a consistent configuration.
+ */
+public final class CrownSettings {
+    
+    /**
+     * What happens to the crown when its owner dies
+     */
+    public enum DeathAction {
+        /** The crown is given to the killer */
+        TRANSFER,
+        /** The crown drops and the owner keeps their ownership entry */
+        DROP,
+        /** The crown drops and the owner loses their ownership entry */
+        DROP_AND_RELEASE,
+        /** The crown is kept out of the drops and given back on respawn */
+        RESPAWN
+    }
+    
+    // Crown item
+    private final Material crownMaterial;
+    private final Set<Material> crownMaterials;
+    private final String crownName;
+    private final List<String> crownLore;
+    private final double healthBonus;
+    private final double armorBonus;
+    private final boolean bindingCurse;
+    private final boolean vanishingCurse;
+    private final Map<Enchantment, Integer> enchantments;
+    
+    // Behavior
+    private final boolean autoEquipOnGive;
+    private final boolean transferOnKill;
+    private final boolean prioritizeTransfer;
+    private final boolean droppingAllowed;
+    private final boolean removeCrownOnDeath;
+    private final DeathAction deathActionWithKiller;
+    private final DeathAction deathActionWithoutKiller;
+    
+    // Messages
+    private final String messagePrefix;
+    private final Map<String, String> messages;
+    
+    // Storage
+    private final String storageBackend;
+    private final int sqlBatchSize;
+    private final int autosaveInterval;
+    private final int saveQueueCapacity;
+    private final boolean journalEnabled;
+    private final int journalCompactAfter;
+    private final boolean journalSync;
+    
+    // Particles
+    private final boolean particlesEnabled;
+    private final Particle particleType;
+    private final int particleCount;
+    private final int particleDuration;
+    private final int particleMaxEffects;
+    private final double particleOffsetX;
+    private final double particleOffsetY;
+    private final double particleOffsetZ;
+    private final double particleSpeed;
+    private final Color particleColor;
+    private final Particle.DustOptions particleDustOptions;
+    private final ParticleProgram particleProgram;
+    private final double[] particleViewDistancesSquared;
+    private final double[] particleViewScales;
+    private final int particleMaxPacketsPerViewer;
+    private final boolean auraEnabled;
+    private final ParticleProgram auraProgram;
+    private final int auraInterval;
+    private final boolean auraSkipIdle;
+    
+    // Performance
+    private final double msptSoftLimit;
+    private final double msptHardLimit;
+    private final boolean listenerGating;
+    private final long bulkBudgetNanos;
+    private final int respawnsPerTick;
+    
+    // Metrics
+    private final boolean metricsEnabled;
+    private final String metricsFile;
+    private final int metricsInterval;
+    
+    // Sync
+    private final boolean syncEnabled;
+    private final String syncServerId;
+    private final String syncTransport;
+    private final String syncDirectory;
+    private final int syncPollInterval;
+    
+    // Audit
+    private final boolean auditEnabled;
+    private final long auditMaxFileBytes;
+    private final int auditMaxFiles;
+    private final int auditHistorySize;
+    
+    private CrownSettings(FileConfiguration config, Logger logger) {
+        crownMaterial = parseMaterial(config.getString("crown.material", "GOLDEN_HELMET"), logger);
+        Set<Material> materials = EnumSet.of(crownMaterial);
+        for (String name : config.getStringList("crown.legacy_materials")) {
+            Material material = Material.matchMaterial(name);
+            if (material != null) {
+                materials.add(material);
+            } else {
+                logger.warning("Invalid legacy crown material in config: " + name);
+            }
+        }
+        crownMaterials = Collections.unmodifiableSet(materials);
+        crownName = color(config.getString("crown.name", "&6The Crown"));
+        
+        List<String> lore = new ArrayList<>();
+        for (String line : config.getStringList("crown.lore")) {
+            lore.add(color(line));
+        }
+        crownLore = Collections.unmodifiableList(lore);
+        
+        healthBonus = config.getDouble("crown.health_bonus", 4.0);
+        armorBonus = config.getDouble("crown.armor", 3.0);
+        bindingCurse = config.getBoolean("crown.binding_curse", true);
+        vanishingCurse = config.getBoolean("crown.vanishing_curse", false);
+        enchantments = Collections.unmodifiableMap(resolveEnchantments(config, logger));
+        
+        autoEquipOnGive = config.getBoolean("behavior.auto_equip_on_give", true);
+        transferOnKill = config.getBoolean("behavior.transfer_on_kill", true);
+        prioritizeTransfer = config.getBoolean("behavior.prioritize_transfer", true);
+        droppingAllowed = config.getBoolean("behavior.allow_dropping", false);
+        removeCrownOnDeath = config.getBoolean("behavior.remove_crown_on_death", true);
+        deathActionWithKiller = resolveDeathAction(true);
+        deathActionWithoutKiller = resolveDeathAction(false);
+        
+        messagePrefix = color(config.getString("messages.prefix", "&6[Crown] &r"));
+        Map<String, String> coloredMessages = new HashMap<>();
+        for (String key : messageKeys(config)) {
+            coloredMessages.put(key, messagePrefix + color(config.getString("messages." + key, "")));
+        }
+        messages = Collections.unmodifiableMap(coloredMessages);
+        
+        storageBackend = parseStorageBackend(config.getString("storage.backend", "binary"), logger);
+        sqlBatchSize = Math.max(1, config.getInt("storage.sql.batch_size", 500));
+        autosaveInterval = config.getInt("storage.autosave_interval", 30);
+        saveQueueCapacity = Math.max(1, config.getInt("storage.queue_capacity", 4));
+        journalEnabled = config.getBoolean("storage.journal.enabled", false);
+        journalCompactAfter = Math.max(1, config.getInt("storage.journal.compact_after", 10000));
+        journalSync = config.getBoolean("storage.journal.sync", true);
+        
+        particlesEnabled = config.getBoolean("particles.enabled", true);
+        particleType = parseParticle(config.getString("particles.type", "FLAME"), logger);
+        particleCount = config.getInt("particles.count", 30);
+        particleDuration = config.getInt("particles.duration", 60);
+        particleMaxEffects = Math.max(1, config.getInt("particles.max_effects", 32));
+        particleOffsetX = config.getDouble("particles.offset.x", 0.3);
+        particleOffsetY = config.getDouble("particles.offset.y", 1.8);
+        particleOffsetZ = config.getDouble("particles.offset.z", 0.3);
+        particleSpeed = config.getDouble("particles.speed", 0.2);
+        particleColor = Color.fromRGB(
+                clampColor(config.getInt("particles.color.red", 255)),
+                clampColor(config.getInt("particles.color.green", 215)),
+                clampColor(config.getInt("particles.color.blue", 0)));
+        particleDustOptions = new Particle.DustOptions(particleColor, 1.0f);
+        particleProgram = compileParticleProgram(config, config.getString("particles.program", "burst"), logger);
+        auraEnabled = config.getBoolean("particles.aura.enabled", false);
+        auraProgram = compileParticleProgram(config, config.getString("particles.aura.program", "halo"), logger);
+        auraInterval = Math.max(1, config.getInt("particles.aura.interval", 10));
+        auraSkipIdle = config.getBoolean("particles.aura.skip_idle", true);
+        
+        List<Map<?, ?>> bands = config.getMapList("particles.view.bands");
+        if (bands.isEmpty()) {
+            bands = Collections.<Map<?, ?>>singletonList(Collections.singletonMap("distance", 48.0));
+        }
+        particleViewDistancesSquared = new double[bands.size()];
+        particleViewScales = new double[bands.size()];
+        for (int i = 0; i < bands.size(); i++) {
+            double distance = toDouble(bands.get(i).get("distance"), 48.0);
+            particleViewDistancesSquared[i] = distance * distance;
+            particleViewScales[i] = Math.max(0.0, Math.min(1.0, toDouble(bands.get(i).get("scale"), 1.0)));
+        }
+        particleMaxPacketsPerViewer = Math.max(1, config.getInt("particles.view.max_packets_per_tick", 64));
+        
+        msptSoftLimit = Math.max(0.0, config.getDouble("performance.mspt_soft_limit", 40.0));
+        msptHardLimit = Math.max(msptSoftLimit + 1.0, config.getDouble("performance.mspt_hard_limit", 50.0));
+        listenerGating = config.getBoolean("performance.unregister_when_idle", true);
+        bulkBudgetNanos = (long) (Math.max(0.1, config.getDouble("performance.bulk_budget_ms", 5.0)) * 1_000_000L);
+        respawnsPerTick = Math.max(1, config.getInt("performance.respawns_per_tick", 5));
+        
+        metricsEnabled = config.getBoolean("metrics.enabled", true);
+        metricsFile = config.getString("metrics.prometheus_file", "").trim();
+        metricsInterval = Math.max(1, config.getInt("metrics.prometheus_interval", 15));
+        
+        syncEnabled = config.getBoolean("sync.enabled", false);
+        String serverId = config.getString("sync.server_id", "").trim();
+        if (!serverId.matches("[A-Za-z0-9_.-]{0,64}")) {
+            logger.warning("Invalid sync server_id in config, only letters, digits, '_', '.' and '-' are allowed: " + serverId);
+            serverId = "";
+        }
+        syncServerId = serverId;
+        syncTransport = config.getString("sync.transport", "file").toLowerCase();
+        syncDirectory = config.getString("sync.directory", "../crown-sync").trim();
+        syncPollInterval = Math.max(10, config.getInt("sync.poll_interval_ms", 250));
+        
+        auditEnabled = config.getBoolean("audit.enabled", true);
+        auditMaxFileBytes = Math.max(1L, config.getLong("audit.max_file_size_kb", 1024L)) * 1024L;
+        auditMaxFiles = Math.max(1, config.getInt("audit.max_files", 20));
+        auditHistorySize = Math.max(1, Math.min(100, config.getInt("audit.history_size", 10)));
+    }
+    
+    /**
+     * Compiles a configuration into an immutable snapshot
+     * @param config The loaded configuration
+     * @param logger Logger for invalid values, which are replaced by defaults
+     * @return The compiled settings
+     */
+    public static CrownSettings compile(FileConfiguration config, Logger logger) {
+        return new CrownSettings(config, logger);
+    }
+    
+    private static String color(String text) {
+        return ChatColor.translateAlternateColorCodes('&', text);
+    }
+    
+    private static int clampColor(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+    
+    /**
+     * Collects the message keys of the configuration and of the bundled defaults
+     */
+    private static Set<String> messageKeys(FileConfiguration config) {
+        Set<String> keys = new HashSet<>();
+        ConfigurationSection messagesSection = config.getConfigurationSection("messages");
+        if (messagesSection != null) {
+            keys.addAll(messagesSection.getKeys(false));
+        }
+        if (config.getDefaults() != null) {
+            ConfigurationSection defaultsSection = config.getDefaults().getConfigurationSection("messages");
+            if (defaultsSection != null) {
+                keys.addAll(defaultsSection.getKeys(false));
+            }
+        }
+        return keys;
+    }
+    
+    private static double toDouble(Object value, double defaultValue) {
+        return value instanceof Number ? ((Number) value).doubleValue() : defaultValue;
+    }
+    
+    private static Material parseMaterial(String name, Logger logger) {
+        Material material = Material.matchMaterial(name);
+        if (material == null) {
+            logger.warning("Invalid crown material in config: " + name + ". Using GOLDEN_HELMET instead.");
+            return Material.GOLDEN_HELMET;
+        }
+        return material;
+    }
+    
+    private static String parseStorageBackend(String name, Logger logger) {
+        String backend = name.trim().toLowerCase();
+        if (!backend.equals("binary") && !backend.equals("yaml") && !backend.equals("sqlite")) {
+            logger.warning("Invalid storage backend in config: " + name + ". Using binary instead.");
+            return "binary";
+        }
+        return backend;
+    }
+    
+    private static Particle parseParticle(String name, Logger logger) {
+        try {
+            return Particle.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            logger.warning("Invalid particle type in config: " + name + ". Using FLAME instead.");
+            return Particle.FLAME;
+        }
+    }
+    
+    /**
+     * Compiles a particle program by name, falling back to the classic burst
+     */
+    private ParticleProgram compileParticleProgram(FileConfiguration config, String name, Logger logger) {
+        List<Map<?, ?>> keyframes = config.getMapList("particles.programs." + name);
+        if (keyframes.isEmpty() && !name.equalsIgnoreCase("burst")) {
+            logger.warning("Unknown particle program in config: " + name + ". Using burst instead.");
+        }
+        return ParticleProgram.compile(name, keyframes, particleCount,
+                particleOffsetX, particleOffsetY, particleOffsetZ, logger);
+    }
+    
+    /**
+     * Resolves the curses and configured enchantments in the order they are applied
+     */
+    private Map<Enchantment, Integer> resolveEnchantments(FileConfiguration config, Logger logger) {
+        Map<Enchantment, Integer> resolved = new LinkedHashMap<>();
+        if (bindingCurse) {
+            resolved.put(Enchantment.BINDING_CURSE, 1);
+        }
+        if (vanishingCurse) {
+            resolved.put(Enchantment.VANISHING_CURSE, 1);
+        }
+        
+        ConfigurationSection enchantmentsSection = config.getConfigurationSection("crown.enchantments");
+        if (enchantmentsSection != null) {
+            for (String enchName : enchantmentsSection.getKeys(false)) {
+                Enchantment enchantment = Enchantment.getByName(enchName);
+                if (enchantment != null) {
+                    resolved.put(enchantment, enchantmentsSection.getInt(enchName, 1));
+                } else {
+                    logger.warning("Unknown enchantment in config: " + enchName);
+                }
+            }
+        }
+        return resolved;
+    }
+    
+    /**
+     * Decides once what happens to a crown on its owner's death
+     * @param hasKiller Whether the owner was killed by a player
+     */
+    private DeathAction resolveDeathAction(boolean hasKiller) {
+        if (transferOnKill && hasKiller && (prioritizeTransfer || !droppingAllowed)) {
+            return DeathAction.TRANSFER;
+        }
+        if (droppingAllowed) {
+            return removeCrownOnDeath ? DeathAction.DROP_AND_RELEASE : DeathAction.DROP;
+        }
+        return DeathAction.RESPAWN;
+    }
+    
+    /**
+     * Gets the material for the crown
+     * @return The crown material
+     */
+    public Material getCrownMaterial() {
+        return crownMaterial;
+    }
+    
+    /**
+     * Gets every material a crown can be made of, including materials of crowns
+     * created before the material was changed
+     * @return Unmodifiable set of crown materials
+     */
+    public Set<Material> getCrownMaterials() {
+        return crownMaterials;
+    }
+    
+    /**
+     * Gets the display name for the crown
+     * @return The colored display name
+     */
+    public String getCrownName() {
+        return crownName;
+    }
+    
+    /**
+     * Gets the lore for the crown
+     * @return Unmodifiable list of colored lore lines
+     */
+    public List<String> getCrownLore() {
+        return crownLore;
+    }
+    
+    /**
+     * Gets the health bonus for the crown
+     * @return The health bonus amount
+     */
+    public double getHealthBonus() {
+        return healthBonus;
+    }
+    
+    /**
+     * Gets the armor bonus for the crown
+     * @return The armor bonus amount
+     */
+    public double getArmorBonus() {
+        return armorBonus;
+    }
+    
+    /**
+     * Checks if the crown should have binding curse
+     * @return true if binding curse is enabled
+     */
+    public boolean hasBindingCurse() {
+        return bindingCurse;
+    }
+    
+    /**
+     * Checks if the crown should have vanishing curse
+     * @return true if vanishing curse is enabled
+     */
+    public boolean hasVanishingCurse() {
+        return vanishingCurse;
+    }
+    
+    /**
+     * Gets the enchantments applied to the crown, including curses
+     * @return Unmodifiable map of enchantments to levels, in application order
+     */
+    public Map<Enchantment, Integer> getEnchantments() {
+        return enchantments;
+    }
+    
+    /**
+     * Checks if auto-equip on give is enabled
+     * @return true if auto-equip on give is enabled
+     */
+    public boolean isAutoEquipOnGiveEnabled() {
+        return autoEquipOnGive;
+    }
+    
+    /**
+     * Checks if crown transfer on kill is enabled
+     * @return true if crown transfer on kill is enabled
+     */
+    public boolean isCrownTransferOnKillEnabled() {
+        return transferOnKill;
+    }
+    
+    /**
+     * Checks if transfer to killer should be prioritized over dropping
+     * @return true if transfer to killer should be prioritized
+     */
+    public boolean isPrioritizeTransferEnabled() {
+        return prioritizeTransfer;
+    }
+    
+    /**
+     * Checks if dropping the crown is allowed
+     * @return true if dropping the crown is allowed
+     */
+    public boolean isDroppingAllowed() {
+        return droppingAllowed;
+    }
+    
+    /**
+     * Checks if crown should be removed from player data on death
+     * @return true if crown should be removed from player data on death
+     */
+    public boolean shouldRemoveCrownOnDeath() {
+        return removeCrownOnDeath;
+    }
+    
+    /**
+     * Gets what happens to the crown when its owner dies
+     * @param hasKiller Whether the owner was killed by a player
+     * @return The death action
+     */
+    public DeathAction getDeathAction(boolean hasKiller) {
+        return hasKiller ? deathActionWithKiller : deathActionWithoutKiller;
+    }
+    
+    /**
+     * Gets a formatted message
+     * @param key The message key
+     * @return The prefixed and colored message
+     */
+    public String getMessage(String key) {
+        String message = messages.get(key);
+        return message != null ? message : messagePrefix;
+    }
+    
+    /**
+     * Gets the backend used to store crown data
+     * @return "binary", "yaml" or "sqlite"
+     */
+    public String getStorageBackend() {
+        return storageBackend;
+    }
+    
+    /**
+     * Gets the number of rows written per statement batch by the SQLite backend
+     * @return The batch size
+     */
+    public int getSqlBatchSize() {
+        return sqlBatchSize;
+    }
+    
+    /**
+     * Gets the interval between autosaves of crown data
+     * @return The autosave interval in seconds
+     */
+    public int getAutosaveInterval() {
+        return autosaveInterval;
+    }
+    
+    /**
+     * Gets the maximum number of snapshots waiting to be written to disk
+     * @return The save queue capacity
+     */
+    public int getSaveQueueCapacity() {
+        return saveQueueCapacity;
+    }
+    
+    /**
+     * Checks if crown data is persisted through the append-only journal
+     * @return true if journal mode is enabled
+     */
+    public boolean isJournalEnabled() {
+        return journalEnabled;
+    }
+    
+    /**
+     * Gets the number of journal records after which the journal is compacted into a snapshot
+     * @return The compaction threshold
+     */
+    public int getJournalCompactAfter() {
+        return journalCompactAfter;
+    }
+    
+    /**
+     * Checks if journal appends are forced to disk before being acknowledged
+     * @return true if journal appends are synced
+     */
+    public boolean isJournalSyncEnabled() {
+        return journalSync;
+    }
+    
+    /**
+     * Checks if particle effects are enabled
+     * @return true if particle effects are enabled
+     */
+    public boolean areParticlesEnabled() {
+        return particlesEnabled;
+    }
+    
+    /**
+     * Gets the particle type to use
+     * @return The particle type, FLAME if the configured one is invalid
+     */
+    public Particle getParticleType() {
+        return particleType;
+    }
+    
+    /**
+     * Gets the number of particles to spawn
+     * @return The particle count
+     */
+    public int getParticleCount() {
+        return particleCount;
+    }
+    
+    /**
+     * Gets the duration of the particle effect in ticks
+     * @return The duration in ticks
+     */
+    public int getParticleDuration() {
+        return particleDuration;
+    }
+    
+    /**
+     * Gets the maximum number of particle effects that may run at the same time
+     * @return The effect cap, at least 1
+     */
+    public int getParticleMaxEffects() {
+        return particleMaxEffects;
+    }
+    
+    /**
+     * Gets the X offset for particles
+     * @return The X offset
+     */
+    public double getParticleOffsetX() {
+        return particleOffsetX;
+    }
+    
+    /**
+     * Gets the Y offset for particles
+     * @return The Y offset
+     */
+    public double getParticleOffsetY() {
+        return particleOffsetY;
+    }
+    
+    /**
+     * Gets the Z offset for particles
+     * @return The Z offset
+     */
+    public double getParticleOffsetZ() {
+        return particleOffsetZ;
+    }
+    
+    /**
+     * Gets the particle speed
+     * @return The particle speed
+     */
+    public double getParticleSpeed() {
+        return particleSpeed;
+    }
+    
+    /**
+     * Gets the color for colored particles
+     * @return The particle color
+     */
+    public Color getParticleColor() {
+        return particleColor;
+    }
+    
+    /**
+     * Gets the dust options for colored particles
+     * @return The dust options built from the particle color
+     */
+    public Particle.DustOptions getParticleDustOptions() {
+        return particleDustOptions;
+    }
+    
+    /**
+     * Gets the compiled particle program played for leader effects
+     * @return The particle program
+     */
+    public ParticleProgram getParticleProgram() {
+        return particleProgram;
+    }
+    
+    /**
+     * Gets the share of particles a viewer at the given distance receives,
+     * from the first distance band that contains it
+     * @param distanceSquared The squared distance between viewer and effect
+     * @return A fraction between 0 and 1, 0 if the viewer is out of range
+     */
+    public double getParticleViewScale(double distanceSquared) {
+        for (int i = 0; i < particleViewDistancesSquared.length; i++) {
+            if (distanceSquared <= particleViewDistancesSquared[i]) {
+                return particleViewScales[i];
+            }
+        }
+        return 0.0;
+    }
+    
+    /**
+     * Gets how far away a viewer can be and still receive particles, the
+     * distance of the widest band
+     * @return The squared view distance
+     */
+    public double getParticleViewRangeSquared() {
+        double range = 0.0;
+        for (double distanceSquared : particleViewDistancesSquared) {
+            range = Math.max(range, distanceSquared);
+        }
+        return range;
+    }
+    
+    /**
+     * Gets the maximum number of particle packets sent to one player per tick
+     * @return The packet budget per viewer
+     */
+    public int getParticleMaxPacketsPerViewer() {
+        return particleMaxPacketsPerViewer;
+    }
+    
+    /**
+     * Checks if crown wearers show a continuous aura
+     * @return true if the aura is enabled
+     */
+    public boolean isAuraEnabled() {
+        return auraEnabled;
+    }
+    
+    /**
+     * Gets the compiled particle program of the aura
+     * @return The aura program
+     */
+    public ParticleProgram getAuraProgram() {
+        return auraProgram;
+    }
+    
+    /**
+     * Gets the number of ticks between two aura frames of the same wearer
+     * @return The aura interval in ticks
+     */
+    public int getAuraInterval() {
+        return auraInterval;
+    }
+    
+    /**
+     * Checks if wearers who have not moved since their last aura frame are skipped
+     * @return true if idle wearers are skipped
+     */
+    public boolean isAuraSkipIdle() {
+        return auraSkipIdle;
+    }
+    
+    /**
+     * Gets the tick time above which cosmetic work is reduced
+     * @return The soft limit in milliseconds per tick
+     */
+    public double getMsptSoftLimit() {
+        return msptSoftLimit;
+    }
+    
+    /**
+     * Gets the tick time at which cosmetic work is paused
+     * @return The hard limit in milliseconds per tick, above the soft limit
+     */
+    public double getMsptHardLimit() {
+        return msptHardLimit;
+    }
+    
+    /**
+     * Checks if the inventory listener is only registered while a crown is in play
+     * @return true if the listener is unregistered when no crown exists
+     */
+    public boolean isListenerGating() {
+        return listenerGating;
+    }
+    
+    /**
+     * Gets the time per tick that bulk crown operations may use
+     * @return The budget in nanoseconds
+     */
+    public long getBulkBudgetNanos() {
+        return bulkBudgetNanos;
+    }
+    
+    /**
+     * Gets the number of crowns given back to respawned owners per tick
+     * @return The maximum number of crowns per tick
+     */
+    public int getRespawnsPerTick() {
+        return respawnsPerTick;
+    }
+    
+    /**
+     * Checks if time spent in handlers, crown operations, particles and storage is measured
+     * @return true if metrics are collected
+     */
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+    
+    /**
+     * Gets the file metrics are written to in the Prometheus text format
+     * @return The file path, relative to the plugin folder unless absolute, or empty to not write one
+     */
+    public String getMetricsFile() {
+        return metricsFile;
+    }
+    
+    /**
+     * Gets the number of seconds between two writes of the metrics file
+     * @return The interval in seconds
+     */
+    public int getMetricsInterval() {
+        return metricsInterval;
+    }
+    
+    /**
+     * Checks if crown ownership is synced with other servers
+     * @return true if sync is enabled
+     */
+    public boolean isSyncEnabled() {
+        return syncEnabled;
+    }
+    
+    /**
+     * Gets the name of this server within the network
+     * @return The server name, or empty to derive it from the server port
+     */
+    public String getSyncServerId() {
+        return syncServerId;
+    }
+    
+    /**
+     * Gets the transport used to reach the other servers
+     * @return One of file or loopback
+     */
+    public String getSyncTransport() {
+        return syncTransport;
+    }
+    
+    /**
+     * Gets the folder shared by the servers for the file transport
+     * @return The folder path, relative to the plugin folder unless absolute
+     */
+    public String getSyncDirectory() {
+        return syncDirectory;
+    }
+    
+    /**
+     * Gets the time between two looks for changes of other servers
+     * @return The interval in milliseconds
+     */
+    public int getSyncPollInterval() {
+        return syncPollInterval;
+    }
+    
+    /**
+     * Checks if crowns changing hands are recorded in the audit log
+     * @return true if the audit log is enabled
+     */
+    public boolean isAuditEnabled() {
+        return auditEnabled;
+    }
+    
+    /**
+     * Gets the size at which an audit file is compressed and a new one started
+     * @return The size in bytes
+     */
+    public long getAuditMaxFileBytes() {
+        return auditMaxFileBytes;
+    }
+    
+    /**
+     * Gets the number of compressed audit files to keep
+     * @return The number of files
+     */
+    public int getAuditMaxFiles() {
+        return auditMaxFiles;
+    }
+    
+    /**
+     * Gets the number of latest audit records kept track of per player, as shown by /crown history
+     * @return The number of records
+     */
+    public int getAuditHistorySize() {
+        return auditHistorySize;
+    }
+}
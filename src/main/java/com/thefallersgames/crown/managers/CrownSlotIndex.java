@@ -0,0 +1,193 @@
+package com.thefallersgames.crown.managers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+import com.thefallersgames.crown.CrownPlugin;
+
+/**
+ * Remembers which inventory slots of each online player hold a crown.
+ * <p>
+ * Slots are stored as a bitmask using the {@link PlayerInventory#getContents()}
+ * numbering, so asking whether a player has a crown is a single map lookup
+ * instead of a scan over every slot. Paths that know where a crown went update
+ * the mask directly; paths where the server decides the final slot after the
+ * event (clicks, drags, pickups, drops) schedule a rescan for the next tick.
+ * A crown held on the cursor is not part of the inventory, so rescans remember
+ * those players separately.
+ * <p>
+ * Whenever the index learns about a crown it tells the {@link CrownPresence},
+ * which keeps the inventory listener registered while any crown is in play.
+ */
+public class CrownSlotIndex {
+    /** Slot of the helmet in {@link PlayerInventory#getContents()} */
+    public static final int HELMET_SLOT = 39;
+    
+    private final CrownPlugin plugin;
+    private final Predicate<ItemStack> isCrown;
+    private final Map<UUID, Long> crownSlots = new HashMap<>();
+    private final Set<UUID> pendingReconcile = new LinkedHashSet<>();
+    private final Set<UUID> cursorCrowns = new HashSet<>();
+    
+    /**
+     * Creates a new CrownSlotIndex
+     * @param plugin The plugin instance
+     * @param isCrown Test that decides whether an item is a crown
+     */
+    public CrownSlotIndex(CrownPlugin plugin, Predicate<ItemStack> isCrown) {
+        this.plugin = plugin;
+        this.isCrown = isCrown;
+    }
+    
+    /**
+     * Checks if a player has a crown anywhere in their inventory
+     * @param playerUUID The player's UUID
+     * @return true if at least one slot holds a crown
+     */
+    public boolean hasCrown(UUID playerUUID) {
+        return getSlots(playerUUID) != 0L;
+    }
+    
+    /**
+     * Checks if a player has a crown in any slot except the given one
+     * @param playerUUID The player's UUID
+     * @param excludedSlot The slot to ignore, or -1 to ignore none
+     * @return true if another slot holds a crown
+     */
+    public boolean hasCrownOutside(UUID playerUUID, int excludedSlot) {
+        long slots = getSlots(playerUUID);
+        if (excludedSlot >= 0 && excludedSlot < Long.SIZE) {
+            slots &= ~(1L << excludedSlot);
+        }
+        return slots != 0L;
+    }
+    
+    /**
+     * Checks if a player held a crown on their cursor when their inventory was last scanned
+     * @param playerUUID The player's UUID
+     * @return true if the cursor held a crown
+     */
+    public boolean hasCrownOnCursor(UUID playerUUID) {
+        return cursorCrowns.contains(playerUUID);
+    }
+    
+    /**
+     * Checks if no online player has a crown in their inventory or on their
+     * cursor, and no rescan is pending that could find one
+     * @return true if the index knows of no crown at all
+     */
+    public boolean isEmpty() {
+        return crownSlots.isEmpty() && cursorCrowns.isEmpty() && pendingReconcile.isEmpty();
+    }
+    
+    /**
+     * Gets the slots that hold a crown
+     * @param playerUUID The player's UUID
+     * @return Bitmask of crown slots
+     */
+    public long getSlots(UUID playerUUID) {
+        Long slots = crownSlots.get(playerUUID);
+        return slots != null ? slots : 0L;
+    }
+    
+    /**
+     * Marks a slot as holding a crown or not
+     * @param playerUUID The player's UUID
+     * @param slot The slot index
+     * @param crown Whether the slot now holds a crown
+     */
+    public void setSlot(UUID playerUUID, int slot, boolean crown) {
+        long slots = getSlots(playerUUID);
+        slots = crown ? slots | (1L << slot) : slots & ~(1L << slot);
+        if (slots == 0L) {
+            crownSlots.remove(playerUUID);
+        } else {
+            crownSlots.put(playerUUID, slots);
+            crownSeen();
+        }
+    }
+    
+    /**
+     * Forgets all crown slots of a player
+     * @param playerUUID The player's UUID
+     */
+    public void clear(UUID playerUUID) {
+        crownSlots.remove(playerUUID);
+        cursorCrowns.remove(playerUUID);
+        pendingReconcile.remove(playerUUID);
+    }
+    
+    /**
+     * Rebuilds the slot mask of a player from their inventory
+     * @param player The player to scan
+     */
+    public void reconcile(Player player) {
+        ItemStack[] contents = player.getInventory().getContents();
+        long slots = 0L;
+        for (int slot = 0; slot < contents.length && slot < Long.SIZE; slot++) {
+            if (isCrown.test(contents[slot])) {
+                slots |= 1L << slot;
+            }
+        }
+        
+        UUID playerUUID = player.getUniqueId();
+        pendingReconcile.remove(playerUUID);
+        if (isCrown.test(player.getItemOnCursor())) {
+            cursorCrowns.add(playerUUID);
+            crownSeen();
+        } else {
+            cursorCrowns.remove(playerUUID);
+        }
+        if (slots == 0L) {
+            crownSlots.remove(playerUUID);
+        } else {
+            crownSlots.put(playerUUID, slots);
+            crownSeen();
+        }
+    }
+    
+    /**
+     * Rebuilds the slot mask of a player on the next tick, once the server has
+     * applied the inventory change of the current event. Several requests in one
+     * tick result in a single scan.
+     * @param player The player to scan
+     */
+    public void reconcileLater(Player player) {
+        boolean scheduled = !pendingReconcile.isEmpty();
+        if (!pendingReconcile.add(player.getUniqueId()) || scheduled) {
+            return;
+        }
+        
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            List<UUID> players = new ArrayList<>(pendingReconcile);
+            pendingReconcile.clear();
+            for (UUID playerUUID : players) {
+                Player online = plugin.getServer().getPlayer(playerUUID);
+                if (online != null && online.isOnline()) {
+                    reconcile(online);
+                } else {
+                    crownSlots.remove(playerUUID);
+                    cursorCrowns.remove(playerUUID);
+                }
+            }
+        });
+    }
+    
+    private void crownSeen() {
+        CrownPresence presence = plugin.getCrownPresence();
+        if (presence != null) {
+            presence.markPresent();
+        }
+    }
+}
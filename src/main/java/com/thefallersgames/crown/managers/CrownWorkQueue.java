@@ -0,0 +1,242 @@
+package com.thefallersgames.crown.managers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.thefallersgames.crown.CrownPlugin;
+
+/**
+ * Runs crown operations on many players spread over several ticks.
+ * <p>
+ * Jobs are worked off one target at a time, in the order they were submitted,
+ * until the configured time budget of the tick is used up. At least one target
+ * is handled per tick so a job always finishes, even on a lagging server. The
+ * sender of a job is told about its progress every few seconds and once it is
+ * done. Targets are looked up when their turn comes, so players that leave in
+ * the meantime are skipped instead of touched while offline.
+ */
+public class CrownWorkQueue {
+    /** Ticks between two progress messages of a running job */
+    private static final long PROGRESS_INTERVAL = 100L;
+    
+    /**
+     * The operations a job can run
+     */
+    public enum Operation {
+        GIVE("Giving crowns to", "Gave crowns to"),
+        REMOVE("Removing crowns from", "Removed crowns from");
+        
+        private final String running;
+        private final String done;
+        
+        Operation(String running, String done) {
+            this.running = running;
+            this.done = done;
+        }
+    }
+    
+    /**
+     * A submitted bulk operation
+     */
+    public static final class Job {
+        private final CommandSender sender;
+        private final Operation operation;
+        private final List<UUID> targets;
+        private final long startNanos = System.nanoTime();
+        private int next;
+        private int completed;
+        private int skipped;
+        private long lastReport;
+        private boolean cancelled;
+        
+        private Job(CommandSender sender, Operation operation, List<UUID> targets, int unresolved, long tick) {
+            this.sender = sender;
+            this.operation = operation;
+            this.targets = targets;
+            this.skipped = unresolved;
+            this.lastReport = tick;
+        }
+        
+        /**
+         * Gets the operation this job runs
+         * @return The operation
+         */
+        public Operation getOperation() {
+            return operation;
+        }
+        
+        /**
+         * Gets the number of targets handled so far, including skipped ones
+         * @return The number of handled targets
+         */
+        public int getProgress() {
+            return next;
+        }
+        
+        /**
+         * Gets the number of targets of this job
+         * @return The number of targets
+         */
+        public int getSize() {
+            return targets.size();
+        }
+        
+        /**
+         * Gets the number of targets that were not online
+         * @return The number of skipped targets
+         */
+        public int getSkipped() {
+            return skipped;
+        }
+        
+        /**
+         * Checks if every target has been handled or the job was cancelled
+         * @return true if the job will not do any more work
+         */
+        public boolean isDone() {
+            return cancelled || next >= targets.size();
+        }
+    }
+    
+    private final CrownPlugin plugin;
+    private final CrownManager crownManager;
+    private final ConfigManager configManager;
+    private final ArrayDeque<Job> jobs = new ArrayDeque<>();
+    private BukkitTask task;
+    private long tick;
+    
+    /**
+     * Creates a new CrownWorkQueue
+     * @param plugin The plugin instance
+     * @param crownManager The crown manager
+     * @param configManager The configuration manager, for the tick budget
+     */
+    public CrownWorkQueue(CrownPlugin plugin, CrownManager crownManager, ConfigManager configManager) {
+        this.plugin = plugin;
+        this.crownManager = crownManager;
+        this.configManager = configManager;
+    }
+    
+    /**
+     * Queues an operation on many players. Must be called on the main thread.
+     * @param sender The sender to report progress and completion to
+     * @param operation The operation to run
+     * @param targets The players to run it on
+     * @param unresolved The number of requested players that could not be found, counted as skipped
+     * @return The queued job
+     */
+    public Job submit(CommandSender sender, Operation operation, List<UUID> targets, int unresolved) {
+        Job job = new Job(sender, operation, new ArrayList<>(targets), unresolved, tick);
+        jobs.add(job);
+        if (task == null) {
+            task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::run, 1L, 1L);
+        }
+        return job;
+    }
+    
+    /**
+     * Gets the jobs that have not finished yet, the running one first
+     * @return Unmodifiable copy of the queued jobs
+     */
+    public List<Job> getJobs() {
+        return Collections.unmodifiableList(new ArrayList<>(jobs));
+    }
+    
+    /**
+     * Cancels all queued jobs, leaving the targets handled so far as they are
+     * @return The number of cancelled jobs
+     */
+    public int cancelAll() {
+        int count = jobs.size();
+        for (Job job : jobs) {
+            job.cancelled = true;
+            job.sender.sendMessage(ChatColor.RED + job.operation.running + " players was cancelled after "
+                    + job.next + "/" + job.targets.size());
+        }
+        jobs.clear();
+        stopTask();
+        return count;
+    }
+    
+    /**
+     * Drops all queued jobs without reporting, e.g. when the plugin is disabled
+     */
+    public void stop() {
+        for (Job job : jobs) {
+            job.cancelled = true;
+        }
+        jobs.clear();
+        stopTask();
+    }
+    
+    /**
+     * Works off queued targets until the tick budget is used up
+     */
+    private void run() {
+        tick++;
+        long budget = configManager.getSettings().getBulkBudgetNanos();
+        long start = System.nanoTime();
+        do {
+            Job job = jobs.peek();
+            if (job == null) {
+                stopTask();
+                return;
+            }
+            
+            if (!job.isDone()) {
+                step(job);
+            }
+            if (job.isDone()) {
+                jobs.poll();
+                finish(job);
+            }
+        } while (System.nanoTime() - start < budget);
+        
+        for (Job job : jobs) {
+            if (tick - job.lastReport >= PROGRESS_INTERVAL) {
+                job.lastReport = tick;
+                job.sender.sendMessage(ChatColor.GOLD + job.operation.running + " players: " + ChatColor.WHITE
+                        + job.next + "/" + job.targets.size());
+            }
+        }
+    }
+    
+    private void step(Job job) {
+        UUID target = job.targets.get(job.next++);
+        Player player = plugin.getServer().getPlayer(target);
+        if (player == null || !player.isOnline()) {
+            job.skipped++;
+            return;
+        }
+        
+        if (job.operation == Operation.GIVE) {
+            crownManager.giveCrown(player);
+        } else {
+            crownManager.removeCrown(player);
+        }
+        job.completed++;
+    }
+    
+    private void finish(Job job) {
+        double seconds = (System.nanoTime() - job.startNanos) / 1_000_000_000.0;
+        job.sender.sendMessage(ChatColor.GOLD + job.operation.done + " " + job.completed + " players in "
+                + String.format(Locale.ROOT, "%.1f", seconds) + " s"
+                + (job.skipped > 0 ? ChatColor.YELLOW + " (" + job.skipped + " not online)" : ""));
+    }
+    
+    private void stopTask() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+}
@@ -2,22 +2,88 @@ package com.thefallersgames.crown.managers;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.scheduler.BukkitTask;
 
 import com.thefallersgames.crown.CrownPlugin;
+import com.thefallersgames.crown.metrics.CrownMetrics;
+import com.thefallersgames.crown.metrics.CrownMetrics.StorageOperation;
+import com.thefallersgames.crown.storage.BinaryCrownStore;
+import com.thefallersgames.crown.storage.CrownDataFile;
+import com.thefallersgames.crown.storage.CrownMutation;
+import com.thefallersgames.crown.storage.CrownStore;
+import com.thefallersgames.crown.storage.JournalCrownStore;
+import com.thefallersgames.crown.storage.ReignTimeFile;
+import com.thefallersgames.crown.storage.SqlCrownStore;
+import com.thefallersgames.crown.storage.YamlCrownStore;
 
 /**
- * Manages data persistence for crown ownership
+ * Manages data persistence for crown ownership.
+ * <p>
+ * The actual storage is delegated to the {@link CrownStore} selected in the
+ * configuration. Writes are performed write-behind: mutations only mark the
+ * data dirty, a repeating main-thread task copies the state into a snapshot at
+ * the configured autosave interval, and a background flusher thread hands the
+ * latest snapshot to the store. The default store uses the compact
+ * {@link CrownDataFile} format; older data files are migrated automatically.
+ * <p>
+ * Incremental stores (the journal and SQLite) instead receive every mutation in
+ * small per-tick batches, and only get a full snapshot when they ask to be compacted.
+ * <p>
+ * The active store can be replaced while the server runs. The switch is queued
+ * like any other write, so the flusher finishes with the old store, copies the
+ * full state into the new one and continues there; changes made in the meantime
+ * are written to whichever store is active once their turn comes.
+ * <p>
+ * The total reign time of each player is kept in {@code reign.dat} next to the
+ * store, the same for every backend, and written in the background at the autosave interval.
+ * <p>
+ * Shutdown waits a bounded time for the flusher. If it is stuck, the final state
+ * is written to {@code unsaved.dat} instead and restored into the store on the next start.
  */
 public class DataManager {
+    private static final PersistTask SHUTDOWN = new PersistTask(null, null, null);
+    private static final String REIGN_FILE_NAME = "reign.dat";
+    private static final String UNSAVED_FILE_NAME = "unsaved.dat";
+    /** Total time shutdown waits for the flusher to finish its queue */
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000L;
+    
     private CrownPlugin plugin;
-    private File dataFile;
-    private FileConfiguration dataConfig;
+    private CrownMetrics metrics;
+    private CrownStore store;
+    /** The store the flusher writes to, only touched by the flusher once it runs */
+    private CrownStore flusherStore;
+    private boolean switching;
+    private Map<UUID, UUID> loadedOwners;
+    private Map<UUID, Boolean> loadedRespawns;
+    
+    private BlockingQueue<PersistTask> saveQueue;
+    private Thread flusherThread;
+    private BukkitTask autosaveTask;
+    private volatile boolean running;
+    private boolean dirty;
+    private final AtomicBoolean saveFailed = new AtomicBoolean();
+    
+    private final File reignFile;
+    private final AtomicBoolean reignWriting = new AtomicBoolean();
+    private final Object reignLock = new Object();
+    private BukkitTask reignTask;
+    private long reignVersion;
+    private long reignWrittenVersion;
+    
+    private List<CrownMutation> pendingMutations = new ArrayList<>();
+    private int mutationsSinceCompaction;
+    private boolean queueFullWarned;
     
     /**
      * Creates a new DataManager
@@ -25,83 +91,446 @@ public class DataManager {
      */
     public DataManager(CrownPlugin plugin) {
         this.plugin = plugin;
-        this.dataFile = new File(plugin.getDataFolder(), "data.yml");
-        this.dataConfig = YamlConfiguration.loadConfiguration(dataFile);
+        this.metrics = plugin.getMetrics();
+        
+        ConfigManager configManager = plugin.getConfigManager();
+        String backend = configManager.getStorageBackend();
+        if (configManager.isJournalEnabled()) {
+            if (backend.equals("sqlite")) {
+                plugin.getLogger().warning("storage.journal is ignored by the sqlite backend, which is already incremental");
+            } else {
+                backend = "journal";
+            }
+        }
+        this.store = createStore(backend);
+        this.reignFile = new File(plugin.getDataFolder(), REIGN_FILE_NAME);
     }
     
     /**
-     * Saves crown ownership data to disk
-     * @param crownOwners Map of player UUIDs to crown owner UUIDs
+     * Creates the store for a backend name
+     * @param backend One of binary, yaml, sqlite or journal
+     * @return The store, or null if the backend is unknown
      */
-    public void saveCrownOwners(Map<UUID, UUID> crownOwners) {
-        // Clear previous data
-        dataConfig.set("crown_owners", null);
+    public CrownStore createStore(String backend) {
+        ConfigManager configManager = plugin.getConfigManager();
+        File folder = plugin.getDataFolder();
         
-        // Save each crown owner
-        for (Map.Entry<UUID, UUID> entry : crownOwners.entrySet()) {
-            String key = entry.getKey().toString();
-            String value = entry.getValue().toString();
-            dataConfig.set("crown_owners." + key, value);
+        switch (backend) {
+            case "binary":
+                return new BinaryCrownStore(new File(folder, "data.dat"));
+            case "yaml":
+                return new YamlCrownStore(new File(folder, "data.yml"), plugin.getLogger());
+            case "sqlite":
+                return new SqlCrownStore(new File(folder, "crown.db"), configManager.getSqlBatchSize());
+            case "journal":
+                return new JournalCrownStore(folder, plugin.getLogger(),
+                        configManager.getJournalCompactAfter(), configManager.isJournalSyncEnabled());
+            default:
+                return null;
         }
+    }
+    
+    /**
+     * Gets the active store
+     * @return The store crown data is persisted to
+     */
+    public CrownStore getStore() {
+        return store;
+    }
+    
+    /**
+     * Starts the background flusher and the autosave task
+     * @param crownManager The crown manager whose state is persisted
+     */
+    public void start(CrownManager crownManager) {
+        ConfigManager configManager = plugin.getConfigManager();
+        saveQueue = new ArrayBlockingQueue<>(configManager.getSaveQueueCapacity());
+        running = true;
+        loadedOwners = null;
+        loadedRespawns = null;
         
-        // Save the file
-        try {
-            dataConfig.save(dataFile);
-            plugin.getLogger().info("Saved crown ownership data");
-        } catch (IOException e) {
-            plugin.getLogger().severe("Could not save crown ownership data: " + e.getMessage());
+        flusherStore = store;
+        flusherThread = new Thread(this::runFlusher, "Crown-DataFlusher");
+        flusherThread.setDaemon(true);
+        flusherThread.start();
+        startAutosave(crownManager);
+        
+        long reignIntervalTicks = Math.max(1L, configManager.getAutosaveInterval()) * 20L;
+        reignTask = plugin.getServer().getScheduler().runTaskTimer(plugin,
+                () -> saveReignTimesLater(crownManager), reignIntervalTicks, reignIntervalTicks);
+    }
+    
+    /**
+     * Starts the task that hands changes to the flusher, in the way the active store expects them
+     * @param crownManager The crown manager whose state is persisted
+     */
+    private void startAutosave(CrownManager crownManager) {
+        if (autosaveTask != null) {
+            autosaveTask.cancel();
+        }
+        if (store.isIncremental()) {
+            // Hand the mutations of each tick to the flusher as one batch
+            autosaveTask = plugin.getServer().getScheduler().runTaskTimer(plugin,
+                    () -> flushMutations(crownManager), 1L, 1L);
+        } else {
+            long intervalTicks = Math.max(1L, plugin.getConfigManager().getAutosaveInterval()) * 20L;
+            autosaveTask = plugin.getServer().getScheduler().runTaskTimer(plugin,
+                    () -> flushIfDirty(crownManager), intervalTicks, intervalTicks);
         }
     }
     
     /**
-     * Saves crown respawn data to disk
-     * @param pendingRespawns Map of player UUIDs to respawn flags
+     * Stops the autosave task, lets the flusher finish its queue and writes the final state synchronously.
+     * If the flusher does not stop in time the store is left alone, since it must never be used
+     * from two threads at once, and the final state is written to a separate file instead.
+     * @param crownManager The crown manager whose state is persisted
      */
-    public void savePendingRespawns(Map<UUID, Boolean> pendingRespawns) {
-        // Clear previous data
-        dataConfig.set("pending_respawns", null);
+    public void shutdown(CrownManager crownManager) {
+        if (autosaveTask != null) {
+            autosaveTask.cancel();
+            autosaveTask = null;
+        }
+        if (reignTask != null) {
+            reignTask.cancel();
+            reignTask = null;
+        }
+        
+        try {
+            writeReignTimes(crownManager.getLeaderboard().takeSnapshot(System.currentTimeMillis()), ++reignVersion);
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not save reign times: " + e.getMessage());
+        }
+        
+        if (flusherThread != null) {
+            running = false;
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_TIMEOUT_MILLIS);
+            try {
+                // Queued mutation batches must not be dropped, so line up behind them
+                if (saveQueue.offer(SHUTDOWN, remainingNanos(deadline), TimeUnit.NANOSECONDS)) {
+                    TimeUnit.NANOSECONDS.timedJoin(flusherThread, remainingNanos(deadline));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            boolean stuck = flusherThread.isAlive();
+            flusherThread = null;
+            if (stuck) {
+                writeUnsavedData(crownManager);
+                return;
+            }
+            if (flusherStore != store) {
+                // A switch of stores failed or was still being reverted, stay with the one the flusher used
+                store.close();
+                store = flusherStore;
+                saveFailed.set(true);
+            }
+        }
         
-        // Save each pending respawn
-        for (Map.Entry<UUID, Boolean> entry : pendingRespawns.entrySet()) {
-            String key = entry.getKey().toString();
-            boolean value = entry.getValue();
-            dataConfig.set("pending_respawns." + key, value);
+        // The flusher is gone, so the final write happens on the calling thread
+        long start = System.nanoTime();
+        Map<UUID, UUID> crownOwners = crownManager.getCrownOwners();
+        Map<UUID, Boolean> pendingRespawns = crownManager.getPendingCrownRespawn();
+        StorageOperation operation = store.isIncremental() ? StorageOperation.APPLY : StorageOperation.SAVE;
+        long timer = metrics.start();
+        try {
+            if (store.isIncremental()) {
+                if (!pendingMutations.isEmpty()) {
+                    store.apply(pendingMutations);
+                    mutationsSinceCompaction += pendingMutations.size();
+                }
+                // A batch the flusher failed to write is only covered by a full save
+                if (saveFailed.getAndSet(false) || store.needsCompaction(mutationsSinceCompaction)) {
+                    store.save(crownOwners, pendingRespawns);
+                    mutationsSinceCompaction = 0;
+                }
+            } else {
+                store.save(crownOwners, pendingRespawns);
+            }
+            metrics.recordStorage(operation, timer, true);
+            plugin.getLogger().info("Saved " + crownOwners.size() + " crown owners and " + pendingRespawns.size()
+                    + " pending respawns to " + store.getName() + " in " + elapsedMillis(start) + " ms");
+        } catch (IOException | RuntimeException e) {
+            metrics.recordStorage(operation, timer, false);
+            plugin.getLogger().severe("Could not save crown data: " + e);
         }
         
-        // Save the file
+        pendingMutations.clear();
+        dirty = false;
+        store.close();
+    }
+    
+    /**
+     * Writes the final state next to the store while the flusher is still using it
+     * @param crownManager The crown manager whose state is persisted
+     */
+    private void writeUnsavedData(CrownManager crownManager) {
+        File file = new File(plugin.getDataFolder(), UNSAVED_FILE_NAME);
         try {
-            dataConfig.save(dataFile);
-            plugin.getLogger().info("Saved pending respawn data");
+            CrownDataFile.write(file, crownManager.getCrownOwners(), crownManager.getPendingCrownRespawn());
+            plugin.getLogger().severe("The crown data flusher did not finish in time, so the final state was written to "
+                    + UNSAVED_FILE_NAME + " instead of " + store.getName() + ". It is restored on the next start.");
         } catch (IOException e) {
-            plugin.getLogger().severe("Could not save pending respawn data: " + e.getMessage());
+            plugin.getLogger().severe("The crown data flusher did not finish in time and " + UNSAVED_FILE_NAME
+                    + " could not be written either. Changes since the last save may be lost: " + e.getMessage());
         }
     }
     
     /**
-     * Loads crown ownership data from disk
-     * @return Map of player UUIDs to crown owner UUIDs
+     * Records a change to the crown data so that it is picked up by the next save
+     * @param mutation The change that was made
      */
-    public Map<UUID, UUID> loadCrownOwners() {
-        Map<UUID, UUID> crownOwners = new HashMap<>();
-        
-        // Check if the section exists
-        if (dataConfig.isConfigurationSection("crown_owners")) {
-            // Load each crown owner
-            for (String key : dataConfig.getConfigurationSection("crown_owners").getKeys(false)) {
-                String value = dataConfig.getString("crown_owners." + key);
-                
-                try {
-                    UUID playerUUID = UUID.fromString(key);
-                    UUID ownerUUID = UUID.fromString(value);
-                    crownOwners.put(playerUUID, ownerUUID);
-                } catch (IllegalArgumentException e) {
-                    plugin.getLogger().warning("Invalid UUID in crown owners data: " + key);
+    public void record(CrownMutation mutation) {
+        dirty = true;
+        
+        if (store.isIncremental()) {
+            pendingMutations.add(mutation);
+        }
+    }
+    
+    /**
+     * Replaces the active store with another backend. Must be called on the main thread.
+     * <p>
+     * The switch is queued behind the pending writes: the flusher finishes them on
+     * the old store, then copies the current state into the new one in batches and
+     * continues there. Changes from now on are already collected for the new store.
+     * If the copy fails, the old store stays active and receives a full save.
+     * @param crownManager The crown manager whose state is copied
+     * @param target The store to switch to, see {@link #createStore(String)}
+     * @return A future completed on the main thread with the number of crown owners copied
+     */
+    public CompletableFuture<Integer> switchStore(CrownManager crownManager, CrownStore target) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        if (!running) {
+            result.completeExceptionally(new IllegalStateException("Crown data is not being saved right now"));
+            return result;
+        }
+        if (switching) {
+            result.completeExceptionally(new IllegalStateException("Crown data is already being moved"));
+            return result;
+        }
+        
+        CompletableFuture<Integer> copied = new CompletableFuture<>();
+        CrownRegistry.Snapshot snapshot = crownManager.getRegistry().publish();
+        PersistTask task = new PersistTask(snapshot.getCrownOwners(), snapshot.getPendingRespawns(),
+                store.isIncremental() ? pendingMutations : null, target, copied);
+        if (!saveQueue.offer(task)) {
+            result.completeExceptionally(new IllegalStateException("The save queue is full, try again in a moment"));
+            return result;
+        }
+        
+        CrownStore previous = store;
+        store = target;
+        switching = true;
+        pendingMutations = new ArrayList<>();
+        mutationsSinceCompaction = 0;
+        dirty = false;
+        startAutosave(crownManager);
+        
+        copied.whenComplete((count, error) -> plugin.getServer().getScheduler().runTask(plugin, () -> {
+            switching = false;
+            if (error == null) {
+                result.complete(count);
+                return;
+            }
+            if (store == target) {
+                // The flusher stayed with the old store, which now needs the changes made since
+                store = previous;
+                pendingMutations = new ArrayList<>();
+                mutationsSinceCompaction = 0;
+                saveFailed.set(true);
+                startAutosave(crownManager);
+            }
+            result.completeExceptionally(error);
+        }));
+        return result;
+    }
+    
+    /**
+     * Hands a snapshot of the current state to the flusher if anything changed.
+     * When the queue is full the data stays dirty and is retried on the next run,
+     * so a slow disk never blocks the main thread. A failed save is retried the same way.
+     * @param crownManager The crown manager whose state is persisted
+     */
+    private void flushIfDirty(CrownManager crownManager) {
+        if (saveFailed.getAndSet(false)) {
+            dirty = true;
+        }
+        if (!dirty || !running) {
+            return;
+        }
+        
+        if (!saveQueue.offer(takeSnapshot(crownManager))) {
+            warnQueueFull();
+            return;
+        }
+        
+        dirty = false;
+        queueFullWarned = false;
+    }
+    
+    /**
+     * Hands this tick's mutations to the flusher and requests a compaction once
+     * the store asks for one. If the queue is full the batch keeps growing on the
+     * main thread and is retried next tick. If the flusher failed to write a batch,
+     * a full snapshot is queued behind it, so no mutation is ever dropped.
+     * @param crownManager The crown manager whose state is persisted
+     */
+    private void flushMutations(CrownManager crownManager) {
+        if (!running) {
+            return;
+        }
+        
+        if (!pendingMutations.isEmpty()) {
+            if (!saveQueue.offer(new PersistTask(null, null, pendingMutations))) {
+                warnQueueFull();
+                return;
+            }
+            mutationsSinceCompaction += pendingMutations.size();
+            pendingMutations = new ArrayList<>();
+            dirty = false;
+            queueFullWarned = false;
+        }
+        
+        // The snapshot is queued behind every batch it contains, so the store
+        // can safely discard those batches once it has been written
+        boolean retry = saveFailed.getAndSet(false);
+        if (retry || store.needsCompaction(mutationsSinceCompaction)) {
+            if (saveQueue.offer(takeSnapshot(crownManager))) {
+                mutationsSinceCompaction = 0;
+            } else if (retry) {
+                saveFailed.set(true);
+            }
+        }
+    }
+    
+    private void warnQueueFull() {
+        if (!queueFullWarned) {
+            plugin.getLogger().warning("Crown data save queue is full, postponing save");
+            queueFullWarned = true;
+        }
+    }
+    
+    /**
+     * Copies the crown manager state so it can be serialized off the main thread
+     * @param crownManager The crown manager
+     * @return An immutable snapshot of the current state
+     */
+    private PersistTask takeSnapshot(CrownManager crownManager) {
+        // The registry snapshot is immutable and shared with other readers, so no extra copy is needed
+        CrownRegistry.Snapshot snapshot = crownManager.getRegistry().publish();
+        return new PersistTask(snapshot.getCrownOwners(), snapshot.getPendingRespawns(), null);
+    }
+    
+    /**
+     * Flusher thread loop. Snapshots queued before a newer one are superseded by it,
+     * so bursts collapse into a single write. Mutation batches are always applied in
+     * order, even before a snapshot that contains them: if that snapshot fails to
+     * save, the store must still hold every change. A failed write is reported to
+     * the main thread, which queues a new snapshot of the full state; a store that
+     * throws an unexpected exception does not stop the thread.
+     */
+    private void runFlusher() {
+        List<PersistTask> tasks = new ArrayList<>();
+        while (true) {
+            tasks.clear();
+            try {
+                tasks.add(saveQueue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            saveQueue.drainTo(tasks);
+            
+            // A switch copies the full state as well, so it supersedes earlier snapshots
+            int lastSnapshot = -1;
+            for (int i = tasks.size() - 1; i >= 0; i--) {
+                if (tasks.get(i).isSnapshot() || tasks.get(i).isSwitch()) {
+                    lastSnapshot = i;
+                    break;
                 }
             }
+            
+            for (int i = 0; i < tasks.size(); i++) {
+                PersistTask task = tasks.get(i);
+                if (task == SHUTDOWN) {
+                    return;
+                }
+                if (task.isSwitch()) {
+                    switchFlusherStore(task);
+                    continue;
+                }
+                if (task.isSnapshot() && i < lastSnapshot) {
+                    continue;
+                }
+                if (task.isSnapshot()) {
+                    write(task.crownOwners, task.pendingRespawns, null);
+                } else if (flusherStore.isIncremental()) {
+                    write(null, null, task.mutations);
+                } else {
+                    // Collected for a store that could not be switched to, the full save covers them
+                    saveFailed.set(true);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Writes a snapshot or a mutation batch to the flusher's store
+     */
+    private void write(Map<UUID, UUID> crownOwners, Map<UUID, Boolean> pendingRespawns,
+            List<CrownMutation> mutations) {
+        StorageOperation operation = mutations == null ? StorageOperation.SAVE : StorageOperation.APPLY;
+        long timer = metrics.start();
+        try {
+            if (mutations == null) {
+                flusherStore.save(crownOwners, pendingRespawns);
+            } else {
+                flusherStore.apply(mutations);
+            }
+            metrics.recordStorage(operation, timer, true);
+        } catch (IOException | RuntimeException e) {
+            metrics.recordStorage(operation, timer, false);
+            plugin.getLogger().severe("Could not save crown data, retrying with a full save: " + e);
+            saveFailed.set(true);
+        }
+    }
+    
+    /**
+     * Finishes the old store and copies the full state into the new one. Runs on the flusher thread.
+     * @param task The switch, with the last mutations for the old store and the state to copy
+     */
+    private void switchFlusherStore(PersistTask task) {
+        // The old store stays complete in case the copy fails
+        if (task.mutations != null && !task.mutations.isEmpty()) {
+            write(null, null, task.mutations);
+        }
+        
+        long start = System.nanoTime();
+        long timer = metrics.start();
+        try {
+            task.target.save(task.crownOwners, task.pendingRespawns);
+            metrics.recordStorage(StorageOperation.MIGRATE, timer, true);
+        } catch (IOException | RuntimeException e) {
+            metrics.recordStorage(StorageOperation.MIGRATE, timer, false);
+            plugin.getLogger().severe("Could not move crown data to " + task.target.getName() + ": " + e);
+            task.target.close();
+            task.result.completeExceptionally(e);
+            return;
         }
         
-        plugin.getLogger().info("Loaded " + crownOwners.size() + " crown owners from data file");
-        return crownOwners;
+        flusherStore.close();
+        flusherStore = task.target;
+        plugin.getLogger().info("Moved " + task.crownOwners.size() + " crown owners to " + task.target.getName()
+                + " in " + elapsedMillis(start) + " ms");
+        task.result.complete(task.crownOwners.size());
+    }
+    
+    /**
+     * Loads crown ownership data from disk
+     * @return Map of player UUIDs to crown owner UUIDs
+     */
+    public Map<UUID, UUID> loadCrownOwners() {
+        ensureLoaded();
+        return loadedOwners;
     }
     
     /**
@@ -109,24 +538,223 @@ public class DataManager {
      * @return Map of player UUIDs to respawn flags
      */
     public Map<UUID, Boolean> loadPendingRespawns() {
-        Map<UUID, Boolean> pendingRespawns = new HashMap<>();
+        ensureLoaded();
+        return loadedRespawns;
+    }
+    
+    /**
+     * Loads the total reign time of every player. An unreadable file is moved aside.
+     * @return Map of player UUIDs to total reign time in milliseconds
+     */
+    public Map<UUID, Long> loadReignTimes() {
+        Map<UUID, Long> totals = new HashMap<>();
+        if (!reignFile.exists()) {
+            return totals;
+        }
+        
+        try {
+            ReignTimeFile.read(reignFile, totals);
+        } catch (IOException e) {
+            File corrupt = new File(reignFile.getParentFile(), REIGN_FILE_NAME + ".corrupt-" + System.currentTimeMillis());
+            plugin.getLogger().warning("Could not read " + REIGN_FILE_NAME + ", moving it to " + corrupt.getName()
+                    + ": " + e.getMessage());
+            if (!reignFile.renameTo(corrupt)) {
+                plugin.getLogger().warning("Could not move " + REIGN_FILE_NAME + " aside");
+            }
+            totals.clear();
+        }
+        return totals;
+    }
+    
+    /**
+     * Writes the reign times off the main thread if they changed. A write still
+     * running from the last interval is left to finish, the next one catches up.
+     * @param crownManager The crown manager whose leaderboard is persisted
+     */
+    private void saveReignTimesLater(CrownManager crownManager) {
+        ReignLeaderboard leaderboard = crownManager.getLeaderboard();
+        if (!leaderboard.isDirty() || !reignWriting.compareAndSet(false, true)) {
+            return;
+        }
+        
+        Map<UUID, Long> totals = leaderboard.takeSnapshot(System.currentTimeMillis());
+        long snapshotVersion = ++reignVersion;
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                writeReignTimes(totals, snapshotVersion);
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not save reign times: " + e.getMessage());
+            } finally {
+                reignWriting.set(false);
+            }
+        });
+    }
+    
+    /**
+     * Writes a snapshot of the reign times, unless a newer one was written already
+     * @param totals Map of player UUIDs to total reign time in milliseconds
+     * @param snapshotVersion The order in which the snapshot was taken
+     * @throws IOException If writing fails
+     */
+    private void writeReignTimes(Map<UUID, Long> totals, long snapshotVersion) throws IOException {
+        synchronized (reignLock) {
+            if (snapshotVersion < reignWrittenVersion) {
+                return;
+            }
+            ReignTimeFile.write(reignFile, totals);
+            reignWrittenVersion = snapshotVersion;
+        }
+    }
+    
+    /**
+     * Reads the stored state once, migrating older data files into the active
+     * store on first use, and reports how long it took. If the active store
+     * cannot be read it has moved its data aside, and the plugin starts empty
+     * rather than importing older files over it.
+     */
+    private void ensureLoaded() {
+        if (loadedOwners != null) {
+            return;
+        }
+        
+        long start = System.nanoTime();
+        long timer = metrics.start();
+        loadedOwners = new CrownOwnerMap();
+        loadedRespawns = new HashMap<>();
+        String source = store.getName();
+        
+        try {
+            if (store.exists()) {
+                store.load(loadedOwners, loadedRespawns);
+            } else {
+                source = migrateLegacyData();
+            }
+            metrics.recordStorage(StorageOperation.LOAD, timer, true);
+        } catch (IOException | RuntimeException e) {
+            metrics.recordStorage(StorageOperation.LOAD, timer, false);
+            plugin.getLogger().severe("Could not load crown data from " + store.getName() + ": " + e.getMessage());
+            loadedOwners.clear();
+            loadedRespawns.clear();
+            source = "nowhere (" + store.getName() + " could not be read)";
+        }
+        source = recoverUnsavedData(source);
+        
+        plugin.getLogger().info("Loaded " + loadedOwners.size() + " crown owners and " + loadedRespawns.size()
+                + " pending respawns from " + source + " in " + elapsedMillis(start) + " ms");
+    }
+    
+    /**
+     * Imports the first existing data file of another format into the active store
+     * @return A description of where the data was loaded from
+     */
+    private String migrateLegacyData() {
+        File folder = plugin.getDataFolder();
+        CrownStore[] legacyStores = {
+            new BinaryCrownStore(new File(folder, "data.dat")),
+            new YamlCrownStore(new File(folder, "data.yml"), plugin.getLogger())
+        };
         
-        // Check if the section exists
-        if (dataConfig.isConfigurationSection("pending_respawns")) {
-            // Load each pending respawn
-            for (String key : dataConfig.getConfigurationSection("pending_respawns").getKeys(false)) {
-                boolean value = dataConfig.getBoolean("pending_respawns." + key);
-                
-                try {
-                    UUID playerUUID = UUID.fromString(key);
-                    pendingRespawns.put(playerUUID, value);
-                } catch (IllegalArgumentException e) {
-                    plugin.getLogger().warning("Invalid UUID in pending respawns data: " + key);
+        for (CrownStore legacy : legacyStores) {
+            if (legacy.getName().equals(store.getName()) || !legacy.exists()) {
+                continue;
+            }
+            
+            try {
+                legacy.load(loadedOwners, loadedRespawns);
+                store.save(loadedOwners, loadedRespawns);
+                // Only the YAML file is archived, a binary file is kept for switching back to that backend
+                if (legacy instanceof YamlCrownStore) {
+                    legacy.markMigrated();
                 }
+                plugin.getLogger().info("Migrated crown data from " + legacy.getName() + " to " + store.getName());
+                return legacy.getName();
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not migrate crown data from " + legacy.getName() + ": " + e.getMessage());
             }
         }
+        return "nowhere (no saved data yet)";
+    }
+    
+    /**
+     * Replaces the loaded state with the one written at the last shutdown, if the
+     * flusher was stuck then, and saves it to the active store
+     * @param source A description of where the data was loaded from
+     * @return The description, updated if the state was recovered
+     */
+    private String recoverUnsavedData(String source) {
+        File file = new File(plugin.getDataFolder(), UNSAVED_FILE_NAME);
+        if (!file.exists()) {
+            return source;
+        }
         
-        plugin.getLogger().info("Loaded " + pendingRespawns.size() + " pending respawns from data file");
-        return pendingRespawns;
+        Map<UUID, UUID> crownOwners = new CrownOwnerMap();
+        Map<UUID, Boolean> pendingRespawns = new HashMap<>();
+        try {
+            CrownDataFile.read(file, crownOwners, pendingRespawns);
+        } catch (IOException e) {
+            File corrupt = new File(file.getParentFile(), UNSAVED_FILE_NAME + ".corrupt-" + System.currentTimeMillis());
+            plugin.getLogger().warning("Could not read " + UNSAVED_FILE_NAME + ", moving it to " + corrupt.getName()
+                    + ": " + e.getMessage());
+            if (!file.renameTo(corrupt)) {
+                plugin.getLogger().warning("Could not move " + UNSAVED_FILE_NAME + " aside");
+            }
+            return source;
+        }
+        
+        loadedOwners = crownOwners;
+        loadedRespawns = pendingRespawns;
+        try {
+            store.save(crownOwners, pendingRespawns);
+            if (!file.delete()) {
+                plugin.getLogger().warning("Could not delete " + UNSAVED_FILE_NAME);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Kept, so the next start tries again
+            plugin.getLogger().severe("Could not save the recovered crown data to " + store.getName() + ": " + e);
+        }
+        plugin.getLogger().info("Recovered the crown data of the last shutdown from " + UNSAVED_FILE_NAME);
+        return UNSAVED_FILE_NAME;
+    }
+    
+    private static long remainingNanos(long deadline) {
+        return Math.max(0L, deadline - System.nanoTime());
+    }
+    
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+    
+    /**
+     * Unit of work for the flusher thread: a full snapshot of the crown state,
+     * a batch of mutations, or a switch to another store
+     */
+    private static final class PersistTask {
+        private final Map<UUID, UUID> crownOwners;
+        private final Map<UUID, Boolean> pendingRespawns;
+        private final List<CrownMutation> mutations;
+        private final CrownStore target;
+        private final CompletableFuture<Integer> result;
+        
+        private PersistTask(Map<UUID, UUID> crownOwners, Map<UUID, Boolean> pendingRespawns,
+                List<CrownMutation> mutations) {
+            this(crownOwners, pendingRespawns, mutations, null, null);
+        }
+        
+        private PersistTask(Map<UUID, UUID> crownOwners, Map<UUID, Boolean> pendingRespawns,
+                List<CrownMutation> mutations, CrownStore target, CompletableFuture<Integer> result) {
+            this.crownOwners = crownOwners;
+            this.pendingRespawns = pendingRespawns;
+            this.mutations = mutations;
+            this.target = target;
+            this.result = result;
+        }
+        
+        private boolean isSnapshot() {
+            return crownOwners != null && target == null;
+        }
+        
+        private boolean isSwitch() {
+            return target != null;
+        }
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
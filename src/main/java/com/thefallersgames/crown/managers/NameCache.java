@@ -0,0 +1,83 @@
+package com.thefallersgames.crown.managers;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps player names to UUIDs from the players seen joining this server.
+ * <p>
+ * Names are matched case-insensitively through a hash map, so lookups take
+ * constant time and never touch the disk. When a player changes their name,
+ * the old name stops resolving to them once they join with the new one. The
+ * maps are concurrent so the cache can be written out from another thread
+ * while players keep joining.
+ */
+public class NameCache {
+    private final Map<UUID, String> names = new ConcurrentHashMap<>();
+    private final Map<String, UUID> uuids = new ConcurrentHashMap<>();
+    
+    /**
+     * Records the current name of a player
+     * @param uuid The player UUID
+     * @param name The player name
+     * @return true if the cache changed
+     */
+    public boolean update(UUID uuid, String name) {
+        String previous = names.put(uuid, name);
+        if (name.equals(previous)) {
+            return false;
+        }
+        if (previous != null) {
+            uuids.remove(key(previous), uuid);
+        }
+        
+        // Names are unique at any time, so whoever held this name before has renamed
+        String key = key(name);
+        UUID oldHolder = uuids.put(key, uuid);
+        if (oldHolder != null && !oldHolder.equals(uuid)) {
+            names.computeIfPresent(oldHolder, (holder, oldName) -> key(oldName).equals(key) ? null : oldName);
+        }
+        return true;
+    }
+    
+    /**
+     * Looks up the UUID of a player by name
+     * @param name The player name, in any case
+     * @return The UUID, or null if no player with this name has been seen
+     */
+    public UUID getUUID(String name) {
+        return uuids.get(key(name));
+    }
+    
+    /**
+     * Gets the last known name of a player
+     * @param uuid The player UUID
+     * @return The name, or null if the player has not been seen
+     */
+    public String getName(UUID uuid) {
+        return names.get(uuid);
+    }
+    
+    /**
+     * Gets all known players
+     * @return Unmodifiable view of player UUIDs to their last known names
+     */
+    public Map<UUID, String> getNames() {
+        return Collections.unmodifiableMap(names);
+    }
+    
+    /**
+     * Gets the number of known players
+     * @return The number of cached names
+     */
+    public int size() {
+        return names.size();
+    }
+    
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
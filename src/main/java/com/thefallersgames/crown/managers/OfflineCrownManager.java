@@ -0,0 +1,254 @@
+package com.thefallersgames.crown.managers;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.thefallersgames.crown.CrownPlugin;
+import com.thefallersgames.crown.audit.AuditRecord;
+import com.thefallersgames.crown.storage.PlayerDataFile;
+
+/**
+ * Gives and removes crowns of players that are offline.
+ * <p>
+ * Names are resolved through a {@link NameCache} of every player that joined
+ * while the plugin was running; only names that were never seen are looked up
+ * through the server, off the main thread, since that may read player data
+ * from disk or ask the Mojang API. The operation is remembered until the
+ * player joins and then applied in the join handler. Removing a crown takes
+ * the ownership away right away, only the items wait for the join.
+ * <p>
+ * Names and pending operations are kept in {@code players.dat}, written in the
+ * background at the autosave interval when something changed.
+ */
+public class OfflineCrownManager {
+    private static final String FILE_NAME = "players.dat";
+    
+    private final CrownPlugin plugin;
+    private final CrownManager crownManager;
+    private final ConfigManager configManager;
+    private final NameCache nameCache = new NameCache();
+    private final Map<UUID, Boolean> pending = new HashMap<>();
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private final Object writeLock = new Object();
+    private final File file;
+    private BukkitTask task;
+    private boolean dirty;
+    private long version;
+    private long writtenVersion;
+    
+    /**
+     * Creates a new OfflineCrownManager
+     * @param plugin The plugin instance
+     * @param crownManager The crown manager
+     * @param configManager The configuration manager, for the autosave interval
+     */
+    public OfflineCrownManager(CrownPlugin plugin, CrownManager crownManager, ConfigManager configManager) {
+        this.plugin = plugin;
+        this.crownManager = crownManager;
+        this.configManager = configManager;
+        this.file = new File(plugin.getDataFolder(), FILE_NAME);
+    }
+    
+    /**
+     * Loads the known names and pending operations. An unreadable file is moved aside.
+     */
+    public void load() {
+        if (!file.exists()) {
+            return;
+        }
+        
+        Map<UUID, String> names = new HashMap<>();
+        try {
+            PlayerDataFile.read(file, names, pending);
+        } catch (IOException e) {
+            File corrupt = new File(file.getParentFile(), FILE_NAME + ".corrupt-" + System.currentTimeMillis());
+            plugin.getLogger().warning("Could not read " + FILE_NAME + ", moving it to " + corrupt.getName()
+                    + ": " + e.getMessage());
+            if (!file.renameTo(corrupt)) {
+                plugin.getLogger().warning("Could not move " + FILE_NAME + " aside");
+            }
+            names.clear();
+            pending.clear();
+            return;
+        }
+        
+        for (Map.Entry<UUID, String> entry : names.entrySet()) {
+            nameCache.update(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    /**
+     * Starts writing changes in the background
+     */
+    public void start() {
+        if (task == null) {
+            long intervalTicks = Math.max(1L, configManager.getSettings().getAutosaveInterval()) * 20L;
+            task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::saveLater, intervalTicks, intervalTicks);
+        }
+    }
+    
+    /**
+     * Stops the background writes and writes any changes on the calling thread
+     */
+    public void shutdown() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        if (dirty || writing.get()) {
+            try {
+                // A background write still in flight holds an older copy and must not replace this one
+                write(new HashMap<>(pending), ++version);
+                dirty = false;
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not save " + FILE_NAME + ": " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Gets the cache of known player names
+     * @return The name cache
+     */
+    public NameCache getNameCache() {
+        return nameCache;
+    }
+    
+    /**
+     * Looks up the UUID of a player by name. Must be called on the main thread.
+     * <p>
+     * Known names are answered right away. Unknown names are looked up off the
+     * main thread and the callback runs on the main thread a few ticks later.
+     * @param name The player name
+     * @param callback Receives the UUID, or null if no player with this name has played on the server
+     */
+    public void resolve(String name, Consumer<UUID> callback) {
+        UUID cached = nameCache.getUUID(name);
+        if (cached != null) {
+            callback.accept(cached);
+            return;
+        }
+        
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            @SuppressWarnings("deprecation")
+            OfflinePlayer player = plugin.getServer().getOfflinePlayer(name);
+            boolean known = player.hasPlayedBefore() || player.isOnline();
+            UUID uuid = known ? player.getUniqueId() : null;
+            String knownName = known ? player.getName() : null;
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (uuid != null && knownName != null && nameCache.update(uuid, knownName)) {
+                    dirty = true;
+                }
+                callback.accept(uuid);
+            });
+        });
+    }
+    
+    /**
+     * Remembers a crown operation for a player that is offline
+     * @param playerUUID The player UUID
+     * @param give true to give the player a crown when they join, false to remove theirs
+     */
+    public void queue(UUID playerUUID, boolean give) {
+        pending.put(playerUUID, give);
+        dirty = true;
+        
+        if (!give) {
+            if (crownManager.isPlayerCrownOwner(playerUUID) && plugin.getAuditLog() != null) {
+                plugin.getAuditLog().record(AuditRecord.Action.REMOVE, playerUUID, null);
+            }
+            crownManager.removePlayerFromCrownOwners(playerUUID);
+            if (crownManager.shouldReceiveCrownOnRespawn(playerUUID)) {
+                crownManager.setCrownRespawnFlag(playerUUID, false);
+            }
+        }
+    }
+    
+    /**
+     * Gets the operation waiting for a player
+     * @param playerUUID The player UUID
+     * @return true if a crown will be given, false if it will be removed, or null if nothing waits
+     */
+    public Boolean getPending(UUID playerUUID) {
+        return pending.get(playerUUID);
+    }
+    
+    /**
+     * Gets the number of players with a waiting operation
+     * @return The number of pending operations
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+    
+    /**
+     * Records the name of a joining player and applies the operation waiting for them
+     * @param player The player who joined
+     */
+    public void handleJoin(Player player) {
+        UUID playerUUID = player.getUniqueId();
+        if (nameCache.update(playerUUID, player.getName())) {
+            dirty = true;
+        }
+        
+        Boolean give = pending.remove(playerUUID);
+        if (give == null) {
+            return;
+        }
+        dirty = true;
+        if (give) {
+            crownManager.giveCrown(player);
+        } else {
+            crownManager.removeCrown(player);
+        }
+    }
+    
+    /**
+     * Writes the names and pending operations off the main thread if they changed
+     */
+    private void saveLater() {
+        if (!dirty || !writing.compareAndSet(false, true)) {
+            return;
+        }
+        
+        // Names can be read concurrently, the pending operations are only touched on the main thread
+        Map<UUID, Boolean> pendingCopy = new HashMap<>(pending);
+        long snapshotVersion = ++version;
+        dirty = false;
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                write(pendingCopy, snapshotVersion);
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not save " + FILE_NAME + ": " + e.getMessage());
+                plugin.getServer().getScheduler().runTask(plugin, () -> dirty = true);
+            } finally {
+                writing.set(false);
+            }
+        });
+    }
+    
+    /**
+     * Writes the names and a copy of the pending operations, unless a newer copy was written already
+     * @param pendingCopy The pending operations to write
+     * @param snapshotVersion The order in which the copy was taken
+     * @throws IOException If writing fails
+     */
+    private void write(Map<UUID, Boolean> pendingCopy, long snapshotVersion) throws IOException {
+        synchronized (writeLock) {
+            if (snapshotVersion < writtenVersion) {
+                return;
+            }
+            PlayerDataFile.write(file, nameCache.getNames(), pendingCopy);
+            writtenVersion = snapshotVersion;
+        }
+    }
+}
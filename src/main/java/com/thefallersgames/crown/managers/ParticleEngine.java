@@ -0,0 +1,529 @@
+package com.thefallersgames.crown.managers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.thefallersgames.crown.CrownPlugin;
+
+/**
+ * Runs every leader particle effect and crown aura from a single scheduler task.
+ * <p>
+ * Effects are plain state objects kept in one list and advanced together once
+ * per tick, instead of each owning a {@code BukkitRunnable}. Finished effects go
+ * back to a pool for reuse. Due spawns are grouped by world before they are sent.
+ * The number of effects running at once is capped; a new effect replaces the
+ * oldest one when the cap is reached, and a player never has more than one.
+ * The task only runs while at least one effect or unpaused aura is active.
+ * <p>
+ * Each effect replays the frames of its compiled {@link ParticleProgram}. The
+ * player position is read into one reused {@link Location}, and random jitter
+ * comes from a generator owned by the engine instead of the shared, synchronized
+ * one behind {@link Math#random()}, so a tick allocates nothing per spawn.
+ * <p>
+ * Particles are sent to each viewer separately rather than broadcast by the
+ * world. Viewers further away get fewer particles according to the distance
+ * bands in {@code particles.view}, viewers out of range or unable to see the
+ * player get none, and no viewer receives more than a fixed number of particle
+ * packets per tick, so crowded areas stay bounded.
+ * <p>
+ * When the {@link TickMonitor} reports that the server is behind, the engine
+ * scales particle counts and packet budgets down, spawns only every other frame
+ * once the scale drops below one half, and sends nothing when it reaches zero.
+ * Effects keep advancing while throttled so they still end on time.
+ * <p>
+ * Auras are effects without an end, one per player wearing a crown. The wearer
+ * list is rebuilt from the crown slot index once per second, and every wearer
+ * gets a fixed slot within the aura interval so hundreds of wearers are spread
+ * evenly over the ticks instead of all spawning at once. Wearers who have not
+ * moved since their last frame can be skipped, and the wearer does not receive
+ * their own aura. The refresh also pauses the aura of every wearer with no other
+ * player in the same world within the widest view band, since nobody would
+ * receive it. While no aura needs the per-tick task, a timer repeats the
+ * refresh once per second and restarts the task when a wearer gets a viewer.
+ */
+public class ParticleEngine {
+    /** Ticks between two spawns of the same effect */
+    private static final int SPAWN_INTERVAL = 2;
+    /** Weight of the newest sample in the average tick cost */
+    private static final double COST_SMOOTHING = 0.05;
+    /** Ticks between two rebuilds of the aura wearer list */
+    private static final int AURA_REFRESH_INTERVAL = 20;
+    /** Squared distance a wearer must move to count as not idle */
+    private static final double IDLE_DISTANCE_SQUARED = 0.05 * 0.05;
+    
+    private final CrownPlugin plugin;
+    private final ConfigManager configManager;
+    private final List<Effect> active = new ArrayList<>();
+    private final ArrayDeque<Effect> pool = new ArrayDeque<>();
+    private final Map<UUID, Effect> auras = new HashMap<>();
+    private final Map<World, List<Effect>> dueByWorld = new IdentityHashMap<>();
+    private final Location scratch = new Location(null, 0, 0, 0);
+    private final SplittableRandom random = new SplittableRandom();
+    private BukkitTask task;
+    private BukkitTask auraWatch;
+    private long tick;
+    private boolean auraEnabled;
+    private int nextAuraSlot;
+    
+    private volatile long lastTickNanos;
+    private volatile double averageTickNanos;
+    private volatile int lastTickPackets;
+    
+    /**
+     * Creates a new ParticleEngine
+     * @param plugin The plugin instance
+     * @param configManager The configuration manager, for the viewer settings
+     */
+    public ParticleEngine(CrownPlugin plugin, ConfigManager configManager) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+    }
+    
+    /**
+     * Starts a leader effect for a player, restarting it if one is already playing
+     * @param player The player to follow
+     * @param settings The settings the effect is played with
+     */
+    public void play(Player player, CrownSettings settings) {
+        Effect effect = null;
+        for (Effect candidate : active) {
+            if (candidate.player.equals(player)) {
+                effect = candidate;
+                break;
+            }
+        }
+        
+        if (effect == null) {
+            while (active.size() >= settings.getParticleMaxEffects()) {
+                release(active.remove(0));
+            }
+            effect = obtain(player);
+            active.add(effect);
+        }
+        effect.settings = settings;
+        effect.program = settings.getParticleProgram();
+        effect.remaining = settings.getParticleDuration();
+        effect.frame = 0;
+        effect.interval = SPAWN_INTERVAL;
+        effect.phase = (int) (tick % SPAWN_INTERVAL);
+        ensureRunning();
+    }
+    
+    /**
+     * Applies the current settings, starting or stopping the auras. Call after
+     * the configuration was (re)loaded.
+     */
+    public void refresh() {
+        CrownSettings settings = configManager.getSettings();
+        auraEnabled = settings.isAuraEnabled() && settings.areParticlesEnabled();
+        if (auraEnabled) {
+            refreshAuras(settings);
+            if (hasVisibleAura()) {
+                ensureRunning();
+            } else if (task == null) {
+                watchAuras();
+            }
+        } else {
+            releaseAuras();
+            stopAuraWatch();
+        }
+    }
+    
+    /**
+     * Stops all effects and the engine task
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        stopAuraWatch();
+        for (Effect effect : active) {
+            release(effect);
+        }
+        active.clear();
+        releaseAuras();
+        auraEnabled = false;
+    }
+    
+    /**
+     * Gets the number of effects that are currently playing
+     * @return The active effect count
+     */
+    public int getActiveEffects() {
+        return active.size();
+    }
+    
+    /**
+     * Gets the number of crown wearers that currently show an aura
+     * @return The aura count
+     */
+    public int getActiveAuras() {
+        return auras.size();
+    }
+    
+    /**
+     * Gets how long the last engine tick took. Safe from any thread.
+     * @return The duration in nanoseconds
+     */
+    public long getLastTickNanos() {
+        return lastTickNanos;
+    }
+    
+    /**
+     * Gets the smoothed duration of recent engine ticks. Safe from any thread.
+     * @return The average duration in nanoseconds, 0 if the engine never ran
+     */
+    public double getAverageTickNanos() {
+        return averageTickNanos;
+    }
+    
+    /**
+     * Gets how many particle packets the last engine tick sent. Safe from any thread.
+     * @return The packet count over all viewers
+     */
+    public int getLastTickPackets() {
+        return lastTickPackets;
+    }
+    
+    /**
+     * Advances every effect by one tick and spawns the ones that are due
+     */
+    private void tick() {
+        long start = System.nanoTime();
+        long now = tick++;
+        CrownSettings view = configManager.getSettings();
+        if (auraEnabled && now % AURA_REFRESH_INTERVAL == 0) {
+            refreshAuras(view);
+        }
+        
+        // Drop finished effects in place, keeping the oldest first
+        int kept = 0;
+        for (int i = 0; i < active.size(); i++) {
+            Effect effect = active.get(i);
+            if (effect.remaining <= 0 || !effect.player.isOnline()) {
+                release(effect);
+                continue;
+            }
+            active.set(kept++, effect);
+            
+            if (now % effect.interval == effect.phase && advance(effect, false)) {
+                dueByWorld.computeIfAbsent(scratch.getWorld(), w -> new ArrayList<>()).add(effect);
+            }
+        }
+        active.subList(kept, active.size()).clear();
+        
+        boolean visibleAura = false;
+        for (Effect aura : auras.values()) {
+            visibleAura |= !aura.paused;
+            if (!aura.paused && now % aura.interval == aura.phase && advance(aura, view.isAuraSkipIdle())) {
+                dueByWorld.computeIfAbsent(scratch.getWorld(), w -> new ArrayList<>()).add(aura);
+            }
+        }
+        
+        TickMonitor monitor = plugin.getTickMonitor();
+        double load = monitor != null ? monitor.getCosmeticScale() : 1.0;
+        // Under heavy load stretch the interval by skipping every other frame
+        boolean skip = load <= 0.0 || (load < 0.5 && (now / SPAWN_INTERVAL) % 2 == 1);
+        int maxPackets = Math.max(1, (int) (view.getParticleMaxPacketsPerViewer() * load));
+        int packets = 0;
+        for (Map.Entry<World, List<Effect>> entry : dueByWorld.entrySet()) {
+            List<Effect> effects = entry.getValue();
+            if (effects.isEmpty() || skip) {
+                effects.clear();
+                continue;
+            }
+            for (Player viewer : entry.getKey().getPlayers()) {
+                viewer.getLocation(scratch);
+                int budget = maxPackets;
+                for (int i = 0; i < effects.size() && budget > 0; i++) {
+                    budget = spawnFor(viewer, effects.get(i), view, load, budget);
+                }
+                packets += maxPackets - budget;
+            }
+            effects.clear();
+        }
+        lastTickPackets = packets;
+        
+        if (active.isEmpty() && !visibleAura) {
+            task.cancel();
+            task = null;
+            dueByWorld.clear();
+            if (auraEnabled) {
+                watchAuras();
+            }
+        }
+        
+        long elapsed = System.nanoTime() - start;
+        lastTickNanos = elapsed;
+        averageTickNanos = averageTickNanos == 0 ? elapsed
+                : averageTickNanos + COST_SMOOTHING * (elapsed - averageTickNanos);
+        plugin.getMetrics().recordParticleTick(elapsed, packets);
+    }
+    
+    private void ensureRunning() {
+        stopAuraWatch();
+        if (task == null) {
+            task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 0L, 1L);
+        }
+    }
+    
+    /**
+     * Starts the once-per-second aura refresh used while the engine task is stopped
+     */
+    private void watchAuras() {
+        if (auraWatch == null) {
+            auraWatch = plugin.getServer().getScheduler().runTaskTimer(plugin, () -> {
+                refreshAuras(configManager.getSettings());
+                if (hasVisibleAura()) {
+                    ensureRunning();
+                }
+            }, AURA_REFRESH_INTERVAL, AURA_REFRESH_INTERVAL);
+        }
+    }
+    
+    private void stopAuraWatch() {
+        if (auraWatch != null) {
+            auraWatch.cancel();
+            auraWatch = null;
+        }
+    }
+    
+    /**
+     * Checks whether any aura currently has a viewer
+     */
+    private boolean hasVisibleAura() {
+        for (Effect aura : auras.values()) {
+            if (!aura.paused) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Rebuilds the aura list from the players currently wearing a crown
+     */
+    private void refreshAuras(CrownSettings settings) {
+        Collection<? extends Player> online = plugin.getServer().getOnlinePlayers();
+        if (online.size() < 2) {
+            // Nobody could see an aura, the wearer never receives their own
+            releaseAuras();
+            return;
+        }
+        
+        Iterator<Effect> iterator = auras.values().iterator();
+        while (iterator.hasNext()) {
+            Effect aura = iterator.next();
+            if (!aura.player.isOnline() || !isWearingCrown(aura.player)) {
+                iterator.remove();
+                release(aura);
+            }
+        }
+        
+        for (Player player : online) {
+            UUID playerUUID = player.getUniqueId();
+            if (!isWearingCrown(player)) {
+                continue;
+            }
+            Effect aura = auras.get(playerUUID);
+            if (aura == null) {
+                aura = obtain(player);
+                aura.aura = true;
+                aura.remaining = Integer.MAX_VALUE;
+                aura.slot = nextAuraSlot++;
+                auras.put(playerUUID, aura);
+            }
+            aura.settings = settings;
+            aura.program = settings.getAuraProgram();
+            aura.interval = settings.getAuraInterval();
+            aura.phase = aura.slot % aura.interval;
+            aura.paused = !hasAuraViewer(player, settings.getParticleViewRangeSquared());
+        }
+    }
+    
+    /**
+     * Checks whether another player in the wearer's world is close enough to receive their aura
+     * @param wearer The player wearing the crown
+     * @param rangeSquared The squared distance of the widest view band
+     * @return true if at least one other player is in range
+     */
+    private boolean hasAuraViewer(Player wearer, double rangeSquared) {
+        wearer.getLocation(scratch);
+        double x = scratch.getX();
+        double y = scratch.getY();
+        double z = scratch.getZ();
+        for (Player viewer : wearer.getWorld().getPlayers()) {
+            if (viewer == wearer) {
+                continue;
+            }
+            viewer.getLocation(scratch);
+            double dx = scratch.getX() - x;
+            double dy = scratch.getY() - y;
+            double dz = scratch.getZ() - z;
+            if (dx * dx + dy * dy + dz * dz <= rangeSquared) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Checks the slot index first, so players without any crown cost one lookup
+     */
+    private boolean isWearingCrown(Player player) {
+        CrownManager crownManager = plugin.getCrownManager();
+        CrownSlotIndex slotIndex = crownManager.getSlotIndex();
+        long slots = slotIndex.getSlots(player.getUniqueId());
+        if ((slots & (1L << CrownSlotIndex.HELMET_SLOT)) != 0L) {
+            return true;
+        }
+        if (slots == 0L) {
+            return false;
+        }
+        
+        // Equipping with a right click moves the crown without an inventory event
+        if (!crownManager.isCrownItem(player.getInventory().getHelmet())) {
+            return false;
+        }
+        slotIndex.reconcile(player);
+        return true;
+    }
+    
+    private void releaseAuras() {
+        for (Effect aura : auras.values()) {
+            release(aura);
+        }
+        auras.clear();
+    }
+    
+    /**
+     * Moves an effect to its next frame at the player's current position
+     * @param skipIdle Whether to skip the frame if the player has not moved since the last one
+     * @return true if the effect has a frame to send
+     */
+    private boolean advance(Effect effect, boolean skipIdle) {
+        effect.player.getLocation(scratch);
+        double x = scratch.getX();
+        double y = scratch.getY();
+        double z = scratch.getZ();
+        if (skipIdle) {
+            double dx = x - effect.lastX;
+            double dy = y - effect.lastY;
+            double dz = z - effect.lastZ;
+            if (dx * dx + dy * dy + dz * dz < IDLE_DISTANCE_SQUARED) {
+                return false;
+            }
+        }
+        effect.lastX = x;
+        effect.lastY = y;
+        effect.lastZ = z;
+        
+        effect.remaining--;
+        effect.current = effect.program.getFrame(effect.frame++);
+        effect.x = x;
+        effect.y = y;
+        effect.z = z;
+        
+        // Jitter once per frame so every viewer sees the particles in the same place
+        ParticleProgram.Frame frame = effect.current;
+        if (frame.hasJitter()) {
+            effect.x += (random.nextDouble() - 0.5) * frame.getJitterX();
+            effect.y += (random.nextDouble() - 0.5) * frame.getJitterY();
+            effect.z += (random.nextDouble() - 0.5) * frame.getJitterZ();
+        }
+        return true;
+    }
+    
+    /**
+     * Sends the current frame of an effect to one viewer, whose position is in the scratch location
+     * @return The packet budget the viewer has left
+     */
+    private int spawnFor(Player viewer, Effect effect, CrownSettings view, double load, int budget) {
+        double dx = effect.x - scratch.getX();
+        double dy = effect.y - scratch.getY();
+        double dz = effect.z - scratch.getZ();
+        double scale = view.getParticleViewScale(dx * dx + dy * dy + dz * dz) * load;
+        if (scale <= 0.0 || (effect.aura && viewer == effect.player)
+                || (viewer != effect.player && !viewer.canSee(effect.player))) {
+            return budget;
+        }
+        
+        // Far viewers get fewer particles per point and fewer points
+        CrownSettings settings = effect.settings;
+        ParticleProgram.Frame frame = effect.current;
+        Particle particleType = settings.getParticleType();
+        int count = Math.max(1, (int) Math.ceil(frame.getCount() * scale));
+        int stride = scale >= 1.0 ? 3 : 3 * Math.max(1, (int) Math.round(1.0 / scale));
+        double[] offsets = frame.getOffsets();
+        for (int i = 0; i < offsets.length && budget > 0; i += stride, budget--) {
+            if (particleType == Particle.REDSTONE) {
+                // Handle colored particles
+                viewer.spawnParticle(particleType, effect.x + offsets[i], effect.y + offsets[i + 1],
+                        effect.z + offsets[i + 2], count, frame.getSpreadX(), frame.getSpreadY(),
+                        frame.getSpreadZ(), 1.0, settings.getParticleDustOptions());
+            } else {
+                // Standard particles
+                viewer.spawnParticle(particleType, effect.x + offsets[i], effect.y + offsets[i + 1],
+                        effect.z + offsets[i + 2], count, frame.getSpreadX(), frame.getSpreadY(),
+                        frame.getSpreadZ(), settings.getParticleSpeed());
+            }
+        }
+        return budget;
+    }
+    
+    private Effect obtain(Player player) {
+        Effect effect = pool.isEmpty() ? new Effect() : pool.poll();
+        effect.player = player;
+        effect.frame = 0;
+        effect.lastX = Double.NaN;
+        return effect;
+    }
+    
+    private void release(Effect effect) {
+        effect.player = null;
+        effect.settings = null;
+        effect.program = null;
+        effect.current = null;
+        effect.aura = false;
+        effect.paused = false;
+        pool.push(effect);
+    }
+    
+    /**
+     * State of one playing effect
+     */
+    private static final class Effect {
+        private Player player;
+        private CrownSettings settings;
+        private ParticleProgram program;
+        private ParticleProgram.Frame current;
+        private boolean aura;
+        private boolean paused;
+        private double x;
+        private double y;
+        private double z;
+        private double lastX;
+        private double lastY;
+        private double lastZ;
+        private int remaining;
+        private int interval;
+        private int phase;
+        private int slot;
+        private int frame;
+    }
+}
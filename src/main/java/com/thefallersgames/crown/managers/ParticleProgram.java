@@ -0,0 +1,249 @@
+package com.thefallersgames.crown.managers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * A particle effect compiled from keyframes in {@code particles.programs}.
+ * <p>
+ * Each keyframe describes a shape (burst, ring, spiral or crown) and how many
+ * spawns it lasts. Compiling turns every keyframe into frames holding the point
+ * offsets relative to the player as a flat {@code double[]}, so playing an
+ * effect only adds those offsets to the player position and never allocates.
+ * Shapes spread their points evenly over their frames, which draws them
+ * progressively; a burst repeats for each of its frames. The program loops
+ * until the effect ends.
+ */
+public final class ParticleProgram {
+    private final Frame[] frames;
+    
+    private ParticleProgram(List<Frame> frames) {
+        this.frames = frames.toArray(new Frame[0]);
+    }
+    
+    /**
+     * Compiles a list of keyframes
+     * @param name The program name, for log messages
+     * @param keyframes The keyframes as read from the configuration, may be empty
+     * @param burstCount Default particle count of burst keyframes
+     * @param offsetX Default horizontal spread of burst keyframes
+     * @param offsetY Default height of burst keyframes
+     * @param offsetZ Default horizontal spread of burst keyframes
+     * @param logger Logger for invalid keyframes, which are skipped
+     * @return The compiled program, a single burst if no keyframe is valid
+     */
+    public static ParticleProgram compile(String name, List<Map<?, ?>> keyframes, int burstCount,
+            double offsetX, double offsetY, double offsetZ, Logger logger) {
+        List<Frame> frames = new ArrayList<>();
+        for (Map<?, ?> keyframe : keyframes) {
+            String shape = String.valueOf(keyframe.get("shape")).toLowerCase();
+            int frameCount = Math.max(1, getInt(keyframe, "frames", 1));
+            int points = Math.max(1, getInt(keyframe, "points", 16));
+            double radius = getDouble(keyframe, "radius", 0.5);
+            double y = getDouble(keyframe, "y", offsetY);
+            int count = Math.max(1, getInt(keyframe, "count", 1));
+            double spread = getDouble(keyframe, "spread", 0.0);
+            
+            double[] offsets;
+            switch (shape) {
+                case "burst":
+                    // The classic effect: one randomly placed burst around the head
+                    Frame burst = new Frame(new double[] {0.0, y, 0.0}, getInt(keyframe, "count", burstCount),
+                            offsetX, offsetY, offsetZ, offsetX, 0.5, offsetZ);
+                    for (int i = 0; i < frameCount; i++) {
+                        frames.add(burst);
+                    }
+                    continue;
+                case "ring":
+                    offsets = ring(points, radius, y);
+                    break;
+                case "spiral":
+                    offsets = spiral(points, radius, y, getDouble(keyframe, "y_end", y + 2.0),
+                            getDouble(keyframe, "turns", 2.0));
+                    break;
+                case "crown":
+                    offsets = crown(points, radius, y, Math.max(1, getInt(keyframe, "spikes", 5)),
+                            getDouble(keyframe, "spike_height", 0.3));
+                    break;
+                default:
+                    logger.warning("Unknown particle shape '" + shape + "' in program " + name + ", skipping it");
+                    continue;
+            }
+            
+            for (int i = 0; i < frameCount; i++) {
+                int from = points * i / frameCount;
+                int to = points * (i + 1) / frameCount;
+                double[] slice = new double[(to - from) * 3];
+                System.arraycopy(offsets, from * 3, slice, 0, slice.length);
+                frames.add(new Frame(slice, count, spread, spread, spread, 0.0, 0.0, 0.0));
+            }
+        }
+        
+        if (frames.isEmpty()) {
+            frames.add(new Frame(new double[] {0.0, offsetY, 0.0}, burstCount,
+                    offsetX, offsetY, offsetZ, offsetX, 0.5, offsetZ));
+        }
+        return new ParticleProgram(frames);
+    }
+    
+    /**
+     * Gets the number of frames before the program loops
+     * @return The frame count, at least 1
+     */
+    public int getLength() {
+        return frames.length;
+    }
+    
+    /**
+     * Gets a frame, looping past the end
+     * @param index The number of frames played so far
+     * @return The frame to play next
+     */
+    public Frame getFrame(int index) {
+        return frames[index % frames.length];
+    }
+    
+    private static double[] ring(int points, double radius, double y) {
+        double[] offsets = new double[points * 3];
+        for (int i = 0; i < points; i++) {
+            double angle = 2 * Math.PI * i / points;
+            offsets[i * 3] = radius * Math.cos(angle);
+            offsets[i * 3 + 1] = y;
+            offsets[i * 3 + 2] = radius * Math.sin(angle);
+        }
+        return offsets;
+    }
+    
+    private static double[] spiral(int points, double radius, double y, double yEnd, double turns) {
+        double[] offsets = new double[points * 3];
+        for (int i = 0; i < points; i++) {
+            double progress = points == 1 ? 0.0 : (double) i / (points - 1);
+            double angle = 2 * Math.PI * turns * progress;
+            offsets[i * 3] = radius * Math.cos(angle);
+            offsets[i * 3 + 1] = y + (yEnd - y) * progress;
+            offsets[i * 3 + 2] = radius * Math.sin(angle);
+        }
+        return offsets;
+    }
+    
+    private static double[] crown(int points, double radius, double y, int spikes, double spikeHeight) {
+        // A ring whose height zigzags up to a tip once per spike
+        double[] offsets = ring(points, radius, y);
+        for (int i = 0; i < points; i++) {
+            double position = (double) i * spikes / points;
+            double tooth = position - Math.floor(position);
+            offsets[i * 3 + 1] += spikeHeight * (1.0 - Math.abs(2.0 * tooth - 1.0));
+        }
+        return offsets;
+    }
+    
+    private static int getInt(Map<?, ?> keyframe, String key, int defaultValue) {
+        Object value = keyframe.get(key);
+        return value instanceof Number ? ((Number) value).intValue() : defaultValue;
+    }
+    
+    private static double getDouble(Map<?, ?> keyframe, String key, double defaultValue) {
+        Object value = keyframe.get(key);
+        return value instanceof Number ? ((Number) value).doubleValue() : defaultValue;
+    }
+    
+    /**
+     * The particles spawned in one step of a program
+     */
+    public static final class Frame {
+        private final double[] offsets;
+        private final int count;
+        private final double spreadX;
+        private final double spreadY;
+        private final double spreadZ;
+        private final double jitterX;
+        private final double jitterY;
+        private final double jitterZ;
+        
+        private Frame(double[] offsets, int count, double spreadX, double spreadY, double spreadZ,
+                double jitterX, double jitterY, double jitterZ) {
+            this.offsets = offsets;
+            this.count = count;
+            this.spreadX = spreadX;
+            this.spreadY = spreadY;
+            this.spreadZ = spreadZ;
+            this.jitterX = jitterX;
+            this.jitterY = jitterY;
+            this.jitterZ = jitterZ;
+        }
+        
+        /**
+         * Gets the point offsets relative to the player. Must not be modified.
+         * @return Flat array of x, y, z triples
+         */
+        public double[] getOffsets() {
+            return offsets;
+        }
+        
+        /**
+         * Gets the number of particles spawned at each point
+         * @return The particle count
+         */
+        public int getCount() {
+            return count;
+        }
+        
+        /**
+         * Gets the random spread of the particles around each point on the X axis
+         * @return The spread passed to the client
+         */
+        public double getSpreadX() {
+            return spreadX;
+        }
+        
+        /**
+         * Gets the random spread of the particles around each point on the Y axis
+         * @return The spread passed to the client
+         */
+        public double getSpreadY() {
+            return spreadY;
+        }
+        
+        /**
+         * Gets the random spread of the particles around each point on the Z axis
+         * @return The spread passed to the client
+         */
+        public double getSpreadZ() {
+            return spreadZ;
+        }
+        
+        /**
+         * Checks if the whole frame is moved by a random amount each time it is played
+         * @return true if the frame has jitter
+         */
+        public boolean hasJitter() {
+            return jitterX != 0.0 || jitterY != 0.0 || jitterZ != 0.0;
+        }
+        
+        /**
+         * Gets the width of the random displacement on the X axis
+         * @return The jitter width
+         */
+        public double getJitterX() {
+            return jitterX;
+        }
+        
+        /**
+         * Gets the width of the random displacement on the Y axis
+         * @return The jitter width
+         */
+        public double getJitterY() {
+            return jitterY;
+        }
+        
+        /**
+         * Gets the width of the random displacement on the Z axis
+         * @return The jitter width
+         */
+        public double getJitterZ() {
+            return jitterZ;
+        }
+    }
+}
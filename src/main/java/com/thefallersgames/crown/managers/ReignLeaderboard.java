@@ -0,0 +1,236 @@
+package com.thefallersgames.crown.managers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Keeps the total time each player has held a crown, ordered for a leaderboard.
+ * <p>
+ * Time is added when a reign ends, never by polling. Players without a crown
+ * are ranked by their total; players holding one are ranked by their total
+ * minus the start of their current reign, which orders them by their live
+ * total at any moment without updating anything while time passes. The top
+ * of the leaderboard merges the two sets, so it costs as much as the number
+ * of entries asked for, while each start or end of a reign costs O(log n).
+ * <p>
+ * Not thread-safe; used from the main thread only.
+ */
+public class ReignLeaderboard {
+    private static final Comparator<Rank> ORDER = (a, b) -> a.key != b.key
+            ? Long.compare(b.key, a.key)
+            : a.player.compareTo(b.player);
+    
+    private final Map<UUID, Long> totals = new HashMap<>();
+    private final Map<UUID, Long> starts = new HashMap<>();
+    // Players without a crown by total, players with one by total minus reign start
+    private final NavigableSet<Rank> resting = new TreeSet<>(ORDER);
+    private final NavigableSet<Rank> reigning = new TreeSet<>(ORDER);
+    private boolean dirty;
+    
+    /**
+     * A player and their total reign time
+     */
+    public static final class Entry {
+        private final UUID player;
+        private final long millis;
+        private final boolean reigning;
+        
+        private Entry(UUID player, long millis, boolean reigning) {
+            this.player = player;
+            this.millis = millis;
+            this.reigning = reigning;
+        }
+        
+        /**
+         * Gets the player
+         * @return The player UUID
+         */
+        public UUID getPlayer() {
+            return player;
+        }
+        
+        /**
+         * Gets the total time the player has held a crown, including the current reign
+         * @return The time in milliseconds
+         */
+        public long getMillis() {
+            return millis;
+        }
+        
+        /**
+         * Checks if the player holds a crown right now
+         * @return true if the reign is ongoing
+         */
+        public boolean isReigning() {
+            return reigning;
+        }
+    }
+    
+    /**
+     * A position in one of the ordered sets
+     */
+    private static final class Rank {
+        private final UUID player;
+        private final long key;
+        
+        private Rank(UUID player, long key) {
+            this.player = player;
+            this.key = key;
+        }
+    }
+    
+    /**
+     * Replaces all totals, e.g. after loading them from disk. Ongoing reigns are forgotten.
+     * @param saved Map of player UUIDs to total reign time in milliseconds
+     */
+    public void load(Map<UUID, Long> saved) {
+        totals.clear();
+        starts.clear();
+        resting.clear();
+        reigning.clear();
+        for (Map.Entry<UUID, Long> entry : saved.entrySet()) {
+            long total = Math.max(0L, entry.getValue());
+            totals.put(entry.getKey(), total);
+            resting.add(new Rank(entry.getKey(), total));
+        }
+        dirty = false;
+    }
+    
+    /**
+     * Starts the reign of a player, unless it has already started
+     * @param player The player UUID
+     * @param now The current time in milliseconds
+     */
+    public void startReign(UUID player, long now) {
+        if (starts.containsKey(player)) {
+            return;
+        }
+        
+        long total = totals.getOrDefault(player, 0L);
+        resting.remove(new Rank(player, total));
+        starts.put(player, now);
+        reigning.add(new Rank(player, total - now));
+        dirty = true;
+    }
+    
+    /**
+     * Ends the reign of a player and adds its length to their total
+     * @param player The player UUID
+     * @param now The current time in milliseconds
+     */
+    public void endReign(UUID player, long now) {
+        Long start = starts.remove(player);
+        if (start == null) {
+            return;
+        }
+        
+        long total = totals.getOrDefault(player, 0L);
+        reigning.remove(new Rank(player, total - start));
+        total += Math.max(0L, now - start);
+        totals.put(player, total);
+        resting.add(new Rank(player, total));
+        dirty = true;
+    }
+    
+    /**
+     * Ends every ongoing reign and starts one for each of the given players
+     * @param players The players holding a crown now
+     * @param now The current time in milliseconds
+     */
+    public void restartReigns(Collection<UUID> players, long now) {
+        for (UUID player : new ArrayList<>(starts.keySet())) {
+            endReign(player, now);
+        }
+        for (UUID player : players) {
+            startReign(player, now);
+        }
+    }
+    
+    /**
+     * Gets the total time a player has held a crown, including the current reign
+     * @param player The player UUID
+     * @param now The current time in milliseconds
+     * @return The time in milliseconds
+     */
+    public long getReignTime(UUID player, long now) {
+        long total = totals.getOrDefault(player, 0L);
+        Long start = starts.get(player);
+        return start != null ? total + Math.max(0L, now - start) : total;
+    }
+    
+    /**
+     * Checks if a player holds a crown right now
+     * @param player The player UUID
+     * @return true if the reign is ongoing
+     */
+    public boolean isReigning(UUID player) {
+        return starts.containsKey(player);
+    }
+    
+    /**
+     * Gets the players who held a crown the longest
+     * @param count The maximum number of entries
+     * @param now The current time in milliseconds
+     * @return The entries, longest first
+     */
+    public List<Entry> getTop(int count, long now) {
+        List<Entry> top = new ArrayList<>(Math.max(0, Math.min(count, size())));
+        Iterator<Rank> restingRanks = resting.iterator();
+        Iterator<Rank> reigningRanks = reigning.iterator();
+        Rank nextResting = restingRanks.hasNext() ? restingRanks.next() : null;
+        Rank nextReigning = reigningRanks.hasNext() ? reigningRanks.next() : null;
+        
+        while (top.size() < count && (nextResting != null || nextReigning != null)) {
+            long reigningTotal = nextReigning != null ? nextReigning.key + now : 0L;
+            boolean takeReigning = nextResting == null
+                    || (nextReigning != null && ORDER.compare(new Rank(nextReigning.player, reigningTotal), nextResting) < 0);
+            if (takeReigning) {
+                top.add(new Entry(nextReigning.player, reigningTotal, true));
+                nextReigning = reigningRanks.hasNext() ? reigningRanks.next() : null;
+            } else {
+                top.add(new Entry(nextResting.player, nextResting.key, false));
+                nextResting = restingRanks.hasNext() ? restingRanks.next() : null;
+            }
+        }
+        return top;
+    }
+    
+    /**
+     * Copies the totals for saving, counting ongoing reigns up to now, and marks them saved
+     * @param now The current time in milliseconds
+     * @return Map of player UUIDs to total reign time in milliseconds
+     */
+    public Map<UUID, Long> takeSnapshot(long now) {
+        Map<UUID, Long> snapshot = new HashMap<>(totals);
+        for (Map.Entry<UUID, Long> entry : starts.entrySet()) {
+            snapshot.merge(entry.getKey(), Math.max(0L, now - entry.getValue()), Long::sum);
+        }
+        dirty = false;
+        return snapshot;
+    }
+    
+    /**
+     * Checks if the totals changed since the last snapshot. While anyone holds a crown
+     * their time keeps growing, so there is always something to save.
+     * @return true if a save is due
+     */
+    public boolean isDirty() {
+        return dirty || !starts.isEmpty();
+    }
+    
+    /**
+     * Gets the number of players who ever held a crown
+     * @return The number of players
+     */
+    public int size() {
+        return resting.size() + reigning.size();
+    }
+}
@@ -0,0 +1,111 @@
+package com.thefallersgames.crown.managers;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.thefallersgames.crown.CrownPlugin;
+
+/**
+ * Gives crowns back to owners after they respawned.
+ * <p>
+ * Respawned owners wait in a single queue that one repeating task works off,
+ * instead of every respawn scheduling its own delayed task. A player gets the
+ * crown once they are actually alive in the world again, and at most a
+ * configured number of crowns are handed out per tick, so a trap killing
+ * dozens of crown holders at once is spread over a few ticks. The task only
+ * runs while players are waiting. Players that leave before getting their
+ * crown keep their respawn flag and are queued again when they join alive.
+ */
+public class RespawnQueue {
+    private final CrownPlugin plugin;
+    private final CrownManager crownManager;
+    private final ConfigManager configManager;
+    private final Set<UUID> waiting = new LinkedHashSet<>();
+    private BukkitTask task;
+    
+    /**
+     * Creates a new RespawnQueue
+     * @param plugin The plugin instance
+     * @param crownManager The crown manager
+     * @param configManager The configuration manager, for the number of crowns per tick
+     */
+    public RespawnQueue(CrownPlugin plugin, CrownManager crownManager, ConfigManager configManager) {
+        this.plugin = plugin;
+        this.crownManager = crownManager;
+        this.configManager = configManager;
+    }
+    
+    /**
+     * Queues a player to get their crown back once they are alive. Players
+     * without a pending respawn are ignored.
+     * @param player The player who respawned or joined
+     */
+    public void add(Player player) {
+        if (!crownManager.shouldReceiveCrownOnRespawn(player.getUniqueId())) {
+            return;
+        }
+        
+        waiting.add(player.getUniqueId());
+        if (task == null) {
+            task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::run, 1L, 1L);
+        }
+    }
+    
+    /**
+     * Gets the number of players waiting for their crown
+     * @return The queue length
+     */
+    public int size() {
+        return waiting.size();
+    }
+    
+    /**
+     * Stops handing out crowns. Waiting players keep their respawn flag.
+     */
+    public void stop() {
+        waiting.clear();
+        stopTask();
+    }
+    
+    /**
+     * Gives crowns to waiting players that are ready, up to the limit per tick
+     */
+    private void run() {
+        int budget = configManager.getSettings().getRespawnsPerTick();
+        Iterator<UUID> iterator = waiting.iterator();
+        while (iterator.hasNext() && budget > 0) {
+            UUID playerUUID = iterator.next();
+            Player player = plugin.getServer().getPlayer(playerUUID);
+            if (player == null || !crownManager.shouldReceiveCrownOnRespawn(playerUUID)) {
+                // Left the server, or the crown was given or taken away in the meantime
+                iterator.remove();
+                continue;
+            }
+            if (player.isDead() || !player.isValid()) {
+                // The respawn event fires before the player is back in the world
+                continue;
+            }
+            
+            iterator.remove();
+            crownManager.giveCrown(player);
+            crownManager.setCrownRespawnFlag(playerUUID, false);
+            budget--;
+        }
+        
+        if (waiting.isEmpty()) {
+            stopTask();
+        }
+    }
+    
+    private void stopTask() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.thefallersgames.crown.managers;
+
+import java.lang.reflect.Method;
+
+import org.bukkit.scheduler.BukkitTask;
+
+import com.thefallersgames.crown.CrownPlugin;
+
+/**
+ * Tracks server tick health and turns it into a budget for cosmetic work.
+ * <p>
+ * A repeating task samples the tick time once per tick and keeps a moving
+ * average. On servers that report their own average tick time (Paper) that
+ * value is used; elsewhere the time between two runs of the task is used,
+ * which cannot go below the 50 ms tick length and therefore only reacts once
+ * the server is actually behind. The average is mapped to a cosmetic scale
+ * between 1 (do everything) and 0 (do nothing) using the configured soft and
+ * hard limits. The scale drops immediately when the server struggles, but
+ * climbs back gradually so effects fade back in instead of popping.
+ */
+public class TickMonitor {
+    private static final double TICK_MILLIS = 50.0;
+    /** Weight of the newest sample in the average */
+    private static final double SMOOTHING = 0.1;
+    /** How much the cosmetic scale may recover per tick */
+    private static final double RECOVERY_PER_TICK = 0.02;
+    
+    private final CrownPlugin plugin;
+    private final ConfigManager configManager;
+    private final Method averageTickTime;
+    private BukkitTask task;
+    private long lastRunNanos;
+    
+    private volatile double mspt;
+    private volatile double cosmeticScale = 1.0;
+    
+    /**
+     * Creates a new TickMonitor
+     * @param plugin The plugin instance
+     * @param configManager The configuration manager, for the limits
+     */
+    public TickMonitor(CrownPlugin plugin, ConfigManager configManager) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+        this.averageTickTime = findAverageTickTime(plugin);
+    }
+    
+    /**
+     * Starts sampling once per tick
+     */
+    public void start() {
+        if (task == null) {
+            lastRunNanos = 0L;
+            task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::sample, 1L, 1L);
+        }
+    }
+    
+    /**
+     * Stops sampling
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+    
+    /**
+     * Gets the smoothed tick time. Safe from any thread.
+     * @return The average milliseconds per tick
+     */
+    public double getMspt() {
+        return mspt;
+    }
+    
+    /**
+     * Checks if the tick time comes from the server itself rather than from
+     * the time between ticks
+     * @return true if the server reports its tick time
+     */
+    public boolean isPrecise() {
+        return averageTickTime != null;
+    }
+    
+    /**
+     * Gets how much cosmetic work should currently be done. Safe from any thread.
+     * @return 1 on a healthy server, falling towards 0 as the server falls behind
+     */
+    public double getCosmeticScale() {
+        return cosmeticScale;
+    }
+    
+    private void sample() {
+        long now = System.nanoTime();
+        double sample;
+        if (averageTickTime != null) {
+            sample = readAverageTickTime();
+        } else if (lastRunNanos != 0L) {
+            sample = (now - lastRunNanos) / 1_000_000.0;
+        } else {
+            sample = TICK_MILLIS;
+        }
+        lastRunNanos = now;
+        
+        double average = mspt == 0.0 ? sample : mspt + SMOOTHING * (sample - mspt);
+        mspt = average;
+        
+        double target = targetScale(average, configManager.getSettings());
+        double current = cosmeticScale;
+        cosmeticScale = target < current ? target : Math.min(target, current + RECOVERY_PER_TICK);
+    }
+    
+    private double targetScale(double average, CrownSettings settings) {
+        double soft = settings.getMsptSoftLimit();
+        double hard = settings.getMsptHardLimit();
+        if (averageTickTime == null) {
+            // The interval never reads below one tick, so only react once ticks run long
+            soft = Math.max(soft, TICK_MILLIS + 1.0);
+            hard = Math.max(hard, soft + 10.0);
+        }
+        if (average <= soft) {
+            return 1.0;
+        }
+        if (average >= hard) {
+            return 0.0;
+        }
+        return 1.0 - (average - soft) / (hard - soft);
+    }
+    
+    private double readAverageTickTime() {
+        try {
+            return ((Number) averageTickTime.invoke(plugin.getServer())).doubleValue();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return TICK_MILLIS;
+        }
+    }
+    
+    private static Method findAverageTickTime(CrownPlugin plugin) {
+        try {
+            return plugin.getServer().getClass().getMethod("getAverageTickTime");
+        } catch (NoSuchMethodException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.thefallersgames.crown.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for the work this plugin does.
+ * <p>
+ * Call sites take a timestamp with {@link #start()} and hand it back when done;
+ * while metrics are disabled the timestamp is a marker and nothing is
+ * recorded, so instrumented code costs a single flag check. All recording is
+ * lock-free and may happen from any thread.
+ */
+public class CrownMetrics {
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+    
+    /**
+     * The instrumented event handlers
+     */
+    public enum Handler {
+        JOIN("join"),
+        QUIT("quit"),
+        DEATH("death"),
+        RESPAWN("respawn"),
+        INVENTORY_CLICK("inventory_click"),
+        PICKUP_ITEM("pickup_item"),
+        INVENTORY_DRAG("inventory_drag"),
+        INVENTORY_MOVE_ITEM("inventory_move_item"),
+        DROP_ITEM("drop_item"),
+        INVENTORY_CLOSE("inventory_close"),
+        HOPPER_PICKUP_ITEM("hopper_pickup_item"),
+        ITEM_SPAWN("item_spawn"),
+        ITEM_DESPAWN("item_despawn"),
+        ENTITIES_LOAD("entities_load");
+        
+        private final String label;
+        
+        Handler(String label) {
+            this.label = label;
+        }
+        
+        /**
+         * Gets the name used in the stats output and as metric label
+         * @return The label
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+    
+    /**
+     * The instrumented crown operations
+     */
+    public enum Operation {
+        GIVE("give"),
+        TRANSFER("transfer"),
+        REMOVE("remove");
+        
+        private final String label;
+        
+        Operation(String label) {
+            this.label = label;
+        }
+        
+        /**
+         * Gets the name used in the stats output and as metric label
+         * @return The label
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+    
+    /**
+     * The instrumented storage operations
+     */
+    public enum StorageOperation {
+        LOAD("load"),
+        SAVE("save"),
+        APPLY("apply"),
+        MIGRATE("migrate");
+        
+        private final String label;
+        
+        StorageOperation(String label) {
+            this.label = label;
+        }
+        
+        /**
+         * Gets the name used in the stats output and as metric label
+         * @return The label
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+    
+    private volatile long startNanos = System.nanoTime();
+    private final LatencyHistogram[] handlerTimes = histograms(Handler.values().length);
+    private final LatencyHistogram[] operationTimes = histograms(Operation.values().length);
+    private final LatencyHistogram[] storageTimes = histograms(StorageOperation.values().length);
+    private final LongAdder[] storageErrors = adders(StorageOperation.values().length);
+    private final LatencyHistogram particleTickTimes = new LatencyHistogram();
+    private final LongAdder particlePackets = new LongAdder();
+    private final LongAdder particleEffects = new LongAdder();
+    private volatile boolean enabled = true;
+    
+    /**
+     * Turns recording on or off
+     * @param enabled true to record
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    /**
+     * Checks if recording is on
+     * @return true if metrics are recorded
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Gets the time since the metrics were created or last reset
+     * @return The elapsed time in nanoseconds
+     */
+    public long getUptimeNanos() {
+        return System.nanoTime() - startNanos;
+    }
+    
+    /**
+     * Clears all histograms and counters and restarts the uptime
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : handlerTimes) {
+            histogram.reset();
+        }
+        for (LatencyHistogram histogram : operationTimes) {
+            histogram.reset();
+        }
+        for (LatencyHistogram histogram : storageTimes) {
+            histogram.reset();
+        }
+        for (LongAdder adder : storageErrors) {
+            adder.reset();
+        }
+        particleTickTimes.reset();
+        particlePackets.reset();
+        particleEffects.reset();
+        startNanos = System.nanoTime();
+    }
+    
+    /**
+     * Takes the start timestamp of a measured piece of work
+     * @return The timestamp to pass to one of the record methods
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : NOT_TIMED;
+    }
+    
+    /**
+     * Records the time spent in an event handler
+     * @param handler The handler
+     * @param start The timestamp from {@link #start()}
+     */
+    public void recordHandler(Handler handler, long start) {
+        if (start != NOT_TIMED) {
+            handlerTimes[handler.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * Records the time spent in a crown operation
+     * @param operation The operation
+     * @param start The timestamp from {@link #start()}
+     */
+    public void recordOperation(Operation operation, long start) {
+        if (start != NOT_TIMED) {
+            operationTimes[operation.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * Records the time spent reading or writing crown data
+     * @param operation The operation
+     * @param start The timestamp from {@link #start()}
+     * @param success false if the operation failed
+     */
+    public void recordStorage(StorageOperation operation, long start, boolean success) {
+        if (start != NOT_TIMED) {
+            storageTimes[operation.ordinal()].record(System.nanoTime() - start);
+            if (!success) {
+                storageErrors[operation.ordinal()].increment();
+            }
+        }
+    }
+    
+    /**
+     * Records one run of the particle engine
+     * @param nanos The time the run took
+     * @param packets The number of particle packets it sent
+     */
+    public void recordParticleTick(long nanos, int packets) {
+        if (enabled) {
+            particleTickTimes.record(nanos);
+            particlePackets.add(packets);
+        }
+    }
+    
+    /**
+     * Counts a started leader particle effect
+     */
+    public void countParticleEffect() {
+        if (enabled) {
+            particleEffects.increment();
+        }
+    }
+    
+    /**
+     * Gets the time spent in an event handler
+     * @param handler The handler
+     * @return The histogram
+     */
+    public LatencyHistogram getHandlerTimes(Handler handler) {
+        return handlerTimes[handler.ordinal()];
+    }
+    
+    /**
+     * Gets the time spent in a crown operation
+     * @param operation The operation
+     * @return The histogram
+     */
+    public LatencyHistogram getOperationTimes(Operation operation) {
+        return operationTimes[operation.ordinal()];
+    }
+    
+    /**
+     * Gets the time spent reading or writing crown data
+     * @param operation The operation
+     * @return The histogram
+     */
+    public LatencyHistogram getStorageTimes(StorageOperation operation) {
+        return storageTimes[operation.ordinal()];
+    }
+    
+    /**
+     * Gets the number of failed storage operations
+     * @param operation The operation
+     * @return The error count
+     */
+    public long getStorageErrors(StorageOperation operation) {
+        return storageErrors[operation.ordinal()].sum();
+    }
+    
+    /**
+     * Gets the time spent in runs of the particle engine
+     * @return The histogram
+     */
+    public LatencyHistogram getParticleTickTimes() {
+        return particleTickTimes;
+    }
+    
+    /**
+     * Gets the number of particle packets sent
+     * @return The packet count
+     */
+    public long getParticlePackets() {
+        return particlePackets.sum();
+    }
+    
+    /**
+     * Gets the number of leader particle effects started
+     * @return The effect count
+     */
+    public long getParticleEffects() {
+        return particleEffects.sum();
+    }
+    
+    /**
+     * Gets the total time spent on the main thread in event handlers and particle effects
+     * @return The time in nanoseconds
+     */
+    public long getMainThreadNanos() {
+        long total = particleTickTimes.getSumNanos();
+        for (LatencyHistogram histogram : handlerTimes) {
+            total += histogram.getSumNanos();
+        }
+        return total;
+    }
+    
+    private static LatencyHistogram[] histograms(int count) {
+        LatencyHistogram[] histograms = new LatencyHistogram[count];
+        for (int i = 0; i < count; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+    
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
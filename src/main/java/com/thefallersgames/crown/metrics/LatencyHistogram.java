@@ -0,0 +1,123 @@
+package com.thefallersgames.crown.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts durations in fixed buckets from one microsecond to a few seconds.
+ * <p>
+ * Every bucket and the running sum are {@link LongAdder}s, which spread
+ * concurrent updates over separate cells instead of contending on one value,
+ * so recording is lock-free and costs a few nanoseconds from any thread.
+ * Reading sums the cells; a read taken while other threads record may be off
+ * by those few samples, which is fine for monitoring.
+ */
+public final class LatencyHistogram {
+    private static final long[] BOUNDS_NANOS = {
+        1_000L, 2_500L, 5_000L, 10_000L, 25_000L, 50_000L, 100_000L, 250_000L, 500_000L,
+        1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L,
+        100_000_000L, 250_000_000L, 500_000_000L, 1_000_000_000L, 2_500_000_000L
+    };
+    
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_NANOS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+    
+    /**
+     * Creates an empty histogram
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+    
+    /**
+     * Gets the upper bounds of the buckets; the last bucket has no upper bound
+     * @return A copy of the bounds in nanoseconds, ascending
+     */
+    public static long[] getBoundsNanos() {
+        return BOUNDS_NANOS.clone();
+    }
+    
+    /**
+     * Records one duration. Safe from any thread.
+     * @param nanos The duration in nanoseconds
+     */
+    public void record(long nanos) {
+        int bucket = 0;
+        // Most samples are short, so a scan from the bottom stops early
+        while (bucket < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        sumNanos.add(nanos);
+    }
+    
+    /**
+     * Removes all samples. Samples recorded concurrently may survive the reset.
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        sumNanos.reset();
+    }
+    
+    /**
+     * Gets the number of samples per bucket
+     * @return One count per bound plus one for longer samples, not cumulative
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+    
+    /**
+     * Gets the number of samples
+     * @return The sample count
+     */
+    public long getCount() {
+        long count = 0L;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+    
+    /**
+     * Gets the total of all samples
+     * @return The sum in nanoseconds
+     */
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+    
+    /**
+     * Gets an upper bound for a percentile
+     * @param counts Bucket counts from {@link #getBucketCounts()}
+     * @param percentile The percentile, between 0 and 1
+     * @return The bound of the bucket holding the percentile in nanoseconds,
+     *         {@link Long#MAX_VALUE} if it lies above the last bound, or 0 without samples
+     */
+    public static long getPercentileBound(long[] counts, double percentile) {
+        long total = 0L;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0L) {
+            return 0L;
+        }
+        
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0L;
+        for (int i = 0; i < BOUNDS_NANOS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return BOUNDS_NANOS[i];
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
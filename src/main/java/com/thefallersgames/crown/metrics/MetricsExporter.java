@@ -0,0 +1,153 @@
+package com.thefallersgames.crown.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.bukkit.scheduler.BukkitTask;
+
+import com.thefallersgames.crown.CrownPlugin;
+import com.thefallersgames.crown.audit.AuditLog;
+import com.thefallersgames.crown.managers.ConfigManager;
+import com.thefallersgames.crown.managers.CrownManager;
+import com.thefallersgames.crown.managers.CrownPresence;
+import com.thefallersgames.crown.managers.CrownSettings;
+import com.thefallersgames.crown.managers.ParticleManager;
+import com.thefallersgames.crown.managers.TickMonitor;
+import com.thefallersgames.crown.storage.AtomicFile;
+import com.thefallersgames.crown.sync.CrownSync;
+
+/**
+ * Periodically writes the plugin metrics to a Prometheus text file.
+ * <p>
+ * The text is built on the main thread, where the gauges can be read safely,
+ * and written off the main thread through {@link AtomicFile}, so the scraper
+ * never sees a half-written file. A write that is still running when the
+ * next one is due causes that one to be skipped.
+ */
+public class MetricsExporter {
+    private final CrownPlugin plugin;
+    private final ConfigManager configManager;
+    private final CrownMetrics metrics;
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private BukkitTask task;
+    private File target;
+    private volatile boolean failureWarned;
+    
+    /**
+     * Creates a new MetricsExporter
+     * @param plugin The plugin instance
+     * @param configManager The configuration manager, for the file and interval
+     * @param metrics The metrics to export
+     */
+    public MetricsExporter(CrownPlugin plugin, ConfigManager configManager, CrownMetrics metrics) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+        this.metrics = metrics;
+    }
+    
+    /**
+     * Applies the current metrics settings, turning recording on or off and
+     * (re)starting the file writer
+     */
+    public void refresh() {
+        stop();
+        CrownSettings settings = configManager.getSettings();
+        metrics.setEnabled(settings.isMetricsEnabled());
+        if (!settings.isMetricsEnabled() || settings.getMetricsFile().isEmpty()) {
+            return;
+        }
+        
+        File file = new File(settings.getMetricsFile());
+        target = file.isAbsolute() ? file : new File(plugin.getDataFolder(), settings.getMetricsFile());
+        failureWarned = false;
+        long intervalTicks = settings.getMetricsInterval() * 20L;
+        task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::export, intervalTicks, intervalTicks);
+    }
+    
+    /**
+     * Stops writing the metrics file
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+    
+    /**
+     * Builds the full metrics text, including the current gauges. Must be called on the main thread.
+     * @return The metrics in the Prometheus text format
+     */
+    public String render() {
+        StringBuilder out = new StringBuilder(16384);
+        PrometheusFormat.appendMetrics(out, metrics);
+        
+        CrownManager crownManager = plugin.getCrownManager();
+        if (crownManager != null) {
+            PrometheusFormat.appendGauge(out, "crown_owners", "Players holding a crown",
+                    crownManager.getCrownOwners().size());
+        }
+        CrownPresence crownPresence = plugin.getCrownPresence();
+        if (crownPresence != null) {
+            PrometheusFormat.appendGauge(out, "crown_inventory_listener_registered",
+                    "1 while the inventory listener is registered", crownPresence.isListening() ? 1 : 0);
+            PrometheusFormat.appendGauge(out, "crown_dropped_crowns", "Dropped crowns in loaded chunks",
+                    crownPresence.getDroppedCrownCount());
+        }
+        ParticleManager particleManager = plugin.getParticleManager();
+        if (particleManager != null) {
+            PrometheusFormat.appendGauge(out, "crown_particle_effects_active", "Leader particle effects running",
+                    particleManager.getEngine().getActiveEffects());
+            PrometheusFormat.appendGauge(out, "crown_particle_auras_active", "Crown auras running",
+                    particleManager.getEngine().getActiveAuras());
+        }
+        TickMonitor tickMonitor = plugin.getTickMonitor();
+        if (tickMonitor != null) {
+            PrometheusFormat.appendGauge(out, "crown_server_mspt", "Average milliseconds per server tick",
+                    tickMonitor.getMspt());
+            PrometheusFormat.appendGauge(out, "crown_cosmetic_scale", "Share of cosmetic work currently allowed",
+                    tickMonitor.getCosmeticScale());
+        }
+        AuditLog auditLog = plugin.getAuditLog();
+        if (auditLog != null) {
+            PrometheusFormat.appendCounter(out, "crown_audit_dropped_records_total", "Audit records dropped because the writer fell behind",
+                    auditLog.getDropped());
+        }
+        CrownSync crownSync = plugin.getCrownSync();
+        if (crownSync != null) {
+            PrometheusFormat.appendCounter(out, "crown_sync_sent_bytes_total", "Bytes of ownership changes sent to other servers",
+                    crownSync.getBytesSent());
+            PrometheusFormat.appendCounter(out, "crown_sync_received_bytes_total", "Bytes of ownership changes received from other servers",
+                    crownSync.getBytesReceived());
+            PrometheusFormat.appendCounter(out, "crown_sync_applied_changes_total", "Ownership changes of other servers applied here",
+                    crownSync.getChangesApplied());
+        }
+        PrometheusFormat.appendGauge(out, "crown_players_online", "Players online",
+                plugin.getServer().getOnlinePlayers().size());
+        return out.toString();
+    }
+    
+    private void export() {
+        if (!writing.compareAndSet(false, true)) {
+            return;
+        }
+        
+        byte[] content = render().getBytes(StandardCharsets.UTF_8);
+        File file = target;
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                AtomicFile.write(file, content);
+                failureWarned = false;
+            } catch (IOException e) {
+                if (!failureWarned) {
+                    failureWarned = true;
+                    plugin.getLogger().warning("Could not write metrics to " + file + ": " + e.getMessage());
+                }
+            } finally {
+                writing.set(false);
+            }
+        });
+    }
+}
@@ -0,0 +1,122 @@
+package com.thefallersgames.crown.metrics;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+/**
+ * Writes {@link CrownMetrics} in the Prometheus text exposition format, as read
+ * by the node exporter textfile collector.
+ * <p>
+ * Latencies become histograms in seconds with cumulative buckets; counts
+ * become counters. The bucket labels are formatted once up front.
+ */
+public final class PrometheusFormat {
+    private static final String[] BUCKET_LABELS = bucketLabels();
+    
+    private PrometheusFormat() {
+    }
+    
+    /**
+     * Appends all histograms and counters of the metrics
+     * @param out The text to append to
+     * @param metrics The metrics to write
+     */
+    public static void appendMetrics(StringBuilder out, CrownMetrics metrics) {
+        header(out, "crown_handler_seconds", "Time spent in event handlers", "histogram");
+        for (CrownMetrics.Handler handler : CrownMetrics.Handler.values()) {
+            appendHistogram(out, "crown_handler_seconds", "handler", handler.getLabel(),
+                    metrics.getHandlerTimes(handler));
+        }
+        
+        header(out, "crown_operation_seconds", "Time spent giving, transferring and removing crowns", "histogram");
+        for (CrownMetrics.Operation operation : CrownMetrics.Operation.values()) {
+            appendHistogram(out, "crown_operation_seconds", "operation", operation.getLabel(),
+                    metrics.getOperationTimes(operation));
+        }
+        
+        header(out, "crown_storage_seconds", "Time spent reading and writing crown data", "histogram");
+        for (CrownMetrics.StorageOperation operation : CrownMetrics.StorageOperation.values()) {
+            appendHistogram(out, "crown_storage_seconds", "operation", operation.getLabel(),
+                    metrics.getStorageTimes(operation));
+        }
+        
+        header(out, "crown_storage_errors_total", "Failed crown data reads and writes", "counter");
+        for (CrownMetrics.StorageOperation operation : CrownMetrics.StorageOperation.values()) {
+            out.append("crown_storage_errors_total{operation=\"").append(operation.getLabel()).append("\"} ")
+                    .append(metrics.getStorageErrors(operation)).append('\n');
+        }
+        
+        header(out, "crown_particle_tick_seconds", "Time spent in runs of the particle engine", "histogram");
+        appendHistogram(out, "crown_particle_tick_seconds", null, null, metrics.getParticleTickTimes());
+        
+        header(out, "crown_particle_packets_total", "Particle packets sent to viewers", "counter");
+        out.append("crown_particle_packets_total ").append(metrics.getParticlePackets()).append('\n');
+        
+        header(out, "crown_particle_effects_total", "Leader particle effects started", "counter");
+        out.append("crown_particle_effects_total ").append(metrics.getParticleEffects()).append('\n');
+    }
+    
+    /**
+     * Appends a single gauge
+     * @param out The text to append to
+     * @param name The metric name
+     * @param help The description of the metric
+     * @param value The current value
+     */
+    public static void appendGauge(StringBuilder out, String name, String help, double value) {
+        header(out, name, help, "gauge");
+        out.append(name).append(' ').append(formatDouble(value)).append('\n');
+    }
+    
+    /**
+     * Appends a single counter. The name should end in {@code _total}.
+     * @param out The text to append to
+     * @param name The metric name
+     * @param help The description of the metric
+     * @param value The count since the server started
+     */
+    public static void appendCounter(StringBuilder out, String name, String help, long value) {
+        header(out, name, help, "counter");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+    
+    private static void appendHistogram(StringBuilder out, String name, String labelName, String labelValue,
+            LatencyHistogram histogram) {
+        String labels = labelName == null ? "" : labelName + "=\"" + labelValue + "\",";
+        long[] counts = histogram.getBucketCounts();
+        long cumulative = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            out.append(name).append("_bucket{").append(labels).append("le=\"").append(BUCKET_LABELS[i])
+                    .append("\"} ").append(cumulative).append('\n');
+        }
+        
+        String suffix = labelName == null ? " " : "{" + labelName + "=\"" + labelValue + "\"} ";
+        out.append(name).append("_sum").append(suffix)
+                .append(formatDouble(histogram.getSumNanos() / 1e9)).append('\n');
+        // Taken from the buckets, so the count always matches the +Inf bucket
+        out.append(name).append("_count").append(suffix).append(cumulative).append('\n');
+    }
+    
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+    
+    private static String formatDouble(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return Double.isNaN(value) ? "NaN" : (value > 0 ? "+Inf" : "-Inf");
+        }
+        return String.format(Locale.ROOT, "%.9f", value);
+    }
+    
+    private static String[] bucketLabels() {
+        long[] bounds = LatencyHistogram.getBoundsNanos();
+        String[] labels = new String[bounds.length + 1];
+        for (int i = 0; i < bounds.length; i++) {
+            labels[i] = BigDecimal.valueOf(bounds[i], 9).stripTrailingZeros().toPlainString();
+        }
+        labels[bounds.length] = "+Inf";
+        return labels;
+    }
+}
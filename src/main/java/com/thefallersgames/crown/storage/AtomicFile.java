@@ -0,0 +1,44 @@
+package com.thefallersgames.crown.storage;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Helper for replacing data files without ever exposing a partially written file
+ */
+public final class AtomicFile {
+    
+    private AtomicFile() {
+    }
+    
+    /**
+     * Writes the content to a temporary file and renames it over the target,
+     * so a crash mid-write never leaves a truncated file behind
+     * @param target The file to replace
+     * @param content The new file content
+     * @throws IOException If writing or renaming fails
+     */
+    public static void write(File target, byte[] content) throws IOException {
+        File parent = target.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+        
+        File tempFile = new File(parent, target.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            out.write(content);
+            out.getFD().sync();
+        }
+        
+        try {
+            Files.move(tempFile.toPath(), target.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+package com.thefallersgames.crown.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Stores crown data in a single {@link CrownDataFile}
+ */
+public class BinaryCrownStore implements CrownStore {
+    private final File file;
+    
+    /**
+     * Creates a binary store
+     * @param file The data file
+     */
+    public BinaryCrownStore(File file) {
+        this.file = file;
+    }
+    
+    @Override
+    public String getName() {
+        return file.getName();
+    }
+    
+    @Override
+    public boolean exists() {
+        return file.exists();
+    }
+    
+    @Override
+    public void load(Map<UUID, UUID> crownOwners, Map<UUID, Boolean> pendingRespawns) throws IOException {
+        try {
+            CrownDataFile.read(file, crownOwners, pendingRespawns);
+        } catch (IOException e) {
+            // Move the broken file aside so the next save does not overwrite it
+            File corrupt = new File(file.getAbsoluteFile().getParentFile(),
+                    file.getName() + ".corrupt-" + System.currentTimeMillis());
+            if (!file.renameTo(corrupt)) {
+                throw new IOException(e.getMessage() + " (could not move the file aside)", e);
+            }
+            throw new IOException(e.getMessage() + " (moved to " + corrupt.getName() + ")", e);
+        }
+    }
+    
+    @Override
+    public void save(Map<UUID, UUID> crownOwners, Map<UUID, Boolean> pendingRespawns) throws IOException {
+        CrownDataFile.write(file, crownOwners, pendingRespawns);
+    }
+}
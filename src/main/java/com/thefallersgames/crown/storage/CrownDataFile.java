@@ -0,0 +1,195 @@
+package com.thefallersgames.crown.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned binary format for the crown ownership state.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ * int    magic "CRWN"
+ * int    format version
+ * int    owner count
+ * int    respawn count
+ * long   sequence number (version 2 only)
+ * owner count   x (16-byte player UUID, 16-byte owner UUID)
+ * respawn count x  16-byte player UUID
+ * int    CRC32 of everything above
+ * </pre>
+ * Only players whose respawn flag is set are stored, since a cleared flag
+ * behaves exactly like a missing entry. The whole file is read with a single
+ * {@link FileChannel} read and decoded straight from fixed-width records,
+ * without any string parsing.
+ * <p>
+ * Version 2 adds a sequence number, which the journal uses to tell which log
+ * belongs to a snapshot. Files without one are still written as version 1, so
+ * {@code data.dat} stays readable by older builds.
+ */
+public final class CrownDataFile {
+    public static final int UUID_SIZE = 16;
+    
+    private static final int MAGIC = 0x4352574E; // "CRWN"
+    private static final int FORMAT_VERSION = 1;
+    private static final int SEQUENCE_FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+    private static final int SEQUENCE_SIZE = 8;
+    private static final int CHECKSUM_SIZE = 4;
+    
+    private CrownDataFile() {
+    }
+    
+    /**
+     * Reads a data file into the given maps
+     * @param file The file to read
+     * @param crownOwners Map that receives player UUIDs to crown owner UUIDs
+     * @param pendingRespawns Map that receives player UUIDs with a pending crown respawn
+     * @return The sequence number stored in the file, 0 for a version 1 file
+     * @throws IOException If the file cannot be read or is corrupt
+     */
+    public static long read(File file, Map<UUID, UUID> crownOwners, Map<UUID, Boolean> pendingRespawns) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + CHECKSUM_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid crown data file size " + size + ": " + file);
+            }
+            
+            buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Unexpected end of crown data file: " + file);
+                }
+            }
+            buffer.flip();
+        }
+        
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a crown data file: " + file);
+        }
+        
+        int version = buffer.getInt();
+        if (version != FORMAT_VERSION && version != SEQUENCE_FORMAT_VERSION) {
+            throw new IOException("Unsupported crown data version " + version + " in " + file);
+        }
+        
+        int owners = buffer.getInt();
+        int respawns = buffer.getInt();
+        int headerSize = version == SEQUENCE_FORMAT_VERSION ? HEADER_SIZE + SEQUENCE_SIZE : HEADER_SIZE;
+        long expectedSize = headerSize + (long) owners * UUID_SIZE * 2 + (long) respawns * UUID_SIZE + CHECKSUM_SIZE;
+        if (owners < 0 || respawns < 0 || expectedSize != buffer.limit()) {
+            throw new IOException("Crown data file is truncated or has an invalid header: " + file);
+        }
+        
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.limit() - CHECKSUM_SIZE);
+        if ((int) crc.getValue() != buffer.getInt(buffer.limit() - CHECKSUM_SIZE)) {
+            throw new IOException("Crown data checksum mismatch in " + file);
+        }
+        
+        long sequence = version == SEQUENCE_FORMAT_VERSION ? buffer.getLong() : 0L;
+        for (int i = 0; i < owners; i++) {
+            UUID player = new UUID(buffer.getLong(), buffer.getLong());
+            long ownerMost = buffer.getLong();
+            long ownerLeast = buffer.getLong();
+            
+            // Most entries are self-owned, so reuse the player instance for the owner
+            if (ownerMost == player.getMostSignificantBits() && ownerLeast == player.getLeastSignificantBits()) {
+                crownOwners.put(player, player);
+            } else {
+                crownOwners.put(player, new UUID(ownerMost, ownerLeast));
+            }
+        }
+        
+        for (int i = 0; i < respawns; i++) {
+            pendingRespawns.put(new UUID(buffer.getLong(), buffer.getLong()), Boolean.TRUE);
+        }
+        return sequence;
+    }
+    
+    /**
+     * Encodes the given state into the binary format
+     * @param crownOwners Map of player UUIDs to crown owner UUIDs
+     * @param pendingRespawns Map of player UUIDs to respawn flags
+     * @return The encoded file content
+     */
+    public static byte[] encode(Map<UUID, UUID> crownOwners, Map<UUID, Boolean> pendingRespawns) {
+        return encode(crownOwners, pendingRespawns, -1L);
+    }
+    
+    /**
+     * Encodes the given state into the binary format, with a sequence number
+     * @param crownOwners Map of player UUIDs to crown owner UUIDs
+     * @param pendingRespawns Map of player UUIDs to respawn flags
+     * @param sequence The sequence number, or -1 to write a version 1 file without one
+     * @return The encoded file content
+     */
+    public static byte[] encode(Map<UUID, UUID> crownOwners, Map<UUID, Boolean> pendingRespawns, long sequence) {
+        int respawns = 0;
+        for (Boolean flag : pendingRespawns.values()) {
+            if (flag) {
+                respawns++;
+            }
+        }
+        
+        int headerSize = sequence >= 0 ? HEADER_SIZE + SEQUENCE_SIZE : HEADER_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate(headerSize + crownOwners.size() * UUID_SIZE * 2
+                + respawns * UUID_SIZE + CHECKSUM_SIZE);
+        buffer.putInt(MAGIC).putInt(sequence >= 0 ? SEQUENCE_FORMAT_VERSION : FORMAT_VERSION)
+                .putInt(crownOwners.size()).putInt(respawns);
+        if (sequence >= 0) {
+            buffer.putLong(sequence);
+        }
+        
+        for (Map.Entry<UUID, UUID> entry : crownOwners.entrySet()) {
+            putUUID(buffer, entry.getKey());
+            putUUID(buffer, entry.getValue());
+        }
+        
+        for (Map.Entry<UUID, Boolean> entry : pendingRespawns.entrySet()) {
+            if (entry.getValue()) {
+                putUUID(buffer, entry.getKey());
+            }
+        }
+        
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        return buffer.array();
+    }
+    
+    /**
+     * Encodes the given state and atomically replaces the file with it
+     * @param file The file to write
+     * @param crownOwners Map of player UUIDs to crown owner UUIDs
+     * @param pendingRespawns Map of player UUIDs to respawn flags
+     * @throws IOException If writing fails
+     */
+    public static void write(File file, Map<UUID, UUID> crownOwners, Map<UUID, Boolean> pendingRespawns) throws IOException {
+        AtomicFile.write(file, encode(crownOwners, pendingRespawns));
+    }
+    
+    /**
+     * Encodes the given state with a sequence number and atomically replaces the file with it
+     * @param file The file to write
+     * @param crownOwners Map of player UUIDs to crown owner UUIDs
+     * @param pendingRespawns Map of player UUIDs to respawn flags
+     * @param sequence The sequence number, at least 0
+     * @throws IOException If writing fails
+     */
+    public static void write(File file, Map<UUID, UUID> crownOwners, Map<UUID, Boolean> pendingRespawns,
+            long sequence) throws IOException {
+        AtomicFile.write(file, encode(crownOwners, pendingRespawns, sequence));
+    }
+    
+    private static void putUUID(ByteBuffer buffer, UUID uuid) {
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+    }
+}
\ No newline at end of file
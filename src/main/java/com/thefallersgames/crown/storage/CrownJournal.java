@@ -0,0 +1,446 @@
+package com.thefallersgames.crown.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only ownership journal with snapshot compaction.
+ * <p>
+ * Every mutation is appended to {@code journal.log} as a fixed-size record
+ * protected by a CRC32. Compaction writes the full state to
+ * {@code journal.snapshot} in the {@link CrownDataFile} format and truncates
+ * the log. Loading replays the snapshot
+ * followed by the log tail; a torn record at the end of the log (for example
+ * after a crash mid-append) is detected by its checksum and discarded.
+ * <p>
+ * Each compaction starts a new generation. The snapshot stores its generation
+ * as the {@link CrownDataFile} sequence number and the log stores it in its
+ * header, so a log left over from before the latest snapshot, e.g. after a
+ * crash between writing the snapshot and truncating the log, is not replayed.
+ * <p>
+ * This class has no server dependencies so it can be used by {@link JournalTool}
+ * outside of a running server. Appending, loading and compacting must be confined
+ * to a single thread; {@link #verify()} only reads and may run concurrently.
+ */
+public class CrownJournal {
+    public static final String SNAPSHOT_FILE = "journal.snapshot";
+    public static final String LOG_FILE = "journal.log";
+    
+    /** Record layout: type (1), player (16), value (16), crc32 (4) */
+    public static final int RECORD_SIZE = 37;
+    
+    private static final int LOG_MAGIC = 0x43524A4C; // "CRJL"
+    private static final int FORMAT_VERSION = 2;
+    private static final int LOG_HEADER_SIZE = 16;
+    // Version 1 logs had no generation and are treated as generation 0
+    private static final int LEGACY_FORMAT_VERSION = 1;
+    private static final int LEGACY_LOG_HEADER_SIZE = 8;
+    
+    private final File snapshotFile;
+    private final File logFile;
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32 crc = new CRC32();
+    private FileChannel logChannel;
+    private int logRecords;
+    private long generation;
+    /** Whether the log must be reset before the next append, see {@link #openLog(long, boolean)} */
+    private boolean logStale;
+    private long logValidLength = -1L;
+    
+    /**
+     * Creates a journal stored in the given directory
+     * @param directory The directory holding the snapshot and log files
+     */
+    public CrownJournal(File directory) {
+        this.snapshotFile = new File(directory, SNAPSHOT_FILE);
+        this.logFile = new File(directory, LOG_FILE);
+    }
+    
+    /**
+     * Checks if a journal has been written before
+     * @return true if a snapshot or log file exists
+     */
+    public boolean exists() {
+        return snapshotFile.exists() || logFile.exists();
+    }
+    
+    /**
+     * Gets the number of records in the log since the last compaction
+     * @return The log record count
+     */
+    public int getLogRecordCount() {
+        return logRecords;
+    }
+    
+    /**
+     * Loads the latest snapshot, replays the log tail and opens the log for appending.
+     * A torn or corrupt tail is truncated so new records follow the last valid one.
+     * @return The recovered state
+     * @throws IOException If the snapshot is corrupt or the files cannot be read
+     */
+    public State load() throws IOException {
+        State state = readSnapshot();
+        
+        ScanResult scan = scanLog(state);
+        state.replayedRecords = scan.validRecords;
+        state.skippedRecords = scan.skippedRecords;
+        state.discardedBytes = scan.discardedBytes;
+        
+        generation = state.generation;
+        logStale = scan.stale;
+        logValidLength = scan.validLength;
+        openLog(scan.validLength, scan.stale);
+        logRecords = scan.validRecords;
+        return state;
+    }
+    
+    /**
+     * Checks the snapshot and log without modifying either
+     * @return The state that would be recovered, including replay statistics
+     * @throws IOException If the snapshot is corrupt or the files cannot be read
+     */
+    public State verify() throws IOException {
+        State state = readSnapshot();
+        ScanResult scan = scanLog(state);
+        state.replayedRecords = scan.validRecords;
+        state.skippedRecords = scan.skippedRecords;
+        state.discardedBytes = scan.discardedBytes;
+        return state;
+    }
+    
+    /**
+     * Appends a batch of mutations to the log
+     * @param mutations The mutations to append, in order
+     * @param sync Whether to force the appended records to disk before returning
+     * @throws IOException If writing fails
+     */
+    public void append(List<CrownMutation> mutations, boolean sync) throws IOException {
+        if (logChannel == null) {
+            openLog(logValidLength, logStale);
+        }
+        
+        ByteBuffer batch = ByteBuffer.allocate(mutations.size() * RECORD_SIZE);
+        for (CrownMutation mutation : mutations) {
+            encode(mutation);
+            batch.put(recordBuffer);
+        }
+        batch.flip();
+        
+        while (batch.hasRemaining()) {
+            logChannel.write(batch);
+        }
+        if (sync) {
+            logChannel.force(false);
+        }
+        logRecords += mutations.size();
+    }
+    
+    /**
+     * Compacts the journal: writes the full state as the new snapshot and truncates the log
+     * @param crownOwners Map of player UUIDs to crown owner UUIDs
+     * @param pendingRespawns Map of player UUIDs to respawn flags
+     * @throws IOException If writing fails
+     */
+    public void compact(Map<UUID, UUID> crownOwners, Map<UUID, Boolean> pendingRespawns) throws IOException {
+        long next = generation + 1;
+        CrownDataFile.write(snapshotFile, crownOwners, pendingRespawns, next);
+        
+        // Everything in the log is now part of the snapshot. Until the log is reset it
+        // still carries the previous generation, so a crash in between skips it on load.
+        // The same holds if the reset fails, so nothing is appended until it succeeds.
+        generation = next;
+        logStale = true;
+        close();
+        openLog(-1L, true);
+        logRecords = 0;
+    }
+    
+    /**
+     * Closes the log file
+     */
+    public void close() {
+        if (logChannel != null) {
+            try {
+                logChannel.close();
+            } catch (IOException ignored) {
+                // Nothing left to flush, appends are written straight to the channel
+            }
+            logChannel = null;
+        }
+    }
+    
+    /**
+     * Opens the log for appending
+     * @param validLength The length of the valid part of the log, or -1 to keep all of it
+     * @param reset Whether to drop all records and start the log of the current generation
+     * @throws IOException If the log cannot be opened
+     */
+    private void openLog(long validLength, boolean reset) throws IOException {
+        File parent = logFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+        
+        logChannel = FileChannel.open(logFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (reset || logChannel.size() < LOG_HEADER_SIZE) {
+                resetLog();
+                return;
+            }
+            if (validLength < 0) {
+                validLength = logChannel.size();
+            }
+            
+            if (logChannel.size() > validLength) {
+                logChannel.truncate(validLength);
+            }
+            logChannel.position(validLength);
+            logValidLength = -1L;
+        } catch (IOException e) {
+            // Opened again on the next append, so records never follow a bad header or tail
+            close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Drops all records and writes the header of the current generation
+     * @throws IOException If writing fails
+     */
+    private void resetLog() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+        header.putInt(LOG_MAGIC).putInt(FORMAT_VERSION).putLong(generation).flip();
+        logChannel.truncate(0);
+        while (header.hasRemaining()) {
+            logChannel.write(header, header.position());
+        }
+        logChannel.force(true);
+        logChannel.position(LOG_HEADER_SIZE);
+        logStale = false;
+        logValidLength = -1L;
+    }
+    
+    private State readSnapshot() throws IOException {
+        State state = new State();
+        if (snapshotFile.exists()) {
+            state.generation = CrownDataFile.read(snapshotFile, state.crownOwners, state.pendingRespawns);
+            state.snapshotEntries = state.crownOwners.size() + state.pendingRespawns.size();
+        }
+        return state;
+    }
+    
+    private ScanResult scanLog(State state) throws IOException {
+        ScanResult result = new ScanResult();
+        result.validLength = LOG_HEADER_SIZE;
+        if (!logFile.exists()) {
+            return result;
+        }
+        
+        try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < LEGACY_LOG_HEADER_SIZE) {
+                result.discardedBytes = size;
+                return result;
+            }
+            
+            ByteBuffer header = ByteBuffer.allocate(LEGACY_LOG_HEADER_SIZE);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != LOG_MAGIC) {
+                throw new IOException("Not a crown journal log: " + logFile);
+            }
+            int version = header.getInt();
+            long headerSize;
+            long logGeneration;
+            if (version == FORMAT_VERSION) {
+                if (size < LOG_HEADER_SIZE) {
+                    result.discardedBytes = size;
+                    return result;
+                }
+                ByteBuffer generationBuffer = ByteBuffer.allocate(LOG_HEADER_SIZE - LEGACY_LOG_HEADER_SIZE);
+                readFully(channel, generationBuffer, LEGACY_LOG_HEADER_SIZE);
+                generationBuffer.flip();
+                headerSize = LOG_HEADER_SIZE;
+                logGeneration = generationBuffer.getLong();
+            } else if (version == LEGACY_FORMAT_VERSION) {
+                headerSize = LEGACY_LOG_HEADER_SIZE;
+                logGeneration = 0L;
+            } else {
+                throw new IOException("Unsupported journal version " + version + " in " + logFile);
+            }
+            
+            if (logGeneration < state.generation) {
+                // Written before the snapshot, which already contains all of it
+                result.stale = true;
+                result.skippedRecords = (int) ((size - headerSize) / RECORD_SIZE);
+                return result;
+            }
+            
+            // Scanning may run concurrently with appends, so it uses its own buffers
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            CRC32 scanCrc = new CRC32();
+            long position = headerSize;
+            while (position + RECORD_SIZE <= size) {
+                record.clear();
+                readFully(channel, record, position);
+                record.flip();
+                
+                CrownMutation mutation = decode(record, scanCrc);
+                if (mutation == null) {
+                    break;
+                }
+                mutation.applyTo(state.crownOwners, state.pendingRespawns);
+                result.validRecords++;
+                position += RECORD_SIZE;
+            }
+            
+            result.validLength = position;
+            result.discardedBytes = size - position;
+        }
+        return result;
+    }
+    
+    private void encode(CrownMutation mutation) {
+        recordBuffer.clear();
+        recordBuffer.put(mutation.getType().getCode());
+        putUUID(recordBuffer, mutation.getPlayer());
+        
+        switch (mutation.getType()) {
+            case SET_OWNER:
+                putUUID(recordBuffer, mutation.getOwner());
+                break;
+            case SET_RESPAWN:
+                recordBuffer.putLong(mutation.getRespawn() ? 1L : 0L).putLong(0L);
+                break;
+            default:
+                recordBuffer.putLong(0L).putLong(0L);
+                break;
+        }
+        
+        crc.reset();
+        crc.update(recordBuffer.array(), 0, RECORD_SIZE - 4);
+        recordBuffer.putInt((int) crc.getValue());
+        recordBuffer.flip();
+    }
+    
+    private static CrownMutation decode(ByteBuffer record, CRC32 crc) {
+        crc.reset();
+        crc.update(record.array(), 0, RECORD_SIZE - 4);
+        if ((int) crc.getValue() != record.getInt(RECORD_SIZE - 4)) {
+            return null;
+        }
+        
+        CrownMutation.Type type = CrownMutation.Type.fromCode(record.get());
+        if (type == null) {
+            return null;
+        }
+        
+        UUID player = new UUID(record.getLong(), record.getLong());
+        long valueMost = record.getLong();
+        long valueLeast = record.getLong();
+        
+        switch (type) {
+            case SET_OWNER:
+                return CrownMutation.setOwner(player, new UUID(valueMost, valueLeast));
+            case REMOVE_OWNER:
+                return CrownMutation.removeOwner(player);
+            case SET_RESPAWN:
+                return CrownMutation.setRespawn(player, valueMost != 0L);
+            default:
+                return CrownMutation.removeRespawn(player);
+        }
+    }
+    
+    private static void putUUID(ByteBuffer buffer, UUID uuid) {
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+    }
+    
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of journal");
+            }
+        }
+    }
+    
+    /**
+     * Crown state recovered from the journal
+     */
+    public static final class State {
+        private final Map<UUID, UUID> crownOwners = new HashMap<>();
+        private final Map<UUID, Boolean> pendingRespawns = new HashMap<>();
+        private long generation;
+        private int snapshotEntries;
+        private int replayedRecords;
+        private int skippedRecords;
+        private long discardedBytes;
+        
+        /**
+         * Gets the recovered crown owners
+         * @return Map of player UUIDs to crown owner UUIDs
+         */
+        public Map<UUID, UUID> getCrownOwners() {
+            return crownOwners;
+        }
+        
+        /**
+         * Gets the recovered pending respawns
+         * @return Map of player UUIDs to respawn flags
+         */
+        public Map<UUID, Boolean> getPendingRespawns() {
+            return pendingRespawns;
+        }
+        
+        /**
+         * Gets the number of entries read from the snapshot
+         * @return The snapshot entry count
+         */
+        public int getSnapshotEntries() {
+            return snapshotEntries;
+        }
+        
+        /**
+         * Gets the number of log records replayed on top of the snapshot
+         * @return The replayed record count
+         */
+        public int getReplayedRecords() {
+            return replayedRecords;
+        }
+        
+        /**
+         * Gets the number of log records that were skipped because they were
+         * written before the snapshot and are already part of it
+         * @return The skipped record count
+         */
+        public int getSkippedRecords() {
+            return skippedRecords;
+        }
+        
+        /**
+         * Gets the number of bytes at the end of the log that were torn or corrupt
+         * @return The discarded byte count
+         */
+        public long getDiscardedBytes() {
+            return discardedBytes;
+        }
+    }
+    
+    private static final class ScanResult {
+        private long validLength;
+        private int validRecords;
+        private int skippedRecords;
+        private long discardedBytes;
+        private boolean stale;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,157 @@
+package com.thefallersgames.crown.storage;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A single change to the crown ownership state.
+ * <p>
+ * Mutations are idempotent, so replaying one that is already contained in a
+ * snapshot leaves the state unchanged.
+ */
+public final class CrownMutation {
+    
+    /**
+     * The kind of change a mutation describes
+     */
+    public enum Type {
+        SET_OWNER(1),
+        REMOVE_OWNER(2),
+        SET_RESPAWN(3),
+        REMOVE_RESPAWN(4);
+        
+        private final byte code;
+        
+        Type(int code) {
+            this.code = (byte) code;
+        }
+        
+        /**
+         * Gets the code used for this type in binary records
+         * @return The type code
+         */
+        public byte getCode() {
+            return code;
+        }
+        
+        /**
+         * Looks up a type by its binary code
+         * @param code The type code
+         * @return The type, or null if the code is unknown
+         */
+        public static Type fromCode(byte code) {
+            for (Type type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+    
+    private final Type type;
+    private final UUID player;
+    private final UUID owner;
+    private final boolean respawn;
+    
+    private CrownMutation(Type type, UUID player, UUID owner, boolean respawn) {
+        this.type = type;
+        this.player = player;
+        this.owner = owner;
+        this.respawn = respawn;
+    }
+    
+    /**
+     * Creates a mutation that sets the crown owner of a player
+     * @param player The player UUID
+     * @param owner The crown owner UUID
+     * @return The mutation
+     */
+    public static CrownMutation setOwner(UUID player, UUID owner) {
+        return new CrownMutation(Type.SET_OWNER, player, owner, false);
+    }
+    
+    /**
+     * Creates a mutation that removes a player from the crown owners
+     * @param player The player UUID
+     * @return The mutation
+     */
+    public static CrownMutation removeOwner(UUID player) {
+        return new CrownMutation(Type.REMOVE_OWNER, player, null, false);
+    }
+    
+    /**
+     * Creates a mutation that sets the respawn flag of a player
+     * @param player The player UUID
+     * @param respawn Whether the player should receive a crown on respawn
+     * @return The mutation
+     */
+    public static CrownMutation setRespawn(UUID player, boolean respawn) {
+        return new CrownMutation(Type.SET_RESPAWN, player, null, respawn);
+    }
+    
+    /**
+     * Creates a mutation that clears the respawn entry of a player
+     * @param player The player UUID
+     * @return The mutation
+     */
+    public static CrownMutation removeRespawn(UUID player) {
+        return new CrownMutation(Type.REMOVE_RESPAWN, player, null, false);
+    }
+    
+    /**
+     * Applies this mutation to the given state
+     * @param crownOwners Map of player UUIDs to crown owner UUIDs
+     * @param pendingRespawns Map of player UUIDs to respawn flags
+     */
+    public void applyTo(Map<UUID, UUID> crownOwners, Map<UUID, Boolean> pendingRespawns) {
+        switch (type) {
+            case SET_OWNER:
+                crownOwners.put(player, owner);
+                break;
+            case REMOVE_OWNER:
+                crownOwners.remove(player);
+                break;
+            case SET_RESPAWN:
+                pendingRespawns.put(player, respawn);
+                break;
+            case REMOVE_RESPAWN:
+                pendingRespawns.remove(player);
+                break;
+            default:
+                break;
+        }
+    }
+    
+    /**
+     * Gets the kind of change
+     * @return The mutation type
+     */
+    public Type getType() {
+        return type;
+    }
+    
+    /**
+     * Gets the player this mutation applies to
+     * @return The player UUID
+     */
+    public UUID getPlayer() {
+        return player;
+    }
+    
+    /**
+     * Gets the crown owner for {@link Type#SET_OWNER} mutations
+     * @return The owner UUID, or null for other types
+     */
+    public UUID getOwner() {
+        return owner;
+    }
+    
+    /**
+     * Gets the respawn flag for {@link Type#SET_RESPAWN} mutations
+     * @return The respawn flag
+     */
+    public boolean getRespawn() {
+        return respawn;
+    }
+}
\ No newline at end of file
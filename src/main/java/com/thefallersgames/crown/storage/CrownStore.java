@@ -0,0 +1,104 @@
+package com.thefallersgames.crown.storage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Persistence contract for crown ownership data.
+ * <p>
+ * Implementations are driven by the {@link com.thefallersgames.crown.managers.DataManager}
+ * flusher thread and are never called from more than one thread at a time,
+ * except for {@link #lookupOwner(UUID)} which must be safe to call concurrently.
+ * If {@link #load(Map, Map)} finds unreadable data, implementations move it aside
+ * before failing so that a later save never overwrites it.
+ */
+public interface CrownStore {
+    
+    /**
+     * Gets a short name for log messages
+     * @return The store name
+     */
+    String getName();
+    
+    /**
+     * Checks if this store already holds data
+     * @return true if data has been written to this store before
+     */
+    boolean exists();
+    
+    /**
+     * Loads the complete state
+     * @param crownOwners Map that receives player UUIDs to crown owner UUIDs
+     * @param pendingRespawns Map that receives player UUIDs to respawn flags
+     * @throws IOException If the data cannot be read
+     */
+    void load(Map<UUID, UUID> crownOwners, Map<UUID, Boolean> pendingRespawns) throws IOException;
+    
+    /**
+     * Replaces the stored state with the given one
+     * @param crownOwners Map of player UUIDs to crown owner UUIDs
+     * @param pendingRespawns Map of player UUIDs to respawn flags
+     * @throws IOException If the data cannot be written
+     */
+    void save(Map<UUID, UUID> crownOwners, Map<UUID, Boolean> pendingRespawns) throws IOException;
+    
+    /**
+     * Checks if this store has an index for {@link #lookupOwner(UUID)}
+     * @return true if single-player lookups are supported
+     */
+    default boolean supportsLookup() {
+        return false;
+    }
+    
+    /**
+     * Looks up the crown owner of a single player without loading the whole state,
+     * on the store's own I/O thread. Only called if {@link #supportsLookup()} is true.
+     * @param player The player UUID
+     * @return A future completed with the crown owner UUID, or null if the player holds no crown
+     */
+    default CompletableFuture<UUID> lookupOwner(UUID player) {
+        throw new UnsupportedOperationException(getName() + " does not support single-player lookups");
+    }
+    
+    /**
+     * Checks if this store can persist individual mutations through {@link #apply(List)}
+     * @return true if incremental writes are supported
+     */
+    default boolean isIncremental() {
+        return false;
+    }
+    
+    /**
+     * Persists a batch of mutations, in order. Only called if {@link #isIncremental()} is true.
+     * @param mutations The mutations to persist
+     * @throws IOException If the data cannot be written
+     */
+    default void apply(List<CrownMutation> mutations) throws IOException {
+        throw new UnsupportedOperationException(getName() + " does not support incremental writes");
+    }
+    
+    /**
+     * Checks if an incremental store wants a full {@link #save(Map, Map)} to compact itself
+     * @param appliedSinceSave The number of mutations applied since the last full save
+     * @return true if a full save should be scheduled
+     */
+    default boolean needsCompaction(int appliedSinceSave) {
+        return false;
+    }
+    
+    /**
+     * Called after the contents of this store were migrated into another store
+     * @throws IOException If the old data cannot be archived
+     */
+    default void markMigrated() throws IOException {
+    }
+    
+    /**
+     * Releases any open files or connections
+     */
+    default void close() {
+    }
+}
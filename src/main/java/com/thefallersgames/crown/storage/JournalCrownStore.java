@@ -0,0 +1,103 @@
+package com.thefallersgames.crown.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Incremental store backed by a {@link CrownJournal}: mutations are appended to
+ * the log and full saves compact the log into a new snapshot
+ */
+public class JournalCrownStore implements CrownStore {
+    private final File directory;
+    private final CrownJournal journal;
+    private final Logger logger;
+    private final int compactAfter;
+    private final boolean sync;
+    
+    /**
+     * Creates a journal store
+     * @param directory The directory holding the journal files
+     * @param logger Logger for recovery statistics
+     * @param compactAfter Number of appended mutations after which a compaction is requested
+     * @param sync Whether appended records are forced to disk
+     */
+    public JournalCrownStore(File directory, Logger logger, int compactAfter, boolean sync) {
+        this.directory = directory;
+        this.journal = new CrownJournal(directory);
+        this.logger = logger;
+        this.compactAfter = compactAfter;
+        this.sync = sync;
+    }
+    
+    @Override
+    public String getName() {
+        return "journal";
+    }
+    
+    @Override
+    public boolean exists() {
+        return journal.exists();
+    }
+    
+    @Override
+    public void load(Map<UUID, UUID> crownOwners, Map<UUID, Boolean> pendingRespawns) throws IOException {
+        CrownJournal.State state;
+        try {
+            state = journal.load();
+        } catch (IOException e) {
+            journal.close();
+            // Keep the broken files for offline inspection with JournalTool
+            long now = System.currentTimeMillis();
+            moveAside(new File(directory, CrownJournal.SNAPSHOT_FILE), now);
+            moveAside(new File(directory, CrownJournal.LOG_FILE), now);
+            throw e;
+        }
+        
+        logger.info("Replayed " + state.getReplayedRecords() + " journal records on top of "
+                + state.getSnapshotEntries() + " snapshot entries");
+        if (state.getSkippedRecords() > 0) {
+            logger.info("Skipped " + state.getSkippedRecords() + " journal records that were already in the snapshot");
+        }
+        if (state.getDiscardedBytes() > 0) {
+            logger.warning("Discarded " + state.getDiscardedBytes() + " bytes of torn or corrupt journal tail");
+        }
+        
+        crownOwners.putAll(state.getCrownOwners());
+        pendingRespawns.putAll(state.getPendingRespawns());
+    }
+    
+    @Override
+    public void save(Map<UUID, UUID> crownOwners, Map<UUID, Boolean> pendingRespawns) throws IOException {
+        journal.compact(crownOwners, pendingRespawns);
+    }
+    
+    @Override
+    public boolean isIncremental() {
+        return true;
+    }
+    
+    @Override
+    public void apply(List<CrownMutation> mutations) throws IOException {
+        journal.append(mutations, sync);
+    }
+    
+    @Override
+    public boolean needsCompaction(int appliedSinceSave) {
+        return appliedSinceSave >= compactAfter;
+    }
+    
+    @Override
+    public void close() {
+        journal.close();
+    }
+    
+    private static void moveAside(File file, long timestamp) {
+        if (file.exists()) {
+            file.renameTo(new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".corrupt-" + timestamp));
+        }
+    }
+}
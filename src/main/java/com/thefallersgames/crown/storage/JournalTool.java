@@ -0,0 +1,81 @@
+package com.thefallersgames.crown.storage;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Offline maintenance tool for the crown journal.
+ * <p>
+ * Run with the server stopped:
+ * <pre>
+ * java -cp Crown.jar com.thefallersgames.crown.storage.JournalTool verify plugins/Crown
+ * java -cp Crown.jar com.thefallersgames.crown.storage.JournalTool compact plugins/Crown
+ * </pre>
+ */
+public final class JournalTool {
+    
+    private JournalTool() {
+    }
+    
+    public static void main(String[] args) {
+        if (args.length != 2 || !(args[0].equals("verify") || args[0].equals("compact"))) {
+            System.err.println("Usage: JournalTool <verify|compact> <plugin data folder>");
+            System.exit(2);
+            return;
+        }
+        
+        File directory = new File(args[1]);
+        CrownJournal journal = new CrownJournal(directory);
+        if (!journal.exists()) {
+            System.err.println("No journal found in " + directory.getAbsolutePath());
+            System.exit(1);
+            return;
+        }
+        
+        try {
+            if (args[0].equals("verify")) {
+                verify(journal);
+            } else {
+                compact(journal);
+            }
+        } catch (IOException e) {
+            System.err.println("Journal check failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    private static void verify(CrownJournal journal) throws IOException {
+        CrownJournal.State state = journal.verify();
+        System.out.println("Snapshot entries: " + state.getSnapshotEntries());
+        System.out.println("Log records:      " + state.getReplayedRecords());
+        if (state.getSkippedRecords() > 0) {
+            System.out.println("Stale records:    " + state.getSkippedRecords()
+                    + " (written before the snapshot, dropped on next load)");
+        }
+        System.out.println("Crown owners:     " + state.getCrownOwners().size());
+        System.out.println("Pending respawns: " + state.getPendingRespawns().size());
+        
+        if (state.getDiscardedBytes() > 0) {
+            System.out.println("Torn or corrupt tail: " + state.getDiscardedBytes()
+                    + " bytes would be discarded on next load");
+            System.exit(1);
+        }
+        System.out.println("Journal OK");
+    }
+    
+    private static void compact(CrownJournal journal) throws IOException {
+        CrownJournal.State state = journal.load();
+        try {
+            journal.compact(state.getCrownOwners(), state.getPendingRespawns());
+        } finally {
+            journal.close();
+        }
+        System.out.println("Compacted " + state.getSnapshotEntries() + " snapshot entries and "
+                + state.getReplayedRecords() + " log records into a new snapshot ("
+                + state.getCrownOwners().size() + " owners, "
+                + state.getPendingRespawns().size() + " pending respawns)");
+        if (state.getDiscardedBytes() > 0) {
+            System.out.println("Discarded " + state.getDiscardedBytes() + " bytes of torn or corrupt tail");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,149 @@
+package com.thefallersgames.crown.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned binary format for known player names and crown operations waiting
+ * for players to join.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ * int    magic "CRWP"
+ * int    format version
+ * int    name count
+ * int    pending count
+ * name count    x (16-byte player UUID, unsigned short length, UTF-8 name)
+ * pending count x (16-byte player UUID, byte 1 = give, 0 = remove)
+ * int    CRC32 of everything above
+ * </pre>
+ * Kept apart from the crown data, so it works the same with every storage backend.
+ */
+public final class PlayerDataFile {
+    private static final int MAGIC = 0x43525750; // "CRWP"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int CHECKSUM_SIZE = 4;
+    
+    private PlayerDataFile() {
+    }
+    
+    /**
+     * Reads a player data file into the given maps
+     * @param file The file to read
+     * @param names Map that receives player UUIDs to their last known names
+     * @param pending Map that receives player UUIDs to pending operations, true to give a crown and false to remove it
+     * @throws IOException If the file cannot be read or is corrupt
+     */
+    public static void read(File file, Map<UUID, String> names, Map<UUID, Boolean> pending) throws IOException {
+        byte[] content = Files.readAllBytes(file.toPath());
+        if (content.length < HEADER_SIZE + CHECKSUM_SIZE) {
+            throw new IOException("Invalid player data file size " + content.length + ": " + file);
+        }
+        
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a player data file: " + file);
+        }
+        int version = buffer.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported player data version " + version + " in " + file);
+        }
+        
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length - CHECKSUM_SIZE);
+        if ((int) crc.getValue() != buffer.getInt(content.length - CHECKSUM_SIZE)) {
+            throw new IOException("Player data checksum mismatch in " + file);
+        }
+        
+        int nameCount = buffer.getInt();
+        int pendingCount = buffer.getInt();
+        if (nameCount < 0 || pendingCount < 0) {
+            throw new IOException("Player data file has an invalid header: " + file);
+        }
+        
+        try {
+            for (int i = 0; i < nameCount; i++) {
+                UUID player = new UUID(buffer.getLong(), buffer.getLong());
+                int length = buffer.getShort() & 0xFFFF;
+                names.put(player, new String(content, buffer.position(), length, StandardCharsets.UTF_8));
+                buffer.position(buffer.position() + length);
+            }
+            for (int i = 0; i < pendingCount; i++) {
+                UUID player = new UUID(buffer.getLong(), buffer.getLong());
+                pending.put(player, buffer.get() != 0);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Player data file is truncated: " + file, e);
+        }
+        if (buffer.position() != content.length - CHECKSUM_SIZE) {
+            throw new IOException("Player data file has trailing data: " + file);
+        }
+    }
+    
+    /**
+     * Encodes the given names and pending operations into the binary format
+     * @param names Map of player UUIDs to their last known names
+     * @param pending Map of player UUIDs to pending operations, true to give a crown and false to remove it
+     * @return The encoded file content
+     */
+    public static byte[] encode(Map<UUID, String> names, Map<UUID, Boolean> pending) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_SIZE + names.size() * 32 + pending.size() * 17);
+        int nameCount = 0;
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            // Filled in below, since names may be added while they are written
+            out.writeInt(0);
+            out.writeInt(pending.size());
+            
+            for (Map.Entry<UUID, String> entry : names.entrySet()) {
+                byte[] name = entry.getValue().getBytes(StandardCharsets.UTF_8);
+                writeUUID(out, entry.getKey());
+                out.writeShort(name.length);
+                out.write(name);
+                nameCount++;
+            }
+            for (Map.Entry<UUID, Boolean> entry : pending.entrySet()) {
+                writeUUID(out, entry.getKey());
+                out.writeByte(entry.getValue() ? 1 : 0);
+            }
+        } catch (IOException e) {
+            // Cannot happen when writing to memory
+            throw new IllegalStateException(e);
+        }
+        
+        byte[] content = Arrays.copyOf(bytes.toByteArray(), bytes.size() + CHECKSUM_SIZE);
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        buffer.putInt(8, nameCount);
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length - CHECKSUM_SIZE);
+        buffer.putInt(content.length - CHECKSUM_SIZE, (int) crc.getValue());
+        return content;
+    }
+    
+    /**
+     * Encodes the given state and atomically replaces the file with it
+     * @param file The file to write
+     * @param names Map of player UUIDs to their last known names
+     * @param pending Map of player UUIDs to pending operations
+     * @throws IOException If writing fails
+     */
+    public static void write(File file, Map<UUID, String> names, Map<UUID, Boolean> pending) throws IOException {
+        AtomicFile.write(file, encode(names, pending));
+    }
+    
+    private static void writeUUID(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+}
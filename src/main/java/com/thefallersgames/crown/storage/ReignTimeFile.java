@@ -0,0 +1,102 @@
+package com.thefallersgames.crown.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned binary format for the total time each player has held a crown.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ * int    magic "CRWR"
+ * int    format version
+ * int    entry count
+ * entry count x (16-byte player UUID, long milliseconds)
+ * int    CRC32 of everything above
+ * </pre>
+ */
+public final class ReignTimeFile {
+    private static final int MAGIC = 0x43525752; // "CRWR"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int ENTRY_SIZE = 24;
+    private static final int CHECKSUM_SIZE = 4;
+    
+    private ReignTimeFile() {
+    }
+    
+    /**
+     * Reads a reign time file into the given map
+     * @param file The file to read
+     * @param totals Map that receives player UUIDs to their total reign time in milliseconds
+     * @throws IOException If the file cannot be read or is corrupt
+     */
+    public static void read(File file, Map<UUID, Long> totals) throws IOException {
+        byte[] content = Files.readAllBytes(file.toPath());
+        if (content.length < HEADER_SIZE + CHECKSUM_SIZE) {
+            throw new IOException("Invalid reign time file size " + content.length + ": " + file);
+        }
+        
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a reign time file: " + file);
+        }
+        int version = buffer.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported reign time version " + version + " in " + file);
+        }
+        
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length - CHECKSUM_SIZE);
+        if ((int) crc.getValue() != buffer.getInt(content.length - CHECKSUM_SIZE)) {
+            throw new IOException("Reign time checksum mismatch in " + file);
+        }
+        
+        int count = buffer.getInt();
+        if (count < 0 || (long) count * ENTRY_SIZE != content.length - HEADER_SIZE - CHECKSUM_SIZE) {
+            throw new IOException("Reign time file has an invalid entry count: " + file);
+        }
+        for (int i = 0; i < count; i++) {
+            UUID player = new UUID(buffer.getLong(), buffer.getLong());
+            totals.put(player, buffer.getLong());
+        }
+    }
+    
+    /**
+     * Encodes the given reign times into the binary format
+     * @param totals Map of player UUIDs to their total reign time in milliseconds
+     * @return The encoded file content
+     */
+    public static byte[] encode(Map<UUID, Long> totals) {
+        byte[] content = new byte[HEADER_SIZE + totals.size() * ENTRY_SIZE + CHECKSUM_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        buffer.putInt(MAGIC);
+        buffer.putInt(FORMAT_VERSION);
+        buffer.putInt(totals.size());
+        for (Map.Entry<UUID, Long> entry : totals.entrySet()) {
+            buffer.putLong(entry.getKey().getMostSignificantBits());
+            buffer.putLong(entry.getKey().getLeastSignificantBits());
+            buffer.putLong(entry.getValue());
+        }
+        
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length - CHECKSUM_SIZE);
+        buffer.putInt((int) crc.getValue());
+        return content;
+    }
+    
+    /**
+     * Encodes the given reign times and atomically replaces the file with them
+     * @param file The file to write
+     * @param totals Map of player UUIDs to their total reign time in milliseconds
+     * @throws IOException If writing fails
+     */
+    public static void write(File file, Map<UUID, Long> totals) throws IOException {
+        AtomicFile.write(file, encode(totals));
+    }
+}
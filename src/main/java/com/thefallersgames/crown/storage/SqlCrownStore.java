@@ -0,0 +1,392 @@
+package com.thefallersgames.crown.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Incremental store backed by an embedded SQLite database.
+ * <p>
+ * UUIDs are stored as 16-byte blobs with the player UUID as primary key, so
+ * single-player lookups are index seeks. Mutation batches are coalesced per
+ * player and written with batched prepared statements in one transaction. All
+ * JDBC work is confined to a dedicated I/O thread owned by this store.
+ * The SQLite driver is bundled with Spigot, so no extra dependency is needed.
+ */
+public class SqlCrownStore implements CrownStore {
+    private static final String DRIVER = "org.sqlite.JDBC";
+    
+    private final File file;
+    private final int batchSize;
+    private final ExecutorService executor;
+    private Connection connection;
+    
+    /**
+     * Creates an SQLite store
+     * @param file The database file
+     * @param batchSize Number of rows per executed statement batch
+     */
+    public SqlCrownStore(File file, int batchSize) {
+        this.file = file;
+        this.batchSize = Math.max(1, batchSize);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Crown-SQL");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @Override
+    public String getName() {
+        return file.getName();
+    }
+    
+    @Override
+    public boolean exists() {
+        if (!file.exists()) {
+            return false;
+        }
+        try {
+            return call(() -> {
+                try (Statement statement = connection().createStatement();
+                        ResultSet result = statement.executeQuery(
+                                "SELECT EXISTS(SELECT 1 FROM crown_owners) OR EXISTS(SELECT 1 FROM pending_respawns)")) {
+                    return result.next() && result.getBoolean(1);
+                }
+            });
+        } catch (IllegalStateException e) {
+            // An unreadable database still holds data; load reports the error instead
+            return true;
+        }
+    }
+    
+    @Override
+    public void load(Map<UUID, UUID> crownOwners, Map<UUID, Boolean> pendingRespawns) throws IOException {
+        try {
+            loadRows(crownOwners, pendingRespawns);
+        } catch (IOException e) {
+            // Move the database aside so the next save starts a new one instead of overwriting it
+            closeConnection();
+            String suffix = ".corrupt-" + System.currentTimeMillis();
+            File parent = file.getAbsoluteFile().getParentFile();
+            for (String extension : new String[] {"-wal", "-shm"}) {
+                File sidecar = new File(parent, file.getName() + extension);
+                if (sidecar.exists()) {
+                    sidecar.renameTo(new File(parent, file.getName() + suffix + extension));
+                }
+            }
+            File corrupt = new File(parent, file.getName() + suffix);
+            if (!file.renameTo(corrupt)) {
+                throw new IOException(e.getMessage() + " (could not move the database aside)", e);
+            }
+            throw new IOException(e.getMessage() + " (moved to " + corrupt.getName() + ")", e);
+        }
+    }
+    
+    private void loadRows(Map<UUID, UUID> crownOwners, Map<UUID, Boolean> pendingRespawns) throws IOException {
+        callChecked(() -> {
+            try (Statement statement = connection().createStatement()) {
+                try (ResultSet result = statement.executeQuery("SELECT player, owner FROM crown_owners")) {
+                    while (result.next()) {
+                        UUID player = fromBytes(result.getBytes(1));
+                        UUID owner = fromBytes(result.getBytes(2));
+                        crownOwners.put(player, owner.equals(player) ? player : owner);
+                    }
+                }
+                try (ResultSet result = statement.executeQuery("SELECT player FROM pending_respawns")) {
+                    while (result.next()) {
+                        pendingRespawns.put(fromBytes(result.getBytes(1)), Boolean.TRUE);
+                    }
+                }
+            }
+            return null;
+        });
+    }
+    
+    @Override
+    public void save(Map<UUID, UUID> crownOwners, Map<UUID, Boolean> pendingRespawns) throws IOException {
+        callChecked(() -> {
+            Connection db = connection();
+            try (Statement clear = db.createStatement();
+                    PreparedStatement insertOwner = db.prepareStatement(
+                            "INSERT INTO crown_owners (player, owner) VALUES (?, ?)");
+                    PreparedStatement insertRespawn = db.prepareStatement(
+                            "INSERT INTO pending_respawns (player) VALUES (?)")) {
+                clear.executeUpdate("DELETE FROM crown_owners");
+                clear.executeUpdate("DELETE FROM pending_respawns");
+                
+                int batched = 0;
+                for (Map.Entry<UUID, UUID> entry : crownOwners.entrySet()) {
+                    insertOwner.setBytes(1, toBytes(entry.getKey()));
+                    insertOwner.setBytes(2, toBytes(entry.getValue()));
+                    insertOwner.addBatch();
+                    if (++batched % batchSize == 0) {
+                        insertOwner.executeBatch();
+                    }
+                }
+                insertOwner.executeBatch();
+                
+                for (Map.Entry<UUID, Boolean> entry : pendingRespawns.entrySet()) {
+                    if (entry.getValue()) {
+                        insertRespawn.setBytes(1, toBytes(entry.getKey()));
+                        insertRespawn.addBatch();
+                        if (++batched % batchSize == 0) {
+                            insertRespawn.executeBatch();
+                        }
+                    }
+                }
+                insertRespawn.executeBatch();
+                db.commit();
+            } catch (SQLException e) {
+                rollback(db, e);
+                throw e;
+            }
+            return null;
+        });
+    }
+    
+    @Override
+    public boolean supportsLookup() {
+        return true;
+    }
+    
+    @Override
+    public CompletableFuture<UUID> lookupOwner(UUID player) {
+        try {
+            return CompletableFuture.supplyAsync(() -> lookupRow(player), executor);
+        } catch (RejectedExecutionException e) {
+            // The executor is shut down once the store is closed
+            return closedFuture();
+        }
+    }
+    
+    private UUID lookupRow(UUID player) {
+        try (PreparedStatement query = connection().prepareStatement(
+                "SELECT owner FROM crown_owners WHERE player = ?")) {
+            query.setBytes(1, toBytes(player));
+            try (ResultSet result = query.executeQuery()) {
+                return result.next() ? fromBytes(result.getBytes(1)) : null;
+            }
+        } catch (SQLException e) {
+            throw new CompletionException(new IOException("Database error in " + file.getName() + ": " + e.getMessage(), e));
+        }
+    }
+    
+    private CompletableFuture<UUID> closedFuture() {
+        CompletableFuture<UUID> closed = new CompletableFuture<>();
+        closed.completeExceptionally(new IOException(file.getName() + " is closed"));
+        return closed;
+    }
+    
+    @Override
+    public boolean isIncremental() {
+        return true;
+    }
+    
+    @Override
+    public void apply(List<CrownMutation> mutations) throws IOException {
+        Map<UUID, CrownMutation> owners = new LinkedHashMap<>();
+        Map<UUID, CrownMutation> respawns = new LinkedHashMap<>();
+        coalesce(mutations, owners, respawns);
+        
+        callChecked(() -> {
+            Connection db = connection();
+            try (PreparedStatement upsertOwner = db.prepareStatement(
+                            "INSERT OR REPLACE INTO crown_owners (player, owner) VALUES (?, ?)");
+                    PreparedStatement deleteOwner = db.prepareStatement(
+                            "DELETE FROM crown_owners WHERE player = ?");
+                    PreparedStatement upsertRespawn = db.prepareStatement(
+                            "INSERT OR REPLACE INTO pending_respawns (player) VALUES (?)");
+                    PreparedStatement deleteRespawn = db.prepareStatement(
+                            "DELETE FROM pending_respawns WHERE player = ?")) {
+                for (CrownMutation mutation : owners.values()) {
+                    byte[] player = toBytes(mutation.getPlayer());
+                    if (mutation.getType() == CrownMutation.Type.SET_OWNER) {
+                        upsertOwner.setBytes(1, player);
+                        upsertOwner.setBytes(2, toBytes(mutation.getOwner()));
+                        upsertOwner.addBatch();
+                    } else {
+                        deleteOwner.setBytes(1, player);
+                        deleteOwner.addBatch();
+                    }
+                }
+                
+                for (CrownMutation mutation : respawns.values()) {
+                    byte[] player = toBytes(mutation.getPlayer());
+                    if (mutation.getType() == CrownMutation.Type.SET_RESPAWN && mutation.getRespawn()) {
+                        upsertRespawn.setBytes(1, player);
+                        upsertRespawn.addBatch();
+                    } else {
+                        deleteRespawn.setBytes(1, player);
+                        deleteRespawn.addBatch();
+                    }
+                }
+                
+                upsertOwner.executeBatch();
+                deleteOwner.executeBatch();
+                upsertRespawn.executeBatch();
+                deleteRespawn.executeBatch();
+                db.commit();
+            } catch (SQLException e) {
+                rollback(db, e);
+                throw e;
+            }
+            return null;
+        });
+    }
+    
+    @Override
+    public void close() {
+        closeConnection();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Keeps only the last change per player and table, which also makes the order
+     * of the separate statement batches irrelevant
+     * @param mutations The mutations, in order
+     * @param owners Map that receives the last owner change per player
+     * @param respawns Map that receives the last respawn change per player
+     */
+    static void coalesce(List<CrownMutation> mutations, Map<UUID, CrownMutation> owners,
+            Map<UUID, CrownMutation> respawns) {
+        for (CrownMutation mutation : mutations) {
+            switch (mutation.getType()) {
+                case SET_OWNER:
+                case REMOVE_OWNER:
+                    owners.put(mutation.getPlayer(), mutation);
+                    break;
+                default:
+                    respawns.put(mutation.getPlayer(), mutation);
+                    break;
+            }
+        }
+    }
+    
+    private void closeConnection() {
+        try {
+            call(() -> {
+                if (connection != null) {
+                    connection.close();
+                    connection = null;
+                }
+                return null;
+            });
+        } catch (RuntimeException ignored) {
+            // Closing a broken connection has nothing left to lose
+        }
+    }
+    
+    /**
+     * Opens the connection and creates the schema on first use. Only called on the I/O thread.
+     * @return The open connection
+     * @throws SQLException If the database cannot be opened
+     */
+    private Connection connection() throws SQLException {
+        if (connection != null) {
+            return connection;
+        }
+        
+        try {
+            Class.forName(DRIVER);
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("SQLite driver not found, this server does not bundle " + DRIVER, e);
+        }
+        
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        
+        Connection db = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        try (Statement statement = db.createStatement()) {
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute("PRAGMA synchronous=NORMAL");
+            statement.execute("CREATE TABLE IF NOT EXISTS crown_owners ("
+                    + "player BLOB NOT NULL PRIMARY KEY, owner BLOB NOT NULL)");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_crown_owners_owner ON crown_owners (owner)");
+            statement.execute("CREATE TABLE IF NOT EXISTS pending_respawns (player BLOB NOT NULL PRIMARY KEY)");
+        }
+        db.setAutoCommit(false);
+        connection = db;
+        return connection;
+    }
+    
+    /**
+     * Rolls back a failed transaction without hiding the error that caused it
+     * @param db The connection
+     * @param cause The error that ended the transaction
+     */
+    private static void rollback(Connection db, SQLException cause) {
+        try {
+            db.rollback();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+    
+    private <T> T call(SqlTask<T> task) {
+        try {
+            return callChecked(task);
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+    
+    private <T> T callChecked(SqlTask<T> task) throws IOException {
+        Callable<T> callable = task::run;
+        Future<T> future = executor.submit(callable);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the database", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw new IOException("Database error in " + file.getName() + ": " + cause.getMessage(), cause);
+        }
+    }
+    
+    private static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+    
+    private static UUID fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+    
+    /**
+     * Unit of JDBC work executed on the I/O thread
+     */
+    private interface SqlTask<T> {
+        T run() throws Exception;
+    }
+}
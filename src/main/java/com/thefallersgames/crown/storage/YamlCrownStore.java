@@ -0,0 +1,101 @@
+package com.thefallersgames.crown.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+/**
+ * Stores crown data in a human-readable YAML file
+ */
+public class YamlCrownStore implements CrownStore {
+    private final File file;
+    private final Logger logger;
+    
+    /**
+     * Creates a YAML store
+     * @param file The data file
+     * @param logger Logger for skipped invalid entries
+     */
+    public YamlCrownStore(File file, Logger logger) {
+        this.file = file;
+        this.logger = logger;
+    }
+    
+    @Override
+    public String getName() {
+        return file.getName();
+    }
+    
+    @Override
+    public boolean exists() {
+        return file.exists();
+    }
+    
+    @Override
+    public void load(Map<UUID, UUID> crownOwners, Map<UUID, Boolean> pendingRespawns) throws IOException {
+        FileConfiguration dataConfig = YamlConfiguration.loadConfiguration(file);
+        
+        // Check if the section exists
+        ConfigurationSection ownersSection = dataConfig.getConfigurationSection("crown_owners");
+        if (ownersSection != null) {
+            // Load each crown owner
+            for (String key : ownersSection.getKeys(false)) {
+                String value = ownersSection.getString(key);
+                
+                try {
+                    UUID playerUUID = UUID.fromString(key);
+                    UUID ownerUUID = UUID.fromString(value);
+                    crownOwners.put(playerUUID, ownerUUID);
+                } catch (IllegalArgumentException | NullPointerException e) {
+                    logger.warning("Invalid UUID in crown owners data: " + key);
+                }
+            }
+        }
+        
+        // Check if the section exists
+        ConfigurationSection respawnsSection = dataConfig.getConfigurationSection("pending_respawns");
+        if (respawnsSection != null) {
+            // Load each pending respawn
+            for (String key : respawnsSection.getKeys(false)) {
+                boolean value = respawnsSection.getBoolean(key);
+                
+                try {
+                    UUID playerUUID = UUID.fromString(key);
+                    pendingRespawns.put(playerUUID, value);
+                } catch (IllegalArgumentException e) {
+                    logger.warning("Invalid UUID in pending respawns data: " + key);
+                }
+            }
+        }
+    }
+    
+    @Override
+    public void save(Map<UUID, UUID> crownOwners, Map<UUID, Boolean> pendingRespawns) throws IOException {
+        YamlConfiguration output = new YamlConfiguration();
+        
+        for (Map.Entry<UUID, UUID> entry : crownOwners.entrySet()) {
+            output.set("crown_owners." + entry.getKey(), entry.getValue().toString());
+        }
+        
+        for (Map.Entry<UUID, Boolean> entry : pendingRespawns.entrySet()) {
+            output.set("pending_respawns." + entry.getKey(), entry.getValue());
+        }
+        
+        AtomicFile.write(file, output.saveToString().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    @Override
+    public void markMigrated() throws IOException {
+        File migrated = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".migrated");
+        if (!file.renameTo(migrated)) {
+            throw new IOException("Could not rename " + file.getName() + " to " + migrated.getName());
+        }
+    }
+}
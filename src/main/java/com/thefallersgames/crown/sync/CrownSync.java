@@ -0,0 +1,206 @@
+package com.thefallersgames.crown.sync;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.bukkit.scheduler.BukkitTask;
+
+import com.thefallersgames.crown.CrownPlugin;
+import com.thefallersgames.crown.managers.CrownManager;
+import com.thefallersgames.crown.storage.CrownMutation;
+
+/**
+ * Keeps crown ownership in step across the servers of a network.
+ * <p>
+ * Local changes are collected during a tick and sent as one {@link SyncBatch}
+ * at its end; several changes to the same player within a tick collapse into
+ * the last one. Batches from other servers are handed over by the
+ * {@link SyncTransport} on any thread and applied on the main thread in the
+ * next tick, where {@link SyncState} drops duplicate batches and changes
+ * that lost against a newer change of the same player.
+ */
+public class CrownSync {
+    private final CrownPlugin plugin;
+    private final CrownManager crownManager;
+    private final SyncTransport transport;
+    private final String serverId;
+    private final SyncState state;
+    private final Map<UUID, SyncBatch.Entry> pendingOwners = new LinkedHashMap<>();
+    private final Map<UUID, SyncBatch.Entry> pendingRespawns = new LinkedHashMap<>();
+    private final Queue<byte[]> incoming = new ConcurrentLinkedQueue<>();
+    private BukkitTask task;
+    private long sequence;
+    private long batchesSent;
+    private long bytesSent;
+    private long batchesReceived;
+    private long bytesReceived;
+    private long changesApplied;
+    private boolean decodeFailureWarned;
+    
+    /**
+     * Creates a new CrownSync
+     * @param plugin The plugin instance
+     * @param crownManager The crown manager whose changes are synced
+     * @param transport The transport to the other servers
+     * @param serverId The name of this server, unique within the network
+     */
+    public CrownSync(CrownPlugin plugin, CrownManager crownManager, SyncTransport transport, String serverId) {
+        this.plugin = plugin;
+        this.crownManager = crownManager;
+        this.transport = transport;
+        this.serverId = serverId;
+        long now = System.currentTimeMillis();
+        this.state = new SyncState(serverId, now);
+        // Batch numbers keep growing over restarts, so other servers never take a new batch for a duplicate
+        this.sequence = now;
+    }
+    
+    /**
+     * Opens the transport and starts sending and applying batches every tick
+     * @throws IOException If the transport cannot be opened
+     */
+    public void start() throws IOException {
+        transport.start(incoming::add);
+        task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+    }
+    
+    /**
+     * Sends the changes of the current tick and closes the transport
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        flush();
+        transport.close();
+    }
+    
+    /**
+     * Queues a change made on this server for the next batch. Must be called on the main thread.
+     * @param mutation The change
+     */
+    public void record(CrownMutation mutation) {
+        long clock = state.stampLocal(mutation);
+        Map<UUID, SyncBatch.Entry> pending = isRespawnChange(mutation) ? pendingRespawns : pendingOwners;
+        pending.put(mutation.getPlayer(), new SyncBatch.Entry(mutation, clock));
+    }
+    
+    /**
+     * Gets the name of this server
+     * @return The server name
+     */
+    public String getServerId() {
+        return serverId;
+    }
+    
+    /**
+     * Gets the name of the transport
+     * @return The transport name
+     */
+    public String getTransportName() {
+        return transport.getName();
+    }
+    
+    /**
+     * Gets the number of batches sent
+     * @return The batch count
+     */
+    public long getBatchesSent() {
+        return batchesSent;
+    }
+    
+    /**
+     * Gets the number of bytes sent
+     * @return The encoded size of all sent batches
+     */
+    public long getBytesSent() {
+        return bytesSent;
+    }
+    
+    /**
+     * Gets the number of batches received from other servers, including duplicates
+     * @return The batch count
+     */
+    public long getBatchesReceived() {
+        return batchesReceived;
+    }
+    
+    /**
+     * Gets the number of bytes received from other servers
+     * @return The encoded size of all received batches
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+    
+    /**
+     * Gets the number of changes of other servers that were applied here
+     * @return The number of applied changes
+     */
+    public long getChangesApplied() {
+        return changesApplied;
+    }
+    
+    private void tick() {
+        receive();
+        flush();
+    }
+    
+    private void receive() {
+        byte[] message;
+        while ((message = incoming.poll()) != null) {
+            batchesReceived++;
+            bytesReceived += message.length;
+            
+            SyncBatch batch;
+            try {
+                batch = SyncBatch.decode(message);
+            } catch (IOException e) {
+                if (!decodeFailureWarned) {
+                    decodeFailureWarned = true;
+                    plugin.getLogger().warning("Ignoring invalid crown sync message: " + e.getMessage());
+                }
+                continue;
+            }
+            
+            if (batch.getOrigin().equals(serverId) || !state.acceptBatch(batch.getOrigin(), batch.getSequence())) {
+                continue;
+            }
+            for (SyncBatch.Entry entry : batch.getEntries()) {
+                if (state.acceptRemote(entry.getMutation(), entry.getClock(), batch.getOrigin())) {
+                    crownManager.applyRemoteChange(entry.getMutation());
+                    changesApplied++;
+                }
+            }
+        }
+    }
+    
+    private void flush() {
+        if (pendingOwners.isEmpty() && pendingRespawns.isEmpty()) {
+            return;
+        }
+        
+        List<SyncBatch.Entry> entries = new ArrayList<>(pendingOwners.size() + pendingRespawns.size());
+        entries.addAll(pendingOwners.values());
+        entries.addAll(pendingRespawns.values());
+        pendingOwners.clear();
+        pendingRespawns.clear();
+        
+        byte[] message = new SyncBatch(serverId, ++sequence, entries).encode();
+        batchesSent++;
+        bytesSent += message.length;
+        transport.send(message);
+    }
+    
+    private static boolean isRespawnChange(CrownMutation mutation) {
+        return mutation.getType() == CrownMutation.Type.SET_RESPAWN
+                || mutation.getType() == CrownMutation.Type.REMOVE_RESPAWN;
+    }
+}
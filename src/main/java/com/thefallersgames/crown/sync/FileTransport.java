@@ -0,0 +1,201 @@
+package com.thefallersgames.crown.sync;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import com.thefallersgames.crown.storage.AtomicFile;
+
+/**
+ * Exchanges messages through a folder shared by servers on the same machine
+ * or on a network file system.
+ * <p>
+ * Every message becomes a file named {@code <server>-<sequence>.msg}, written
+ * atomically so readers never see a partial message. A background thread
+ * writes the queued messages and polls the folder for new files of other
+ * servers, remembering the last sequence read per server. Messages that
+ * existed before the transport started are skipped, and each server deletes
+ * its own messages once they are older than the retention time.
+ */
+public class FileTransport implements SyncTransport {
+    private static final String SUFFIX = ".msg";
+    private static final long RETENTION_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final byte[] STOP = new byte[0];
+    
+    private final File directory;
+    private final String serverId;
+    private final long pollMillis;
+    private final Logger logger;
+    private final BlockingQueue<byte[]> outgoing = new LinkedBlockingQueue<>();
+    private final Map<String, Long> lastRead = new HashMap<>();
+    private Consumer<byte[]> receiver;
+    private Thread thread;
+    private long sequence;
+    private boolean failureWarned;
+    
+    /**
+     * Creates a new FileTransport
+     * @param directory The shared folder
+     * @param serverId The name of this server, unique within the network
+     * @param pollMillis Milliseconds between two looks for new messages
+     * @param logger Logger for failed reads and writes
+     */
+    public FileTransport(File directory, String serverId, long pollMillis, Logger logger) {
+        this.directory = directory;
+        this.serverId = serverId;
+        this.pollMillis = pollMillis;
+        this.logger = logger;
+    }
+    
+    @Override
+    public String getName() {
+        return "file:" + directory;
+    }
+    
+    @Override
+    public void start(Consumer<byte[]> receiver) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create sync directory " + directory);
+        }
+        this.receiver = receiver;
+        
+        // Only changes made from now on are of interest, and our own numbering continues
+        for (File file : listMessages()) {
+            String origin = getOrigin(file.getName());
+            long fileSequence = getSequence(file.getName());
+            if (origin.equals(serverId)) {
+                sequence = Math.max(sequence, fileSequence);
+            } else {
+                lastRead.merge(origin, fileSequence, Math::max);
+            }
+        }
+        
+        thread = new Thread(this::run, "Crown-Sync");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    @Override
+    public void send(byte[] message) {
+        outgoing.add(message);
+    }
+    
+    @Override
+    public void close() {
+        if (thread == null) {
+            return;
+        }
+        outgoing.add(STOP);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+    
+    private void run() {
+        long nextPoll = 0L;
+        while (true) {
+            byte[] message;
+            try {
+                message = outgoing.poll(Math.max(1L, nextPoll - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            
+            if (message == STOP) {
+                return;
+            }
+            if (message != null) {
+                write(message);
+            }
+            if (System.currentTimeMillis() >= nextPoll) {
+                poll();
+                nextPoll = System.currentTimeMillis() + pollMillis;
+            }
+        }
+    }
+    
+    private void write(byte[] message) {
+        File file = new File(directory, serverId + "-" + String.format(Locale.ROOT, "%019d", ++sequence) + SUFFIX);
+        try {
+            AtomicFile.write(file, message);
+            failureWarned = false;
+        } catch (IOException e) {
+            warn("Could not write sync message " + file + ": " + e.getMessage());
+        }
+    }
+    
+    private void poll() {
+        long expired = System.currentTimeMillis() - RETENTION_MILLIS;
+        List<File> incoming = new ArrayList<>();
+        for (File file : listMessages()) {
+            String origin = getOrigin(file.getName());
+            if (origin.equals(serverId)) {
+                if (file.lastModified() < expired && !file.delete()) {
+                    warn("Could not delete old sync message " + file);
+                }
+            } else if (getSequence(file.getName()) > lastRead.getOrDefault(origin, 0L)) {
+                incoming.add(file);
+            }
+        }
+        
+        // Zero-padded sequences sort in the order the messages were sent
+        incoming.sort((a, b) -> a.getName().compareTo(b.getName()));
+        for (File file : incoming) {
+            try {
+                byte[] message = Files.readAllBytes(file.toPath());
+                lastRead.put(getOrigin(file.getName()), getSequence(file.getName()));
+                receiver.accept(message);
+            } catch (IOException e) {
+                // Deleted by its writer before we got to it, the change is lost for this server
+                lastRead.put(getOrigin(file.getName()), getSequence(file.getName()));
+                warn("Could not read sync message " + file + ": " + e.getMessage());
+            }
+        }
+    }
+    
+    private List<File> listMessages() {
+        List<File> messages = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(SUFFIX) && name.lastIndexOf('-') > 0 && getSequence(name) >= 0L) {
+                    messages.add(file);
+                }
+            }
+        }
+        return messages;
+    }
+    
+    private void warn(String message) {
+        if (!failureWarned) {
+            failureWarned = true;
+            logger.warning(message);
+        }
+    }
+    
+    private static String getOrigin(String name) {
+        return name.substring(0, name.lastIndexOf('-'));
+    }
+    
+    private static long getSequence(String name) {
+        try {
+            return Long.parseLong(name.substring(name.lastIndexOf('-') + 1, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+}
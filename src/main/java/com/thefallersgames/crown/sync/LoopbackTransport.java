@@ -0,0 +1,61 @@
+package com.thefallersgames.crown.sync;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Delivers messages between transports in the same JVM that share a channel name.
+ * <p>
+ * Meant for tests and for trying out the sync on a single machine: messages
+ * are handed to the other transports of the channel right away, on the
+ * sending thread.
+ */
+public class LoopbackTransport implements SyncTransport {
+    private static final Map<String, List<LoopbackTransport>> CHANNELS = new ConcurrentHashMap<>();
+    
+    private final String channel;
+    private volatile Consumer<byte[]> receiver;
+    
+    /**
+     * Creates a new LoopbackTransport
+     * @param channel The channel to send and receive on
+     */
+    public LoopbackTransport(String channel) {
+        this.channel = channel;
+    }
+    
+    @Override
+    public String getName() {
+        return "loopback:" + channel;
+    }
+    
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        CHANNELS.computeIfAbsent(channel, name -> new CopyOnWriteArrayList<>()).add(this);
+    }
+    
+    @Override
+    public void send(byte[] message) {
+        List<LoopbackTransport> transports = CHANNELS.get(channel);
+        if (transports == null) {
+            return;
+        }
+        for (LoopbackTransport transport : transports) {
+            if (transport != this) {
+                transport.receiver.accept(message);
+            }
+        }
+    }
+    
+    @Override
+    public void close() {
+        List<LoopbackTransport> transports = CHANNELS.get(channel);
+        if (transports != null) {
+            transports.remove(this);
+        }
+    }
+}
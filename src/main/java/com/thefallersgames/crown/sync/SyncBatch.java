@@ -0,0 +1,252 @@
+package com.thefallersgames.crown.sync;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import com.thefallersgames.crown.storage.CrownMutation;
+
+/**
+ * The ownership changes one server made during a tick, as sent to the others.
+ * <p>
+ * Layout (big-endian, varints are unsigned LEB128):
+ * <pre>
+ * int    magic "CRWS"
+ * byte   format version
+ * short  origin length, UTF-8 origin server name
+ * varint batch sequence of the origin
+ * varint entry count
+ * varint clock of the first entry
+ * per entry:
+ *   byte   mutation type code, 0x80 set if a SET_OWNER owner is the player itself
+ *          or a SET_RESPAWN flag is set
+ *   16-byte player UUID
+ *   [16-byte owner UUID, for SET_OWNER with another owner]
+ *   varint clock difference to the previous entry (not for the first)
+ * </pre>
+ * Entries are sorted by clock, so the clocks are stored as small differences.
+ * Self-owned crowns, by far the most common entry, take 18 bytes.
+ */
+public final class SyncBatch {
+    private static final int MAGIC = 0x43525753; // "CRWS"
+    private static final byte FORMAT_VERSION = 1;
+    private static final int FLAG = 0x80;
+    
+    /**
+     * A single change and the Lamport clock it was made at
+     */
+    public static final class Entry {
+        private final CrownMutation mutation;
+        private final long clock;
+        
+        /**
+         * Creates a new Entry
+         * @param mutation The change
+         * @param clock The Lamport clock of the change on its origin server
+         */
+        public Entry(CrownMutation mutation, long clock) {
+            this.mutation = mutation;
+            this.clock = clock;
+        }
+        
+        /**
+         * Gets the change
+         * @return The mutation
+         */
+        public CrownMutation getMutation() {
+            return mutation;
+        }
+        
+        /**
+         * Gets the Lamport clock of the change
+         * @return The clock
+         */
+        public long getClock() {
+            return clock;
+        }
+    }
+    
+    private final String origin;
+    private final long sequence;
+    private final List<Entry> entries;
+    
+    /**
+     * Creates a new SyncBatch
+     * @param origin The name of the server that made the changes
+     * @param sequence The number of this batch on its origin server
+     * @param entries The changes
+     */
+    public SyncBatch(String origin, long sequence, List<Entry> entries) {
+        this.origin = origin;
+        this.sequence = sequence;
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort((a, b) -> Long.compare(a.clock, b.clock));
+        this.entries = Collections.unmodifiableList(sorted);
+    }
+    
+    /**
+     * Gets the name of the server that made the changes
+     * @return The origin server
+     */
+    public String getOrigin() {
+        return origin;
+    }
+    
+    /**
+     * Gets the number of this batch on its origin server
+     * @return The batch sequence
+     */
+    public long getSequence() {
+        return sequence;
+    }
+    
+    /**
+     * Gets the changes, ordered by clock
+     * @return Unmodifiable list of entries
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+    
+    /**
+     * Encodes this batch
+     * @return The encoded batch
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + entries.size() * 20);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            byte[] originBytes = origin.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            out.writeShort(originBytes.length);
+            out.write(originBytes);
+            writeVarLong(out, sequence);
+            writeVarLong(out, entries.size());
+            
+            long previousClock = entries.isEmpty() ? 0L : entries.get(0).clock;
+            writeVarLong(out, previousClock);
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                CrownMutation mutation = entry.mutation;
+                UUID player = mutation.getPlayer();
+                boolean selfOwned = mutation.getType() == CrownMutation.Type.SET_OWNER
+                        && player.equals(mutation.getOwner());
+                boolean flag = selfOwned || (mutation.getType() == CrownMutation.Type.SET_RESPAWN && mutation.getRespawn());
+                
+                out.writeByte(mutation.getType().getCode() | (flag ? FLAG : 0));
+                writeUUID(out, player);
+                if (mutation.getType() == CrownMutation.Type.SET_OWNER && !selfOwned) {
+                    writeUUID(out, mutation.getOwner());
+                }
+                if (i > 0) {
+                    writeVarLong(out, entry.clock - previousClock);
+                }
+                previousClock = entry.clock;
+            }
+        } catch (IOException e) {
+            // Cannot happen when writing to memory
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * Decodes a batch
+     * @param message The encoded batch
+     * @return The batch
+     * @throws IOException If the message is not a valid batch
+     */
+    public static SyncBatch decode(byte[] message) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(message);
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a crown sync message");
+            }
+            byte version = buffer.get();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported crown sync version " + version);
+            }
+            
+            int originLength = buffer.getShort() & 0xFFFF;
+            String origin = new String(message, buffer.position(), originLength, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + originLength);
+            long sequence = readVarLong(buffer);
+            long count = readVarLong(buffer);
+            if (count > buffer.remaining() / 17) {
+                throw new IOException("Crown sync message is truncated");
+            }
+            
+            List<Entry> entries = new ArrayList<>((int) count);
+            long clock = readVarLong(buffer);
+            for (int i = 0; i < count; i++) {
+                int code = buffer.get() & 0xFF;
+                CrownMutation.Type type = CrownMutation.Type.fromCode((byte) (code & ~FLAG));
+                if (type == null) {
+                    throw new IOException("Unknown crown sync change type " + (code & ~FLAG));
+                }
+                boolean flag = (code & FLAG) != 0;
+                UUID player = readUUID(buffer);
+                
+                CrownMutation mutation;
+                switch (type) {
+                    case SET_OWNER:
+                        mutation = CrownMutation.setOwner(player, flag ? player : readUUID(buffer));
+                        break;
+                    case REMOVE_OWNER:
+                        mutation = CrownMutation.removeOwner(player);
+                        break;
+                    case SET_RESPAWN:
+                        mutation = CrownMutation.setRespawn(player, flag);
+                        break;
+                    case REMOVE_RESPAWN:
+                    default:
+                        mutation = CrownMutation.removeRespawn(player);
+                        break;
+                }
+                if (i > 0) {
+                    clock += readVarLong(buffer);
+                }
+                entries.add(new Entry(mutation, clock));
+            }
+            return new SyncBatch(origin, sequence, entries);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Crown sync message is truncated", e);
+        }
+    }
+    
+    private static void writeUUID(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+    
+    private static UUID readUUID(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+    
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0L) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+    
+    private static long readVarLong(ByteBuffer buffer) throws IOException {
+        long value = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in crown sync message");
+    }
+}
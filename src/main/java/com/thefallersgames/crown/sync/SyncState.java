@@ -0,0 +1,134 @@
+package com.thefallersgames.crown.sync;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import com.thefallersgames.crown.storage.CrownMutation;
+
+/**
+ * Decides which ownership changes win when servers change the same player.
+ * <p>
+ * Every change is stamped with a Lamport clock and the name of the server that
+ * made it. For each player the owner and the respawn flag are separate
+ * last-writer-wins registers: a change is applied only if its stamp is newer
+ * than the last one applied to that register, with the server name breaking
+ * ties, so every server ends up with the same value no matter in which order
+ * batches arrive. The clock starts at the wall clock time in milliseconds, so
+ * changes made after a restart still win over those made before it.
+ * <p>
+ * A version vector holds the last batch sequence seen from each server, so
+ * batches that a transport delivers twice are dropped as a whole.
+ * <p>
+ * Not thread-safe; used from the main thread only.
+ */
+public class SyncState {
+    private final String serverId;
+    private final Map<UUID, Stamp> ownerStamps = new HashMap<>();
+    private final Map<UUID, Stamp> respawnStamps = new HashMap<>();
+    private final Map<String, Long> versions = new HashMap<>();
+    private long clock;
+    
+    /**
+     * The clock and server of the last change applied to a register
+     */
+    private static final class Stamp {
+        private final long clock;
+        private final String server;
+        
+        private Stamp(long clock, String server) {
+            this.clock = clock;
+            this.server = server;
+        }
+        
+        private boolean isBefore(long otherClock, String otherServer) {
+            return clock < otherClock || (clock == otherClock && server.compareTo(otherServer) < 0);
+        }
+    }
+    
+    /**
+     * Creates a new SyncState
+     * @param serverId The name of this server
+     * @param now The current wall clock time in milliseconds
+     */
+    public SyncState(String serverId, long now) {
+        this.serverId = serverId;
+        this.clock = now;
+    }
+    
+    /**
+     * Stamps a change made on this server
+     * @param mutation The change
+     * @return The clock of the change
+     */
+    public long stampLocal(CrownMutation mutation) {
+        clock++;
+        registers(mutation).put(mutation.getPlayer(), new Stamp(clock, serverId));
+        return clock;
+    }
+    
+    /**
+     * Checks if a batch from another server has not been seen yet, and remembers it
+     * @param origin The server that sent the batch
+     * @param sequence The batch sequence
+     * @return true if the batch is new
+     */
+    public boolean acceptBatch(String origin, long sequence) {
+        Long seen = versions.get(origin);
+        if (seen != null && sequence <= seen) {
+            return false;
+        }
+        versions.put(origin, sequence);
+        return true;
+    }
+    
+    /**
+     * Checks if a change made on another server is newer than what was applied
+     * to the same register, and remembers it if so
+     * @param mutation The change
+     * @param changeClock The clock of the change
+     * @param origin The server that made the change
+     * @return true if the change should be applied
+     */
+    public boolean acceptRemote(CrownMutation mutation, long changeClock, String origin) {
+        // Everything made here from now on happens after the change we just saw
+        clock = Math.max(clock, changeClock);
+        
+        Map<UUID, Stamp> stamps = registers(mutation);
+        Stamp current = stamps.get(mutation.getPlayer());
+        if (current != null && !current.isBefore(changeClock, origin)) {
+            return false;
+        }
+        stamps.put(mutation.getPlayer(), new Stamp(changeClock, origin.intern()));
+        return true;
+    }
+    
+    /**
+     * Gets the current Lamport clock
+     * @return The clock
+     */
+    public long getClock() {
+        return clock;
+    }
+    
+    /**
+     * Gets the last batch sequence seen from each other server
+     * @return Unmodifiable map of server names to sequences
+     */
+    public Map<String, Long> getVersions() {
+        return Collections.unmodifiableMap(versions);
+    }
+    
+    private Map<UUID, Stamp> registers(CrownMutation mutation) {
+        switch (mutation.getType()) {
+            case SET_RESPAWN:
+            case REMOVE_RESPAWN:
+                return respawnStamps;
+            case SET_OWNER:
+            case REMOVE_OWNER:
+            default:
+                return ownerStamps;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.thefallersgames.crown.sync;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Carries encoded ownership change batches between the servers of a network.
+ * <p>
+ * A transport delivers every message sent by one server to all other servers
+ * using the same transport, at least once and in the order they were sent.
+ * Messages sent by the server itself must not be delivered back to it.
+ * {@link #send(byte[])} is called on the main thread and must not block on
+ * I/O; received messages may be handed over on any thread.
+ */
+public interface SyncTransport {
+    
+    /**
+     * Gets a short name for log messages
+     * @return The transport name
+     */
+    String getName();
+    
+    /**
+     * Starts receiving messages
+     * @param receiver Called with each message sent by another server
+     * @throws IOException If the transport cannot be opened
+     */
+    void start(Consumer<byte[]> receiver) throws IOException;
+    
+    /**
+     * Sends a message to all other servers
+     * @param message The encoded batch
+     */
+    void send(byte[] message);
+    
+    /**
+     * Sends the messages that are still queued and releases any threads, files or connections
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,132 @@
+package com.thefallersgames.crown.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+/**
+ * Tests for the audit files and their per-player index
+ */
+public class AuditFilesTest {
+    private static final Logger LOGGER = Logger.getLogger("AuditFilesTest");
+
+    @Test
+    public void findsHistoryAcrossRotatedFiles() throws IOException {
+        File directory = Files.createTempDirectory("audit").toFile();
+        try {
+            UUID player = UUID.randomUUID();
+            UUID other = UUID.randomUUID();
+            // About 10 records per file
+            AuditFiles files = new AuditFiles(directory, 5 + 10 * AuditRecord.SIZE, 100, 5, LOGGER);
+            files.open();
+            List<AuditRecord> records = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                UUID subject = i % 10 == 0 ? player : UUID.randomUUID();
+                records.add(new AuditRecord(i, AuditRecord.Action.GIVE, subject, i % 25 == 0 ? other : null));
+            }
+            files.append(records);
+
+            assertTrue(new File(directory, "audit-1.log.gz").exists());
+            assertTrue(new File(directory, "audit-11.log").exists());
+
+            List<AuditRecord> history = files.history(player);
+            assertEquals(5, history.size());
+            assertEquals(Arrays.asList(50L, 60L, 70L, 80L, 90L), times(history));
+            assertEquals(Arrays.asList(0L, 25L, 50L, 75L), times(files.history(other)));
+            assertTrue(files.history(UUID.randomUUID()).isEmpty());
+            files.close();
+
+            // The index is rebuilt from the files
+            AuditFiles reopened = new AuditFiles(directory, 5 + 10 * AuditRecord.SIZE, 100, 5, LOGGER);
+            reopened.open();
+            assertEquals(Arrays.asList(50L, 60L, 70L, 80L, 90L), times(reopened.history(player)));
+            reopened.append(Collections.singletonList(new AuditRecord(100L, AuditRecord.Action.REMOVE, player, null)));
+            assertEquals(Arrays.asList(60L, 70L, 80L, 90L, 100L), times(reopened.history(player)));
+            reopened.close();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void deletesOldestFiles() throws IOException {
+        File directory = Files.createTempDirectory("audit").toFile();
+        try {
+            UUID player = UUID.randomUUID();
+            AuditFiles files = new AuditFiles(directory, 5 + 2 * AuditRecord.SIZE, 3, 10, LOGGER);
+            files.open();
+            List<AuditRecord> records = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                records.add(new AuditRecord(i, AuditRecord.Action.DROP, player, null));
+            }
+            files.append(records);
+
+            assertFalse(new File(directory, "audit-2.log.gz").exists());
+            assertTrue(new File(directory, "audit-3.log.gz").exists());
+            // Records of deleted files are left out
+            assertEquals(Arrays.asList(4L, 5L, 6L, 7L, 8L, 9L), times(files.history(player)));
+            files.close();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void cutsOffPartialRecord() throws IOException {
+        File directory = Files.createTempDirectory("audit").toFile();
+        try {
+            UUID player = UUID.randomUUID();
+            AuditFiles files = new AuditFiles(directory, 1024 * 1024, 10, 10, LOGGER);
+            files.open();
+            files.append(Arrays.asList(new AuditRecord(1L, AuditRecord.Action.GIVE, player, null),
+                    new AuditRecord(2L, AuditRecord.Action.REMOVE, player, null)));
+            files.close();
+
+            File current = new File(directory, "audit-1.log");
+            try (RandomAccessFile file = new RandomAccessFile(current, "rw")) {
+                file.setLength(file.length() - 7);
+            }
+
+            AuditFiles reopened = new AuditFiles(directory, 1024 * 1024, 10, 10, LOGGER);
+            reopened.open();
+            assertEquals(Collections.singletonList(1L), times(reopened.history(player)));
+            reopened.append(Collections.singletonList(new AuditRecord(3L, AuditRecord.Action.GIVE, player, null)));
+            assertEquals(Arrays.asList(1L, 3L), times(reopened.history(player)));
+            reopened.close();
+            assertEquals(5 + 2 * AuditRecord.SIZE, current.length());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static List<Long> times(List<AuditRecord> records) {
+        List<Long> times = new ArrayList<>();
+        for (AuditRecord record : records) {
+            times.add(record.getTime());
+        }
+        return times;
+    }
+
+    private static void delete(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
@@ -0,0 +1,99 @@
+package com.thefallersgames.crown.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+
+/**
+ * Tests for the buffer of audit records between the main thread and the writer
+ */
+public class AuditRingTest {
+
+    @Test
+    public void drainsInOrder() {
+        AuditRing ring = new AuditRing(8);
+        UUID player = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        ring.offer(1L, AuditRecord.Action.GIVE, player, null);
+        ring.offer(2L, AuditRecord.Action.TRANSFER, other, player);
+
+        List<AuditRecord> records = new ArrayList<>();
+        assertEquals(2, ring.drain(records));
+        assertEquals(AuditRecord.Action.GIVE, records.get(0).getAction());
+        assertEquals(player, records.get(0).getPlayer());
+        assertNull(records.get(0).getOther());
+        assertEquals(2L, records.get(1).getTime());
+        assertEquals(other, records.get(1).getPlayer());
+        assertEquals(player, records.get(1).getOther());
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    public void dropsWhenFull() {
+        AuditRing ring = new AuditRing(5);
+        assertEquals(8, ring.getCapacity());
+
+        UUID player = UUID.randomUUID();
+        for (int i = 0; i < 8; i++) {
+            assertTrue(ring.offer(i, AuditRecord.Action.GIVE, player, null));
+        }
+        assertFalse(ring.offer(8L, AuditRecord.Action.GIVE, player, null));
+        assertEquals(1L, ring.getDropped());
+
+        List<AuditRecord> records = new ArrayList<>();
+        ring.drain(records);
+        assertEquals(7L, records.get(7).getTime());
+        assertTrue(ring.offer(9L, AuditRecord.Action.REMOVE, player, null));
+    }
+
+    @Test
+    public void wrapsAround() {
+        AuditRing ring = new AuditRing(4);
+        UUID player = UUID.randomUUID();
+        List<AuditRecord> records = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ring.offer(i, AuditRecord.Action.DROP, player, null);
+            if (i % 3 == 2) {
+                ring.drain(records);
+            }
+        }
+        ring.drain(records);
+
+        assertEquals(100, records.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, records.get(i).getTime());
+        }
+    }
+
+    @Test
+    public void crossesThreads() throws InterruptedException {
+        AuditRing ring = new AuditRing(64);
+        UUID player = UUID.randomUUID();
+        List<AuditRecord> records = new ArrayList<>();
+        Thread reader = new Thread(() -> {
+            while (records.size() < 10_000) {
+                ring.drain(records);
+            }
+        });
+        reader.start();
+
+        for (int i = 0; i < 10_000; i++) {
+            while (!ring.offer(i, AuditRecord.Action.PICKUP, player, player)) {
+                Thread.yield();
+            }
+        }
+        reader.join(10_000L);
+
+        assertEquals(10_000, records.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, records.get(i).getTime());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.thefallersgames.crown.listeners;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.inventory.ItemStack;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thefallersgames.crown.managers.CrownManager;
+import com.thefallersgames.crown.testutil.FakePlayer;
+import com.thefallersgames.crown.testutil.FakeServer;
+import com.thefallersgames.crown.testutil.TestCrownPlugin;
+
+/**
+ * Tests for how crowns change hands when their owner dies
+ */
+public class CrownEventListenerTest {
+    private TestCrownPlugin plugin;
+
+    @Before
+    public void setUp() {
+        FakeServer.get().reset();
+        plugin = TestCrownPlugin.create().enable();
+    }
+
+    @After
+    public void tearDown() {
+        FakeServer.get().reset();
+        plugin.deleteDataFolder();
+    }
+
+    @Test
+    public void transferEndsVictimsReign() {
+        CrownManager crownManager = plugin.getCrownManager();
+        CrownEventListener listener = new CrownEventListener(plugin, crownManager, plugin.getConfigManager());
+        FakePlayer victim = FakeServer.get().addPlayer("victim");
+        FakePlayer killer = FakeServer.get().addPlayer("killer");
+        crownManager.giveCrown(victim.asPlayer());
+        assertTrue(crownManager.getLeaderboard().isReigning(victim.getUniqueId()));
+
+        victim.setKiller(killer.asPlayer());
+        List<ItemStack> drops = new ArrayList<>();
+        for (ItemStack item : victim.getFakeInventory().getContents()) {
+            if (item != null) {
+                drops.add(item);
+            }
+        }
+        listener.onPlayerDeath(new PlayerDeathEvent(victim.asPlayer(), drops, 0, "victim died"));
+
+        assertFalse(crownManager.isPlayerCrownOwner(victim.getUniqueId()));
+        assertFalse(crownManager.getLeaderboard().isReigning(victim.getUniqueId()));
+        assertTrue(crownManager.isPlayerCrownOwner(killer.getUniqueId()));
+        assertTrue(crownManager.getLeaderboard().isReigning(killer.getUniqueId()));
+    }
+}
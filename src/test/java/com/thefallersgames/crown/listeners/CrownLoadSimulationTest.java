@@ -0,0 +1,74 @@
+package com.thefallersgames.crown.listeners;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thefallersgames.crown.metrics.CrownMetrics;
+import com.thefallersgames.crown.testutil.FakeServer;
+import com.thefallersgames.crown.testutil.LoadSimulator;
+import com.thefallersgames.crown.testutil.LoadSimulator.Action;
+import com.thefallersgames.crown.testutil.TestCrownPlugin;
+
+/**
+ * Runs the listener under a simulated population and reports what it cost in
+ * {@code target/surefire-reports/crown-load-simulation.txt}.
+ * <p>
+ * The scale can be changed to answer capacity questions, e.g.
+ * {@code mvn test -Dtest=CrownLoadSimulationTest -Dcrown.sim.players=5000 -Dcrown.sim.crowns=200}.
+ */
+public class CrownLoadSimulationTest {
+    private static final int PLAYERS = Integer.getInteger("crown.sim.players", 2000);
+    private static final int CROWNS = Integer.getInteger("crown.sim.crowns", 50);
+    private static final int TICKS = Integer.getInteger("crown.sim.ticks", 200);
+    private static final Path REPORT = Paths.get("target", "surefire-reports", "crown-load-simulation.txt");
+
+    private TestCrownPlugin plugin;
+
+    @Before
+    public void setUp() {
+        FakeServer.get().reset();
+        plugin = TestCrownPlugin.create();
+        // Crowns go into the inventory rather than onto the head, where inventory clicks can reach them
+        plugin.getConfig().set("behavior.auto_equip_on_give", false);
+        plugin.enable();
+    }
+
+    @After
+    public void tearDown() {
+        FakeServer.get().reset();
+        plugin.deleteDataFolder();
+    }
+
+    @Test
+    public void simulatedPopulation() throws IOException {
+        LoadSimulator.Report report = new LoadSimulator(plugin)
+                .players(PLAYERS)
+                .crowns(CROWNS)
+                .run(TICKS);
+        Files.createDirectories(REPORT.getParent());
+        Files.write(REPORT, report.toString().getBytes(StandardCharsets.UTF_8));
+
+        for (Action action : Action.values()) {
+            assertTrue("No " + action + " was simulated: " + report, report.getCount(action) > 0);
+        }
+        // Every dispatched event went through the instrumented handler exactly once
+        assertEquals(report.getCount(Action.CLICK), report.getLatency(CrownMetrics.Handler.INVENTORY_CLICK).getCount());
+        assertEquals(report.getCount(Action.DRAG), report.getLatency(CrownMetrics.Handler.INVENTORY_DRAG).getCount());
+        assertEquals(report.getCount(Action.HOPPER_MOVE),
+                report.getLatency(CrownMetrics.Handler.INVENTORY_MOVE_ITEM).getCount());
+        assertEquals(report.getCount(Action.PICKUP), report.getLatency(CrownMetrics.Handler.PICKUP_ITEM).getCount());
+        assertEquals(report.getCount(Action.DEATH), report.getLatency(CrownMetrics.Handler.DEATH).getCount());
+        assertEquals(report.getCount(Action.RESPAWN), report.getLatency(CrownMetrics.Handler.RESPAWN).getCount());
+        assertTrue(report.getOwners() > 0);
+    }
+}
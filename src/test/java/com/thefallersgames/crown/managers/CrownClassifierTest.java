@@ -0,0 +1,91 @@
+package com.thefallersgames.crown.managers;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumSet;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Tests for the tiered crown classifier. These only exercise the tiers that
+ * do not need a running server.
+ */
+public class CrownClassifierTest {
+    private static final int ITERATIONS = 1_000_000;
+
+    private static CrownClassifier newClassifier() {
+        CrownClassifier classifier = new CrownClassifier(new NamespacedKey("crown", "crown_item"));
+        classifier.setMaterials(EnumSet.of(Material.GOLDEN_HELMET));
+        return classifier;
+    }
+
+    @Test
+    public void nullIsNotACrown() {
+        assertFalse(newClassifier().isCrown(null));
+    }
+
+    @Test
+    public void otherMaterialIsRejectedWithoutReadingMeta() {
+        // Reading the meta would need a server, so this only passes if the prefilter decides
+        assertFalse(newClassifier().isCrown(new ItemStack(Material.STONE)));
+    }
+
+    @Test
+    public void rememberedCrownIsRecognizedByIdentity() {
+        CrownClassifier classifier = newClassifier();
+        ItemStack crown = new ItemStack(Material.GOLDEN_HELMET);
+        classifier.remember(crown);
+
+        assertTrue(classifier.isCrown(crown));
+    }
+
+    @Test
+    public void materialChangeOverridesCache() {
+        CrownClassifier classifier = newClassifier();
+        ItemStack crown = new ItemStack(Material.GOLDEN_HELMET);
+        classifier.remember(crown);
+
+        classifier.setMaterials(EnumSet.of(Material.DIAMOND_HELMET));
+
+        assertFalse(classifier.isCrown(crown));
+    }
+
+    @Test
+    public void nonCrownItemDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        CrownClassifier classifier = newClassifier();
+        ItemStack stone = new ItemStack(Material.STONE);
+        ItemStack crown = new ItemStack(Material.GOLDEN_HELMET);
+        classifier.remember(crown);
+
+        // Warm up so the measured loop runs compiled code
+        int hits = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            hits += classifier.isCrown(stone) ? 1 : 0;
+            hits += classifier.isCrown(crown) ? 1 : 0;
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            hits += classifier.isCrown(stone) ? 1 : 0;
+            hits += classifier.isCrown(crown) ? 1 : 0;
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(hits == 2 * ITERATIONS);
+        // Allow a little slack for the measurement itself, one allocation per call would be megabytes
+        assertTrue("Classifier allocated " + allocated + " bytes", allocated < 1024);
+    }
+}
@@ -0,0 +1,101 @@
+package com.thefallersgames.crown.managers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.Test;
+
+/**
+ * Tests for the compact holder to owner map
+ */
+public class CrownOwnerMapTest {
+
+    @Test
+    public void matchesHashMapUnderRandomOperations() {
+        Random random = new Random(42);
+        // A small key space forces collisions, long probe runs and backward shifts
+        UUID[] players = new UUID[200];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+
+        CrownOwnerMap map = new CrownOwnerMap();
+        Map<UUID, UUID> expected = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            UUID player = players[random.nextInt(players.length)];
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(player), map.remove(player));
+            } else {
+                UUID owner = random.nextInt(10) == 0 ? players[random.nextInt(players.length)] : player;
+                assertEquals(expected.put(player, owner), map.put(player, owner));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+
+        assertEquals(expected, map);
+        for (UUID player : players) {
+            assertEquals(expected.get(player), map.get(player));
+        }
+    }
+
+    @Test
+    public void reverseIndexFollowsChanges() {
+        UUID owner = UUID.randomUUID();
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        CrownOwnerMap map = new CrownOwnerMap();
+
+        map.put(owner, owner);
+        map.put(first, owner);
+        map.put(second, owner);
+        assertEquals(new HashSet<>(Arrays.asList(owner, first, second)), map.getHolders(owner));
+
+        map.put(first, first);
+        map.remove(owner);
+        assertEquals(Collections.singleton(second), map.getHolders(owner));
+        assertEquals(Collections.singleton(first), map.getHolders(first));
+
+        map.remove(second);
+        assertTrue(map.getHolders(owner).isEmpty());
+    }
+
+    @Test
+    public void nilUuidIsAValidHolder() {
+        UUID nil = new UUID(0L, 0L);
+        CrownOwnerMap map = new CrownOwnerMap();
+
+        assertFalse(map.containsKey(nil));
+        map.put(nil, nil);
+        assertEquals(nil, map.get(nil));
+        assertEquals(1, map.size());
+        assertEquals(Collections.singletonMap(nil, nil), new HashMap<>(map));
+
+        assertEquals(nil, map.remove(nil));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void copyIsIndependent() {
+        UUID player = UUID.randomUUID();
+        UUID owner = UUID.randomUUID();
+        CrownOwnerMap map = new CrownOwnerMap();
+        map.put(player, owner);
+
+        CrownOwnerMap copy = map.copy();
+        map.remove(player);
+
+        assertNull(map.get(player));
+        assertEquals(owner, copy.get(player));
+        assertEquals(Collections.singleton(player), copy.getHolders(owner));
+    }
+}
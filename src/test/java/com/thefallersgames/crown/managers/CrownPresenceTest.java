@@ -0,0 +1,108 @@
+package com.thefallersgames.crown.managers;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thefallersgames.crown.testutil.FakePlayer;
+import com.thefallersgames.crown.testutil.FakeScheduler;
+import com.thefallersgames.crown.testutil.FakeServer;
+import com.thefallersgames.crown.testutil.TestCrownPlugin;
+
+/**
+ * Tests that the inventory listener is only registered while a crown is in play
+ */
+public class CrownPresenceTest {
+    private TestCrownPlugin plugin;
+    private FakeScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        FakeServer.get().reset();
+        scheduler = FakeServer.get().getFakeScheduler();
+        plugin = TestCrownPlugin.create();
+    }
+
+    @After
+    public void tearDown() {
+        plugin.getCrownPresence().stop();
+        FakeServer.get().reset();
+        plugin.deleteDataFolder();
+    }
+
+    @Test
+    public void notListeningWithoutCrowns() {
+        plugin.enable();
+        plugin.getCrownPresence().start();
+
+        assertFalse(plugin.getCrownPresence().isCrownInPlay());
+        assertFalse(plugin.getCrownPresence().isListening());
+    }
+
+    @Test
+    public void givingACrownRegistersRightAway() {
+        plugin.enable();
+        plugin.getCrownPresence().start();
+        FakePlayer player = FakeServer.get().addPlayer("King");
+
+        plugin.getCrownManager().giveCrown(player.asPlayer());
+
+        assertTrue(plugin.getCrownPresence().isListening());
+    }
+
+    @Test
+    public void unregistersOnlyAfterBeingIdle() {
+        plugin.enable();
+        plugin.getCrownPresence().start();
+        FakePlayer player = FakeServer.get().addPlayer("King");
+        plugin.getCrownManager().giveCrown(player.asPlayer());
+
+        plugin.getCrownManager().removeCrown(player.asPlayer());
+        scheduler.tick(20 * 3);
+        assertTrue("a crown changing hands must not unregister the listener",
+                plugin.getCrownPresence().isListening());
+
+        scheduler.tick(20 * 3);
+        assertFalse(plugin.getCrownPresence().isListening());
+    }
+
+    @Test
+    public void pendingRespawnKeepsListening() {
+        plugin.enable();
+        plugin.getCrownPresence().start();
+        FakePlayer player = FakeServer.get().addPlayer("King");
+
+        plugin.getCrownManager().markForRespawn(player.getUniqueId());
+        scheduler.tick(20 * 10);
+        assertTrue(plugin.getCrownPresence().isListening());
+
+        plugin.getCrownManager().setCrownRespawnFlag(player.getUniqueId(), false);
+        scheduler.tick(20 * 10);
+        assertFalse(plugin.getCrownPresence().isListening());
+    }
+
+    @Test
+    public void offlinePlayersWaitingForRespawnDoNotCount() {
+        plugin.enable();
+        plugin.getCrownPresence().start();
+
+        plugin.getCrownManager().markForRespawn(UUID.randomUUID());
+        scheduler.tick(20 * 10);
+        assertFalse(plugin.getCrownPresence().isCrownInPlay());
+        assertFalse(plugin.getCrownPresence().isListening());
+    }
+
+    @Test
+    public void alwaysListeningWithoutGating() {
+        plugin.getConfig().set("performance.unregister_when_idle", false);
+        plugin.enable();
+        plugin.getCrownPresence().start();
+
+        assertTrue(plugin.getCrownPresence().isListening());
+    }
+}
@@ -0,0 +1,148 @@
+package com.thefallersgames.crown.managers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests for the single-writer ownership registry
+ */
+public class CrownRegistryTest {
+    private static final int READERS = 4;
+    private static final int MUTATIONS = 20_000;
+    private static final int MUTATIONS_PER_TICK = 50;
+
+    @Test
+    public void publishWithoutChangesReusesSnapshot() {
+        CrownRegistry registry = new CrownRegistry();
+        UUID player = UUID.randomUUID();
+        registry.setOwner(player, player);
+
+        CrownRegistry.Snapshot first = registry.publish();
+        assertSame(first, registry.publish());
+        assertEquals(player, first.getOwner(player));
+
+        registry.removeOwner(player);
+        assertEquals("old snapshot must not change", player, first.getOwner(player));
+        assertNull(registry.publish().getOwner(player));
+    }
+
+    @Test
+    public void versionOnlyChangesOnMutation() {
+        CrownRegistry registry = new CrownRegistry();
+        UUID player = UUID.randomUUID();
+
+        long before = registry.getVersion();
+        registry.removeOwner(player);
+        assertEquals(before, registry.getVersion());
+
+        registry.setRespawn(player, true);
+        assertEquals(before + 1, registry.getVersion());
+
+        assertTrue(registry.setOwner(player, player));
+        assertEquals(before + 2, registry.getVersion());
+        assertFalse("setting the same owner again is not a change", registry.setOwner(player, player));
+        assertEquals(before + 2, registry.getVersion());
+        assertTrue(registry.setOwner(player, UUID.randomUUID()));
+        assertEquals(before + 3, registry.getVersion());
+    }
+
+    @Test
+    public void countsPendingRespawns() {
+        CrownRegistry registry = new CrownRegistry();
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        registry.setRespawn(first, true);
+        registry.setRespawn(first, true);
+        registry.setRespawn(second, true);
+        assertEquals(2, registry.getPendingRespawnCount());
+
+        registry.setRespawn(first, false);
+        assertEquals(1, registry.getPendingRespawnCount());
+        registry.removeRespawn(second);
+        assertEquals(0, registry.getPendingRespawnCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void otherThreadsCannotWrite() throws Throwable {
+        CrownRegistry registry = new CrownRegistry();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                registry.setOwner(UUID.randomUUID(), UUID.randomUUID());
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        thread.start();
+        thread.join();
+        throw failure.get();
+    }
+
+    @Test
+    public void concurrentReadersSeeConsistentSnapshots() throws Exception {
+        CrownRegistry registry = new CrownRegistry();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicLong reads = new AtomicLong();
+        AtomicReference<String> failure = new AtomicReference<>();
+        CountDownLatch started = new CountDownLatch(READERS);
+
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            Thread reader = new Thread(() -> {
+                long lastVersion = -1;
+                long count = 0;
+                started.countDown();
+                do {
+                    CrownRegistry.Snapshot snapshot = registry.getSnapshot();
+                    // Only additions happen, so the size must match the version exactly
+                    if (snapshot.getCrownOwners().size() != snapshot.getVersion()) {
+                        failure.compareAndSet(null, "size " + snapshot.getCrownOwners().size()
+                                + " at version " + snapshot.getVersion());
+                    }
+                    if (snapshot.getVersion() < lastVersion) {
+                        failure.compareAndSet(null, "version went back from " + lastVersion);
+                    }
+                    lastVersion = snapshot.getVersion();
+                    count++;
+                    // Let the writer run on machines with fewer cores than threads
+                    Thread.yield();
+                } while (!done.get());
+                reads.addAndGet(count);
+            }, "Crown-Reader-" + i);
+            reader.start();
+            readers.add(reader);
+        }
+        started.await();
+
+        for (int i = 1; i <= MUTATIONS; i++) {
+            UUID player = new UUID(i * 0x9E3779B97F4A7C15L, i);
+            registry.setOwner(player, player);
+            if (i % MUTATIONS_PER_TICK == 0) {
+                registry.publish();
+            }
+        }
+        registry.publish();
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(failure.get(), failure.get());
+        assertEquals(MUTATIONS, registry.getSnapshot().getCrownOwners().size());
+        assertTrue("readers made no progress", reads.get() >= READERS);
+    }
+}
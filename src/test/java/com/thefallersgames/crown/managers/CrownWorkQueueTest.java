@@ -0,0 +1,117 @@
+package com.thefallersgames.crown.managers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thefallersgames.crown.testutil.FakePlayer;
+import com.thefallersgames.crown.testutil.FakeScheduler;
+import com.thefallersgames.crown.testutil.FakeServer;
+import com.thefallersgames.crown.testutil.TestCrownPlugin;
+
+/**
+ * Tests that bulk crown operations are worked off over several ticks
+ */
+public class CrownWorkQueueTest {
+    private static final int PLAYERS = 200;
+
+    private TestCrownPlugin plugin;
+    private FakeScheduler scheduler;
+    private CrownWorkQueue workQueue;
+    private FakePlayer admin;
+    private List<FakePlayer> players;
+
+    @Before
+    public void setUp() {
+        FakeServer.get().reset();
+        scheduler = FakeServer.get().getFakeScheduler();
+        plugin = TestCrownPlugin.create();
+        plugin.getConfig().set("performance.bulk_budget_ms", 0.1);
+        plugin.enable();
+        workQueue = new CrownWorkQueue(plugin, plugin.getCrownManager(), plugin.getConfigManager());
+
+        admin = FakeServer.get().addPlayer("Admin");
+        players = new ArrayList<>();
+        for (int i = 0; i < PLAYERS; i++) {
+            players.add(FakeServer.get().addPlayer("Player" + i));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        workQueue.stop();
+        FakeServer.get().reset();
+        plugin.deleteDataFolder();
+    }
+
+    @Test
+    public void givesEveryTargetAndReports() {
+        CrownWorkQueue.Job job = workQueue.submit(admin.asPlayer(), CrownWorkQueue.Operation.GIVE, uuids(players), 0);
+        assertEquals("nothing happens before the next tick", 0, job.getProgress());
+
+        runUntilDone(job);
+
+        for (FakePlayer player : players) {
+            assertTrue(plugin.getCrownManager().isPlayerCrownOwner(player.getUniqueId()));
+        }
+        assertEquals(0, job.getSkipped());
+        assertTrue(admin.getLastMessage().contains("Gave crowns to " + PLAYERS + " players"));
+        assertTrue(workQueue.getJobs().isEmpty());
+    }
+
+    @Test
+    public void skipsPlayersThatLeft() {
+        CrownWorkQueue.Job job = workQueue.submit(admin.asPlayer(), CrownWorkQueue.Operation.GIVE, uuids(players), 3);
+        FakeServer.get().removePlayer(players.get(0));
+
+        runUntilDone(job);
+
+        assertFalse(plugin.getCrownManager().isPlayerCrownOwner(players.get(0).getUniqueId()));
+        assertEquals("unresolved targets count as skipped", 4, job.getSkipped());
+    }
+
+    @Test
+    public void removeTakesCrownsAway() {
+        runUntilDone(workQueue.submit(admin.asPlayer(), CrownWorkQueue.Operation.GIVE, uuids(players), 0));
+        runUntilDone(workQueue.submit(admin.asPlayer(), CrownWorkQueue.Operation.REMOVE, uuids(players), 0));
+
+        assertTrue(plugin.getCrownManager().getCrownOwners().isEmpty());
+    }
+
+    @Test
+    public void cancelStopsAllJobs() {
+        CrownWorkQueue.Job first = workQueue.submit(admin.asPlayer(), CrownWorkQueue.Operation.GIVE, uuids(players), 0);
+        CrownWorkQueue.Job second = workQueue.submit(admin.asPlayer(), CrownWorkQueue.Operation.REMOVE, uuids(players), 0);
+
+        assertEquals(2, workQueue.cancelAll());
+        scheduler.tick(20);
+
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertEquals(0, first.getProgress());
+        assertTrue(plugin.getCrownManager().getCrownOwners().isEmpty());
+    }
+
+    private void runUntilDone(CrownWorkQueue.Job job) {
+        for (int i = 0; i < 20 * 60 && !job.isDone(); i++) {
+            scheduler.tick();
+        }
+        assertTrue("job did not finish within a minute", job.isDone());
+    }
+
+    private static List<UUID> uuids(List<FakePlayer> players) {
+        List<UUID> uuids = new ArrayList<>(players.size());
+        for (FakePlayer player : players) {
+            uuids.add(player.getUniqueId());
+        }
+        return uuids;
+    }
+}
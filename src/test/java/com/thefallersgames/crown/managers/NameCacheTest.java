@@ -0,0 +1,58 @@
+package com.thefallersgames.crown.managers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.UUID;
+
+import org.junit.Test;
+
+/**
+ * Tests for the name to UUID cache built from joins
+ */
+public class NameCacheTest {
+
+    @Test
+    public void resolvesNamesIgnoringCase() {
+        NameCache cache = new NameCache();
+        UUID player = UUID.randomUUID();
+
+        assertTrue(cache.update(player, "Notch"));
+        assertFalse("same name again is no change", cache.update(player, "Notch"));
+
+        assertEquals(player, cache.getUUID("notch"));
+        assertEquals(player, cache.getUUID("NOTCH"));
+        assertEquals("Notch", cache.getName(player));
+        assertNull(cache.getUUID("jeb_"));
+    }
+
+    @Test
+    public void renameReleasesOldName() {
+        NameCache cache = new NameCache();
+        UUID player = UUID.randomUUID();
+        cache.update(player, "OldName");
+
+        assertTrue(cache.update(player, "NewName"));
+
+        assertNull(cache.getUUID("OldName"));
+        assertEquals(player, cache.getUUID("newname"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void nameTakenOverByAnotherPlayer() {
+        NameCache cache = new NameCache();
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        cache.update(first, "Crowned");
+
+        // The first player renamed and someone else picked up the name
+        cache.update(second, "crowned");
+
+        assertEquals(second, cache.getUUID("Crowned"));
+        assertNull(cache.getName(first));
+        assertEquals(1, cache.size());
+    }
+}
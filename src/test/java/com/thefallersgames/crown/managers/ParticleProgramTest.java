@@ -0,0 +1,93 @@
+package com.thefallersgames.crown.managers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+/**
+ * Tests for compiling particle keyframes into point tables
+ */
+public class ParticleProgramTest {
+    private static final Logger LOGGER = Logger.getLogger("ParticleProgramTest");
+    private static final double EPSILON = 1e-9;
+
+    private static Map<String, Object> keyframe(Object... entries) {
+        Map<String, Object> keyframe = new HashMap<>();
+        for (int i = 0; i < entries.length; i += 2) {
+            keyframe.put((String) entries[i], entries[i + 1]);
+        }
+        return keyframe;
+    }
+
+    private static ParticleProgram compile(List<Map<?, ?>> keyframes) {
+        return ParticleProgram.compile("test", keyframes, 10, 0.3, 1.8, 0.3, LOGGER);
+    }
+
+    @Test
+    public void emptyProgramIsTheClassicBurst() {
+        ParticleProgram program = compile(Collections.<Map<?, ?>>emptyList());
+
+        assertEquals(1, program.getLength());
+        ParticleProgram.Frame frame = program.getFrame(0);
+        assertEquals(10, frame.getCount());
+        assertTrue(frame.hasJitter());
+        assertEquals(1.8, frame.getOffsets()[1], EPSILON);
+    }
+
+    @Test
+    public void shapePointsAreSpreadOverFrames() {
+        ParticleProgram program = compile(Arrays.<Map<?, ?>>asList(
+                keyframe("shape", "ring", "points", 10, "radius", 1.0, "y", 2.0, "frames", 3)));
+
+        assertEquals(3, program.getLength());
+        int points = 0;
+        for (int i = 0; i < program.getLength(); i++) {
+            ParticleProgram.Frame frame = program.getFrame(i);
+            assertFalse(frame.hasJitter());
+            double[] offsets = frame.getOffsets();
+            for (int j = 0; j < offsets.length; j += 3) {
+                assertEquals(1.0, Math.hypot(offsets[j], offsets[j + 2]), EPSILON);
+                assertEquals(2.0, offsets[j + 1], EPSILON);
+                points++;
+            }
+        }
+        assertEquals(10, points);
+        assertSame("frames loop", program.getFrame(0), program.getFrame(3));
+    }
+
+    @Test
+    public void crownTipsReachSpikeHeight() {
+        ParticleProgram program = compile(Arrays.<Map<?, ?>>asList(
+                keyframe("shape", "crown", "points", 20, "y", 2.0, "spikes", 5, "spike_height", 0.4)));
+
+        double[] offsets = program.getFrame(0).getOffsets();
+        double lowest = Double.MAX_VALUE;
+        double highest = -Double.MAX_VALUE;
+        for (int i = 1; i < offsets.length; i += 3) {
+            lowest = Math.min(lowest, offsets[i]);
+            highest = Math.max(highest, offsets[i]);
+        }
+        assertEquals(2.0, lowest, EPSILON);
+        assertEquals(2.4, highest, EPSILON);
+    }
+
+    @Test
+    public void unknownShapesAreSkipped() {
+        ParticleProgram program = compile(Arrays.<Map<?, ?>>asList(
+                keyframe("shape", "pentagram"),
+                keyframe("shape", "spiral", "points", 8, "frames", 2)));
+
+        assertEquals(2, program.getLength());
+        assertEquals(12, program.getFrame(0).getOffsets().length);
+    }
+}
@@ -0,0 +1,144 @@
+package com.thefallersgames.crown.managers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+/**
+ * Tests for the incremental reign time leaderboard
+ */
+public class ReignLeaderboardTest {
+
+    @Test
+    public void reignsAddUp() {
+        ReignLeaderboard leaderboard = new ReignLeaderboard();
+        UUID player = UUID.randomUUID();
+
+        leaderboard.startReign(player, 1000L);
+        leaderboard.startReign(player, 1500L);
+        assertTrue(leaderboard.isReigning(player));
+        assertEquals(1000L, leaderboard.getReignTime(player, 2000L));
+
+        leaderboard.endReign(player, 3000L);
+        leaderboard.endReign(player, 4000L);
+        assertFalse(leaderboard.isReigning(player));
+        assertEquals(2000L, leaderboard.getReignTime(player, 9000L));
+
+        leaderboard.startReign(player, 10_000L);
+        leaderboard.endReign(player, 10_500L);
+        assertEquals(2500L, leaderboard.getReignTime(player, 20_000L));
+        assertEquals(1, leaderboard.size());
+    }
+
+    @Test
+    public void ongoingReignsOvertakeAsTimePasses() {
+        ReignLeaderboard leaderboard = new ReignLeaderboard();
+        UUID veteran = UUID.randomUUID();
+        UUID newcomer = UUID.randomUUID();
+        Map<UUID, Long> saved = new HashMap<>();
+        saved.put(veteran, 5000L);
+        leaderboard.load(saved);
+
+        leaderboard.startReign(newcomer, 0L);
+
+        List<ReignLeaderboard.Entry> early = leaderboard.getTop(10, 1000L);
+        assertEquals(veteran, early.get(0).getPlayer());
+        assertFalse(early.get(0).isReigning());
+        assertEquals(newcomer, early.get(1).getPlayer());
+        assertEquals(1000L, early.get(1).getMillis());
+        assertTrue(early.get(1).isReigning());
+
+        List<ReignLeaderboard.Entry> late = leaderboard.getTop(10, 8000L);
+        assertEquals(newcomer, late.get(0).getPlayer());
+        assertEquals(8000L, late.get(0).getMillis());
+        assertEquals(veteran, late.get(1).getPlayer());
+    }
+
+    @Test
+    public void topMergesRestingAndReigningPlayers() {
+        ReignLeaderboard leaderboard = new ReignLeaderboard();
+        Map<UUID, Long> saved = new HashMap<>();
+        for (int i = 1; i <= 50; i++) {
+            saved.put(new UUID(0L, i), i * 100L);
+        }
+        leaderboard.load(saved);
+        // Players 10, 20, ... start reigning at time 0 with 50 ms more than their total
+        for (int i = 10; i <= 50; i += 10) {
+            leaderboard.startReign(new UUID(0L, i), 0L);
+        }
+
+        List<ReignLeaderboard.Entry> top = leaderboard.getTop(5, 50L);
+        assertEquals(5, top.size());
+        long[] expected = {5050L, 4900L, 4800L, 4700L, 4600L};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], top.get(i).getMillis());
+        }
+        assertTrue(top.get(0).isReigning());
+        assertFalse(top.get(1).isReigning());
+
+        assertEquals(50, leaderboard.getTop(100, 50L).size());
+        assertTrue(leaderboard.getTop(0, 50L).isEmpty());
+    }
+
+    @Test
+    public void tiesAreOrderedByPlayer() {
+        ReignLeaderboard leaderboard = new ReignLeaderboard();
+        UUID first = new UUID(0L, 1L);
+        UUID second = new UUID(0L, 2L);
+        Map<UUID, Long> saved = new HashMap<>();
+        saved.put(second, 1000L);
+        leaderboard.load(saved);
+        leaderboard.startReign(first, 0L);
+
+        List<ReignLeaderboard.Entry> top = leaderboard.getTop(2, 1000L);
+        assertEquals(first, top.get(0).getPlayer());
+        assertEquals(second, top.get(1).getPlayer());
+    }
+
+    @Test
+    public void restartEndsOldReigns() {
+        ReignLeaderboard leaderboard = new ReignLeaderboard();
+        UUID leaving = UUID.randomUUID();
+        UUID staying = UUID.randomUUID();
+        leaderboard.restartReigns(Arrays.asList(leaving, staying), 0L);
+
+        leaderboard.restartReigns(Collections.singleton(staying), 1000L);
+        assertFalse(leaderboard.isReigning(leaving));
+        assertTrue(leaderboard.isReigning(staying));
+        assertEquals(1000L, leaderboard.getReignTime(leaving, 5000L));
+        assertEquals(5000L, leaderboard.getReignTime(staying, 5000L));
+    }
+
+    @Test
+    public void snapshotsCountOngoingReigns() {
+        ReignLeaderboard leaderboard = new ReignLeaderboard();
+        UUID resting = UUID.randomUUID();
+        UUID reigning = UUID.randomUUID();
+        Map<UUID, Long> saved = new HashMap<>();
+        saved.put(resting, 300L);
+        saved.put(reigning, 200L);
+        leaderboard.load(saved);
+        assertFalse(leaderboard.isDirty());
+
+        leaderboard.startReign(reigning, 1000L);
+        Map<UUID, Long> snapshot = leaderboard.takeSnapshot(1500L);
+        assertEquals(Long.valueOf(300L), snapshot.get(resting));
+        assertEquals(Long.valueOf(700L), snapshot.get(reigning));
+        // The ongoing reign keeps the totals changing
+        assertTrue(leaderboard.isDirty());
+
+        leaderboard.endReign(reigning, 2000L);
+        leaderboard.takeSnapshot(2000L);
+        assertFalse(leaderboard.isDirty());
+        assertEquals(1200L, leaderboard.getReignTime(reigning, 2000L));
+    }
+}
@@ -0,0 +1,94 @@
+package com.thefallersgames.crown.managers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thefallersgames.crown.testutil.FakePlayer;
+import com.thefallersgames.crown.testutil.FakeScheduler;
+import com.thefallersgames.crown.testutil.FakeServer;
+import com.thefallersgames.crown.testutil.TestCrownPlugin;
+
+/**
+ * Tests that respawned owners get their crowns back through the shared queue
+ */
+public class RespawnQueueTest {
+    private static final int OWNERS = 40;
+
+    private TestCrownPlugin plugin;
+    private FakeScheduler scheduler;
+    private List<FakePlayer> owners;
+
+    @Before
+    public void setUp() {
+        FakeServer.get().reset();
+        scheduler = FakeServer.get().getFakeScheduler();
+        plugin = TestCrownPlugin.create();
+        plugin.getConfig().set("performance.respawns_per_tick", 5);
+        plugin.enable();
+
+        owners = new ArrayList<>();
+        for (int i = 0; i < OWNERS; i++) {
+            FakePlayer owner = FakeServer.get().addPlayer("Owner" + i);
+            plugin.getCrownManager().markForRespawn(owner.getUniqueId());
+            owners.add(owner);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        plugin.getRespawnQueue().stop();
+        FakeServer.get().reset();
+        plugin.deleteDataFolder();
+    }
+
+    @Test
+    public void massRespawnIsSpreadOverTicks() {
+        for (FakePlayer owner : owners) {
+            plugin.getRespawnQueue().add(owner.asPlayer());
+        }
+        assertEquals(OWNERS, plugin.getRespawnQueue().size());
+
+        scheduler.tick();
+        assertEquals(OWNERS - 5, plugin.getRespawnQueue().size());
+
+        scheduler.tick(OWNERS / 5);
+        assertEquals(0, plugin.getRespawnQueue().size());
+        for (FakePlayer owner : owners) {
+            assertTrue(plugin.getCrownManager().isPlayerCrownOwner(owner.getUniqueId()));
+        }
+        assertTrue("completed respawns leave no entries behind",
+                plugin.getCrownManager().getPendingCrownRespawn().isEmpty());
+    }
+
+    @Test
+    public void playersThatLeftAreDropped() {
+        FakePlayer owner = owners.get(0);
+        plugin.getRespawnQueue().add(owner.asPlayer());
+        FakeServer.get().removePlayer(owner);
+
+        scheduler.tick();
+
+        assertEquals(0, plugin.getRespawnQueue().size());
+        assertTrue("the flag stays for the next join",
+                plugin.getCrownManager().shouldReceiveCrownOnRespawn(owner.getUniqueId()));
+    }
+
+    @Test
+    public void clearingTheFlagRemovesTheEntry() {
+        FakePlayer owner = owners.get(0);
+
+        plugin.getCrownManager().setCrownRespawnFlag(owner.getUniqueId(), false);
+
+        assertFalse(plugin.getCrownManager().getPendingCrownRespawn().containsKey(owner.getUniqueId()));
+        plugin.getRespawnQueue().add(owner.asPlayer());
+        assertEquals("players without a flag are not queued", 0, plugin.getRespawnQueue().size());
+    }
+}
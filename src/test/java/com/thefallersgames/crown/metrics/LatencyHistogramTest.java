@@ -0,0 +1,99 @@
+package com.thefallersgames.crown.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for the bucketed latency histogram and its Prometheus output.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void samplesLandInTheFirstBucketTheyFit() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0L);
+        histogram.record(1_000L);
+        histogram.record(1_001L);
+        histogram.record(Long.MAX_VALUE / 2);
+
+        long[] counts = histogram.getBucketCounts();
+        assertEquals(2L, counts[0]);
+        assertEquals(1L, counts[1]);
+        assertEquals(1L, counts[counts.length - 1]);
+        assertEquals(4L, histogram.getCount());
+    }
+
+    @Test
+    public void percentileBoundIsTheBucketHoldingTheRank() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(500L);
+        }
+        histogram.record(40_000_000L);
+
+        long[] counts = histogram.getBucketCounts();
+        assertEquals(1_000L, LatencyHistogram.getPercentileBound(counts, 0.99));
+        assertEquals(50_000_000L, LatencyHistogram.getPercentileBound(counts, 1.0));
+        assertEquals(0L, LatencyHistogram.getPercentileBound(new LatencyHistogram().getBucketCounts(), 0.99));
+    }
+
+    @Test
+    public void concurrentRecordingLosesNoSamples() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400_000L, histogram.getCount());
+        assertEquals(4L * (100_000L * 99_999L / 2), histogram.getSumNanos());
+    }
+
+    @Test
+    public void disabledMetricsRecordNothing() {
+        CrownMetrics metrics = new CrownMetrics();
+        metrics.setEnabled(false);
+        long start = metrics.start();
+        metrics.recordHandler(CrownMetrics.Handler.JOIN, start);
+        metrics.recordStorage(CrownMetrics.StorageOperation.SAVE, start, false);
+
+        assertEquals(0L, metrics.getHandlerTimes(CrownMetrics.Handler.JOIN).getCount());
+        assertEquals(0L, metrics.getStorageErrors(CrownMetrics.StorageOperation.SAVE));
+    }
+
+    @Test
+    public void prometheusHistogramIsCumulativeWithMatchingCount() {
+        CrownMetrics metrics = new CrownMetrics();
+        metrics.recordHandler(CrownMetrics.Handler.DEATH, metrics.start());
+        metrics.recordParticleTick(3_000L, 7);
+        metrics.recordParticleTick(2_000_000L, 1);
+
+        StringBuilder out = new StringBuilder();
+        PrometheusFormat.appendMetrics(out, metrics);
+        String text = out.toString();
+
+        assertTrue(text.contains("# TYPE crown_handler_seconds histogram\n"));
+        assertTrue(text.contains("crown_handler_seconds_count{handler=\"death\"} 1\n"));
+        assertTrue(text.contains("crown_particle_tick_seconds_bucket{le=\"0.000001\"} 0\n"));
+        assertTrue(text.contains("crown_particle_tick_seconds_bucket{le=\"0.000005\"} 1\n"));
+        assertTrue(text.contains("crown_particle_tick_seconds_bucket{le=\"0.0025\"} 2\n"));
+        assertTrue(text.contains("crown_particle_tick_seconds_bucket{le=\"+Inf\"} 2\n"));
+        assertTrue(text.contains("crown_particle_tick_seconds_count 2\n"));
+        assertTrue(text.contains("crown_particle_tick_seconds_sum 0.002003000\n"));
+        assertTrue(text.contains("crown_particle_packets_total 8\n"));
+    }
+}
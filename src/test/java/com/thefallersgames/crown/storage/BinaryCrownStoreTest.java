@@ -0,0 +1,77 @@
+package com.thefallersgames.crown.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+/**
+ * Tests for the binary store and its handling of unreadable files
+ */
+public class BinaryCrownStoreTest {
+
+    @Test
+    public void savesAndLoads() throws IOException {
+        File directory = Files.createTempDirectory("store").toFile();
+        try {
+            BinaryCrownStore store = new BinaryCrownStore(new File(directory, "data.dat"));
+            assertFalse(store.exists());
+
+            Map<UUID, UUID> owners = new HashMap<>();
+            UUID player = UUID.randomUUID();
+            owners.put(player, player);
+            store.save(owners, new HashMap<>());
+            assertTrue(store.exists());
+
+            Map<UUID, UUID> loaded = new HashMap<>();
+            store.load(loaded, new HashMap<>());
+            assertEquals(owners, loaded);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void movesUnreadableFileAside() throws IOException {
+        File directory = Files.createTempDirectory("store").toFile();
+        try {
+            File file = new File(directory, "data.dat");
+            Files.write(file.toPath(), new byte[] {1, 2, 3});
+            BinaryCrownStore store = new BinaryCrownStore(file);
+
+            try {
+                store.load(new HashMap<>(), new HashMap<>());
+                fail("unreadable file was accepted");
+            } catch (IOException e) {
+                // Expected
+            }
+
+            // The next save must not overwrite the broken data
+            assertFalse(store.exists());
+            File[] moved = directory.listFiles((dir, name) -> name.startsWith("data.dat.corrupt-"));
+            assertEquals(1, moved.length);
+            assertEquals(3, moved[0].length());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static void delete(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
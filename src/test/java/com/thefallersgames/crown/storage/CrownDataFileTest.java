@@ -0,0 +1,109 @@
+package com.thefallersgames.crown.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+/**
+ * Tests for the binary crown data format
+ */
+public class CrownDataFileTest {
+
+    @Test
+    public void roundTrip() throws IOException {
+        Map<UUID, UUID> owners = new HashMap<>();
+        Map<UUID, Boolean> respawns = new HashMap<>();
+        UUID other = UUID.randomUUID();
+        for (int i = 0; i < 100; i++) {
+            UUID player = UUID.randomUUID();
+            owners.put(player, i % 10 == 0 ? other : player);
+        }
+        UUID respawning = UUID.randomUUID();
+        respawns.put(respawning, true);
+        respawns.put(UUID.randomUUID(), false);
+
+        File file = File.createTempFile("data", ".dat");
+        try {
+            CrownDataFile.write(file, owners, respawns);
+
+            Map<UUID, UUID> readOwners = new HashMap<>();
+            Map<UUID, Boolean> readRespawns = new HashMap<>();
+            assertEquals(0L, CrownDataFile.read(file, readOwners, readRespawns));
+            assertEquals(owners, readOwners);
+            // Cleared flags behave like missing entries and are not stored
+            assertEquals(1, readRespawns.size());
+            assertEquals(Boolean.TRUE, readRespawns.get(respawning));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void keepsSequenceNumber() throws IOException {
+        Map<UUID, UUID> owners = new HashMap<>();
+        UUID player = UUID.randomUUID();
+        owners.put(player, player);
+
+        File file = File.createTempFile("data", ".dat");
+        try {
+            CrownDataFile.write(file, owners, new HashMap<>(), 42L);
+
+            Map<UUID, UUID> readOwners = new HashMap<>();
+            assertEquals(42L, CrownDataFile.read(file, readOwners, new HashMap<>()));
+            assertEquals(owners, readOwners);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void rejectsBadMagic() throws IOException {
+        byte[] content = CrownDataFile.encode(new HashMap<>(), new HashMap<>());
+        content[0] = 'X';
+        assertRejected(content);
+    }
+
+    @Test
+    public void rejectsUnknownVersion() throws IOException {
+        byte[] content = CrownDataFile.encode(new HashMap<>(), new HashMap<>());
+        ByteBuffer.wrap(content).putInt(4, 99);
+        assertRejected(content);
+    }
+
+    @Test
+    public void rejectsCorruptAndTruncatedFiles() throws IOException {
+        Map<UUID, UUID> owners = new HashMap<>();
+        UUID player = UUID.randomUUID();
+        owners.put(player, player);
+        byte[] content = CrownDataFile.encode(owners, new HashMap<>());
+
+        byte[] corrupt = content.clone();
+        corrupt[20] ^= 1;
+        assertRejected(corrupt);
+        assertRejected(Arrays.copyOf(content, content.length - 1));
+        assertRejected(new byte[3]);
+    }
+
+    private static void assertRejected(byte[] content) throws IOException {
+        File file = File.createTempFile("data", ".dat");
+        try {
+            Files.write(file.toPath(), content);
+            CrownDataFile.read(file, new HashMap<>(), new HashMap<>());
+            fail("invalid file was accepted");
+        } catch (IOException e) {
+            // Expected
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.thefallersgames.crown.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+/**
+ * Tests for recovering the crown journal after crashes and corruption
+ */
+public class CrownJournalTest {
+
+    @Test
+    public void replaysLogOnTopOfSnapshot() throws IOException {
+        File directory = Files.createTempDirectory("journal").toFile();
+        try {
+            UUID kept = UUID.randomUUID();
+            UUID removed = UUID.randomUUID();
+            UUID added = UUID.randomUUID();
+            Map<UUID, UUID> owners = new HashMap<>();
+            owners.put(kept, kept);
+            owners.put(removed, removed);
+
+            CrownJournal journal = new CrownJournal(directory);
+            journal.load();
+            journal.compact(owners, new HashMap<>());
+            journal.append(Arrays.asList(
+                    CrownMutation.removeOwner(removed),
+                    CrownMutation.setOwner(added, kept),
+                    CrownMutation.setRespawn(kept, true)), false);
+            journal.close();
+
+            CrownJournal.State state = new CrownJournal(directory).load();
+            assertEquals(2, state.getSnapshotEntries());
+            assertEquals(3, state.getReplayedRecords());
+            assertEquals(kept, state.getCrownOwners().get(kept));
+            assertEquals(kept, state.getCrownOwners().get(added));
+            assertFalse(state.getCrownOwners().containsKey(removed));
+            assertEquals(Boolean.TRUE, state.getPendingRespawns().get(kept));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void truncatesTornTail() throws IOException {
+        File directory = Files.createTempDirectory("journal").toFile();
+        try {
+            UUID first = UUID.randomUUID();
+            UUID second = UUID.randomUUID();
+            CrownJournal journal = new CrownJournal(directory);
+            journal.load();
+            journal.append(Arrays.asList(CrownMutation.setOwner(first, first), CrownMutation.setOwner(second, second)), false);
+            journal.close();
+
+            // Cut the second record in half, as a crash mid-append would
+            File log = new File(directory, CrownJournal.LOG_FILE);
+            long tornLength = log.length() - CrownJournal.RECORD_SIZE / 2;
+            try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+                file.setLength(tornLength);
+            }
+
+            CrownJournal reopened = new CrownJournal(directory);
+            CrownJournal.State state = reopened.load();
+            assertEquals(1, state.getReplayedRecords());
+            assertEquals(CrownJournal.RECORD_SIZE - CrownJournal.RECORD_SIZE / 2, state.getDiscardedBytes());
+            assertTrue(state.getCrownOwners().containsKey(first));
+            assertFalse(state.getCrownOwners().containsKey(second));
+
+            // New records follow the last valid one
+            reopened.append(Collections.singletonList(CrownMutation.setOwner(second, second)), false);
+            reopened.close();
+            CrownJournal.State recovered = new CrownJournal(directory).verify();
+            assertEquals(2, recovered.getReplayedRecords());
+            assertEquals(0, recovered.getDiscardedBytes());
+            assertTrue(recovered.getCrownOwners().containsKey(second));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void stopsAtRecordWithBadChecksum() throws IOException {
+        File directory = Files.createTempDirectory("journal").toFile();
+        try {
+            UUID first = UUID.randomUUID();
+            UUID second = UUID.randomUUID();
+            UUID third = UUID.randomUUID();
+            CrownJournal journal = new CrownJournal(directory);
+            journal.load();
+            journal.append(Arrays.asList(
+                    CrownMutation.setOwner(first, first),
+                    CrownMutation.setOwner(second, second),
+                    CrownMutation.setOwner(third, third)), false);
+            journal.close();
+
+            // Flip a bit in the player UUID of the second record
+            File log = new File(directory, CrownJournal.LOG_FILE);
+            long secondRecord = log.length() - 2L * CrownJournal.RECORD_SIZE;
+            try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+                file.seek(secondRecord + 5);
+                int value = file.read();
+                file.seek(secondRecord + 5);
+                file.write(value ^ 1);
+            }
+
+            CrownJournal.State state = new CrownJournal(directory).verify();
+            assertEquals(1, state.getReplayedRecords());
+            assertEquals(2L * CrownJournal.RECORD_SIZE, state.getDiscardedBytes());
+            assertEquals(Collections.singleton(first), state.getCrownOwners().keySet());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void skipsLogLeftOverFromBeforeSnapshot() throws IOException {
+        File directory = Files.createTempDirectory("journal").toFile();
+        try {
+            UUID player = UUID.randomUUID();
+            CrownJournal journal = new CrownJournal(directory);
+            journal.load();
+            journal.compact(new HashMap<>(), new HashMap<>());
+            // The removal of this owner never reached the log, only the next snapshot
+            journal.append(Collections.singletonList(CrownMutation.setOwner(player, player)), false);
+            File log = new File(directory, CrownJournal.LOG_FILE);
+            byte[] staleLog = Files.readAllBytes(log.toPath());
+
+            journal.compact(new HashMap<>(), new HashMap<>());
+            journal.close();
+            // Crash after the snapshot was renamed into place but before the log was truncated
+            Files.write(log.toPath(), staleLog);
+
+            CrownJournal reopened = new CrownJournal(directory);
+            CrownJournal.State state = reopened.load();
+            assertEquals(0, state.getReplayedRecords());
+            assertEquals(1, state.getSkippedRecords());
+            assertTrue(state.getCrownOwners().isEmpty());
+
+            // The stale log was reset, so new records are replayed again
+            reopened.append(Collections.singletonList(CrownMutation.setOwner(player, player)), false);
+            reopened.close();
+            CrownJournal.State recovered = new CrownJournal(directory).verify();
+            assertEquals(1, recovered.getReplayedRecords());
+            assertEquals(0, recovered.getSkippedRecords());
+            assertTrue(recovered.getCrownOwners().containsKey(player));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void neverAppendsToLogOfPreviousGeneration() throws IOException {
+        File directory = Files.createTempDirectory("journal").toFile();
+        try {
+            UUID player = UUID.randomUUID();
+            CrownJournal journal = new CrownJournal(directory);
+            journal.load();
+            journal.close();
+
+            // A directory in place of the log makes resetting it fail after the snapshot was written
+            File log = new File(directory, CrownJournal.LOG_FILE);
+            assertTrue(log.delete() && log.mkdir());
+            try {
+                journal.compact(new HashMap<>(), new HashMap<>());
+                fail("the log could be reset");
+            } catch (IOException e) {
+                // Expected
+            }
+            assertTrue(log.delete());
+            try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+                // A log header of generation 0, older than the snapshot
+                file.writeInt(0x43524A4C);
+                file.writeInt(2);
+                file.writeLong(0L);
+            }
+
+            journal.append(Collections.singletonList(CrownMutation.setOwner(player, player)), false);
+            journal.close();
+            CrownJournal.State state = new CrownJournal(directory).verify();
+            assertEquals(1, state.getReplayedRecords());
+            assertEquals(0, state.getSkippedRecords());
+            assertTrue(state.getCrownOwners().containsKey(player));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static void delete(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
@@ -0,0 +1,63 @@
+package com.thefallersgames.crown.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+/**
+ * Tests for the binary file of player names and pending crown operations
+ */
+public class PlayerDataFileTest {
+
+    @Test
+    public void roundTrip() throws IOException {
+        Map<UUID, String> names = new HashMap<>();
+        Map<UUID, Boolean> pending = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            names.put(UUID.randomUUID(), "Player" + i);
+        }
+        names.put(UUID.randomUUID(), "N\u00e4me");
+        pending.put(UUID.randomUUID(), true);
+        pending.put(UUID.randomUUID(), false);
+
+        File file = File.createTempFile("players", ".dat");
+        try {
+            PlayerDataFile.write(file, names, pending);
+
+            Map<UUID, String> readNames = new HashMap<>();
+            Map<UUID, Boolean> readPending = new HashMap<>();
+            PlayerDataFile.read(file, readNames, readPending);
+            assertEquals(names, readNames);
+            assertEquals(pending, readPending);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void rejectsCorruptFiles() throws IOException {
+        Map<UUID, String> names = new HashMap<>();
+        names.put(UUID.randomUUID(), "Player");
+        byte[] content = PlayerDataFile.encode(names, new HashMap<>());
+        content[20] ^= 1;
+
+        File file = File.createTempFile("players", ".dat");
+        try {
+            Files.write(file.toPath(), content);
+            PlayerDataFile.read(file, new HashMap<>(), new HashMap<>());
+            fail("checksum mismatch was not detected");
+        } catch (IOException e) {
+            // Expected
+        } finally {
+            file.delete();
+        }
+    }
+}
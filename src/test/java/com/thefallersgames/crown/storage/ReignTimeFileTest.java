@@ -0,0 +1,78 @@
+package com.thefallersgames.crown.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+/**
+ * Tests for the binary file of total reign times
+ */
+public class ReignTimeFileTest {
+
+    @Test
+    public void roundTrip() throws IOException {
+        Map<UUID, Long> totals = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            totals.put(UUID.randomUUID(), i * 60_000L);
+        }
+        totals.put(UUID.randomUUID(), Long.MAX_VALUE);
+
+        File file = File.createTempFile("reign", ".dat");
+        try {
+            ReignTimeFile.write(file, totals);
+
+            Map<UUID, Long> read = new HashMap<>();
+            ReignTimeFile.read(file, read);
+            assertEquals(totals, read);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void rejectsCorruptFiles() throws IOException {
+        Map<UUID, Long> totals = new HashMap<>();
+        totals.put(UUID.randomUUID(), 1000L);
+        byte[] content = ReignTimeFile.encode(totals);
+        content[20] ^= 1;
+
+        File file = File.createTempFile("reign", ".dat");
+        try {
+            Files.write(file.toPath(), content);
+            ReignTimeFile.read(file, new HashMap<>());
+            fail("checksum mismatch was not detected");
+        } catch (IOException e) {
+            // Expected
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void rejectsTruncatedFiles() throws IOException {
+        Map<UUID, Long> totals = new HashMap<>();
+        totals.put(UUID.randomUUID(), 1000L);
+        totals.put(UUID.randomUUID(), 2000L);
+        byte[] content = ReignTimeFile.encode(totals);
+
+        File file = File.createTempFile("reign", ".dat");
+        try {
+            Files.write(file.toPath(), Arrays.copyOf(content, content.length - 10));
+            ReignTimeFile.read(file, new HashMap<>());
+            fail("truncated file was not detected");
+        } catch (IOException e) {
+            // Expected
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.thefallersgames.crown.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+/**
+ * Tests for the SQLite store. The driver is bundled with the server, so the
+ * tests that open a database use the sqlite-jdbc test dependency.
+ */
+public class SqlCrownStoreTest {
+
+    @Test
+    public void keepsLastChangePerPlayerAndTable() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        CrownMutation lastOwner = CrownMutation.removeOwner(first);
+        CrownMutation secondOwner = CrownMutation.setOwner(second, first);
+        CrownMutation lastRespawn = CrownMutation.setRespawn(first, false);
+
+        Map<UUID, CrownMutation> owners = new LinkedHashMap<>();
+        Map<UUID, CrownMutation> respawns = new LinkedHashMap<>();
+        SqlCrownStore.coalesce(Arrays.asList(
+                CrownMutation.setOwner(first, first),
+                CrownMutation.setRespawn(first, true),
+                secondOwner,
+                lastOwner,
+                lastRespawn), owners, respawns);
+
+        assertEquals(2, owners.size());
+        assertSame(lastOwner, owners.get(first));
+        assertSame(secondOwner, owners.get(second));
+        assertEquals(1, respawns.size());
+        assertSame(lastRespawn, respawns.get(first));
+    }
+
+    @Test
+    public void keepsOwnerAndRespawnChangesApart() {
+        UUID player = UUID.randomUUID();
+        Map<UUID, CrownMutation> owners = new LinkedHashMap<>();
+        Map<UUID, CrownMutation> respawns = new LinkedHashMap<>();
+        SqlCrownStore.coalesce(Arrays.asList(
+                CrownMutation.setOwner(player, player),
+                CrownMutation.removeRespawn(player)), owners, respawns);
+
+        assertEquals(CrownMutation.Type.SET_OWNER, owners.get(player).getType());
+        assertEquals(CrownMutation.Type.REMOVE_RESPAWN, respawns.get(player).getType());
+    }
+
+    @Test
+    public void savesAndLoads() throws IOException {
+        File directory = Files.createTempDirectory("store").toFile();
+        SqlCrownStore store = new SqlCrownStore(new File(directory, "crown.db"), 2);
+        try {
+            assertFalse(store.exists());
+
+            UUID king = UUID.randomUUID();
+            UUID holder = UUID.randomUUID();
+            Map<UUID, UUID> owners = new HashMap<>();
+            owners.put(king, king);
+            owners.put(holder, king);
+            owners.put(UUID.randomUUID(), UUID.randomUUID());
+            Map<UUID, Boolean> respawns = new HashMap<>();
+            respawns.put(holder, true);
+            store.save(owners, respawns);
+            assertTrue(store.exists());
+
+            Map<UUID, UUID> loadedOwners = new HashMap<>();
+            Map<UUID, Boolean> loadedRespawns = new HashMap<>();
+            store.load(loadedOwners, loadedRespawns);
+            assertEquals(owners, loadedOwners);
+            assertEquals(respawns, loadedRespawns);
+        } finally {
+            store.close();
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void appliesMutations() throws IOException {
+        File directory = Files.createTempDirectory("store").toFile();
+        SqlCrownStore store = new SqlCrownStore(new File(directory, "crown.db"), 2);
+        try {
+            UUID first = UUID.randomUUID();
+            UUID second = UUID.randomUUID();
+            Map<UUID, UUID> owners = new HashMap<>();
+            owners.put(first, first);
+            Map<UUID, Boolean> respawns = new HashMap<>();
+            respawns.put(first, true);
+            store.save(owners, respawns);
+
+            store.apply(Arrays.asList(
+                    CrownMutation.setOwner(second, first),
+                    CrownMutation.removeOwner(first),
+                    CrownMutation.removeRespawn(first),
+                    CrownMutation.setRespawn(second, true)));
+
+            Map<UUID, UUID> loadedOwners = new HashMap<>();
+            Map<UUID, Boolean> loadedRespawns = new HashMap<>();
+            store.load(loadedOwners, loadedRespawns);
+            assertEquals(1, loadedOwners.size());
+            assertEquals(first, loadedOwners.get(second));
+            assertEquals(1, loadedRespawns.size());
+            assertEquals(Boolean.TRUE, loadedRespawns.get(second));
+        } finally {
+            store.close();
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void looksUpSinglePlayers() throws Exception {
+        File directory = Files.createTempDirectory("store").toFile();
+        SqlCrownStore store = new SqlCrownStore(new File(directory, "crown.db"), 16);
+        try {
+            UUID king = UUID.randomUUID();
+            UUID holder = UUID.randomUUID();
+            Map<UUID, UUID> owners = new HashMap<>();
+            owners.put(holder, king);
+            store.save(owners, new HashMap<>());
+
+            assertTrue(store.supportsLookup());
+            assertEquals(king, store.lookupOwner(holder).get());
+            assertNull(store.lookupOwner(king).get());
+        } finally {
+            store.close();
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void lookupAfterCloseFails() throws IOException, InterruptedException {
+        File directory = Files.createTempDirectory("store").toFile();
+        SqlCrownStore store = new SqlCrownStore(new File(directory, "crown.db"), 16);
+        try {
+            store.save(new HashMap<>(), new HashMap<>());
+            store.close();
+
+            CompletableFuture<UUID> lookup = store.lookupOwner(UUID.randomUUID());
+            try {
+                lookup.get();
+                fail("lookup on a closed store succeeded");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+        } finally {
+            store.close();
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void movesUnreadableDatabaseAside() throws IOException {
+        File directory = Files.createTempDirectory("store").toFile();
+        File file = new File(directory, "crown.db");
+        StringBuilder garbage = new StringBuilder();
+        while (garbage.length() < 4096) {
+            garbage.append("this is not a database ");
+        }
+        Files.write(file.toPath(), garbage.toString().getBytes(StandardCharsets.US_ASCII));
+        SqlCrownStore store = new SqlCrownStore(file, 16);
+        try {
+            try {
+                store.load(new HashMap<>(), new HashMap<>());
+                fail("unreadable database was accepted");
+            } catch (IOException e) {
+                // Expected
+            }
+
+            // The next save must not overwrite the broken data
+            assertFalse(file.exists());
+            File[] moved = directory.listFiles((dir, name) -> name.startsWith("crown.db.corrupt-")
+                    && !name.endsWith("-wal") && !name.endsWith("-shm"));
+            assertEquals(1, moved.length);
+            assertEquals(garbage.length(), moved[0].length());
+        } finally {
+            store.close();
+            delete(directory);
+        }
+    }
+
+    private static void delete(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
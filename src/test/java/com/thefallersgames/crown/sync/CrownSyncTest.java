@@ -0,0 +1,76 @@
+package com.thefallersgames.crown.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thefallersgames.crown.managers.CrownManager;
+import com.thefallersgames.crown.testutil.FakeServer;
+import com.thefallersgames.crown.testutil.TestCrownPlugin;
+
+/**
+ * Tests for two servers syncing crown ownership over a loopback channel
+ */
+public class CrownSyncTest {
+    private TestCrownPlugin first;
+    private TestCrownPlugin second;
+    private CrownSync firstSync;
+    private CrownSync secondSync;
+
+    @Before
+    public void setUp() throws IOException {
+        FakeServer.get().reset();
+        String channel = "test-" + UUID.randomUUID();
+        first = TestCrownPlugin.create().enable();
+        second = TestCrownPlugin.create().enable();
+        firstSync = first.enableSync(new LoopbackTransport(channel), "a");
+        secondSync = second.enableSync(new LoopbackTransport(channel), "b");
+    }
+
+    @After
+    public void tearDown() {
+        firstSync.stop();
+        secondSync.stop();
+        FakeServer.get().reset();
+        first.deleteDataFolder();
+        second.deleteDataFolder();
+    }
+
+    @Test
+    public void changesWithinOneTickAreSentAsOneEntry() {
+        UUID player = UUID.randomUUID();
+        CrownManager firstManager = first.getCrownManager();
+        firstManager.registerPlayerAsCrownOwner(player);
+        firstManager.removePlayerFromCrownOwners(player);
+        firstManager.registerPlayerAsCrownOwner(player);
+
+        FakeServer.get().getFakeScheduler().tick(2);
+
+        assertEquals(1, firstSync.getBatchesSent());
+        assertEquals(1, secondSync.getBatchesReceived());
+        assertEquals(1, secondSync.getChangesApplied());
+        assertTrue(second.getCrownManager().isPlayerCrownOwner(player));
+    }
+
+    @Test
+    public void concurrentChangesConverge() {
+        UUID player = UUID.randomUUID();
+        first.getCrownManager().markForRespawn(player);
+        FakeServer.get().getFakeScheduler().tick(2);
+        assertTrue(second.getCrownManager().shouldReceiveCrownOnRespawn(player));
+
+        // Both servers change the same flag before seeing the other change
+        first.getCrownManager().setCrownRespawnFlag(player, false);
+        second.getCrownManager().markForRespawn(player);
+        FakeServer.get().getFakeScheduler().tick(2);
+
+        assertEquals(first.getCrownManager().shouldReceiveCrownOnRespawn(player),
+                second.getCrownManager().shouldReceiveCrownOnRespawn(player));
+    }
+}
@@ -0,0 +1,86 @@
+package com.thefallersgames.crown.sync;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+/**
+ * Tests for two servers exchanging messages through a shared folder
+ */
+public class FileTransportTest {
+    private static final Logger LOGGER = Logger.getLogger("FileTransportTest");
+
+    @Test
+    public void deliversToOtherServersInOrder() throws IOException, InterruptedException {
+        File directory = Files.createTempDirectory("sync").toFile();
+        FileTransport first = new FileTransport(directory, "a", 10L, LOGGER);
+        FileTransport second = new FileTransport(directory, "b", 10L, LOGGER);
+        BlockingQueue<byte[]> firstReceived = new LinkedBlockingQueue<>();
+        BlockingQueue<byte[]> secondReceived = new LinkedBlockingQueue<>();
+        try {
+            first.start(firstReceived::add);
+            second.start(secondReceived::add);
+
+            first.send(new byte[] {1});
+            first.send(new byte[] {2});
+            second.send(new byte[] {3});
+
+            assertArrayEquals(new byte[] {1}, secondReceived.poll(5, TimeUnit.SECONDS));
+            assertArrayEquals(new byte[] {2}, secondReceived.poll(5, TimeUnit.SECONDS));
+            assertArrayEquals(new byte[] {3}, firstReceived.poll(5, TimeUnit.SECONDS));
+
+            // Nobody receives their own messages
+            assertNull(firstReceived.poll(100, TimeUnit.MILLISECONDS));
+            assertNull(secondReceived.poll(100, TimeUnit.MILLISECONDS));
+        } finally {
+            first.close();
+            second.close();
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void skipsMessagesFromBeforeStart() throws IOException, InterruptedException {
+        File directory = Files.createTempDirectory("sync").toFile();
+        FileTransport first = new FileTransport(directory, "a", 10L, LOGGER);
+        FileTransport second = new FileTransport(directory, "b", 10L, LOGGER);
+        BlockingQueue<byte[]> secondReceived = new LinkedBlockingQueue<>();
+        try {
+            first.start(message -> { });
+            first.send(new byte[] {1});
+            first.close();
+
+            first = new FileTransport(directory, "a", 10L, LOGGER);
+            first.start(message -> { });
+            second.start(secondReceived::add);
+            first.send(new byte[] {2});
+
+            // The restarted server continues its numbering, so the new message is not mistaken for an old one
+            assertArrayEquals(new byte[] {2}, secondReceived.poll(5, TimeUnit.SECONDS));
+            assertNull(secondReceived.poll(100, TimeUnit.MILLISECONDS));
+        } finally {
+            first.close();
+            second.close();
+            delete(directory);
+        }
+    }
+
+    private static void delete(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
@@ -0,0 +1,108 @@
+package com.thefallersgames.crown.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.thefallersgames.crown.storage.CrownMutation;
+
+/**
+ * Tests for the encoding of batches of ownership changes
+ */
+public class SyncBatchTest {
+
+    @Test
+    public void roundTrip() throws IOException {
+        UUID player = UUID.randomUUID();
+        UUID owner = UUID.randomUUID();
+        List<SyncBatch.Entry> entries = Arrays.asList(
+                new SyncBatch.Entry(CrownMutation.setRespawn(player, true), 1_700_000_000_012L),
+                new SyncBatch.Entry(CrownMutation.setOwner(player, player), 1_700_000_000_010L),
+                new SyncBatch.Entry(CrownMutation.setOwner(owner, player), 1_700_000_000_011L),
+                new SyncBatch.Entry(CrownMutation.removeOwner(owner), 1_700_000_000_300L),
+                new SyncBatch.Entry(CrownMutation.removeRespawn(owner), 1_700_000_000_301L));
+
+        SyncBatch batch = SyncBatch.decode(new SyncBatch("lobby-1", 42L, entries).encode());
+        assertEquals("lobby-1", batch.getOrigin());
+        assertEquals(42L, batch.getSequence());
+        assertEquals(5, batch.getEntries().size());
+
+        // Entries come back ordered by clock
+        long previous = Long.MIN_VALUE;
+        for (SyncBatch.Entry entry : batch.getEntries()) {
+            assertTrue(entry.getClock() > previous);
+            previous = entry.getClock();
+        }
+
+        SyncBatch.Entry first = batch.getEntries().get(0);
+        assertEquals(CrownMutation.Type.SET_OWNER, first.getMutation().getType());
+        assertEquals(player, first.getMutation().getOwner());
+        SyncBatch.Entry second = batch.getEntries().get(1);
+        assertEquals(owner, second.getMutation().getPlayer());
+        assertEquals(player, second.getMutation().getOwner());
+        SyncBatch.Entry third = batch.getEntries().get(2);
+        assertEquals(CrownMutation.Type.SET_RESPAWN, third.getMutation().getType());
+        assertTrue(third.getMutation().getRespawn());
+        assertEquals(1_700_000_000_012L, third.getClock());
+        assertEquals(CrownMutation.Type.REMOVE_OWNER, batch.getEntries().get(3).getMutation().getType());
+        assertEquals(CrownMutation.Type.REMOVE_RESPAWN, batch.getEntries().get(4).getMutation().getType());
+        assertEquals(1_700_000_000_301L, batch.getEntries().get(4).getClock());
+    }
+
+    @Test
+    public void selfOwnedCrownsAreSmall() {
+        List<SyncBatch.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            UUID player = UUID.randomUUID();
+            entries.add(new SyncBatch.Entry(CrownMutation.setOwner(player, player), 1_700_000_000_000L + i));
+        }
+
+        byte[] empty = new SyncBatch("s", 1L, new ArrayList<>()).encode();
+        byte[] full = new SyncBatch("s", 1L, entries).encode();
+        // Type, player and a one-byte clock difference, plus a longer count and first clock
+        assertTrue(full.length - empty.length <= 1000 * 18 + 8);
+    }
+
+    @Test
+    public void emptyBatch() throws IOException {
+        SyncBatch batch = SyncBatch.decode(new SyncBatch("s", 7L, new ArrayList<>()).encode());
+        assertEquals(7L, batch.getSequence());
+        assertTrue(batch.getEntries().isEmpty());
+    }
+
+    @Test
+    public void rejectsInvalidMessages() {
+        UUID player = UUID.randomUUID();
+        byte[] message = new SyncBatch("s", 1L, Arrays.asList(
+                new SyncBatch.Entry(CrownMutation.setOwner(player, player), 5L))).encode();
+
+        assertInvalid(Arrays.copyOf(message, message.length - 3));
+        assertInvalid(new byte[] {1, 2, 3});
+
+        byte[] wrongMagic = message.clone();
+        wrongMagic[0] = 'X';
+        assertInvalid(wrongMagic);
+
+        byte[] wrongVersion = message.clone();
+        wrongVersion[4] = 99;
+        assertInvalid(wrongVersion);
+    }
+
+    private static void assertInvalid(byte[] message) {
+        try {
+            SyncBatch.decode(message);
+            fail("Invalid message was decoded");
+        } catch (IOException e) {
+            assertFalse(e.getMessage().isEmpty());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.thefallersgames.crown.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.thefallersgames.crown.storage.CrownMutation;
+
+/**
+ * Tests for the last-writer-wins rules of the crown sync
+ */
+public class SyncStateTest {
+
+    @Test
+    public void newerChangesWin() {
+        SyncState state = new SyncState("a", 100L);
+        UUID player = UUID.randomUUID();
+
+        assertTrue(state.acceptRemote(CrownMutation.setOwner(player, player), 200L, "b"));
+        assertFalse(state.acceptRemote(CrownMutation.removeOwner(player), 150L, "c"));
+        assertTrue(state.acceptRemote(CrownMutation.removeOwner(player), 201L, "c"));
+    }
+
+    @Test
+    public void serverNameBreaksTies() {
+        UUID player = UUID.randomUUID();
+
+        SyncState first = new SyncState("x", 0L);
+        assertTrue(first.acceptRemote(CrownMutation.setOwner(player, player), 10L, "a"));
+        assertTrue(first.acceptRemote(CrownMutation.removeOwner(player), 10L, "b"));
+
+        // The same changes in the other order end the same way
+        SyncState second = new SyncState("x", 0L);
+        assertTrue(second.acceptRemote(CrownMutation.removeOwner(player), 10L, "b"));
+        assertFalse(second.acceptRemote(CrownMutation.setOwner(player, player), 10L, "a"));
+    }
+
+    @Test
+    public void ownerAndRespawnAreSeparate() {
+        SyncState state = new SyncState("a", 0L);
+        UUID player = UUID.randomUUID();
+
+        assertTrue(state.acceptRemote(CrownMutation.setOwner(player, player), 50L, "b"));
+        assertTrue(state.acceptRemote(CrownMutation.setRespawn(player, true), 20L, "b"));
+    }
+
+    @Test
+    public void localChangesFollowSeenChanges() {
+        SyncState state = new SyncState("a", 100L);
+        UUID player = UUID.randomUUID();
+
+        assertTrue(state.acceptRemote(CrownMutation.setOwner(player, player), 500L, "b"));
+        long clock = state.stampLocal(CrownMutation.removeOwner(player));
+        assertEquals(501L, clock);
+        assertEquals(501L, state.getClock());
+
+        // A late change of another server made before ours loses against it
+        assertFalse(state.acceptRemote(CrownMutation.setOwner(player, player), 400L, "c"));
+    }
+
+    @Test
+    public void duplicateBatchesAreDropped() {
+        SyncState state = new SyncState("a", 0L);
+
+        assertTrue(state.acceptBatch("b", 1L));
+        assertTrue(state.acceptBatch("b", 2L));
+        assertFalse(state.acceptBatch("b", 2L));
+        assertFalse(state.acceptBatch("b", 1L));
+        assertTrue(state.acceptBatch("c", 1L));
+        assertEquals(Long.valueOf(2L), state.getVersions().get("b"));
+    }
+}
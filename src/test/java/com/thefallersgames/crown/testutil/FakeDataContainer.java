@@ -0,0 +1,80 @@
+package com.thefallersgames.crown.testutil;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+/**
+ * Persistent data container backed by a map, storing values in their primitive form
+ */
+public class FakeDataContainer {
+    private final Map<NamespacedKey, Object> values = new LinkedHashMap<>();
+    private final PersistentDataContainer container = Doubles.of(PersistentDataContainer.class, this);
+
+    /**
+     * Gets the Bukkit view of this container
+     * @return The container double
+     */
+    public PersistentDataContainer asContainer() {
+        return container;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void set(NamespacedKey key, PersistentDataType type, Object value) {
+        values.put(key, type.toPrimitive(value, null));
+    }
+
+    @SuppressWarnings("rawtypes")
+    public boolean has(NamespacedKey key, PersistentDataType type) {
+        return type.getPrimitiveType().isInstance(values.get(key));
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public Object get(NamespacedKey key, PersistentDataType type) {
+        Object value = values.get(key);
+        return type.getPrimitiveType().isInstance(value) ? type.fromPrimitive(value, null) : null;
+    }
+
+    @SuppressWarnings("rawtypes")
+    public Object getOrDefault(NamespacedKey key, PersistentDataType type, Object defaultValue) {
+        Object value = get(key, type);
+        return value != null ? value : defaultValue;
+    }
+
+    public Set<NamespacedKey> getKeys() {
+        return new HashSet<>(values.keySet());
+    }
+
+    public void remove(NamespacedKey key) {
+        values.remove(key);
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    /**
+     * Creates an independent copy
+     * @return The copy
+     */
+    public FakeDataContainer copy() {
+        FakeDataContainer copy = new FakeDataContainer();
+        copy.values.putAll(values);
+        return copy;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof FakeDataContainer && values.equals(((FakeDataContainer) other).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return values.hashCode();
+    }
+}
@@ -0,0 +1,208 @@
+package com.thefallersgames.crown.testutil;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.bukkit.Material;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+/**
+ * Inventory backed by an array. A player inventory uses the
+ * {@link PlayerInventory#getContents()} numbering: 0-35 storage, 36-39 armor
+ * from boots to helmet and 40 the off hand.
+ */
+public class FakeInventory {
+    private static final int PLAYER_SIZE = 41;
+    private static final int PLAYER_STORAGE = 36;
+    private static final int HELMET = 39;
+
+    private final InventoryType type;
+    private final ItemStack[] contents;
+    private final Inventory inventory;
+    private InventoryHolder holder;
+    private int heldItemSlot;
+
+    private FakeInventory(InventoryType type, int size) {
+        this.type = type;
+        this.contents = new ItemStack[size];
+        this.inventory = type == InventoryType.PLAYER
+                ? Doubles.of(PlayerInventory.class, this)
+                : Doubles.of(Inventory.class, this);
+    }
+
+    /**
+     * Creates the inventory of a player
+     * @return The inventory
+     */
+    public static FakeInventory player() {
+        return new FakeInventory(InventoryType.PLAYER, PLAYER_SIZE);
+    }
+
+    /**
+     * Creates a container inventory
+     * @param type The inventory type, e.g. a chest
+     * @param size The number of slots
+     * @return The inventory
+     */
+    public static FakeInventory container(InventoryType type, int size) {
+        return new FakeInventory(type, size);
+    }
+
+    /**
+     * Gets the Bukkit view of this inventory
+     * @return The inventory double, a {@link PlayerInventory} for player inventories
+     */
+    public Inventory asInventory() {
+        return inventory;
+    }
+
+    /**
+     * Sets the holder of this inventory
+     * @param holder The holder, e.g. the player
+     */
+    public void setHolder(InventoryHolder holder) {
+        this.holder = holder;
+    }
+
+    public InventoryHolder getHolder() {
+        return holder;
+    }
+
+    public InventoryType getType() {
+        return type;
+    }
+
+    public int getSize() {
+        return contents.length;
+    }
+
+    public ItemStack getItem(int slot) {
+        return contents[slot];
+    }
+
+    public void setItem(int slot, ItemStack item) {
+        contents[slot] = item;
+    }
+
+    public ItemStack[] getContents() {
+        return contents.clone();
+    }
+
+    public void setContents(ItemStack[] items) {
+        Arrays.fill(contents, null);
+        System.arraycopy(items, 0, contents, 0, Math.min(items.length, contents.length));
+    }
+
+    public ItemStack[] getStorageContents() {
+        return Arrays.copyOf(contents, storageSize());
+    }
+
+    public HashMap<Integer, ItemStack> addItem(ItemStack... items) {
+        HashMap<Integer, ItemStack> leftover = new HashMap<>();
+        for (int i = 0; i < items.length; i++) {
+            ItemStack item = items[i];
+            int slot = firstEmpty();
+            if (slot < 0) {
+                leftover.put(i, item);
+            } else {
+                contents[slot] = item;
+            }
+        }
+        return leftover;
+    }
+
+    public void remove(ItemStack item) {
+        for (int slot = 0; slot < contents.length; slot++) {
+            if (item.equals(contents[slot])) {
+                contents[slot] = null;
+            }
+        }
+    }
+
+    public void remove(Material material) {
+        for (int slot = 0; slot < contents.length; slot++) {
+            if (contents[slot] != null && contents[slot].getType() == material) {
+                contents[slot] = null;
+            }
+        }
+    }
+
+    public void clear(int slot) {
+        contents[slot] = null;
+    }
+
+    public void clear() {
+        Arrays.fill(contents, null);
+    }
+
+    public boolean isEmpty() {
+        for (ItemStack item : contents) {
+            if (item != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int firstEmpty() {
+        for (int slot = 0; slot < storageSize(); slot++) {
+            if (contents[slot] == null) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    public int first(ItemStack item) {
+        for (int slot = 0; slot < contents.length; slot++) {
+            if (item.equals(contents[slot])) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    public ItemStack getHelmet() {
+        return contents[HELMET];
+    }
+
+    public void setHelmet(ItemStack item) {
+        contents[HELMET] = item;
+    }
+
+    public ItemStack[] getArmorContents() {
+        return Arrays.copyOfRange(contents, PLAYER_STORAGE, HELMET + 1);
+    }
+
+    public ItemStack getItemInMainHand() {
+        return contents[heldItemSlot];
+    }
+
+    public void setItemInMainHand(ItemStack item) {
+        contents[heldItemSlot] = item;
+    }
+
+    public ItemStack getItemInOffHand() {
+        return contents[PLAYER_SIZE - 1];
+    }
+
+    public void setItemInOffHand(ItemStack item) {
+        contents[PLAYER_SIZE - 1] = item;
+    }
+
+    public int getHeldItemSlot() {
+        return heldItemSlot;
+    }
+
+    public void setHeldItemSlot(int slot) {
+        this.heldItemSlot = slot;
+    }
+
+    private int storageSize() {
+        return type == InventoryType.PLAYER ? PLAYER_STORAGE : contents.length;
+    }
+}
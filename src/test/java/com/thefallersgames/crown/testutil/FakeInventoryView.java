@@ -0,0 +1,72 @@
+package com.thefallersgames.crown.testutil;
+
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
+
+/**
+ * An open container with the player inventory below it, as used to build click events
+ */
+public class FakeInventoryView extends InventoryView {
+    private final Inventory top;
+    private final Inventory bottom;
+    private final HumanEntity player;
+    private String title;
+
+    /**
+     * Creates a new view
+     * @param top The container the player opened
+     * @param player The player looking at it
+     */
+    public FakeInventoryView(FakeInventory top, FakePlayer player) {
+        this.top = top.asInventory();
+        this.bottom = player.getInventory();
+        this.player = player.asPlayer();
+        this.title = top.getType().getDefaultTitle();
+    }
+
+    /**
+     * Gets the raw slot of a slot in the player inventory, as used by click events
+     * @param slot The slot in the {@link org.bukkit.inventory.PlayerInventory#getContents()} numbering, 0-35
+     * @return The raw slot in this view
+     */
+    public int rawSlotOfPlayerSlot(int slot) {
+        // Below the container come the main storage rows, then the hotbar
+        int storage = slot < 9 ? slot + 27 : slot - 9;
+        return top.getSize() + storage;
+    }
+
+    @Override
+    public Inventory getTopInventory() {
+        return top;
+    }
+
+    @Override
+    public Inventory getBottomInventory() {
+        return bottom;
+    }
+
+    @Override
+    public HumanEntity getPlayer() {
+        return player;
+    }
+
+    @Override
+    public InventoryType getType() {
+        return top.getType();
+    }
+
+    @Override
+    public String getTitle() {
+        return title;
+    }
+
+    public String getOriginalTitle() {
+        return top.getType().getDefaultTitle();
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+}
@@ -0,0 +1,60 @@
+package com.thefallersgames.crown.testutil;
+
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Item;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Item lying on the ground, as passed to pickup events
+ */
+public class FakeItem {
+    private final Item item = Doubles.of(Item.class, this);
+    private final UUID uniqueId = UUID.randomUUID();
+    private final FakeWorld world;
+    private ItemStack stack;
+
+    /**
+     * Creates a new dropped item
+     * @param world The world the item lies in
+     * @param stack The item stack
+     */
+    public FakeItem(FakeWorld world, ItemStack stack) {
+        this.world = world;
+        this.stack = stack;
+    }
+
+    /**
+     * Gets the Bukkit view of this item
+     * @return The item double
+     */
+    public Item asItem() {
+        return item;
+    }
+
+    public UUID getUniqueId() {
+        return uniqueId;
+    }
+
+    public ItemStack getItemStack() {
+        return stack;
+    }
+
+    public void setItemStack(ItemStack stack) {
+        this.stack = stack;
+    }
+
+    public World getWorld() {
+        return world.asWorld();
+    }
+
+    public Location getLocation() {
+        return new Location(world.asWorld(), 0, 64, 0);
+    }
+
+    public boolean isValid() {
+        return true;
+    }
+}
@@ -0,0 +1,56 @@
+package com.thefallersgames.crown.testutil;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+/**
+ * Item factory handing out {@link FakeItemMeta}, which is all {@link ItemStack} needs
+ * to read and write meta outside of a server
+ */
+public class FakeItemFactory {
+    private final ItemFactory factory = Doubles.of(ItemFactory.class, this);
+
+    /**
+     * Gets the Bukkit view of this factory
+     * @return The factory double
+     */
+    public ItemFactory asFactory() {
+        return factory;
+    }
+
+    public ItemMeta getItemMeta(Material material) {
+        return material == Material.AIR ? null : new FakeItemMeta().asMeta();
+    }
+
+    public boolean isApplicable(ItemMeta meta, ItemStack stack) {
+        return stack != null && stack.getType() != Material.AIR;
+    }
+
+    public boolean isApplicable(ItemMeta meta, Material material) {
+        return material != Material.AIR;
+    }
+
+    public boolean equals(ItemMeta first, ItemMeta second) {
+        FakeItemMeta a = Doubles.unwrap(first, FakeItemMeta.class);
+        FakeItemMeta b = Doubles.unwrap(second, FakeItemMeta.class);
+        if (a == null || b == null) {
+            // A missing meta equals an empty one
+            return (a == null || a.isEmpty()) && (b == null || b.isEmpty());
+        }
+        return a.equals(b);
+    }
+
+    public ItemMeta asMetaFor(ItemMeta meta, ItemStack stack) {
+        return meta;
+    }
+
+    public ItemMeta asMetaFor(ItemMeta meta, Material material) {
+        return meta;
+    }
+
+    public Material updateMaterial(ItemMeta meta, Material material) {
+        return material;
+    }
+}
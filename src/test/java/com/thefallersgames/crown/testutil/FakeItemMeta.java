@@ -0,0 +1,192 @@
+package com.thefallersgames.crown.testutil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.bukkit.attribute.Attribute;
+import org.bukkit.attribute.AttributeModifier;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+
+/**
+ * Item meta holding the properties the plugin reads and writes. Getters copy
+ * collections like the server does, so allocation per operation is realistic.
+ */
+public class FakeItemMeta {
+    private final ItemMeta meta = Doubles.of(ItemMeta.class, this);
+    private String displayName;
+    private List<String> lore;
+    private Integer customModelData;
+    private final Map<Enchantment, Integer> enchants = new LinkedHashMap<>();
+    private final Map<Attribute, List<AttributeModifier>> modifiers = new EnumMap<>(Attribute.class);
+    private final Set<ItemFlag> flags = EnumSet.noneOf(ItemFlag.class);
+    private boolean unbreakable;
+    private FakeDataContainer data = new FakeDataContainer();
+
+    /**
+     * Gets the Bukkit view of this meta
+     * @return The meta double
+     */
+    public ItemMeta asMeta() {
+        return meta;
+    }
+
+    public boolean hasDisplayName() {
+        return displayName != null;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public void setDisplayName(String name) {
+        this.displayName = name;
+    }
+
+    public boolean hasLore() {
+        return lore != null;
+    }
+
+    public List<String> getLore() {
+        return lore == null ? null : new ArrayList<>(lore);
+    }
+
+    public void setLore(List<String> lore) {
+        this.lore = lore == null ? null : new ArrayList<>(lore);
+    }
+
+    public boolean hasCustomModelData() {
+        return customModelData != null;
+    }
+
+    public int getCustomModelData() {
+        return customModelData;
+    }
+
+    public void setCustomModelData(Integer data) {
+        this.customModelData = data;
+    }
+
+    public boolean hasEnchants() {
+        return !enchants.isEmpty();
+    }
+
+    public boolean hasEnchant(Enchantment enchantment) {
+        return enchants.containsKey(enchantment);
+    }
+
+    public int getEnchantLevel(Enchantment enchantment) {
+        Integer level = enchants.get(enchantment);
+        return level == null ? 0 : level;
+    }
+
+    public Map<Enchantment, Integer> getEnchants() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(enchants));
+    }
+
+    public boolean addEnchant(Enchantment enchantment, int level, boolean ignoreLevelRestriction) {
+        Integer previous = enchants.put(enchantment, level);
+        return previous == null || previous != level;
+    }
+
+    public boolean removeEnchant(Enchantment enchantment) {
+        return enchants.remove(enchantment) != null;
+    }
+
+    public void addItemFlags(ItemFlag... itemFlags) {
+        Collections.addAll(flags, itemFlags);
+    }
+
+    public void removeItemFlags(ItemFlag... itemFlags) {
+        for (ItemFlag flag : itemFlags) {
+            flags.remove(flag);
+        }
+    }
+
+    public Set<ItemFlag> getItemFlags() {
+        return EnumSet.copyOf(flags);
+    }
+
+    public boolean hasItemFlag(ItemFlag flag) {
+        return flags.contains(flag);
+    }
+
+    public boolean isUnbreakable() {
+        return unbreakable;
+    }
+
+    public void setUnbreakable(boolean unbreakable) {
+        this.unbreakable = unbreakable;
+    }
+
+    public boolean hasAttributeModifiers() {
+        return !modifiers.isEmpty();
+    }
+
+    public Collection<AttributeModifier> getAttributeModifiers(Attribute attribute) {
+        List<AttributeModifier> list = modifiers.get(attribute);
+        return list == null ? null : Collections.unmodifiableList(new ArrayList<>(list));
+    }
+
+    public boolean addAttributeModifier(Attribute attribute, AttributeModifier modifier) {
+        return modifiers.computeIfAbsent(attribute, key -> new ArrayList<>()).add(modifier);
+    }
+
+    public PersistentDataContainer getPersistentDataContainer() {
+        return data.asContainer();
+    }
+
+    public ItemMeta clone() {
+        FakeItemMeta copy = new FakeItemMeta();
+        copy.displayName = displayName;
+        copy.lore = lore == null ? null : new ArrayList<>(lore);
+        copy.customModelData = customModelData;
+        copy.enchants.putAll(enchants);
+        for (Map.Entry<Attribute, List<AttributeModifier>> entry : modifiers.entrySet()) {
+            copy.modifiers.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        copy.flags.addAll(flags);
+        copy.unbreakable = unbreakable;
+        copy.data = data.copy();
+        return copy.meta;
+    }
+
+    /**
+     * Checks if nothing was set on this meta
+     * @return true if the meta equals a fresh one
+     */
+    public boolean isEmpty() {
+        return displayName == null && lore == null && customModelData == null && enchants.isEmpty()
+                && modifiers.isEmpty() && flags.isEmpty() && !unbreakable && data.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof FakeItemMeta)) {
+            return false;
+        }
+        FakeItemMeta that = (FakeItemMeta) other;
+        return Objects.equals(displayName, that.displayName) && Objects.equals(lore, that.lore)
+                && Objects.equals(customModelData, that.customModelData) && enchants.equals(that.enchants)
+                && modifiers.equals(that.modifiers) && flags.equals(that.flags)
+                && unbreakable == that.unbreakable && data.equals(that.data);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(displayName, lore, customModelData, enchants, modifiers, flags, unbreakable, data);
+    }
+}
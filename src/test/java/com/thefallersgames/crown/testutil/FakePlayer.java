@@ -0,0 +1,197 @@
+package com.thefallersgames.crown.testutil;
+
+import java.util.UUID;
+
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+/**
+ * Online player with an inventory, a cursor and a position. Messages are
+ * counted instead of sent.
+ */
+public class FakePlayer {
+    private final Player player = Doubles.of(Player.class, this);
+    private final FakeServer server;
+    private final String name;
+    private final UUID uniqueId;
+    private final FakeInventory inventory = FakeInventory.player();
+    private final FakeWorld world;
+    private ItemStack cursor;
+    private Player killer;
+    private double x;
+    private double y;
+    private double z;
+    private boolean online = true;
+    private boolean op;
+    private int messageCount;
+    private String lastMessage;
+
+    /**
+     * Creates a new player, use {@link FakeServer#addPlayer(String)} to also put them online
+     * @param server The server the player is on
+     * @param name The player name
+     * @param uniqueId The player UUID
+     * @param world The world the player is in
+     */
+    public FakePlayer(FakeServer server, String name, UUID uniqueId, FakeWorld world) {
+        this.server = server;
+        this.name = name;
+        this.uniqueId = uniqueId;
+        this.world = world;
+        inventory.setHolder(player);
+    }
+
+    /**
+     * Gets the Bukkit view of this player
+     * @return The player double
+     */
+    public Player asPlayer() {
+        return player;
+    }
+
+    /**
+     * Gets the fake behind the inventory of this player
+     * @return The inventory
+     */
+    public FakeInventory getFakeInventory() {
+        return inventory;
+    }
+
+    /**
+     * Moves the player within their world
+     * @param x The new X coordinate
+     * @param y The new Y coordinate
+     * @param z The new Z coordinate
+     */
+    public void moveTo(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * Sets the player that killed this player last
+     * @param killer The killer, or null if the player died by other means
+     */
+    public void setKiller(Player killer) {
+        this.killer = killer;
+    }
+
+    /**
+     * Marks the player as online or offline
+     * @param online true if the player is online
+     */
+    public void setOnline(boolean online) {
+        this.online = online;
+    }
+
+    /**
+     * Gets the number of messages sent to this player
+     * @return The message count
+     */
+    public int getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * Gets the last message sent to this player
+     * @return The message, or null if none was sent
+     */
+    public String getLastMessage() {
+        return lastMessage;
+    }
+
+    public UUID getUniqueId() {
+        return uniqueId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDisplayName() {
+        return name;
+    }
+
+    public Server getServer() {
+        return server.asServer();
+    }
+
+    public PlayerInventory getInventory() {
+        return (PlayerInventory) inventory.asInventory();
+    }
+
+    public ItemStack getItemOnCursor() {
+        return cursor;
+    }
+
+    public void setItemOnCursor(ItemStack item) {
+        this.cursor = item;
+    }
+
+    public void sendMessage(String message) {
+        messageCount++;
+        lastMessage = message;
+    }
+
+    public void sendMessage(String[] messages) {
+        for (String message : messages) {
+            sendMessage(message);
+        }
+    }
+
+    public Player getKiller() {
+        return killer;
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public boolean isValid() {
+        return online;
+    }
+
+    public boolean isOp() {
+        return op;
+    }
+
+    public void setOp(boolean op) {
+        this.op = op;
+    }
+
+    public boolean hasPermission(String permission) {
+        return op;
+    }
+
+    public boolean canSee(Player other) {
+        return true;
+    }
+
+    public GameMode getGameMode() {
+        return GameMode.SURVIVAL;
+    }
+
+    public World getWorld() {
+        return world.asWorld();
+    }
+
+    public Location getLocation() {
+        return new Location(world.asWorld(), x, y, z);
+    }
+
+    public Location getLocation(Location location) {
+        if (location != null) {
+            location.setWorld(world.asWorld());
+            location.setX(x);
+            location.setY(y);
+            location.setZ(z);
+        }
+        return location;
+    }
+}
@@ -0,0 +1,182 @@
+package com.thefallersgames.crown.testutil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Scheduler driven by hand: tasks only run when {@link #tick()} is called.
+ * Asynchronous tasks run during ticks as well, which keeps runs deterministic.
+ */
+public class FakeScheduler {
+    private final BukkitScheduler scheduler = Doubles.of(BukkitScheduler.class, this);
+    private final List<Task> tasks = new ArrayList<>();
+    private long currentTick;
+    private int nextId = 1;
+
+    /**
+     * Gets the Bukkit view of this scheduler
+     * @return The scheduler double
+     */
+    public BukkitScheduler asScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Runs one tick
+     */
+    public void tick() {
+        currentTick++;
+        // Tasks scheduled while running are due at a later tick, so they are skipped here
+        int size = tasks.size();
+        for (int i = 0; i < size; i++) {
+            Task task = tasks.get(i);
+            if (!task.cancelled && task.nextTick <= currentTick) {
+                task.runnable.run();
+                if (task.period > 0) {
+                    task.nextTick = currentTick + task.period;
+                } else {
+                    task.cancelled = true;
+                }
+            }
+        }
+
+        int kept = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            if (!task.cancelled) {
+                tasks.set(kept++, task);
+            }
+        }
+        while (tasks.size() > kept) {
+            tasks.remove(tasks.size() - 1);
+        }
+    }
+
+    /**
+     * Runs several ticks
+     * @param ticks The number of ticks to run
+     */
+    public void tick(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            tick();
+        }
+    }
+
+    /**
+     * Gets the number of ticks run so far
+     * @return The current tick
+     */
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * Gets the number of tasks that will still run
+     * @return The pending task count
+     */
+    public int getPendingCount() {
+        return tasks.size();
+    }
+
+    public BukkitTask runTask(Plugin plugin, Runnable runnable) {
+        return schedule(plugin, runnable, 0L, 0L, true);
+    }
+
+    public BukkitTask runTaskLater(Plugin plugin, Runnable runnable, long delay) {
+        return schedule(plugin, runnable, delay, 0L, true);
+    }
+
+    public BukkitTask runTaskTimer(Plugin plugin, Runnable runnable, long delay, long period) {
+        return schedule(plugin, runnable, delay, Math.max(1L, period), true);
+    }
+
+    public BukkitTask runTaskAsynchronously(Plugin plugin, Runnable runnable) {
+        return schedule(plugin, runnable, 0L, 0L, false);
+    }
+
+    public BukkitTask runTaskLaterAsynchronously(Plugin plugin, Runnable runnable, long delay) {
+        return schedule(plugin, runnable, delay, 0L, false);
+    }
+
+    public BukkitTask runTaskTimerAsynchronously(Plugin plugin, Runnable runnable, long delay, long period) {
+        return schedule(plugin, runnable, delay, Math.max(1L, period), false);
+    }
+
+    public void cancelTask(int taskId) {
+        for (Task task : tasks) {
+            if (task.id == taskId) {
+                task.cancelled = true;
+            }
+        }
+    }
+
+    public void cancelTasks(Plugin plugin) {
+        for (Task task : tasks) {
+            if (task.owner == plugin) {
+                task.cancelled = true;
+            }
+        }
+    }
+
+    public boolean isQueued(int taskId) {
+        for (Task task : tasks) {
+            if (task.id == taskId && !task.cancelled) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private BukkitTask schedule(Plugin plugin, Runnable runnable, long delay, long period, boolean sync) {
+        Task task = new Task(nextId++, plugin, runnable, currentTick + Math.max(1L, delay), period, sync);
+        tasks.add(task);
+        return task.task;
+    }
+
+    /**
+     * A scheduled task
+     */
+    public static class Task {
+        private final BukkitTask task = Doubles.of(BukkitTask.class, this);
+        private final int id;
+        private final Plugin owner;
+        private final Runnable runnable;
+        private final long period;
+        private final boolean sync;
+        private long nextTick;
+        private boolean cancelled;
+
+        private Task(int id, Plugin owner, Runnable runnable, long nextTick, long period, boolean sync) {
+            this.id = id;
+            this.owner = owner;
+            this.runnable = runnable;
+            this.nextTick = nextTick;
+            this.period = period;
+            this.sync = sync;
+        }
+
+        public int getTaskId() {
+            return id;
+        }
+
+        public Plugin getOwner() {
+            return owner;
+        }
+
+        public boolean isSync() {
+            return sync;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.thefallersgames.crown.testutil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.scheduler.BukkitScheduler;
+
+/**
+ * The server behind {@link Bukkit}. Bukkit only accepts one server per JVM, so
+ * there is a single instance that tests and benchmarks share; call
+ * {@link #reset()} to start from an empty server.
+ */
+public class FakeServer {
+    private static FakeServer instance;
+
+    private final Server server = Doubles.of(Server.class, this);
+    private final Logger logger = Logger.getLogger("FakeServer");
+    private final FakeItemFactory itemFactory = new FakeItemFactory();
+    private final PluginManager pluginManager = Doubles.of(PluginManager.class, new Object());
+    private final Map<UUID, Player> players = new LinkedHashMap<>();
+    private final Collection<Player> onlinePlayers = Collections.unmodifiableCollection(players.values());
+    private final FakeWorld world = new FakeWorld("world");
+    private FakeScheduler scheduler = new FakeScheduler();
+
+    private FakeServer() {
+    }
+
+    /**
+     * Gets the server, installing it into {@link Bukkit} the first time
+     * @return The shared server
+     */
+    public static synchronized FakeServer get() {
+        if (instance == null) {
+            instance = new FakeServer();
+            Bukkit.setServer(instance.server);
+        }
+        return instance;
+    }
+
+    /**
+     * Gets the Bukkit view of this server
+     * @return The server double
+     */
+    public Server asServer() {
+        return server;
+    }
+
+    /**
+     * Gets the fake behind the scheduler
+     * @return The scheduler, which only runs tasks when ticked
+     */
+    public FakeScheduler getFakeScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Gets the only world
+     * @return The world
+     */
+    public FakeWorld getFakeWorld() {
+        return world;
+    }
+
+    /**
+     * Creates a player and puts them online, with a UUID derived from the name
+     * @param name The player name
+     * @return The player
+     */
+    public FakePlayer addPlayer(String name) {
+        FakePlayer player = new FakePlayer(this, name, UUID.nameUUIDFromBytes(name.getBytes()), world);
+        players.put(player.getUniqueId(), player.asPlayer());
+        world.addPlayer(player.asPlayer());
+        return player;
+    }
+
+    /**
+     * Takes a player offline
+     * @param player The player
+     */
+    public void removePlayer(FakePlayer player) {
+        player.setOnline(false);
+        players.remove(player.getUniqueId());
+        world.removePlayer(player.asPlayer());
+    }
+
+    /**
+     * Removes all players and pending tasks
+     */
+    public void reset() {
+        for (Player player : new ArrayList<>(players.values())) {
+            removePlayer(Doubles.unwrap(player, FakePlayer.class));
+        }
+        scheduler = new FakeScheduler();
+    }
+
+    public String getName() {
+        return "FakeServer";
+    }
+
+    public String getVersion() {
+        return "test";
+    }
+
+    public String getBukkitVersion() {
+        return "1.19.4-R0.1-SNAPSHOT";
+    }
+
+    public Logger getLogger() {
+        return logger;
+    }
+
+    public boolean isPrimaryThread() {
+        return true;
+    }
+
+    public BukkitScheduler getScheduler() {
+        return scheduler.asScheduler();
+    }
+
+    public ItemFactory getItemFactory() {
+        return itemFactory.asFactory();
+    }
+
+    public PluginManager getPluginManager() {
+        return pluginManager;
+    }
+
+    public Collection<? extends Player> getOnlinePlayers() {
+        return onlinePlayers;
+    }
+
+    public Player getPlayer(UUID uniqueId) {
+        return players.get(uniqueId);
+    }
+
+    public Player getPlayer(String name) {
+        for (Player player : players.values()) {
+            if (player.getName().equalsIgnoreCase(name)) {
+                return player;
+            }
+        }
+        return null;
+    }
+
+    public Player getPlayerExact(String name) {
+        for (Player player : players.values()) {
+            if (player.getName().equals(name)) {
+                return player;
+            }
+        }
+        return null;
+    }
+
+    public List<World> getWorlds() {
+        return Collections.singletonList(world.asWorld());
+    }
+
+    public World getWorld(String name) {
+        return world.getName().equals(name) ? world.asWorld() : null;
+    }
+}
@@ -0,0 +1,68 @@
+package com.thefallersgames.crown.testutil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+/**
+ * World that only knows its name and the players in it. Particles and dropped
+ * items go nowhere.
+ */
+public class FakeWorld {
+    private final World world = Doubles.of(World.class, this);
+    private final String name;
+    private final UUID uid;
+    private final List<Player> players = new ArrayList<>();
+
+    /**
+     * Creates a new world
+     * @param name The world name
+     */
+    public FakeWorld(String name) {
+        this.name = name;
+        this.uid = UUID.nameUUIDFromBytes(name.getBytes());
+    }
+
+    /**
+     * Gets the Bukkit view of this world
+     * @return The world double
+     */
+    public World asWorld() {
+        return world;
+    }
+
+    /**
+     * Adds a player to this world
+     * @param player The player
+     */
+    public void addPlayer(Player player) {
+        players.add(player);
+    }
+
+    /**
+     * Removes a player from this world
+     * @param player The player
+     */
+    public void removePlayer(Player player) {
+        players.remove(player);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public UUID getUID() {
+        return uid;
+    }
+
+    public List<Player> getPlayers() {
+        return new ArrayList<>(players);
+    }
+
+    public int getViewDistance() {
+        return 10;
+    }
+}
@@ -0,0 +1,543 @@
+package com.thefallersgames.crown.testutil;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.bukkit.Material;
+import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.event.inventory.InventoryType.SlotType;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.inventory.ItemStack;
+
+import com.thefallersgames.crown.listeners.CrownEventListener;
+import com.thefallersgames.crown.listeners.CrownInventoryListener;
+import com.thefallersgames.crown.managers.CrownManager;
+import com.thefallersgames.crown.metrics.CrownMetrics;
+import com.thefallersgames.crown.metrics.LatencyHistogram;
+
+/**
+ * Drives {@link CrownEventListener}, {@link CrownInventoryListener} and
+ * {@link CrownManager} with synthetic players, to find out what a given
+ * population costs without a server.
+ * <p>
+ * Every simulated tick each kind of action fires on randomly chosen living
+ * players, as often as its per-player rate asks for, and then the scheduler
+ * runs the tick, including the rescans the listener queued. Dead players drop
+ * their items, which later pickups find on the ground, and respawn after a
+ * fixed delay. The events of a tick are built before they are dispatched, so
+ * the measured time and allocation only cover the plugin: handler latencies
+ * come from the plugin's own {@link CrownMetrics}, throughput and allocation
+ * are taken around the dispatch of each tick and around the scheduled tasks.
+ * <p>
+ * The plugin must be enabled on the {@link FakeServer}; settings like
+ * {@code behavior.transfer_on_kill} are read from its configuration as usual.
+ */
+public class LoadSimulator {
+    private static final int TICKS_PER_SECOND = 20;
+    private static final int CHEST_SIZE = 27;
+    private static final int HOPPER_SIZE = 5;
+    private static final int MAX_GROUND_ITEMS = 1024;
+    private static final Material[] STARTER_ITEMS = {
+        Material.STONE_SWORD, Material.BREAD, Material.COBBLESTONE, Material.TORCH, Material.DIRT
+    };
+
+    /**
+     * The actions the simulated players perform
+     */
+    public enum Action {
+        CLICK,
+        DRAG,
+        HOPPER_MOVE,
+        PICKUP,
+        DEATH,
+        RESPAWN
+    }
+
+    private final TestCrownPlugin plugin;
+    private final FakeServer server;
+    private final CrownEventListener listener;
+    private final CrownInventoryListener inventoryListener;
+    private final Map<Action, Double> rates = new EnumMap<>(Action.class);
+    private final Map<Action, Double> carry = new EnumMap<>(Action.class);
+    private final Map<Action, Long> counts = new EnumMap<>(Action.class);
+    private final List<FakePlayer> players = new ArrayList<>();
+    private final Map<FakePlayer, FakeInventoryView> views = new HashMap<>();
+    private final List<FakePlayer> alive = new ArrayList<>();
+    private final ArrayDeque<Respawn> respawns = new ArrayDeque<>();
+    private final List<ItemStack> ground = new ArrayList<>();
+    private final List<Runnable> dispatch = new ArrayList<>();
+    private final List<FakePlayer> died = new ArrayList<>();
+    private final List<List<ItemStack>> deathDrops = new ArrayList<>();
+    private final FakeInventory hopper = FakeInventory.container(InventoryType.HOPPER, HOPPER_SIZE);
+    private final FakeInventory chest = FakeInventory.container(InventoryType.CHEST, CHEST_SIZE);
+    private int playerCount = 100;
+    private int crownCount = 10;
+    private double killerShare = 0.5;
+    private int respawnDelay = 20;
+    private long seed = 42L;
+    private SplittableRandom random;
+    private com.sun.management.ThreadMXBean allocations;
+
+    /**
+     * Creates a simulator with 100 players, 10 crowns and moderate rates
+     * @param plugin The enabled plugin to drive
+     */
+    public LoadSimulator(TestCrownPlugin plugin) {
+        this.plugin = plugin;
+        this.server = FakeServer.get();
+        this.listener = new CrownEventListener(plugin, plugin.getCrownManager(), plugin.getConfigManager());
+        this.inventoryListener = new CrownInventoryListener(plugin, plugin.getCrownManager(),
+                plugin.getConfigManager());
+        rate(Action.CLICK, 2.0);
+        rate(Action.DRAG, 0.2);
+        rate(Action.HOPPER_MOVE, 0.5);
+        rate(Action.PICKUP, 0.5);
+        rate(Action.DEATH, 0.005);
+    }
+
+    /**
+     * Sets the number of players
+     * @param players The number of players online
+     * @return This simulator
+     */
+    public LoadSimulator players(int players) {
+        this.playerCount = players;
+        return this;
+    }
+
+    /**
+     * Sets the number of crowns handed out before the run
+     * @param crowns The number of players holding a crown
+     * @return This simulator
+     */
+    public LoadSimulator crowns(int crowns) {
+        this.crownCount = crowns;
+        return this;
+    }
+
+    /**
+     * Sets how often each living player performs an action. Respawns do not
+     * have a rate, they follow deaths after {@link #respawnDelay(int)}.
+     * @param action The action
+     * @param perSecond The number of times per player per second, may be fractional
+     * @return This simulator
+     */
+    public LoadSimulator rate(Action action, double perSecond) {
+        if (action == Action.RESPAWN) {
+            throw new IllegalArgumentException("Respawns follow deaths, set the respawn delay instead");
+        }
+        rates.put(action, perSecond);
+        return this;
+    }
+
+    /**
+     * Sets the share of deaths caused by another player
+     * @param share The share between 0 and 1
+     * @return This simulator
+     */
+    public LoadSimulator killerShare(double share) {
+        this.killerShare = share;
+        return this;
+    }
+
+    /**
+     * Sets how long dead players wait before they respawn
+     * @param ticks The delay in ticks
+     * @return This simulator
+     */
+    public LoadSimulator respawnDelay(int ticks) {
+        this.respawnDelay = ticks;
+        return this;
+    }
+
+    /**
+     * Sets the seed for choosing players and actions, so runs can be repeated
+     * @param seed The seed
+     * @return This simulator
+     */
+    public LoadSimulator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Puts the players online, hands out the crowns and runs the simulation
+     * @param ticks The number of ticks to simulate
+     * @return The measurements of the run, not including the setup
+     */
+    public Report run(int ticks) {
+        random = new SplittableRandom(seed);
+        allocations = allocationCounter();
+        setUp();
+
+        Report report = new Report(plugin.getMetrics(), ticks, playerCount, crownCount, allocations != null);
+        for (int i = 0; i < ticks; i++) {
+            runTick(report);
+        }
+        report.counts.putAll(counts);
+        report.owners = plugin.getCrownManager().getCrownOwners().size();
+        return report;
+    }
+
+    private void setUp() {
+        CrownManager crownManager = plugin.getCrownManager();
+        for (int i = 0; i < playerCount; i++) {
+            FakePlayer player = server.addPlayer("Player" + i);
+            giveStarterItems(player);
+            players.add(player);
+            alive.add(player);
+            views.put(player, new FakeInventoryView(FakeInventory.container(InventoryType.CHEST, CHEST_SIZE), player));
+            listener.onPlayerJoin(new PlayerJoinEvent(player.asPlayer(), null));
+        }
+
+        // Spread the crowns over the players
+        for (int i = 0; i < crownCount && i < playerCount; i++) {
+            crownManager.giveCrown(players.get(i * playerCount / crownCount).asPlayer());
+        }
+        for (Action action : Action.values()) {
+            carry.put(action, 0.0);
+            counts.put(action, 0L);
+        }
+        server.getFakeScheduler().tick();
+
+        // The setup is not part of the measurements
+        plugin.getMetrics().reset();
+    }
+
+    private void runTick(Report report) {
+        long tick = server.getFakeScheduler().getCurrentTick();
+        for (int i = 0, n = due(Action.CLICK); i < n; i++) {
+            click(randomAlive());
+        }
+        for (int i = 0, n = due(Action.DRAG); i < n; i++) {
+            drag(randomAlive());
+        }
+        for (int i = 0, n = due(Action.HOPPER_MOVE); i < n; i++) {
+            hopperMove();
+        }
+        for (int i = 0, n = due(Action.PICKUP); i < n; i++) {
+            pickup(randomAlive());
+        }
+        for (int i = 0, n = due(Action.DEATH); i < n && alive.size() > 1; i++) {
+            death(alive.get(random.nextInt(alive.size())));
+        }
+        while (!respawns.isEmpty() && respawns.peek().tick <= tick) {
+            respawn(respawns.poll().player);
+        }
+
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (Runnable event : dispatch) {
+            event.run();
+        }
+        report.dispatchNanos += System.nanoTime() - start;
+        report.dispatchBytes += allocatedBytes() - bytes;
+        dispatch.clear();
+
+        // The server empties the inventory after the death event, unless the world keeps it
+        for (int i = 0; i < died.size(); i++) {
+            FakePlayer player = died.get(i);
+            player.getFakeInventory().clear();
+            player.setItemOnCursor(null);
+            for (ItemStack drop : deathDrops.get(i)) {
+                if (ground.size() < MAX_GROUND_ITEMS) {
+                    ground.add(drop);
+                }
+            }
+        }
+        died.clear();
+        deathDrops.clear();
+
+        bytes = allocatedBytes();
+        start = System.nanoTime();
+        server.getFakeScheduler().tick();
+        report.taskNanos += System.nanoTime() - start;
+        report.taskBytes += allocatedBytes() - bytes;
+    }
+
+    /**
+     * Gets how many times an action is due this tick, carrying fractions over to the next tick
+     */
+    private int due(Action action) {
+        double due = carry.get(action) + alive.size() * rates.getOrDefault(action, 0.0) / TICKS_PER_SECOND;
+        int count = (int) due;
+        carry.put(action, due - count);
+        return count;
+    }
+
+    private FakePlayer randomAlive() {
+        return alive.isEmpty() ? null : alive.get(random.nextInt(alive.size()));
+    }
+
+    private void count(Action action) {
+        counts.merge(action, 1L, Long::sum);
+    }
+
+    private void click(FakePlayer player) {
+        if (player == null) {
+            return;
+        }
+        FakeInventoryView view = views.get(player);
+        // Mostly clicks in the player's own inventory, sometimes in the open chest
+        int rawSlot = random.nextInt(4) == 0
+                ? random.nextInt(CHEST_SIZE)
+                : view.rawSlotOfPlayerSlot(random.nextInt(36));
+        InventoryAction action = view.getItem(rawSlot) != null ? InventoryAction.PICKUP_ALL : InventoryAction.PLACE_ALL;
+        InventoryClickEvent event = new InventoryClickEvent(view, SlotType.CONTAINER, rawSlot, ClickType.LEFT, action);
+        dispatch.add(() -> inventoryListener.onInventoryClick(event));
+        count(Action.CLICK);
+    }
+
+    private void drag(FakePlayer player) {
+        if (player == null) {
+            return;
+        }
+        FakeInventoryView view = views.get(player);
+        ItemStack cursor = new ItemStack(Material.COBBLESTONE, 32);
+        Map<Integer, ItemStack> slots = new HashMap<>();
+        for (int i = 0; i < 3; i++) {
+            slots.put(random.nextInt(CHEST_SIZE + 36), new ItemStack(Material.COBBLESTONE, 8));
+        }
+        InventoryDragEvent event = new InventoryDragEvent(view, new ItemStack(Material.COBBLESTONE, 8), cursor,
+                false, slots);
+        dispatch.add(() -> inventoryListener.onInventoryDrag(event));
+        count(Action.DRAG);
+    }
+
+    private void hopperMove() {
+        ItemStack item = new ItemStack(STARTER_ITEMS[random.nextInt(STARTER_ITEMS.length)]);
+        InventoryMoveItemEvent event = new InventoryMoveItemEvent(chest.asInventory(), item, hopper.asInventory(), true);
+        dispatch.add(() -> inventoryListener.onInventoryMoveItem(event));
+        count(Action.HOPPER_MOVE);
+    }
+
+    private void pickup(FakePlayer player) {
+        if (player == null) {
+            return;
+        }
+        // Items dropped on death are picked up first, otherwise something from the world
+        ItemStack stack = ground.isEmpty()
+                ? new ItemStack(STARTER_ITEMS[random.nextInt(STARTER_ITEMS.length)])
+                : ground.remove(ground.size() - 1);
+        FakeItem item = new FakeItem(server.getFakeWorld(), stack);
+        EntityPickupItemEvent event = new EntityPickupItemEvent(player.asPlayer(), item.asItem(), 0);
+        dispatch.add(() -> {
+            inventoryListener.onEntityPickupItem(event);
+            if (!event.isCancelled()) {
+                player.getFakeInventory().addItem(stack);
+            }
+        });
+        count(Action.PICKUP);
+    }
+
+    private void death(FakePlayer player) {
+        FakePlayer killer = null;
+        if (random.nextDouble() < killerShare) {
+            killer = alive.get(random.nextInt(alive.size()));
+            if (killer == player) {
+                killer = null;
+            }
+        }
+        player.setKiller(killer != null ? killer.asPlayer() : null);
+
+        List<ItemStack> drops = new ArrayList<>();
+        for (ItemStack item : player.getFakeInventory().getContents()) {
+            if (item != null) {
+                drops.add(item);
+            }
+        }
+        PlayerDeathEvent event = new PlayerDeathEvent(player.asPlayer(), drops, 0, player.getName() + " died");
+        dispatch.add(() -> listener.onPlayerDeath(event));
+        died.add(player);
+        deathDrops.add(drops);
+
+        alive.remove(player);
+        respawns.add(new Respawn(player, server.getFakeScheduler().getCurrentTick() + respawnDelay));
+        count(Action.DEATH);
+    }
+
+    @SuppressWarnings("deprecation")
+    private void respawn(FakePlayer player) {
+        giveStarterItems(player);
+        alive.add(player);
+        PlayerRespawnEvent event = new PlayerRespawnEvent(player.asPlayer(), player.getLocation(), false);
+        dispatch.add(() -> listener.onPlayerRespawn(event));
+        count(Action.RESPAWN);
+    }
+
+    private void giveStarterItems(FakePlayer player) {
+        for (int i = 0; i < STARTER_ITEMS.length; i++) {
+            player.getFakeInventory().setItem(i, new ItemStack(STARTER_ITEMS[i], i == 0 ? 1 : 16));
+        }
+    }
+
+    private long allocatedBytes() {
+        return allocations != null ? allocations.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0L;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+
+    private static final class Respawn {
+        private final FakePlayer player;
+        private final long tick;
+
+        private Respawn(FakePlayer player, long tick) {
+            this.player = player;
+            this.tick = tick;
+        }
+    }
+
+    /**
+     * The measurements of one simulation run
+     */
+    public static final class Report {
+        private final CrownMetrics metrics;
+        private final int ticks;
+        private final int players;
+        private final int crowns;
+        private final Map<Action, Long> counts = new EnumMap<>(Action.class);
+        private final boolean allocationsMeasured;
+        private long dispatchNanos;
+        private long dispatchBytes;
+        private long taskNanos;
+        private long taskBytes;
+        private int owners;
+
+        private Report(CrownMetrics metrics, int ticks, int players, int crowns, boolean allocationsMeasured) {
+            this.metrics = metrics;
+            this.ticks = ticks;
+            this.players = players;
+            this.crowns = crowns;
+            this.allocationsMeasured = allocationsMeasured;
+        }
+
+        /**
+         * Gets how often an action was performed
+         * @param action The action
+         * @return The count
+         */
+        public long getCount(Action action) {
+            return counts.getOrDefault(action, 0L);
+        }
+
+        /**
+         * Gets the number of events dispatched to the listener
+         * @return The event count
+         */
+        public long getEvents() {
+            long events = 0L;
+            for (long count : counts.values()) {
+                events += count;
+            }
+            return events;
+        }
+
+        /**
+         * Gets how many events the listener handled per second of wall time
+         * @return The throughput
+         */
+        public double getEventsPerSecond() {
+            return dispatchNanos == 0L ? 0.0 : getEvents() * 1e9 / dispatchNanos;
+        }
+
+        /**
+         * Gets the average main-thread time per tick spent in the listener and the scheduled tasks
+         * @return The time in milliseconds
+         */
+        public double getMillisPerTick() {
+            return (dispatchNanos + taskNanos) / 1e6 / Math.max(1, ticks);
+        }
+
+        /**
+         * Gets the average bytes allocated per dispatched event, including the tasks it scheduled
+         * @return The bytes per event, or -1 if the JVM cannot measure allocations
+         */
+        public double getBytesPerEvent() {
+            if (!allocationsMeasured) {
+                return -1.0;
+            }
+            return (dispatchBytes + taskBytes) / (double) Math.max(1L, getEvents());
+        }
+
+        /**
+         * Gets the number of crown owners at the end of the run
+         * @return The owner count
+         */
+        public int getOwners() {
+            return owners;
+        }
+
+        /**
+         * Gets the latencies of an event handler during the run
+         * @param handler The handler
+         * @return The histogram
+         */
+        public LatencyHistogram getLatency(CrownMetrics.Handler handler) {
+            return metrics.getHandlerTimes(handler);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder();
+            out.append(String.format(Locale.ROOT, "%d players, %d crowns, %d ticks (%d owners at the end)%n",
+                    players, crowns, ticks, owners));
+            out.append(String.format(Locale.ROOT, "%,d events, %,.0f events/s, %.3f ms per tick (%.1f%% of 50 ms)",
+                    getEvents(), getEventsPerSecond(), getMillisPerTick(), getMillisPerTick() * 2.0));
+            if (allocationsMeasured) {
+                out.append(String.format(Locale.ROOT, ", %.0f bytes allocated per event, %.1f MB/s simulated",
+                        getBytesPerEvent(), (dispatchBytes + taskBytes) / 1e6 / Math.max(1, ticks) * TICKS_PER_SECOND));
+            }
+            out.append(String.format(Locale.ROOT, "%n%-20s %10s %10s %10s %10s %10s%n",
+                    "handler", "calls", "avg us", "p50 us", "p99 us", "p99.9 us"));
+            for (CrownMetrics.Handler handler : CrownMetrics.Handler.values()) {
+                appendRow(out, handler.getLabel(), metrics.getHandlerTimes(handler));
+            }
+            for (CrownMetrics.Operation operation : CrownMetrics.Operation.values()) {
+                appendRow(out, operation.getLabel(), metrics.getOperationTimes(operation));
+            }
+            return out.toString();
+        }
+
+        private static void appendRow(StringBuilder out, String name, LatencyHistogram histogram) {
+            long[] buckets = histogram.getBucketCounts();
+            long calls = histogram.getCount();
+            if (calls == 0L) {
+                return;
+            }
+            out.append(String.format(Locale.ROOT, "%-20s %10d %10.2f %10s %10s %10s%n", name, calls,
+                    histogram.getSumNanos() / 1e3 / calls,
+                    bound(buckets, 0.5), bound(buckets, 0.99), bound(buckets, 0.999)));
+        }
+
+        private static String bound(long[] buckets, double percentile) {
+            long nanos = LatencyHistogram.getPercentileBound(buckets, percentile);
+            return nanos == Long.MAX_VALUE ? "overflow" : "<=" + String.format(Locale.ROOT, "%.0f", nanos / 1e3);
+        }
+    }
+}
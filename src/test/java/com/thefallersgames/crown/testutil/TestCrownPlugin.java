@@ -0,0 +1,138 @@
+package com.thefallersgames.crown.testutil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import com.thefallersgames.crown.CrownPlugin;
+import com.thefallersgames.crown.listeners.CrownInventoryListener;
+import com.thefallersgames.crown.managers.ConfigManager;
+import com.thefallersgames.crown.managers.CrownManager;
+import com.thefallersgames.crown.managers.CrownPresence;
+import com.thefallersgames.crown.managers.DataManager;
+import com.thefallersgames.crown.managers.RespawnQueue;
+import com.thefallersgames.crown.sync.CrownSync;
+import com.thefallersgames.crown.sync.SyncTransport;
+
+/**
+ * The plugin running on the {@link FakeServer}, with its data folder in a
+ * temporary directory.
+ * <p>
+ * {@link #enable()} wires the managers the same way {@link CrownPlugin#onEnable()}
+ * does, but leaves out commands, listeners and background threads so each
+ * test or benchmark only starts what it measures. Settings can be changed
+ * through {@link #getConfig()} before enabling.
+ */
+public class TestCrownPlugin extends CrownPlugin {
+    private ConfigManager configManager;
+    private CrownManager crownManager;
+    private DataManager dataManager;
+    private CrownPresence crownPresence;
+    private RespawnQueue respawnQueue;
+    private CrownSync crownSync;
+
+    @SuppressWarnings("deprecation")
+    private TestCrownPlugin(File dataFolder) {
+        super(new JavaPluginLoader(FakeServer.get().asServer()),
+                new PluginDescriptionFile("Crown", "test", CrownPlugin.class.getName()),
+                dataFolder, new File(dataFolder, "Crown.jar"));
+    }
+
+    /**
+     * Creates a plugin with an empty data folder
+     * @return The plugin, not yet enabled
+     */
+    public static TestCrownPlugin create() {
+        try {
+            return new TestCrownPlugin(Files.createTempDirectory("crown").toFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates the configuration and crown managers, the crown presence tracker
+     * and the respawn queue, and starts publishing ownership snapshots
+     * @return This plugin
+     */
+    public TestCrownPlugin enable() {
+        saveDefaultConfig();
+        configManager = new ConfigManager(this);
+        crownManager = new CrownManager(this, configManager);
+        crownPresence = new CrownPresence(this, crownManager, configManager,
+                new CrownInventoryListener(this, crownManager, configManager));
+        respawnQueue = new RespawnQueue(this, crownManager, configManager);
+        crownManager.start();
+        return this;
+    }
+
+    /**
+     * Creates the data manager for the configured backend, without starting its flusher
+     * @return The data manager
+     */
+    public DataManager enableData() {
+        dataManager = new DataManager(this);
+        return dataManager;
+    }
+
+    /**
+     * Starts syncing ownership changes with other plugins over a transport
+     * @param transport The transport to the other plugins
+     * @param serverId The name of this plugin within the network
+     * @return The crown sync
+     * @throws IOException If the transport cannot be opened
+     */
+    public CrownSync enableSync(SyncTransport transport, String serverId) throws IOException {
+        crownSync = new CrownSync(this, crownManager, transport, serverId);
+        crownSync.start();
+        return crownSync;
+    }
+
+    /**
+     * Deletes the data folder
+     */
+    public void deleteDataFolder() {
+        try (Stream<Path> files = Files.walk(getDataFolder().toPath())) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public ConfigManager getConfigManager() {
+        return configManager;
+    }
+
+    @Override
+    public CrownManager getCrownManager() {
+        return crownManager;
+    }
+
+    @Override
+    public DataManager getDataManager() {
+        return dataManager;
+    }
+
+    @Override
+    public CrownPresence getCrownPresence() {
+        return crownPresence;
+    }
+
+    @Override
+    public RespawnQueue getRespawnQueue() {
+        return respawnQueue;
+    }
+
+    @Override
+    public CrownSync getCrownSync() {
+        return crownSync;
+    }
+}